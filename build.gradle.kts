@@ -3,6 +3,7 @@ plugins {
     id("org.springframework.boot") version "3.5.6"
     id("io.spring.dependency-management") version "1.1.7"
     id("org.asciidoctor.jvm.convert") version "3.3.2"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.shah_s"
@@ -56,6 +57,7 @@ dependencies {
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310")
     
     implementation("org.apache.httpcomponents.client5:httpclient5:5.5")
+    implementation("com.github.ben-manes.caffeine:caffeine")
 }
 
 dependencyManagement {
@@ -64,6 +66,25 @@ dependencyManagement {
     }
 }
 
+// Benchmarks live in src/jmh/java; run with ./gradlew jmh (-PjmhIncludes=<regex> to select).
+// Results are written per commit to build/results/jmh/results-<commit>.json for comparison.
+val jmhCommit = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim().ifEmpty { "local" } }
+
+jmh {
+    jmhVersion.set("1.37")
+    benchmarkMode.set(listOf("avgt"))
+    timeUnit.set("us")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    includes.set(providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(emptyList()))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file(jmhCommit.map { "results/jmh/results-$it.json" }))
+}
+
 tasks.withType<Test> {
     useJUnitPlatform()
 }
@@ -0,0 +1,53 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
+import com.shah_s.bakery_payment_service.entity.Refund;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Detached entity graphs shaped like production data, built once per benchmark trial
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    // Completed card payment with the given number of transactions and refunds (every other refund completed)
+    public static Payment completedPayment(int transactionCount, int refundCount) {
+        Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                new BigDecimal("250000.00"), "Benchmark order");
+        payment.setId(UUID.randomUUID());
+        payment.setStatus(Payment.PaymentStatus.COMPLETED);
+        payment.setPaymentGateway(Payment.PaymentGateway.STRIPE);
+        payment.setCardBrand("VISA");
+        payment.setCardLastFour("4242");
+        payment.setGatewayPaymentId("GW-1700000000000-12345");
+        payment.setGatewayResponse("Transaction approved");
+        payment.setGatewayFee(new BigDecimal("7250.30"));
+        payment.setCreatedAt(LocalDateTime.now().minusHours(1));
+        payment.setUpdatedAt(LocalDateTime.now());
+        payment.setCapturedAt(LocalDateTime.now());
+
+        for (int i = 0; i < transactionCount; i++) {
+            PaymentTransaction transaction = new PaymentTransaction(payment,
+                    PaymentTransaction.TransactionType.SALE, payment.getAmount(), "Payment processing");
+            transaction.setId(UUID.randomUUID());
+            transaction.setStatus(PaymentTransaction.TransactionStatus.COMPLETED);
+            transaction.setProcessedAt(LocalDateTime.now());
+            payment.addTransaction(transaction);
+        }
+
+        for (int i = 0; i < refundCount; i++) {
+            Refund refund = new Refund(payment, new BigDecimal("1.25"), "Benchmark refund", UUID.randomUUID());
+            refund.setId(UUID.randomUUID());
+            refund.setStatus(i % 2 == 0 ? Refund.RefundStatus.COMPLETED : Refund.RefundStatus.PENDING);
+            payment.getRefunds().add(refund);
+            if (refund.getStatus() == Refund.RefundStatus.COMPLETED) {
+                payment.setRefundedAmount(payment.getRefundedAmount().add(refund.getAmount()));
+                payment.setRefundCount(payment.getRefundCount() + 1);
+            }
+        }
+        return payment;
+    }
+}
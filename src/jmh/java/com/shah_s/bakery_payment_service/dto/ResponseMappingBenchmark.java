@@ -0,0 +1,63 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shah_s.bakery_payment_service.BenchmarkFixtures;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Entity -> DTO mapping and JSON rendering done for every payment returned by the API
+@State(Scope.Benchmark)
+public class ResponseMappingBenchmark {
+
+    @Param({"0", "10", "200"})
+    public int refundCount;
+
+    private Payment payment;
+
+    private Refund refund;
+
+    private PaymentResponse response;
+
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        payment = BenchmarkFixtures.completedPayment(3, Math.max(refundCount, 1));
+        refund = payment.getRefunds().get(0);
+        if (refundCount == 0) {
+            payment.getRefunds().clear();
+        }
+
+        response = PaymentResponse.from(payment);
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Benchmark
+    public PaymentResponse paymentResponseFrom() {
+        return PaymentResponse.from(payment);
+    }
+
+    @Benchmark
+    public RefundResponse refundResponseFrom() {
+        return RefundResponse.from(refund);
+    }
+
+    @Benchmark
+    public byte[] serializePaymentResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializePayment() throws Exception {
+        return objectMapper.writeValueAsBytes(PaymentResponse.from(payment));
+    }
+}
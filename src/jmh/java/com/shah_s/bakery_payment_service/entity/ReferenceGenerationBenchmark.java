@@ -0,0 +1,40 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Payment and refund references are generated in the entity constructors
+@State(Scope.Benchmark)
+public class ReferenceGenerationBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("12.50");
+
+    private Payment payment;
+
+    @Setup
+    public void setUp() {
+        payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD, AMOUNT, "Benchmark");
+    }
+
+    @Benchmark
+    public String paymentReference() {
+        return new Payment(null, null, Payment.PaymentMethod.CARD, AMOUNT, null).getPaymentReference();
+    }
+
+    @Benchmark
+    public String refundReference() {
+        return new Refund(payment, AMOUNT, null, null).getRefundReference();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String paymentReferenceContended() {
+        return new Payment(null, null, Payment.PaymentMethod.CARD, AMOUNT, null).getPaymentReference();
+    }
+}
@@ -0,0 +1,40 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import com.shah_s.bakery_payment_service.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+
+// Refund totals come from the payment's counter columns; cost should not grow with refundCount
+@State(Scope.Benchmark)
+public class RefundTotalsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int refundCount;
+
+    private Payment payment;
+
+    @Setup
+    public void setUp() {
+        payment = BenchmarkFixtures.completedPayment(1, refundCount);
+    }
+
+    @Benchmark
+    public BigDecimal totalRefundedAmount() {
+        return payment.getTotalRefundedAmount();
+    }
+
+    @Benchmark
+    public BigDecimal refundableAmount() {
+        return payment.getRefundableAmount();
+    }
+
+    @Benchmark
+    public boolean canBeRefunded() {
+        return payment.canBeRefunded();
+    }
+}
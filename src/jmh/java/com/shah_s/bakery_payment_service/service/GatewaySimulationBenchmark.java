@@ -0,0 +1,40 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.BenchmarkFixtures;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService.PaymentGatewayResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+
+// Fee math and String.format raw-response building, with and without the per-gateway isolation around it
+@State(Scope.Benchmark)
+public class GatewaySimulationBenchmark {
+
+    private PaymentGatewayService gatewayService;
+
+    private Payment payment;
+
+    @Setup
+    public void setUp() {
+        // Breaker never opens here, so every call reaches the simulation
+        gatewayService = new PaymentGatewayService(new SimpleMeterRegistry(), 64, 0, Duration.ZERO,
+                20, 20, 101, Duration.ofSeconds(30), 3);
+        payment = BenchmarkFixtures.completedPayment(0, 0);
+    }
+
+    @Benchmark
+    public PaymentGatewayResponse simulateGatewayResponse() {
+        return gatewayService.simulateGatewayResponse(payment, PaymentTransaction.TransactionType.SALE);
+    }
+
+    @Benchmark
+    public PaymentGatewayResponse processPaymentGuarded() {
+        return gatewayService.processPayment(payment);
+    }
+}
@@ -0,0 +1,37 @@
+package com.shah_s.bakery_payment_service.client;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+// Blocking Feign client run on the order-service executor; one thread per outstanding call
+@Component
+@ConditionalOnProperty(name = "payment.order-client.mode", havingValue = "feign", matchIfMissing = true)
+public class FeignOrderGateway implements OrderGateway {
+
+    final private OrderServiceClient orderServiceClient;
+
+    final private TaskExecutor orderServiceExecutor;
+
+    public FeignOrderGateway(OrderServiceClient orderServiceClient,
+                             @Qualifier("orderServiceExecutor") TaskExecutor orderServiceExecutor) {
+        this.orderServiceClient = orderServiceClient;
+        this.orderServiceExecutor = orderServiceExecutor;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getOrder(UUID orderId) {
+        try {
+            return CompletableFuture.supplyAsync(() -> orderServiceClient.getOrderById(orderId), orderServiceExecutor);
+        } catch (RejectedExecutionException e) {
+            // Pool queue is full; fails like any other lookup error
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
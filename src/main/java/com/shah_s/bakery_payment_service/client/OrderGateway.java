@@ -0,0 +1,12 @@
+package com.shah_s.bakery_payment_service.client;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// Order-service lookups as composable futures; implementation chosen by payment.order-client.mode
+public interface OrderGateway {
+
+    // Completes with the order, or exceptionally when order-service fails or does not know the order
+    CompletableFuture<Map<String, Object>> getOrder(UUID orderId);
+}
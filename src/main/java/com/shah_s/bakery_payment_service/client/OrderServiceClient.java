@@ -3,6 +3,7 @@ package com.shah_s.bakery_payment_service.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -17,4 +18,8 @@ public interface OrderServiceClient {
 
     @PostMapping("/{orderId}/payment-update")
     Map<String, Object> updateOrderPaymentStatus(@PathVariable UUID orderId, @RequestBody Map<String, Object> request);
+
+    // Each entry is a payment-update body carrying its own orderId
+    @PostMapping("/payment-updates/bulk")
+    Map<String, Object> updateOrderPaymentStatuses(@RequestBody List<Map<String, Object>> updates);
 }
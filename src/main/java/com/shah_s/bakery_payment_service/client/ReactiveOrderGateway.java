@@ -0,0 +1,92 @@
+package com.shah_s.bakery_payment_service.client;
+
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking order-service client on a pooled Reactor Netty connection; no thread is held while a call is outstanding
+@Component
+@ConditionalOnProperty(name = "payment.order-client.mode", havingValue = "reactive")
+public class ReactiveOrderGateway implements OrderGateway, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveOrderGateway.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> ORDER_TYPE = new ParameterizedTypeReference<>() {};
+
+    final private ConnectionProvider connectionProvider;
+
+    final private WebClient webClient;
+
+    public ReactiveOrderGateway(WebClient.Builder webClientBuilder,
+                                ObjectProvider<ReactorLoadBalancerExchangeFilterFunction> loadBalancer,
+                                @Value("${payment.order-client.base-url:http://order-service/api/orders}") String baseUrl,
+                                @Value("${payment.order-client.load-balanced:true}") boolean loadBalanced,
+                                @Value("${payment.order-client.http2:false}") boolean http2,
+                                @Value("${payment.order-client.max-connections:100}") int maxConnections,
+                                @Value("${payment.order-client.pending-acquire-max:1000}") int pendingAcquireMax,
+                                @Value("${payment.order-client.max-idle-time:30s}") Duration maxIdleTime,
+                                @Value("${feign.client.config.default.connectTimeout:5000}") int connectTimeoutMs,
+                                @Value("${feign.client.config.default.readTimeout:5000}") long readTimeoutMs) {
+        // Bounded pool: callers beyond maxConnections wait in a bounded queue instead of opening sockets
+        this.connectionProvider = ConnectionProvider.builder("order-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(connectTimeoutMs))
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(maxIdleTime)
+                .lifo()
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+        if (http2) {
+            // Cleartext HTTP/2 with HTTP/1.1 fallback; one multiplexed connection serves many concurrent lookups
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        WebClient.Builder builder = webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+        if (loadBalanced) {
+            builder.filter(loadBalancer.getObject());
+        }
+        this.webClient = builder.build();
+
+        logger.info("Reactive order-service client: {} (max connections {}, http2 {})", baseUrl, maxConnections, http2);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getOrder(UUID orderId) {
+        return webClient.get()
+                .uri("/{orderId}", orderId)
+                .retrieve()
+                .bodyToMono(ORDER_TYPE)
+                .toFuture();
+    }
+
+    @Override
+    public void destroy() {
+        connectionProvider.disposeLater().block(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,100 @@
+package com.shah_s.bakery_payment_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class AsyncConfig implements AsyncConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    final private ExecutionMode mode;
+
+    final private int asyncConcurrency;
+
+    final private int asyncQueueCapacity;
+
+    public AsyncConfig(@Value("${payment.execution.mode:platform}") String mode,
+                       @Value("${payment.execution.async-concurrency:16}") int asyncConcurrency,
+                       @Value("${payment.execution.async-queue-capacity:1000}") int asyncQueueCapacity) {
+        this.mode = ExecutionMode.valueOf(mode.trim().toUpperCase());
+        this.asyncConcurrency = asyncConcurrency;
+        this.asyncQueueCapacity = asyncQueueCapacity;
+        logger.info("Blocking I/O execution mode: {}", this.mode);
+    }
+
+    // Payment gateway calls (outbox workers)
+    @Bean(name = "gatewayExecutor")
+    public TaskExecutor gatewayExecutor(@Value("${payment.execution.gateway-concurrency:8}") int concurrency,
+                                        @Value("${payment.execution.gateway-queue-capacity:500}") int queueCapacity) {
+        return createExecutor("gateway", concurrency, queueCapacity);
+    }
+
+    // Order service lookups
+    @Bean(name = "orderServiceExecutor")
+    public TaskExecutor orderServiceExecutor(@Value("${payment.execution.order-service-concurrency:16}") int concurrency,
+                                             @Value("${payment.execution.order-service-queue-capacity:1000}") int queueCapacity) {
+        return createExecutor("order-service", concurrency, queueCapacity);
+    }
+
+    // Fire-and-forget order service notifications
+    @Bean(name = "notificationExecutor")
+    public TaskExecutor notificationExecutor(@Value("${payment.execution.notification-concurrency:4}") int concurrency,
+                                             @Value("${payment.execution.notification-queue-capacity:10000}") int queueCapacity) {
+        return createExecutor("order-notify", concurrency, queueCapacity);
+    }
+
+    // Applying received webhooks, one ordering key per task; each task holds a DB connection
+    @Bean(name = "webhookExecutor")
+    public TaskExecutor webhookExecutor(@Value("${payment.execution.webhook-concurrency:4}") int concurrency,
+                                        @Value("${payment.execution.webhook-queue-capacity:1000}") int queueCapacity) {
+        return createExecutor("webhook", concurrency, queueCapacity);
+    }
+
+    // MVC async requests (streaming exports); each export holds a DB connection, so keep this below the pool size
+    @Bean(name = "exportExecutor")
+    public TaskExecutor exportExecutor(@Value("${payment.execution.export-concurrency:2}") int concurrency,
+                                       @Value("${payment.execution.export-queue-capacity:16}") int queueCapacity) {
+        return createExecutor("export", concurrency, queueCapacity);
+    }
+
+    // Default executor for @Async methods
+    @Bean(name = "taskExecutor")
+    public TaskExecutor taskExecutor() {
+        return createExecutor("async", asyncConcurrency, asyncQueueCapacity);
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return taskExecutor();
+    }
+
+    // Work beyond concurrency + queueCapacity is rejected, so overload reaches the callers' defer paths
+    private TaskExecutor createExecutor(String name, int concurrency, int queueCapacity) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            return new BoundedVirtualThreadExecutor(name, concurrency, queueCapacity);
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(name + "-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    public enum ExecutionMode {
+        PLATFORM,  // Bounded platform-thread pools sized to each concurrency cap, with bounded queues
+        VIRTUAL    // Virtual thread per task, capped by a per-subsystem semaphore and a bound on waiting tasks
+    }
+}
@@ -0,0 +1,122 @@
+package com.shah_s.bakery_payment_service.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+// Reports how many rows each JDBC write carried in one round-trip (payment.jdbc.write.rows, mode=batch|single)
+public class BatchMetricsDataSource extends DelegatingDataSource {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    final private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private volatile DistributionSummary batchRows;
+
+    private volatile DistributionSummary singleRows;
+
+    public BatchMetricsDataSource(DataSource targetDataSource, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(targetDataSource);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if (isIdentityMethod(method)) {
+                        return identity(proxy, method, args);
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement && STATEMENT_FACTORIES.contains(method.getName())) {
+                        return wrapStatement(statement, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private Object wrapStatement(Statement statement, Class<?> statementType) {
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {statementType},
+                (proxy, method, args) -> {
+                    if (isIdentityMethod(method)) {
+                        return identity(proxy, method, args);
+                    }
+                    Object result = invoke(statement, method, args);
+                    switch (method.getName()) {
+                        case "executeBatch" -> recordBatch(((int[]) result).length);
+                        case "executeLargeBatch" -> recordBatch(((long[]) result).length);
+                        case "executeUpdate" -> recordSingle((int) result);
+                        case "executeLargeUpdate" -> recordSingle((long) result);
+                        default -> { }
+                    }
+                    return result;
+                });
+    }
+
+    private void recordBatch(int rows) {
+        if (rows == 0) {
+            return;
+        }
+        DistributionSummary summary = batchRows;
+        if (summary == null) {
+            summary = batchRows = rowsSummary("batch");
+        }
+        summary.record(rows);
+    }
+
+    // The update count, so a set-based UPDATE or multi-row INSERT reports every row it wrote
+    private void recordSingle(long rows) {
+        DistributionSummary summary = singleRows;
+        if (summary == null) {
+            summary = singleRows = rowsSummary("single");
+        }
+        summary.record(rows);
+    }
+
+    // The registry is resolved lazily; the DataSource is created before metrics are available
+    private DistributionSummary rowsSummary(String mode) {
+        return DistributionSummary.builder("payment.jdbc.write.rows")
+                .tag("mode", mode)
+                .description("Rows written per JDBC round-trip")
+                .register(meterRegistry.getObject());
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return method.getDeclaringClass() == Object.class;
+    }
+
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> proxy.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+        };
+    }
+}
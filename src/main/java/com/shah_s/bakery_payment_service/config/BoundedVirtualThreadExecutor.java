@@ -0,0 +1,80 @@
+package com.shah_s.bakery_payment_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// One virtual thread per task; the concurrency cap is enforced inside the task so submitters never block. At most
+// queueCapacity tasks wait for a permit; beyond that execute() rejects, like a full ThreadPoolTaskExecutor queue
+public class BoundedVirtualThreadExecutor implements TaskExecutor, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedVirtualThreadExecutor.class);
+
+    final private ExecutorService executorService;
+
+    final private Semaphore permits;
+
+    // Running plus waiting tasks
+    final private Semaphore admissions;
+
+    final private String name;
+
+    final private int concurrencyLimit;
+
+    public BoundedVirtualThreadExecutor(String name, int concurrencyLimit, int queueCapacity) {
+        this.name = name;
+        this.concurrencyLimit = concurrencyLimit;
+        this.permits = new Semaphore(concurrencyLimit);
+        this.admissions = new Semaphore(concurrencyLimit + queueCapacity);
+        this.executorService = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!admissions.tryAcquire()) {
+            throw new TaskRejectedException("Executor " + name + " is at capacity");
+        }
+
+        try {
+            executorService.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    admissions.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            admissions.release();
+            throw e;
+        }
+    }
+
+    // Tasks currently holding a permit
+    public int getActiveCount() {
+        return concurrencyLimit - permits.availablePermits();
+    }
+
+    // Tasks parked waiting for a permit
+    public int getQueuedCount() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executorService.shutdown();
+        if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Executor {} did not drain within 30 seconds", name);
+            executorService.shutdownNow();
+        }
+    }
+}
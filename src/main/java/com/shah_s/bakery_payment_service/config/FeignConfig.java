@@ -0,0 +1,47 @@
+package com.shah_s.bakery_payment_service.config;
+
+import feign.Capability;
+import feign.Client;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class FeignConfig {
+
+    // Caps concurrent outbound order-service calls regardless of which thread (platform or virtual) issues them
+    @Bean
+    public Capability orderServiceConcurrencyCapability(
+            @Value("${payment.execution.order-service-concurrency:16}") int concurrency,
+            @Value("${feign.client.config.default.connectTimeout:5000}") long acquireTimeoutMs) {
+        Semaphore permits = new Semaphore(concurrency);
+
+        return new Capability() {
+            @Override
+            public Client enrich(Client client) {
+                return (request, options) -> {
+                    boolean acquired;
+                    try {
+                        acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted waiting for order-service permit", e);
+                    }
+                    if (!acquired) {
+                        throw new IOException("Order-service concurrency limit reached (" + concurrency + ")");
+                    }
+
+                    try {
+                        return client.execute(request, options);
+                    } finally {
+                        permits.release();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,160 @@
+package com.shah_s.bakery_payment_service.config;
+
+import com.shah_s.bakery_payment_service.id.ReferenceGenerator;
+import com.shah_s.bakery_payment_service.id.References;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Installs this instance's reference node id: payment.id.node-id when set, otherwise the lowest id without a live
+// lease in reference_node_leases. Either way the generator resumes after the node's latest stored reference.
+@Configuration
+public class IdConfig implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdConfig.class);
+
+    private static final int LEASE_ATTEMPTS = 5;
+
+    // Takes a free or expired id; two instances picking the same id race on the key and the loser tries again
+    private static final String LEASE_SQL =
+            "INSERT INTO reference_node_leases (node_id, owner, expires_at) " +
+            "SELECT n, :owner, :expiresAt FROM generate_series(0, :maxNodeId) n " +
+            "WHERE NOT EXISTS (SELECT 1 FROM reference_node_leases l WHERE l.node_id = n AND l.expires_at > :now) " +
+            "ORDER BY n LIMIT 1 " +
+            "ON CONFLICT (node_id) DO UPDATE SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at " +
+            "WHERE reference_node_leases.expires_at <= :now " +
+            "RETURNING node_id";
+
+    private static final String RENEW_SQL =
+            "UPDATE reference_node_leases SET expires_at = :expiresAt WHERE node_id = :nodeId AND owner = :owner";
+
+    private static final String RELEASE_SQL =
+            "DELETE FROM reference_node_leases WHERE node_id = :nodeId AND owner = :owner";
+
+    // Chars 20-21 hold the node id in PAY-/REF-yyyyMMddHHmmss-NNSSSS; the rest from char 5 sorts by issue order
+    private static final String LATEST_REFERENCE_SQL =
+            "SELECT reference FROM (" +
+            "SELECT payment_reference AS reference FROM payments " +
+            "WHERE created_at >= :since AND substr(payment_reference, 20, 2) = :node " +
+            "UNION ALL " +
+            "SELECT refund_reference FROM refunds " +
+            "WHERE created_at >= :since AND substr(refund_reference, 20, 2) = :node) r " +
+            "ORDER BY substr(reference, 5) DESC LIMIT 1";
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private Duration leaseDuration;
+
+    final private Duration resumeWindow;
+
+    // Unique per process, so a restarted instance never mistakes its predecessor's lease for its own
+    final private String owner;
+
+    // Null when the node id is configured
+    private volatile Integer leasedNodeId;
+
+    public IdConfig(NamedParameterJdbcTemplate jdbcTemplate,
+                    @Value("${payment.id.node-id:-1}") int nodeId,
+                    @Value("${payment.id.lease-duration:10m}") Duration leaseDuration,
+                    @Value("${payment.id.resume-window:1d}") Duration resumeWindow,
+                    @Value("${server.port:8085}") int serverPort) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaseDuration = leaseDuration;
+        this.resumeWindow = resumeWindow;
+        this.owner = hostName() + ":" + serverPort + ":" + UUID.randomUUID();
+
+        if (nodeId >= 0) {
+            install(nodeId);
+            logger.info("Reference generator node id: {}", nodeId);
+        } else {
+            leasedNodeId = lease();
+            install(leasedNodeId);
+            logger.info("Reference generator node id: {} (leased for {})", leasedNodeId, leaseDuration);
+        }
+    }
+
+    // Keep the lease alive; if it lapsed and another instance took the id, switch to a fresh one
+    @Scheduled(fixedDelayString = "${payment.id.lease-renew-interval:60000}")
+    public void renewLease() {
+        Integer nodeId = leasedNodeId;
+        if (nodeId == null) {
+            return;
+        }
+
+        try {
+            int renewed = jdbcTemplate.update(RENEW_SQL, new MapSqlParameterSource()
+                    .addValue("nodeId", nodeId)
+                    .addValue("owner", owner)
+                    .addValue("expiresAt", LocalDateTime.now().plus(leaseDuration)));
+            if (renewed == 0) {
+                logger.error("Lease on reference node id {} was lost; leasing a new one", nodeId);
+                leasedNodeId = lease();
+                install(leasedNodeId);
+                logger.info("Reference generator node id: {} (leased for {})", leasedNodeId, leaseDuration);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to renew reference node id lease {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Integer nodeId = leasedNodeId;
+        if (nodeId == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(RELEASE_SQL, new MapSqlParameterSource()
+                    .addValue("nodeId", nodeId)
+                    .addValue("owner", owner));
+        } catch (Exception e) {
+            // Expires on its own
+            logger.warn("Failed to release reference node id lease {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private int lease() {
+        for (int attempt = 0; attempt < LEASE_ATTEMPTS; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Integer> leased = jdbcTemplate.queryForList(LEASE_SQL, new MapSqlParameterSource()
+                    .addValue("owner", owner)
+                    .addValue("now", now)
+                    .addValue("expiresAt", now.plus(leaseDuration))
+                    .addValue("maxNodeId", ReferenceGenerator.MAX_NODE_ID), Integer.class);
+            if (!leased.isEmpty()) {
+                return leased.get(0);
+            }
+        }
+        throw new IllegalStateException("No free reference node id; set payment.id.node-id or wait for a lease to expire");
+    }
+
+    // Resumed before the switch, so no reference under the new id is issued behind the stored ones
+    private void install(int nodeId) {
+        List<String> latest = jdbcTemplate.queryForList(LATEST_REFERENCE_SQL, new MapSqlParameterSource()
+                .addValue("since", LocalDateTime.now().minus(resumeWindow))
+                .addValue("node", ReferenceGenerator.nodeCode(nodeId)), String.class);
+        if (!latest.isEmpty()) {
+            References.resumeAfter(latest.get(0));
+        }
+        References.configureNodeId(nodeId);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.shah_s.bakery_payment_service.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.Map;
+
+// Copies the payment, order and refund ids of the request path into the MDC so every line logged for the request
+// carries them (structured JSON logs in the prod profile); cleared when the request leaves the thread
+public class MdcHandlerInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String PAYMENT_ID = "paymentId";
+
+    public static final String PAYMENT_REFERENCE = "paymentReference";
+
+    public static final String ORDER_ID = "orderId";
+
+    public static final String REFUND_ID = "refundId";
+
+    private static final List<String> KEYS = List.of(PAYMENT_ID, PAYMENT_REFERENCE, ORDER_ID, REFUND_ID);
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE) instanceof Map<?, ?> variables) {
+            for (String key : KEYS) {
+                if (variables.get(key) instanceof String value) {
+                    MDC.put(key, value);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        clear();
+    }
+
+    public static void clear() {
+        KEYS.forEach(MDC::remove);
+    }
+}
@@ -0,0 +1,97 @@
+package com.shah_s.bakery_payment_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+public class ReplicaRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingConfig.class);
+
+    // One pool per replica URL; the set is empty when no replicas are configured
+    @Bean(destroyMethod = "close")
+    public ReplicaSet replicaSet(@Value("${payment.datasource.replicas.urls:}") String urls,
+                                 @Value("${payment.datasource.replicas.username:${spring.datasource.username:}}") String username,
+                                 @Value("${payment.datasource.replicas.password:${spring.datasource.password:}}") String password,
+                                 @Value("${payment.datasource.replicas.pool-size:10}") int poolSize,
+                                 @Value("${payment.datasource.replicas.connection-timeout:2s}") Duration connectionTimeout,
+                                 @Value("${payment.datasource.replicas.max-lag:5s}") Duration maxLag,
+                                 MeterRegistry meterRegistry) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (String url : replicaUrls(urls)) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + pools.size());
+            pool.setJdbcUrl(url);
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setMaximumPoolSize(poolSize);
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            pool.setReadOnly(true);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.add(pool);
+        }
+
+        if (!pools.isEmpty()) {
+            logger.info("Routing read-only transactions to {} replicas (max lag {})", pools.size(), maxLag);
+        }
+        return new ReplicaSet(pools, maxLag, meterRegistry);
+    }
+
+    // Static so the post-processor is registered before the DataSource is created; ordered ahead of the
+    // batch metrics wrapper so writes are still counted
+    @Bean
+    public static BeanPostProcessor replicaRoutingDataSourcePostProcessor(
+            @Value("${payment.datasource.replicas.urls:}") String urls, ObjectProvider<ReplicaSet> replicaSet) {
+        return new RoutingPostProcessor(!replicaUrls(urls).isEmpty(), replicaSet);
+    }
+
+    private static List<String> replicaUrls(String urls) {
+        return Arrays.stream(StringUtils.commaDelimitedListToStringArray(urls))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .toList();
+    }
+
+    private static class RoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+        final private boolean enabled;
+
+        final private ObjectProvider<ReplicaSet> replicaSet;
+
+        RoutingPostProcessor(boolean enabled, ObjectProvider<ReplicaSet> replicaSet) {
+            this.enabled = enabled;
+            this.replicaSet = replicaSet;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (enabled && "dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                    && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(dataSource, replicaSet));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
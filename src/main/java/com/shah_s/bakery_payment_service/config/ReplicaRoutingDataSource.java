@@ -0,0 +1,74 @@
+package com.shah_s.bakery_payment_service.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Sends read-only transactions to a replica and everything else to the primary.
+// Must sit behind a LazyConnectionDataSourceProxy so the transaction's read-only flag is known when the connection is fetched.
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    // Set once the current request used the primary for writing; later reads in the request stay on the primary
+    private static final String PRIMARY_PIN = ReplicaRoutingDataSource.class.getName() + ".PRIMARY_PIN";
+
+    final private DataSource primary;
+
+    final private ObjectProvider<ReplicaSet> replicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, ObjectProvider<ReplicaSet> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinToPrimary();
+            return primary.getConnection();
+        }
+
+        ReplicaSet replicaSet = replicas.getObject();
+        if (isPinnedToPrimary()) {
+            replicaSet.recordPrimaryRead();
+            return primary.getConnection();
+        }
+
+        Connection connection = replicaSet.getReadConnection();
+        return connection != null ? connection : primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    // Pool metrics and health indicators unwrap to the primary pool
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? (T) this : primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    private static void pinToPrimary() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(PRIMARY_PIN, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static boolean isPinnedToPrimary() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        return request != null && request.getAttribute(PRIMARY_PIN, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
@@ -0,0 +1,144 @@
+package com.shah_s.bakery_payment_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Replica pools for read-only transactions; a replica serves reads only while it answers and is within maxLag
+public class ReplicaSet implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaSet.class);
+
+    // Zero on a caught-up standby (an idle primary does not age the replay timestamp) or on a non-standby; NULL on a
+    // standby whose WAL receiver is not streaming, since it has replayed all it received and would otherwise look
+    // caught up forever. The receiver's status is only visible with pg_read_all_stats; without it a running
+    // receiver counts as streaming.
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver " +
+            "WHERE pid IS NOT NULL AND COALESCE(status, 'streaming') = 'streaming') THEN NULL " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    final private List<Replica> replicas;
+
+    final private Duration maxLag;
+
+    final private AtomicInteger next = new AtomicInteger();
+
+    final private Counter replicaReads;
+
+    final private Counter primaryReads;
+
+    public ReplicaSet(List<HikariDataSource> pools, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replicas = pools.stream().map(Replica::new).toList();
+        this.maxLag = maxLag;
+
+        this.replicaReads = Counter.builder("payment.datasource.reads").tag("target", "replica")
+                .description("Read-only transactions served by a replica").register(meterRegistry);
+        this.primaryReads = Counter.builder("payment.datasource.reads").tag("target", "primary")
+                .description("Read-only transactions served by the primary").register(meterRegistry);
+        for (Replica replica : replicas) {
+            Gauge.builder("payment.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", replica.pool.getPoolName())
+                    .description("Replication lag seen by the last health check (seconds, NaN when not streaming)")
+                    .baseUnit("seconds").register(meterRegistry);
+        }
+    }
+
+    public boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    // Connection from the next healthy replica, or null when the read has to go to the primary
+    public Connection getReadConnection() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.pool.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+        primaryReads.increment();
+        return null;
+    }
+
+    public void recordPrimaryRead() {
+        primaryReads.increment();
+    }
+
+    // Probe every replica for reachability and replication lag
+    @Scheduled(fixedDelayString = "${payment.datasource.replicas.health-check-interval:5000}")
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_SQL)) {
+                rs.next();
+                double lagSeconds = rs.getDouble(1);
+                if (rs.wasNull()) {
+                    // Lag unknown and growing; out of rotation until replication resumes
+                    replica.lagSeconds = Double.NaN;
+                    replica.markDown("WAL receiver is not streaming");
+                    continue;
+                }
+                replica.lagSeconds = lagSeconds;
+
+                boolean withinLag = lagSeconds * 1000 <= maxLag.toMillis();
+                if (withinLag != replica.healthy) {
+                    logger.info("Replica {} {} (lag {}s)", replica.pool.getPoolName(),
+                               withinLag ? "back in rotation" : "taken out of rotation", lagSeconds);
+                }
+                replica.healthy = withinLag;
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private static class Replica {
+
+        final private HikariDataSource pool;
+
+        // Out of rotation until the first health check passes
+        private volatile boolean healthy;
+
+        private volatile double lagSeconds;
+
+        Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        void markDown(String reason) {
+            if (healthy) {
+                logger.warn("Replica {} unavailable, reads fall back to the primary: {}", pool.getPoolName(), reason);
+            }
+            healthy = false;
+        }
+    }
+}
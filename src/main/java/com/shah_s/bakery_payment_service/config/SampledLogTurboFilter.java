@@ -0,0 +1,116 @@
+package com.shah_s.bakery_payment_service.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rate-limits INFO and lower per logger under the configured prefixes: the first permitsPerInterval events of each
+// interval pass, after that one in sampleRate. WARN and ERROR are never touched. Configured in logback-spring.xml.
+public class SampledLogTurboFilter extends TurboFilter {
+
+    final private List<String> loggerPrefixes = new ArrayList<>();
+
+    // One window per logger name; loggers are per class, so this stays small
+    final private ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    final private AtomicLong suppressed = new AtomicLong();
+
+    private int permitsPerInterval = 50;
+
+    private long intervalMillis = 1000;
+
+    private int sampleRate = 100;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isInfoEnabled() and friends come through here without a message; they must not use up permits
+        if (!isStarted() || format == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        // Compared directly: logger.isEnabledFor() would call the turbo filters again
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel()) || !sampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        Window window = windows.computeIfAbsent(logger.getName(), name -> new Window());
+        if (window.admit(System.currentTimeMillis())) {
+            return FilterReply.NEUTRAL;
+        }
+        suppressed.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    // Events dropped since startup
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    // <loggerPrefix> elements, each one or a comma-separated list; a prefix matches that logger and everything below it
+    public void addLoggerPrefix(String prefixes) {
+        for (String prefix : prefixes.split(",")) {
+            if (!prefix.isBlank()) {
+                loggerPrefixes.add(prefix.trim());
+            }
+        }
+    }
+
+    public void setPermitsPerInterval(int permitsPerInterval) {
+        this.permitsPerInterval = permitsPerInterval;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void start() {
+        if (loggerPrefixes.isEmpty()) {
+            addWarn("No <loggerPrefix> configured for " + getName() + "; nothing is sampled");
+        }
+        if (permitsPerInterval < 0 || intervalMillis <= 0 || sampleRate <= 0) {
+            addError("permitsPerInterval must be >= 0, intervalMillis and sampleRate > 0");
+            return;
+        }
+        super.start();
+    }
+
+    private boolean sampled(String loggerName) {
+        for (String prefix : loggerPrefixes) {
+            if (loggerName.startsWith(prefix)
+                    && (loggerName.length() == prefix.length() || loggerName.charAt(prefix.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class Window {
+
+        final private AtomicLong startMillis = new AtomicLong();
+
+        final private AtomicInteger count = new AtomicInteger();
+
+        boolean admit(long now) {
+            long start = startMillis.get();
+            // The thread that wins the reset starts the new window; a few events racing it count against the old one
+            if (now - start >= intervalMillis && startMillis.compareAndSet(start, now)) {
+                count.set(0);
+            }
+
+            int n = count.incrementAndGet();
+            return n <= permitsPerInterval || (n - permitsPerInterval) % sampleRate == 0;
+        }
+    }
+}
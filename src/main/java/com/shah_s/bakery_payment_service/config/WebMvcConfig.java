@@ -0,0 +1,39 @@
+package com.shah_s.bakery_payment_service.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    final private TaskExecutor exportExecutor;
+
+    final private Duration asyncTimeout;
+
+    public WebMvcConfig(@Qualifier("exportExecutor") TaskExecutor exportExecutor,
+                        @Value("${payment.export.timeout:30m}") Duration asyncTimeout) {
+        this.exportExecutor = exportExecutor;
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    // StreamingResponseBody runs here instead of an unbounded SimpleAsyncTaskExecutor;
+    // the timeout must cover a full month-end export
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(exportExecutor));
+        configurer.setDefaultTimeout(asyncTimeout.toMillis());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new MdcHandlerInterceptor());
+    }
+}
@@ -1,25 +1,28 @@
 package com.shah_s.bakery_payment_service.controller;
 
+import com.shah_s.bakery_payment_service.config.MdcHandlerInterceptor;
 import com.shah_s.bakery_payment_service.dto.*;
 import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.service.IdempotencyService;
+import com.shah_s.bakery_payment_service.service.PaymentExportService;
 import com.shah_s.bakery_payment_service.service.PaymentService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -32,8 +35,15 @@ public class PaymentController {
 
     final private PaymentService paymentService;
 
-    public PaymentController(PaymentService paymentService) {
+    final private PaymentExportService paymentExportService;
+
+    final private IdempotencyService idempotencyService;
+
+    public PaymentController(PaymentService paymentService, PaymentExportService paymentExportService,
+                             IdempotencyService idempotencyService) {
         this.paymentService = paymentService;
+        this.paymentExportService = paymentExportService;
+        this.idempotencyService = idempotencyService;
     }
 
     // Create payment
@@ -41,8 +51,10 @@ public class PaymentController {
     public ResponseEntity<PaymentResponse> createPayment(
             @Valid @RequestBody PaymentRequest request,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
+        MDC.put(MdcHandlerInterceptor.ORDER_ID, String.valueOf(request.getOrderId()));
         logger.info("Create payment request received for order: {}", request.getOrderId());
 
         // Use header userId if available (from Gateway), otherwise use request userId
@@ -50,35 +62,53 @@ public class PaymentController {
             request.setUserId(userId);
         }
 
-        PaymentResponse payment = paymentService.createPayment(request);
+        // A retry with the same key gets the original response instead of a duplicate-order error
+        return idempotencyService.execute(idempotencyKey, "payments:create:" + request.getUserId(), request,
+                PaymentResponse.class, () -> {
+            PaymentResponse payment = paymentService.createPayment(request);
 
-        logger.info("Payment created successfully: {}", payment.getPaymentReference());
-        return ResponseEntity.status(HttpStatus.CREATED).body(payment);
+            logger.info("Payment created successfully: {}", payment.getPaymentReference());
+            return ResponseEntity.status(HttpStatus.CREATED).body(payment);
+        });
     }
 
-    // Get all payments with pagination
+    // Get all payments, newest first; pass nextCursor back as cursor for the following page
     @GetMapping
-    public ResponseEntity<Page<PaymentResponse>> getAllPayments(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDir,
+    public ResponseEntity<CursorPage<PaymentResponse>> getAllPayments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
-        logger.info("Get all payments request received (page: {}, size: {})", page, size);
+        logger.info("Get all payments request received (limit: {})", limit);
 
         // Only admins can view all payments
         if (!"ADMIN".equals(userRole)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
+        CursorPage<PaymentResponse> payments = paymentService.getAllPayments(cursor, limit);
 
-        Page<PaymentResponse> payments = paymentService.getAllPayments(pageable);
+        logger.info("Retrieved {} payments (more: {})", payments.getSize(), payments.isHasMore());
+        return ResponseEntity.ok(payments);
+    }
 
-        logger.info("Retrieved {} payments (page {} of {})", payments.getContent().size(),
-                   page + 1, payments.getTotalPages());
+    // Get payment summaries, newest first (no transactions or refunds)
+    @GetMapping("/summary")
+    public ResponseEntity<CursorPage<PaymentSummaryResponse>> getAllPaymentSummaries(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get payment summaries request received (limit: {})", limit);
+
+        // Only admins can view all payments
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CursorPage<PaymentSummaryResponse> payments = paymentService.getAllPaymentSummaries(cursor, limit);
+
+        logger.info("Retrieved {} payment summaries (more: {})", payments.getSize(), payments.isHasMore());
         return ResponseEntity.ok(payments);
     }
 
@@ -144,8 +174,10 @@ public class PaymentController {
 
     // Get payments by user ID
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<PaymentResponse>> getPaymentsByUserId(
+    public ResponseEntity<CursorPage<PaymentResponse>> getPaymentsByUserId(
             @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Id", required = false) UUID requestUserId,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
@@ -156,16 +188,40 @@ public class PaymentController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<PaymentResponse> payments = paymentService.getPaymentsByUserId(userId);
+        CursorPage<PaymentResponse> payments = paymentService.getPaymentsByUserId(userId, cursor, limit);
+
+        logger.info("Retrieved {} payments for user", payments.getSize());
+        return ResponseEntity.ok(payments);
+    }
+
+    // Get payment summaries by user ID
+    @GetMapping("/user/{userId}/summary")
+    public ResponseEntity<CursorPage<PaymentSummaryResponse>> getPaymentSummariesByUserId(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = "X-User-Id", required = false) UUID requestUserId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get payment summaries by user ID request received: {}", userId);
+
+        // Check if user can access these payments (unless admin)
+        if (requestUserId != null && !"ADMIN".equals(userRole) && !userId.equals(requestUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CursorPage<PaymentSummaryResponse> payments = paymentService.getPaymentSummariesByUserId(userId, cursor, limit);
 
-        logger.info("Retrieved {} payments for user", payments.size());
+        logger.info("Retrieved {} payment summaries for user", payments.getSize());
         return ResponseEntity.ok(payments);
     }
 
     // Get payments by status
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<PaymentResponse>> getPaymentsByStatus(
+    public ResponseEntity<CursorPage<PaymentResponse>> getPaymentsByStatus(
             @PathVariable Payment.PaymentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get payments by status request received: {}", status);
@@ -175,9 +231,80 @@ public class PaymentController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<PaymentResponse> payments = paymentService.getPaymentsByStatus(status);
+        CursorPage<PaymentResponse> payments = paymentService.getPaymentsByStatus(status, cursor, limit);
+
+        logger.info("Retrieved {} payments with status {}", payments.getSize(), status);
+        return ResponseEntity.ok(payments);
+    }
+
+    // Get payment summaries by status
+    @GetMapping("/status/{status}/summary")
+    public ResponseEntity<CursorPage<PaymentSummaryResponse>> getPaymentSummariesByStatus(
+            @PathVariable Payment.PaymentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get payment summaries by status request received: {}", status);
+
+        // Only admins can view payments by status
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CursorPage<PaymentSummaryResponse> payments = paymentService.getPaymentSummariesByStatus(status, cursor, limit);
+
+        logger.info("Retrieved {} payment summaries with status {}", payments.getSize(), status);
+        return ResponseEntity.ok(payments);
+    }
+
+    // Advanced search with filters
+    @GetMapping("/filter")
+    public ResponseEntity<CursorPage<PaymentResponse>> getPaymentsWithFilters(
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(required = false) Payment.PaymentStatus status,
+            @RequestParam(required = false) Payment.PaymentMethod paymentMethod,
+            @RequestParam(required = false) Payment.PaymentGateway paymentGateway,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Advanced filter search request received");
+
+        // Only admins can use advanced filters
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CursorPage<PaymentResponse> payments = paymentService.getPaymentsWithFilters(userId, status, paymentMethod,
+                paymentGateway, minAmount, maxAmount, startDate, endDate, cursor, limit);
+
+        logger.info("Filter search returned {} payments", payments.getSize());
+        return ResponseEntity.ok(payments);
+    }
+
+    // Search payments
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<PaymentResponse>> searchPayments(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Search payments request received with query: {}", query);
+
+        // Only admins can search all payments
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CursorPage<PaymentResponse> payments = paymentService.searchPayments(query, cursor, limit);
 
-        logger.info("Retrieved {} payments with status {}", payments.size(), status);
+        logger.info("Search returned {} payments", payments.getSize());
         return ResponseEntity.ok(payments);
     }
 
@@ -207,23 +334,27 @@ public class PaymentController {
             @PathVariable UUID paymentId,
             @RequestBody Map<String, String> request,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
         logger.info("Cancel payment request received: {}", paymentId);
 
-        // Check if user can cancel this payment
-        if (userId != null && !"ADMIN".equals(userRole)) {
-            PaymentResponse existingPayment = paymentService.getPaymentById(paymentId);
-            if (!existingPayment.getUserId().equals(userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return idempotencyService.execute(idempotencyKey, "payments:cancel:" + paymentId + ":" + userId, request,
+                PaymentResponse.class, () -> {
+            // Check if user can cancel this payment
+            if (userId != null && !"ADMIN".equals(userRole)) {
+                PaymentResponse existingPayment = paymentService.getPaymentById(paymentId);
+                if (!existingPayment.getUserId().equals(userId)) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                }
             }
-        }
 
-        String reason = request.get("reason");
-        PaymentResponse payment = paymentService.cancelPayment(paymentId, reason);
+            String reason = request.get("reason");
+            PaymentResponse payment = paymentService.cancelPayment(paymentId, reason);
 
-        logger.info("Payment cancelled successfully: {}", paymentId);
-        return ResponseEntity.ok(payment);
+            logger.info("Payment cancelled successfully: {}", paymentId);
+            return ResponseEntity.ok(payment);
+        });
     }
 
     // Retry payment
@@ -231,22 +362,26 @@ public class PaymentController {
     public ResponseEntity<PaymentResponse> retryPayment(
             @PathVariable UUID paymentId,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
         logger.info("Retry payment request received: {}", paymentId);
 
-        // Check if user can retry this payment
-        if (userId != null && !"ADMIN".equals(userRole)) {
-            PaymentResponse existingPayment = paymentService.getPaymentById(paymentId);
-            if (!existingPayment.getUserId().equals(userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return idempotencyService.execute(idempotencyKey, "payments:retry:" + paymentId + ":" + userId, paymentId,
+                PaymentResponse.class, () -> {
+            // Check if user can retry this payment
+            if (userId != null && !"ADMIN".equals(userRole)) {
+                PaymentResponse existingPayment = paymentService.getPaymentById(paymentId);
+                if (!existingPayment.getUserId().equals(userId)) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                }
             }
-        }
 
-        PaymentResponse payment = paymentService.retryPayment(paymentId);
+            PaymentResponse payment = paymentService.retryPayment(paymentId);
 
-        logger.info("Payment retry initiated: {}", paymentId);
-        return ResponseEntity.ok(payment);
+            logger.info("Payment retry initiated: {}", paymentId);
+            return ResponseEntity.ok(payment);
+        });
     }
 
     // Get payment statistics
@@ -277,6 +412,38 @@ public class PaymentController {
         return ResponseEntity.ok(statistics);
     }
 
+    // Stream payments created in [from, to) as NDJSON or CSV
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Payment.PaymentStatus status,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Payment export request received ({} to {}, format: {})", from, to, format);
+
+        // Only admins can export payments
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        if (!from.isBefore(to)) {
+            throw new PaymentServiceException("Export range start must be before its end");
+        }
+
+        PaymentExportService.ExportFormat exportFormat = PaymentExportService.ExportFormat.from(format);
+        String fileName = "payments-" + from.toLocalDate() + "-" + to.toLocalDate() + "." + exportFormat.getExtension();
+
+        // Runs on the MVC async executor once this method returns
+        StreamingResponseBody body = out -> paymentExportService.export(from, to, status, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     // Health check
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
@@ -1,17 +1,17 @@
 package com.shah_s.bakery_payment_service.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.shah_s.bakery_payment_service.dto.BulkRefundRequest;
+import com.shah_s.bakery_payment_service.dto.CursorPage;
 import com.shah_s.bakery_payment_service.dto.RefundRequest;
 import com.shah_s.bakery_payment_service.dto.RefundResponse;
 import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.service.IdempotencyService;
 import com.shah_s.bakery_payment_service.service.RefundService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -33,8 +33,11 @@ public class RefundController {
 
     final private RefundService refundService;
 
-    public RefundController(RefundService refundService) {
+    final private IdempotencyService idempotencyService;
+
+    public RefundController(RefundService refundService, IdempotencyService idempotencyService) {
         this.refundService = refundService;
+        this.idempotencyService = idempotencyService;
     }
 
     // Create refund
@@ -42,7 +45,8 @@ public class RefundController {
     public ResponseEntity<RefundResponse> createRefund(
             @Valid @RequestBody RefundRequest request,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
         logger.info("Create refund request received for payment: {}", request.getPaymentId());
 
@@ -51,35 +55,62 @@ public class RefundController {
             request.setRequestedBy(userId);
         }
 
-        RefundResponse refund = refundService.createRefund(request);
+        // A retry with the same key gets the original refund instead of creating a second one
+        return idempotencyService.execute(idempotencyKey, "refunds:create:" + request.getRequestedBy(), request,
+                RefundResponse.class, () -> {
+            RefundResponse refund = refundService.createRefund(request);
+
+            logger.info("Refund created successfully: {}", refund.getRefundReference());
+            return ResponseEntity.status(HttpStatus.CREATED).body(refund);
+        });
+    }
+
+    // Create refunds in bulk (all or nothing)
+    @PostMapping("/bulk")
+    public ResponseEntity<List<RefundResponse>> createRefunds(
+            @Valid @RequestBody BulkRefundRequest request,
+            @RequestHeader(value = "X-User-Id", required = false) UUID userId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+
+        logger.info("Bulk refund request received: {} refunds", request.getRefunds().size());
+
+        // Only admins can issue bulk refunds
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        if (userId != null) {
+            request.getRefunds().forEach(refund -> refund.setRequestedBy(userId));
+        }
 
-        logger.info("Refund created successfully: {}", refund.getRefundReference());
-        return ResponseEntity.status(HttpStatus.CREATED).body(refund);
+        // A retry with the same key gets the original set of refunds instead of creating a second one
+        return idempotencyService.execute(idempotencyKey, "refunds:bulk:" + userId, request,
+                new TypeReference<List<RefundResponse>>() {}, () -> {
+            List<RefundResponse> refunds = refundService.createRefunds(request.getRefunds());
+
+            logger.info("Bulk refund created {} refunds", refunds.size());
+            return ResponseEntity.status(HttpStatus.CREATED).body(refunds);
+        });
     }
 
-    // Get all refunds with pagination
+    // Get all refunds, newest first; pass nextCursor back as cursor for the following page
     @GetMapping
-    public ResponseEntity<Page<RefundResponse>> getAllRefunds(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDir,
+    public ResponseEntity<CursorPage<RefundResponse>> getAllRefunds(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
-        logger.info("Get all refunds request received (page: {}, size: {})", page, size);
+        logger.info("Get all refunds request received (limit: {})", limit);
 
         // Only admins can view all refunds
         if (!"ADMIN".equals(userRole)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
-
-        Page<RefundResponse> refunds = refundService.getAllRefunds(pageable);
+        CursorPage<RefundResponse> refunds = refundService.getAllRefunds(cursor, limit);
 
-        logger.info("Retrieved {} refunds (page {} of {})", refunds.getContent().size(),
-                   page + 1, refunds.getTotalPages());
+        logger.info("Retrieved {} refunds (more: {})", refunds.getSize(), refunds.isHasMore());
         return ResponseEntity.ok(refunds);
     }
 
@@ -125,30 +156,32 @@ public class RefundController {
 
     // Get refunds by payment ID
     @GetMapping("/payment/{paymentId}")
-    public ResponseEntity<List<RefundResponse>> getRefundsByPaymentId(
+    public ResponseEntity<CursorPage<RefundResponse>> getRefundsByPaymentId(
             @PathVariable UUID paymentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get refunds by payment ID request received: {}", paymentId);
 
-        List<RefundResponse> refunds = refundService.getRefundsByPaymentId(paymentId);
+        CursorPage<RefundResponse> refunds = refundService.getRefundsByPaymentId(paymentId, cursor, limit);
 
         // Check if user can access these refunds (unless admin)
         if (userId != null && !"ADMIN".equals(userRole)) {
-            refunds = refunds.stream()
-                    .filter(refund -> refund.getRequestedBy().equals(userId))
-                    .toList();
+            refunds = refunds.filter(refund -> refund.getRequestedBy().equals(userId));
         }
 
-        logger.info("Retrieved {} refunds for payment", refunds.size());
+        logger.info("Retrieved {} refunds for payment", refunds.getSize());
         return ResponseEntity.ok(refunds);
     }
 
     // Get refunds by user
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<RefundResponse>> getRefundsByUser(
+    public ResponseEntity<CursorPage<RefundResponse>> getRefundsByUser(
             @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Id", required = false) UUID requestUserId,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
@@ -159,16 +192,18 @@ public class RefundController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<RefundResponse> refunds = refundService.getRefundsByUser(userId);
+        CursorPage<RefundResponse> refunds = refundService.getRefundsByUser(userId, cursor, limit);
 
-        logger.info("Retrieved {} refunds for user", refunds.size());
+        logger.info("Retrieved {} refunds for user", refunds.getSize());
         return ResponseEntity.ok(refunds);
     }
 
     // Get refunds by status
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<RefundResponse>> getRefundsByStatus(
+    public ResponseEntity<CursorPage<RefundResponse>> getRefundsByStatus(
             @PathVariable Refund.RefundStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get refunds by status request received: {}", status);
@@ -178,9 +213,9 @@ public class RefundController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<RefundResponse> refunds = refundService.getRefundsByStatus(status);
+        CursorPage<RefundResponse> refunds = refundService.getRefundsByStatus(status, cursor, limit);
 
-        logger.info("Retrieved {} refunds with status {}", refunds.size(), status);
+        logger.info("Retrieved {} refunds with status {}", refunds.getSize(), status);
         return ResponseEntity.ok(refunds);
     }
 
@@ -228,7 +263,9 @@ public class RefundController {
 
     // Get pending refunds
     @GetMapping("/pending")
-    public ResponseEntity<List<RefundResponse>> getPendingRefunds(
+    public ResponseEntity<CursorPage<RefundResponse>> getPendingRefunds(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get pending refunds request received");
@@ -238,15 +275,17 @@ public class RefundController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<RefundResponse> refunds = refundService.getPendingRefunds();
+        CursorPage<RefundResponse> refunds = refundService.getPendingRefunds(cursor, limit);
 
-        logger.info("Retrieved {} pending refunds", refunds.size());
+        logger.info("Retrieved {} pending refunds", refunds.getSize());
         return ResponseEntity.ok(refunds);
     }
 
     // Get completed refunds
     @GetMapping("/completed")
-    public ResponseEntity<List<RefundResponse>> getCompletedRefunds(
+    public ResponseEntity<CursorPage<RefundResponse>> getCompletedRefunds(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get completed refunds request received");
@@ -256,15 +295,17 @@ public class RefundController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<RefundResponse> refunds = refundService.getCompletedRefunds();
+        CursorPage<RefundResponse> refunds = refundService.getCompletedRefunds(cursor, limit);
 
-        logger.info("Retrieved {} completed refunds", refunds.size());
+        logger.info("Retrieved {} completed refunds", refunds.getSize());
         return ResponseEntity.ok(refunds);
     }
 
     // Get failed refunds
     @GetMapping("/failed")
-    public ResponseEntity<List<RefundResponse>> getFailedRefunds(
+    public ResponseEntity<CursorPage<RefundResponse>> getFailedRefunds(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get failed refunds request received");
@@ -274,16 +315,18 @@ public class RefundController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<RefundResponse> refunds = refundService.getFailedRefunds();
+        CursorPage<RefundResponse> refunds = refundService.getFailedRefunds(cursor, limit);
 
-        logger.info("Retrieved {} failed refunds", refunds.size());
+        logger.info("Retrieved {} failed refunds", refunds.getSize());
         return ResponseEntity.ok(refunds);
     }
 
     // Search refunds
     @GetMapping("/search")
-    public ResponseEntity<List<RefundResponse>> searchRefunds(
+    public ResponseEntity<CursorPage<RefundResponse>> searchRefunds(
             @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Search refunds request received with query: {}", query);
@@ -293,15 +336,15 @@ public class RefundController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<RefundResponse> refunds = refundService.searchRefunds(query);
+        CursorPage<RefundResponse> refunds = refundService.searchRefunds(query, cursor, limit);
 
-        logger.info("Search returned {} refunds", refunds.size());
+        logger.info("Search returned {} refunds", refunds.getSize());
         return ResponseEntity.ok(refunds);
     }
 
     // Advanced search with filters
     @GetMapping("/filter")
-    public ResponseEntity<List<RefundResponse>> getRefundsWithFilters(
+    public ResponseEntity<CursorPage<RefundResponse>> getRefundsWithFilters(
             @RequestParam(required = false) Refund.RefundStatus status,
             @RequestParam(required = false) UUID requestedBy,
             @RequestParam(required = false) UUID approvedBy,
@@ -309,6 +352,8 @@ public class RefundController {
             @RequestParam(required = false) BigDecimal maxAmount,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Advanced filter search request received");
@@ -318,10 +363,10 @@ public class RefundController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<RefundResponse> refunds = refundService.getRefundsWithFilters(
-                status, requestedBy, approvedBy, minAmount, maxAmount, startDate, endDate);
+        CursorPage<RefundResponse> refunds = refundService.getRefundsWithFilters(
+                status, requestedBy, approvedBy, minAmount, maxAmount, startDate, endDate, cursor, limit);
 
-        logger.info("Filter search returned {} refunds", refunds.size());
+        logger.info("Filter search returned {} refunds", refunds.getSize());
         return ResponseEntity.ok(refunds);
     }
 
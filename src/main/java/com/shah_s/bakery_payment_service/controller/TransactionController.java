@@ -1,5 +1,6 @@
 package com.shah_s.bakery_payment_service.controller;
 
+import com.shah_s.bakery_payment_service.dto.CursorPage;
 import com.shah_s.bakery_payment_service.dto.PaymentTransactionResponse;
 import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
 import com.shah_s.bakery_payment_service.service.PaymentTransactionService;
@@ -12,7 +13,6 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -46,22 +46,26 @@ public class TransactionController {
 
     // Get transactions by payment ID
     @GetMapping("/payment/{paymentId}")
-    public ResponseEntity<List<PaymentTransactionResponse>> getTransactionsByPaymentId(
+    public ResponseEntity<CursorPage<PaymentTransactionResponse>> getTransactionsByPaymentId(
             @PathVariable UUID paymentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get transactions by payment ID request received: {}", paymentId);
 
-        List<PaymentTransactionResponse> transactions = paymentTransactionService.getTransactionsByPaymentId(paymentId);
+        CursorPage<PaymentTransactionResponse> transactions = paymentTransactionService.getTransactionsByPaymentId(paymentId, cursor, limit);
 
-        logger.info("Retrieved {} transactions for payment", transactions.size());
+        logger.info("Retrieved {} transactions for payment", transactions.getSize());
         return ResponseEntity.ok(transactions);
     }
 
     // Get transactions by status
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<PaymentTransactionResponse>> getTransactionsByStatus(
+    public ResponseEntity<CursorPage<PaymentTransactionResponse>> getTransactionsByStatus(
             @PathVariable PaymentTransaction.TransactionStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get transactions by status request received: {}", status);
@@ -71,16 +75,18 @@ public class TransactionController {
             return ResponseEntity.status(403).build();
         }
 
-        List<PaymentTransactionResponse> transactions = paymentTransactionService.getTransactionsByStatus(status);
+        CursorPage<PaymentTransactionResponse> transactions = paymentTransactionService.getTransactionsByStatus(status, cursor, limit);
 
-        logger.info("Retrieved {} transactions with status {}", transactions.size(), status);
+        logger.info("Retrieved {} transactions with status {}", transactions.getSize(), status);
         return ResponseEntity.ok(transactions);
     }
 
     // Get transactions by type
     @GetMapping("/type/{type}")
-    public ResponseEntity<List<PaymentTransactionResponse>> getTransactionsByType(
+    public ResponseEntity<CursorPage<PaymentTransactionResponse>> getTransactionsByType(
             @PathVariable PaymentTransaction.TransactionType type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get transactions by type request received: {}", type);
@@ -90,15 +96,17 @@ public class TransactionController {
             return ResponseEntity.status(403).build();
         }
 
-        List<PaymentTransactionResponse> transactions = paymentTransactionService.getTransactionsByType(type);
+        CursorPage<PaymentTransactionResponse> transactions = paymentTransactionService.getTransactionsByType(type, cursor, limit);
 
-        logger.info("Retrieved {} transactions with type {}", transactions.size(), type);
+        logger.info("Retrieved {} transactions with type {}", transactions.getSize(), type);
         return ResponseEntity.ok(transactions);
     }
 
     // Get pending transactions
     @GetMapping("/pending")
-    public ResponseEntity<List<PaymentTransactionResponse>> getPendingTransactions(
+    public ResponseEntity<CursorPage<PaymentTransactionResponse>> getPendingTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get pending transactions request received");
@@ -108,15 +116,17 @@ public class TransactionController {
             return ResponseEntity.status(403).build();
         }
 
-        List<PaymentTransactionResponse> transactions = paymentTransactionService.getPendingTransactions();
+        CursorPage<PaymentTransactionResponse> transactions = paymentTransactionService.getPendingTransactions(cursor, limit);
 
-        logger.info("Retrieved {} pending transactions", transactions.size());
+        logger.info("Retrieved {} pending transactions", transactions.getSize());
         return ResponseEntity.ok(transactions);
     }
 
     // Get failed transactions
     @GetMapping("/failed")
-    public ResponseEntity<List<PaymentTransactionResponse>> getFailedTransactions(
+    public ResponseEntity<CursorPage<PaymentTransactionResponse>> getFailedTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         logger.info("Get failed transactions request received");
@@ -126,9 +136,9 @@ public class TransactionController {
             return ResponseEntity.status(403).build();
         }
 
-        List<PaymentTransactionResponse> transactions = paymentTransactionService.getFailedTransactions();
+        CursorPage<PaymentTransactionResponse> transactions = paymentTransactionService.getFailedTransactions(cursor, limit);
 
-        logger.info("Retrieved {} failed transactions", transactions.size());
+        logger.info("Retrieved {} failed transactions", transactions.getSize());
         return ResponseEntity.ok(transactions);
     }
 
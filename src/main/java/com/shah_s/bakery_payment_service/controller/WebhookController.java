@@ -0,0 +1,114 @@
+package com.shah_s.bakery_payment_service.controller;
+
+import com.shah_s.bakery_payment_service.dto.WebhookEventResponse;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.WebhookEvent;
+import com.shah_s.bakery_payment_service.service.WebhookService;
+import com.shah_s.bakery_payment_service.service.WebhookSignatureVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/payments")
+public class WebhookController {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookController.class);
+
+    final private WebhookService webhookService;
+
+    public WebhookController(WebhookService webhookService) {
+        this.webhookService = webhookService;
+    }
+
+    // Gateway webhook delivery; acknowledged as soon as the event is stored, applied asynchronously
+    @PostMapping("/webhook/{gateway}")
+    public ResponseEntity<Map<String, Object>> receiveWebhook(
+            @PathVariable String gateway,
+            @RequestHeader(value = WebhookSignatureVerifier.HEADER, required = false) String signature,
+            @RequestBody byte[] body) {
+
+        Payment.PaymentGateway paymentGateway = parseGateway(gateway);
+        if (paymentGateway == null || !webhookService.accepts(paymentGateway)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        boolean appended = webhookService.receive(paymentGateway, signature, body);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("received", true);
+        response.put("duplicate", !appended);
+        return ResponseEntity.ok(response);
+    }
+
+    // List webhook events by status (admin), newest first
+    @GetMapping("/webhook-events")
+    public ResponseEntity<List<WebhookEventResponse>> getWebhookEvents(
+            @RequestParam(defaultValue = "FAILED") WebhookEvent.EventStatus status,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        // Only admins can inspect webhooks
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(webhookService.findByStatus(status, limit));
+    }
+
+    // Replay webhook events received in a window (admin); failed events by default
+    @PostMapping("/webhook-events/replay")
+    public ResponseEntity<Map<String, Object>> replayWebhookEvents(
+            @RequestParam(defaultValue = "FAILED") Set<WebhookEvent.EventStatus> status,
+            @RequestParam(required = false) Payment.PaymentGateway gateway,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Webhook replay requested: {} {} from {} to {}", status, gateway, from, to);
+
+        // Only admins can replay webhooks
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        int replayed = webhookService.replay(status, gateway, from, to != null ? to : LocalDateTime.now());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("replayed", replayed);
+        return ResponseEntity.ok(response);
+    }
+
+    // Replay one webhook event (admin)
+    @PostMapping("/webhook-events/{eventId}/replay")
+    public ResponseEntity<Void> replayWebhookEvent(
+            @PathVariable UUID eventId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        // Only admins can replay webhooks
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        webhookService.replayEvent(eventId);
+        return ResponseEntity.accepted().build();
+    }
+
+    private static Payment.PaymentGateway parseGateway(String gateway) {
+        try {
+            return Payment.PaymentGateway.valueOf(gateway.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
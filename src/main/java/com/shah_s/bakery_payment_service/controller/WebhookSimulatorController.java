@@ -0,0 +1,51 @@
+package com.shah_s.bakery_payment_service.controller;
+
+import com.shah_s.bakery_payment_service.dto.WebhookEventPayload;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.service.WebhookSimulator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Development only: sends signed webhooks to this service as the given gateway would
+@RestController
+@RequestMapping("/api/payments/webhook-simulator")
+@ConditionalOnProperty(name = "payment.webhook.simulator.enabled", havingValue = "true")
+public class WebhookSimulatorController {
+
+    final private WebhookSimulator webhookSimulator;
+
+    public WebhookSimulatorController(WebhookSimulator webhookSimulator) {
+        this.webhookSimulator = webhookSimulator;
+    }
+
+    // Simulate an event; deliveries > 1 sends the same event again, like a gateway retry
+    @PostMapping("/{gateway}")
+    public ResponseEntity<Map<String, Object>> simulate(
+            @PathVariable String gateway,
+            @RequestBody WebhookEventPayload event,
+            @RequestParam(defaultValue = "1") int deliveries,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        // Only admins can simulate webhooks
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Payment.PaymentGateway paymentGateway;
+        try {
+            paymentGateway = Payment.PaymentGateway.valueOf(gateway.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("deliveries", webhookSimulator.deliver(paymentGateway, event, Math.max(1, Math.min(deliveries, 10))));
+        response.put("eventId", event.getId());
+        return ResponseEntity.ok(response);
+    }
+}
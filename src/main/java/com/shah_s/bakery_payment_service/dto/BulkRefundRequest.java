@@ -0,0 +1,26 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkRefundRequest {
+
+    // Getters and Setters
+    @NotEmpty(message = "At least one refund is required")
+    @Size(max = 500, message = "At most 500 refunds per request")
+    private List<@Valid RefundRequest> refunds;
+
+    // Constructors
+    public BulkRefundRequest() {}
+
+    public BulkRefundRequest(List<RefundRequest> refunds) {
+        this.refunds = refunds;
+    }
+}
@@ -0,0 +1,71 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// One slice of a keyset listing; there is no total count, the next page is fetched with nextCursor
+@Getter
+public class CursorPage<T> {
+
+    public static final int DEFAULT_LIMIT = 50;
+
+    public static final int MAX_LIMIT = 200;
+
+    // Getters
+    final private List<T> items;
+
+    final private String nextCursor;
+
+    final private boolean hasMore;
+
+    // Constructors
+    private CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Clamp a requested page size into 1..MAX_LIMIT
+    public static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // Fetch one row more than the page size; its presence tells whether another page exists
+    public static Pageable probe(int pageSize) {
+        return PageRequest.ofSize(pageSize + 1);
+    }
+
+    // Build a page from rows fetched with probe(pageSize)
+    public static <E, T> CursorPage<T> of(List<E> rows, int pageSize,
+                                          Function<E, PageCursor> cursorOf, Function<E, T> mapper) {
+        boolean hasMore = rows.size() > pageSize;
+        List<E> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = hasMore ? cursorOf.apply(pageRows.get(pageRows.size() - 1)).encode() : null;
+        return new CursorPage<>(pageRows.stream().map(mapper).toList(), nextCursor);
+    }
+
+    // Build a page of relevance-ordered search hits fetched with pageSize + 1 rows
+    public static <E, T> CursorPage<T> ofRanked(List<E> hits, int pageSize,
+                                                Function<E, SearchCursor> cursorOf, Function<E, T> mapper) {
+        boolean hasMore = hits.size() > pageSize;
+        List<E> pageHits = hasMore ? hits.subList(0, pageSize) : hits;
+
+        String nextCursor = hasMore ? cursorOf.apply(pageHits.get(pageHits.size() - 1)).encode() : null;
+        return new CursorPage<>(pageHits.stream().map(mapper).toList(), nextCursor);
+    }
+
+    // Drop items from this page while keeping the position in the listing
+    public CursorPage<T> filter(Predicate<T> predicate) {
+        return new CursorPage<>(items.stream().filter(predicate).toList(), nextCursor);
+    }
+
+    public int getSize() {
+        return items.size();
+    }
+}
@@ -0,0 +1,54 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+// Position in a (created_at, id) ordered listing; travels to clients as an opaque token
+public record PageCursor(LocalDateTime createdAt, UUID id) {
+
+    private static final String VERSION = "v1";
+
+    // Sorts after every row, so a descending listing starts from it
+    private static final PageCursor DESCENDING_START =
+            new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59), new UUID(-1L, -1L));
+
+    // Sorts before every row, so an ascending listing starts from it
+    private static final PageCursor ASCENDING_START =
+            new PageCursor(LocalDateTime.of(1970, 1, 1, 0, 0), new UUID(0L, 0L));
+
+    public static PageCursor descendingStart() {
+        return DESCENDING_START;
+    }
+
+    public static PageCursor ascendingStart() {
+        return ASCENDING_START;
+    }
+
+    public String encode() {
+        String raw = VERSION + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decode a client token; a missing token means the first page
+    public static PageCursor decode(String token, PageCursor start) {
+        if (token == null || token.isBlank()) {
+            return start;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new PaymentServiceException("Invalid page cursor");
+            }
+            return new PageCursor(LocalDateTime.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new PaymentServiceException("Invalid page cursor");
+        }
+    }
+}
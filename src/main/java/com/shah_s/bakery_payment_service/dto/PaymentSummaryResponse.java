@@ -0,0 +1,53 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// List-page view of a payment, read straight from one SQL statement (no transactions or refund rows)
+public interface PaymentSummaryResponse {
+
+    UUID getId();
+
+    String getPaymentReference();
+
+    UUID getOrderId();
+
+    UUID getUserId();
+
+    Payment.PaymentMethod getPaymentMethod();
+
+    Payment.PaymentGateway getPaymentGateway();
+
+    Payment.PaymentStatus getStatus();
+
+    BigDecimal getAmount();
+
+    String getCurrencyCode();
+
+    String getCardLastFour();
+
+    String getCardBrand();
+
+    String getFailureCode();
+
+    BigDecimal getTotalRefundedAmount();
+
+    // Held by refunds still pending or processing
+    BigDecimal getReservedRefundAmount();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    // Same rule as Payment.getRefundableAmount, so the list never offers more than refund admission accepts
+    default BigDecimal getRefundableAmount() {
+        if (getStatus() != Payment.PaymentStatus.COMPLETED) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal reserved = getReservedRefundAmount() != null ? getReservedRefundAmount() : BigDecimal.ZERO;
+        return getAmount().subtract(getTotalRefundedAmount()).subtract(reserved);
+    }
+}
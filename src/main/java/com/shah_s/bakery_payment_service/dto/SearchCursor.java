@@ -0,0 +1,65 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+// Position in a (score, created_at, id) ordered search result; travels to clients as an opaque token
+public record SearchCursor(BigDecimal score, LocalDateTime createdAt, UUID id) {
+
+    private static final String VERSION = "s1";
+
+    // Sorts after every hit, so a search starts from it
+    private static final SearchCursor START =
+            new SearchCursor(new BigDecimal("1000000"), LocalDateTime.of(9999, 12, 31, 23, 59), new UUID(-1L, -1L));
+
+    public static SearchCursor start() {
+        return START;
+    }
+
+    public String encode() {
+        String raw = VERSION + "|" + score.toPlainString() + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decode a client token; a missing token means the first page
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new PaymentServiceException("Invalid search cursor");
+            }
+            return new SearchCursor(new BigDecimal(parts[1]), LocalDateTime.parse(parts[2]), UUID.fromString(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new PaymentServiceException("Invalid search cursor");
+        }
+    }
+
+    // Whether a hit comes after this position (score, created_at and id all descending)
+    public boolean isFollowedBy(BigDecimal hitScore, LocalDateTime hitCreatedAt, UUID hitId) {
+        int byScore = hitScore.compareTo(score);
+        if (byScore != 0) {
+            return byScore < 0;
+        }
+        int byCreatedAt = hitCreatedAt.compareTo(createdAt);
+        if (byCreatedAt != 0) {
+            return byCreatedAt < 0;
+        }
+        // Unsigned, matching Postgres uuid ordering
+        int byMostSignificant = Long.compareUnsigned(hitId.getMostSignificantBits(), id.getMostSignificantBits());
+        if (byMostSignificant != 0) {
+            return byMostSignificant < 0;
+        }
+        return Long.compareUnsigned(hitId.getLeastSignificantBits(), id.getLeastSignificantBits()) < 0;
+    }
+}
@@ -0,0 +1,58 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Gateway webhook body, normalized across gateways; fields the service does not use are ignored
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class WebhookEventPayload {
+
+    public static final String PAYMENT_SUCCEEDED = "payment.succeeded";
+
+    public static final String PAYMENT_FAILED = "payment.failed";
+
+    public static final String REFUND_SUCCEEDED = "refund.succeeded";
+
+    public static final String REFUND_FAILED = "refund.failed";
+
+    // Getters and Setters
+    private String id;
+
+    private String type;
+
+    private LocalDateTime created;
+
+    private String paymentReference;
+
+    private String refundReference;
+
+    private String gatewayTransactionId;
+
+    private String failureCode;
+
+    private String message;
+
+    private BigDecimal fee;
+
+    // Constructors
+    public WebhookEventPayload() {}
+
+    public WebhookEventPayload(String id, String type, String paymentReference, String refundReference) {
+        this.id = id;
+        this.type = type;
+        this.paymentReference = paymentReference;
+        this.refundReference = refundReference;
+        this.created = LocalDateTime.now();
+    }
+
+    // Events of one payment (its refunds included) are applied in order
+    public String orderingKey() {
+        return paymentReference != null ? paymentReference : refundReference;
+    }
+}
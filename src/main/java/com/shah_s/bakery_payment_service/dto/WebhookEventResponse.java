@@ -0,0 +1,49 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.WebhookEvent;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Setter
+@Getter
+public class WebhookEventResponse {
+
+    // Getters and Setters
+    private UUID id;
+    private Payment.PaymentGateway gateway;
+    private String eventId;
+    private String eventType;
+    private String paymentReference;
+    private String refundReference;
+    private WebhookEvent.EventStatus status;
+    private Integer attempts;
+    private String lastError;
+    private LocalDateTime occurredAt;
+    private LocalDateTime receivedAt;
+    private LocalDateTime processedAt;
+
+    // Constructors
+    public WebhookEventResponse() {}
+
+    // Static factory method
+    public static WebhookEventResponse from(WebhookEvent event) {
+        WebhookEventResponse response = new WebhookEventResponse();
+        response.id = event.getId();
+        response.gateway = event.getGateway();
+        response.eventId = event.getEventId();
+        response.eventType = event.getEventType();
+        response.paymentReference = event.getPaymentReference();
+        response.refundReference = event.getRefundReference();
+        response.status = event.getStatus();
+        response.attempts = event.getAttempts();
+        response.lastError = event.getLastError();
+        response.occurredAt = event.getOccurredAt();
+        response.receivedAt = event.getReceivedAt();
+        response.processedAt = event.getProcessedAt();
+        return response;
+    }
+}
@@ -0,0 +1,61 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Running per-user (and per-card) payment totals for the daily limit; written with atomic upserts
+@Setter
+@Getter
+@Entity
+@Table(name = "daily_user_totals")
+public class DailyUserTotal {
+
+    // Getters and Setters
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "payment_count", nullable = false)
+    private Integer paymentCount = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public DailyUserTotal() {}
+
+    @Setter
+    @Getter
+    @EqualsAndHashCode
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "total_date", nullable = false)
+        private LocalDate totalDate;
+
+        @Column(name = "user_id", nullable = false)
+        private UUID userId;
+
+        // Empty for the user-level total, otherwise brand:last-four of the card
+        @Column(name = "card_key", nullable = false, length = 32)
+        private String cardKey = "";
+
+        public Key() {}
+
+        public Key(LocalDate totalDate, UUID userId, String cardKey) {
+            this.totalDate = totalDate;
+            this.userId = userId;
+            this.cardKey = cardKey;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import com.shah_s.bakery_payment_service.id.TimeOrderedUuid;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "payment_outbox", indexes = {
+    @Index(name = "idx_outbox_status_available", columnList = "status, available_at"),
+    @Index(name = "idx_outbox_aggregate", columnList = "aggregate_id")
+})
+public class OutboxEvent {
+
+    // Getters and Setters
+    @Id
+    @TimeOrderedUuid
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 30)
+    @NotNull(message = "Event type is required")
+    private EventType eventType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    @NotNull(message = "Aggregate ID is required")
+    private UUID aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Constructors
+    public OutboxEvent() {}
+
+    public OutboxEvent(EventType eventType, UUID aggregateId) {
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.availableAt = LocalDateTime.now();
+    }
+
+    // Utility Methods
+    public void markClaimed() {
+        this.status = OutboxStatus.PROCESSING;
+        this.lockedAt = LocalDateTime.now();
+        this.attempts++;
+    }
+
+    // Enums
+    public enum EventType {
+        PAYMENT_PROCESS,
+        REFUND_PROCESS
+    }
+
+    public enum OutboxStatus {
+        PENDING,
+        PROCESSING,
+        COMPLETED,
+        FAILED
+    }
+}
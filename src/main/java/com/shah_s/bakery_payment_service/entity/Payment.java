@@ -1,5 +1,7 @@
 package com.shah_s.bakery_payment_service.entity;
 
+import com.shah_s.bakery_payment_service.id.References;
+import com.shah_s.bakery_payment_service.id.TimeOrderedUuid;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
@@ -19,17 +21,20 @@ import java.util.UUID;
 @Table(name = "payments", indexes = {
     @Index(name = "idx_payment_reference", columnList = "payment_reference"),
     @Index(name = "idx_payment_order", columnList = "order_id"),
-    @Index(name = "idx_payment_status", columnList = "status"),
-    @Index(name = "idx_payment_method", columnList = "payment_method"),
-    @Index(name = "idx_payment_gateway", columnList = "payment_gateway"),
-    @Index(name = "idx_payment_date", columnList = "created_at"),
-    @Index(name = "idx_external_transaction", columnList = "external_transaction_id")
+    @Index(name = "idx_payment_status_created", columnList = "status, created_at, id"),
+    @Index(name = "idx_payment_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_payment_method_created", columnList = "payment_method, created_at, id"),
+    @Index(name = "idx_payment_gateway_created", columnList = "payment_gateway, created_at, id"),
+    @Index(name = "idx_payment_created", columnList = "created_at, id"),
+    @Index(name = "idx_payment_updated", columnList = "updated_at"),
+    @Index(name = "idx_external_transaction", columnList = "external_transaction_id"),
+    @Index(name = "idx_payment_card_last_four", columnList = "card_last_four")
 })
 public class Payment {
 
     // Getters and Setters
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(name = "payment_reference", unique = true, nullable = false, length = 50)
@@ -118,6 +123,14 @@ public class Payment {
     @Column(name = "last_retry_at")
     private LocalDateTime lastRetryAt;
 
+    // When PaymentRetryScheduler re-drives a transient failure; null when no automatic retry is planned
+    @Column(name = "next_retry_at")
+    private LocalDateTime nextRetryAt;
+
+    // Set while a worker's gateway call is in flight; cleared once an outcome is applied or a retry starts
+    @Column(name = "processing_started_at")
+    private LocalDateTime processingStartedAt;
+
     // Timestamps
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -154,6 +167,25 @@ public class Payment {
     @Column(name = "settlement_date")
     private LocalDateTime settlementDate;
 
+    // Refund totals, maintained only by the conditional updates in PaymentRepository so entity saves never overwrite them
+    @Column(name = "refunded_amount", precision = 12, scale = 2, insertable = false, updatable = false,
+            columnDefinition = "numeric(12,2) NOT NULL DEFAULT 0")
+    private BigDecimal refundedAmount = BigDecimal.ZERO;
+
+    // Balance held by admitted refunds that have not completed or failed yet
+    @Column(name = "reserved_refund_amount", precision = 12, scale = 2, insertable = false, updatable = false,
+            columnDefinition = "numeric(12,2) NOT NULL DEFAULT 0")
+    private BigDecimal reservedRefundAmount = BigDecimal.ZERO;
+
+    @Column(name = "refund_count", insertable = false, updatable = false,
+            columnDefinition = "integer NOT NULL DEFAULT 0")
+    private Integer refundCount = 0;
+
+    // Bumped by every entity update and refund counter change; a save from a stale copy fails instead of overwriting
+    @Version
+    @Column(name = "version", columnDefinition = "bigint NOT NULL DEFAULT 0")
+    private Long version;
+
     // Relationships
     @OneToMany(mappedBy = "payment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<PaymentTransaction> transactions = new ArrayList<>();
@@ -177,7 +209,7 @@ public class Payment {
         this.paymentMethod = paymentMethod;
         this.amount = amount;
         this.description = description;
-        this.paymentReference = generatePaymentReference();
+        this.paymentReference = References.nextPaymentReference();
         this.netAmount = amount; // Initially same as amount, updated after fees
     }
 
@@ -192,18 +224,17 @@ public class Payment {
         refund.setPayment(this);
     }
 
+    // Sum of completed refunds, read from the counter column rather than the refunds collection
     public BigDecimal getTotalRefundedAmount() {
-        return refunds.stream()
-                .filter(refund -> refund.getStatus() == Refund.RefundStatus.COMPLETED)
-                .map(Refund::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return refundedAmount != null ? refundedAmount : BigDecimal.ZERO;
     }
 
     public BigDecimal getRefundableAmount() {
         if (status != PaymentStatus.COMPLETED) {
             return BigDecimal.ZERO;
         }
-        return amount.subtract(getTotalRefundedAmount());
+        BigDecimal reserved = reservedRefundAmount != null ? reservedRefundAmount : BigDecimal.ZERO;
+        return amount.subtract(getTotalRefundedAmount()).subtract(reserved);
     }
 
     public boolean canBeRefunded() {
@@ -227,12 +258,6 @@ public class Payment {
         this.netAmount = amount.subtract(gatewayFee != null ? gatewayFee : BigDecimal.ZERO);
     }
 
-    private String generatePaymentReference() {
-        String timestamp = LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String randomPart = String.valueOf((int) (Math.random() * 9000) + 1000);
-        return "PAY-" + timestamp + "-" + randomPart;
-    }
-
     // Enums
     public enum PaymentMethod {
         CASH,
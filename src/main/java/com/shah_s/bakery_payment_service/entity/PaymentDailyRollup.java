@@ -0,0 +1,61 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Payments per created day and (gateway, method, status, currency); rebuilt per day by DailyRollupService
+@Setter
+@Getter
+@Entity
+@Table(name = "payment_daily_rollups")
+public class PaymentDailyRollup {
+
+    // Getters and Setters
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "payment_count", nullable = false)
+    private Long paymentCount = 0L;
+
+    @Column(name = "total_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "total_fees", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalFees = BigDecimal.ZERO;
+
+    @Column(name = "total_net", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalNet = BigDecimal.ZERO;
+
+    // Constructors
+    public PaymentDailyRollup() {}
+
+    @Setter
+    @Getter
+    @EqualsAndHashCode
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "rollup_date", nullable = false)
+        private LocalDate rollupDate;
+
+        @Column(name = "payment_gateway", nullable = false, length = 32)
+        private String paymentGateway;
+
+        @Column(name = "payment_method", nullable = false, length = 32)
+        private String paymentMethod;
+
+        @Column(name = "status", nullable = false, length = 32)
+        private String status;
+
+        @Column(name = "currency_code", nullable = false, length = 3)
+        private String currencyCode;
+
+        public Key() {}
+    }
+}
@@ -1,10 +1,12 @@
 package com.shah_s.bakery_payment_service.entity;
 
+import com.shah_s.bakery_payment_service.id.TimeOrderedUuid;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -14,17 +16,18 @@ import java.util.UUID;
 @Getter
 @Entity
 @Table(name = "payment_transactions", indexes = {
-    @Index(name = "idx_transaction_payment", columnList = "payment_id"),
-    @Index(name = "idx_transaction_type", columnList = "transaction_type"),
-    @Index(name = "idx_transaction_status", columnList = "status"),
+    @Index(name = "idx_transaction_payment_created", columnList = "payment_id, created_at, id"),
+    @Index(name = "idx_transaction_type_created", columnList = "transaction_type, created_at, id"),
+    @Index(name = "idx_transaction_status_created", columnList = "status, created_at, id"),
     @Index(name = "idx_transaction_gateway", columnList = "gateway_transaction_id"),
-    @Index(name = "idx_transaction_date", columnList = "created_at")
+    @Index(name = "idx_transaction_created", columnList = "created_at, id"),
+    @Index(name = "idx_transaction_updated", columnList = "updated_at")
 })
 public class PaymentTransaction {
 
     // Getters and Setters
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -70,6 +73,10 @@ public class PaymentTransaction {
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     @Column(name = "description", columnDefinition = "TEXT")
     private String description;
 
@@ -0,0 +1,56 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Latest undelivered payment update per order, kept until order-service accepts it
+@Setter
+@Getter
+@Entity
+@Table(name = "pending_order_notifications", indexes = {
+    @Index(name = "idx_order_notifications_status_next", columnList = "status, next_attempt_at")
+})
+public class PendingOrderNotification {
+
+    // Getters and Setters
+    @Id
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationStatus status = NotificationStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    // When the update was produced; an older update never overwrites a newer one
+    @Column(name = "queued_at", nullable = false)
+    private LocalDateTime queuedAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Constructors
+    public PendingOrderNotification() {}
+
+    public PendingOrderNotification(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    // Enums
+    public enum NotificationStatus {
+        PENDING,
+        FAILED
+    }
+}
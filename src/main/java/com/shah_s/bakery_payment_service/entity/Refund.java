@@ -1,5 +1,7 @@
 package com.shah_s.bakery_payment_service.entity;
 
+import com.shah_s.bakery_payment_service.id.References;
+import com.shah_s.bakery_payment_service.id.TimeOrderedUuid;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
@@ -15,17 +17,20 @@ import java.util.UUID;
 @Getter
 @Entity
 @Table(name = "refunds", indexes = {
-    @Index(name = "idx_refund_payment", columnList = "payment_id"),
+    @Index(name = "idx_refund_payment_created", columnList = "payment_id, created_at, id"),
+    @Index(name = "idx_refund_requester_created", columnList = "requested_by, created_at, id"),
+    @Index(name = "idx_refund_approver_created", columnList = "approved_by, created_at, id"),
     @Index(name = "idx_refund_reference", columnList = "refund_reference"),
-    @Index(name = "idx_refund_status", columnList = "status"),
-    @Index(name = "idx_refund_date", columnList = "created_at"),
+    @Index(name = "idx_refund_status_created", columnList = "status, created_at, id"),
+    @Index(name = "idx_refund_created", columnList = "created_at, id"),
+    @Index(name = "idx_refund_updated", columnList = "updated_at"),
     @Index(name = "idx_refund_gateway", columnList = "gateway_refund_id")
 })
 public class Refund {
 
     // Getters and Setters
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(name = "refund_reference", unique = true, nullable = false, length = 50)
@@ -85,6 +90,10 @@ public class Refund {
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
+    // Set while a worker's gateway call is in flight; cleared once an outcome is applied
+    @Column(name = "processing_started_at")
+    private LocalDateTime processingStartedAt;
+
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
@@ -106,7 +115,7 @@ public class Refund {
         this.reason = reason;
         this.requestedBy = requestedBy;
         this.currencyCode = payment.getCurrencyCode();
-        this.refundReference = generateRefundReference();
+        this.refundReference = References.nextRefundReference();
     }
 
     // Utility Methods
@@ -122,12 +131,6 @@ public class Refund {
         return status == RefundStatus.PENDING;
     }
 
-    private String generateRefundReference() {
-        String timestamp = LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String randomPart = String.valueOf((int) (Math.random() * 900) + 100);
-        return "REF-" + timestamp + "-" + randomPart;
-    }
-
     // Enum
     public enum RefundStatus {
         PENDING,
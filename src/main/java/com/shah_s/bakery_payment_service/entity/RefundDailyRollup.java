@@ -0,0 +1,49 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Refunds per created day and (status, currency); rebuilt per day by DailyRollupService
+@Setter
+@Getter
+@Entity
+@Table(name = "refund_daily_rollups")
+public class RefundDailyRollup {
+
+    // Getters and Setters
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "refund_count", nullable = false)
+    private Long refundCount = 0L;
+
+    @Column(name = "total_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    // Constructors
+    public RefundDailyRollup() {}
+
+    @Setter
+    @Getter
+    @EqualsAndHashCode
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "rollup_date", nullable = false)
+        private LocalDate rollupDate;
+
+        @Column(name = "status", nullable = false, length = 32)
+        private String status;
+
+        @Column(name = "currency_code", nullable = false, length = 3)
+        private String currencyCode;
+
+        public Key() {}
+    }
+}
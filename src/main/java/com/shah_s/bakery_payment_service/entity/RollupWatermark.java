@@ -0,0 +1,34 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Progress of one rollup: source rows updated at or before the watermark are reflected in it
+@Setter
+@Getter
+@Entity
+@Table(name = "rollup_watermarks")
+public class RollupWatermark {
+
+    // Getters and Setters
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    // Null until the first full build
+    @Column(name = "watermark")
+    private LocalDateTime watermark;
+
+    // Lease of the instance currently refreshing; one refresher at a time
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public RollupWatermark() {}
+}
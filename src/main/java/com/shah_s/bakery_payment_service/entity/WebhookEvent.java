@@ -0,0 +1,85 @@
+package com.shah_s.bakery_payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Gateway webhook as received: appended before the gateway is acknowledged, applied to payments and refunds later
+@Setter
+@Getter
+@Entity
+@Table(name = "webhook_events",
+    uniqueConstraints = @UniqueConstraint(name = "uk_webhook_gateway_event", columnNames = {"gateway", "event_id"}),
+    indexes = {
+        @Index(name = "idx_webhook_status", columnList = "status, id"),
+        @Index(name = "idx_webhook_ordering_key", columnList = "ordering_key, status")
+    })
+public class WebhookEvent {
+
+    // Getters and Setters
+    // UUIDv7 assigned on append, so id order is arrival order
+    @Id
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Payment.PaymentGateway gateway;
+
+    // The gateway's own event id; redeliveries of one event share it
+    @Column(name = "event_id", nullable = false, length = 255)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    @Column(name = "payment_reference", length = 50)
+    private String paymentReference;
+
+    @Column(name = "refund_reference", length = 50)
+    private String refundReference;
+
+    // Events with the same key are applied one batch at a time, in occurrence order
+    @Column(name = "ordering_key", length = 50)
+    private String orderingKey;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "occurred_at")
+    private LocalDateTime occurredAt;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EventStatus status = EventStatus.RECEIVED;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Why the event failed or was ignored
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    // Constructors
+    public WebhookEvent() {}
+
+    // Enums
+    public enum EventStatus {
+        RECEIVED,
+        PROCESSING,
+        APPLIED,
+        IGNORED,
+        FAILED
+    }
+}
@@ -34,6 +34,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(error);
     }
 
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyException(IdempotencyKeyException ex, WebRequest request) {
+        logger.warn("Idempotency key error: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            "IDEMPOTENCY_KEY_ERROR",
+            ex.getMessage(),
+            LocalDateTime.now(),
+            request.getDescription(false)
+        );
+
+        return ResponseEntity.status(ex.getStatus()).body(error);
+    }
+
+    @ExceptionHandler(PaymentConflictException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentConflictException(PaymentConflictException ex, WebRequest request) {
+        logger.warn("Payment conflict: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            "PAYMENT_CONFLICT",
+            ex.getMessage(),
+            LocalDateTime.now(),
+            request.getDescription(false)
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(WebhookSignatureException.class)
+    public ResponseEntity<ErrorResponse> handleWebhookSignatureException(WebhookSignatureException ex, WebRequest request) {
+        logger.warn("Webhook rejected: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            "WEBHOOK_SIGNATURE_INVALID",
+            ex.getMessage(),
+            LocalDateTime.now(),
+            request.getDescription(false)
+        );
+
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+    }
+
     @ExceptionHandler(FeignException.class)
     public ResponseEntity<ErrorResponse> handleFeignException(FeignException ex, WebRequest request) {
         logger.error("External service error: {}", ex.getMessage());
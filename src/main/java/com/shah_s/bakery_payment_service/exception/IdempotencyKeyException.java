@@ -0,0 +1,18 @@
+package com.shah_s.bakery_payment_service.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Idempotency-Key misuse: reused with a different request (422) or still held by an unfinished request (409)
+public class IdempotencyKeyException extends PaymentServiceException {
+
+    final private HttpStatus status;
+
+    public IdempotencyKeyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,9 @@
+package com.shah_s.bakery_payment_service.exception;
+
+// The payment is in a state that forbids the request right now, e.g. a gateway call is still in flight (409)
+public class PaymentConflictException extends PaymentServiceException {
+
+    public PaymentConflictException(String message) {
+        super(message);
+    }
+}
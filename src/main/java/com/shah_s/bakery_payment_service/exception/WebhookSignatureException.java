@@ -0,0 +1,9 @@
+package com.shah_s.bakery_payment_service.exception;
+
+// Webhook without a valid signature from the gateway's secret, or signed too long ago to be trusted
+public class WebhookSignatureException extends PaymentServiceException {
+
+    public WebhookSignatureException(String message) {
+        super(message);
+    }
+}
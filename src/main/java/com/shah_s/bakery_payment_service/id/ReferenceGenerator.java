@@ -0,0 +1,92 @@
+package com.shah_s.bakery_payment_service.id;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free, node-aware, monotonic business references: PREFIX-yyyyMMddHHmmss-NNSSSS
+// NN is the node id and SSSS the per-second sequence, both base 36. The timestamp is UTC so
+// daylight-saving changes never repeat a second. References only stay unique while no two running
+// generators share a node id and a restarted generator resumes after its node's last reference.
+public class ReferenceGenerator {
+
+    public static final int MAX_NODE_ID = 36 * 36 - 1;
+
+    private static final int SEQUENCE_BITS = 20;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter TIMESTAMP_PARSER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    // epochSecond << 20 | sequence of the last issued reference
+    final private AtomicLong lastIssued = new AtomicLong();
+
+    private volatile String node;
+
+    private volatile FormattedSecond formattedSecond = new FormattedSecond(-1, "");
+
+    public ReferenceGenerator(int nodeId) {
+        setNodeId(nodeId);
+    }
+
+    // Node ids only change the NN part; the sequence state is kept so a switch never reissues a reference
+    public void setNodeId(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = nodeCode(nodeId);
+    }
+
+    // The NN part of a reference
+    public static String nodeCode(int nodeId) {
+        return pad(Integer.toString(nodeId, 36), 2);
+    }
+
+    // Never issue a reference at or below one issued earlier, e.g. by a previous run of this node: after a clock step
+    // back or a sequence carry the restarted clock alone would go back over it
+    public void resumeAfter(String reference) {
+        String[] parts = reference.split("-");
+        if (parts.length != 3 || parts[2].length() < 3) {
+            throw new IllegalArgumentException("Not a generated reference: " + reference);
+        }
+        long epochSecond = LocalDateTime.parse(parts[1], TIMESTAMP_PARSER).toEpochSecond(ZoneOffset.UTC);
+        long sequence = Long.parseLong(parts[2].substring(2), 36);
+        lastIssued.accumulateAndGet((epochSecond << SEQUENCE_BITS) | sequence, Math::max);
+    }
+
+    public String next(String prefix) {
+        long floor = (System.currentTimeMillis() / 1000) << SEQUENCE_BITS;
+        long issued;
+        long previous;
+        do {
+            previous = lastIssued.get();
+            // Past 2^20 references in a second (or after a clock step back) the sequence carries into the seconds field
+            issued = Math.max(floor, previous + 1);
+        } while (!lastIssued.compareAndSet(previous, issued));
+
+        String sequence = pad(Long.toString(issued & SEQUENCE_MASK, 36), 4);
+        return prefix + "-" + timestamp(issued >>> SEQUENCE_BITS) + "-" + node + sequence;
+    }
+
+    // Formatting a timestamp is the expensive part; all references in the same second share one string
+    private String timestamp(long epochSecond) {
+        FormattedSecond current = formattedSecond;
+        if (current.epochSecond() != epochSecond) {
+            current = new FormattedSecond(epochSecond, TIMESTAMP.format(Instant.ofEpochSecond(epochSecond)));
+            formattedSecond = current;
+        }
+        return current.text();
+    }
+
+    private static String pad(String value, int width) {
+        String upper = value.toUpperCase();
+        return upper.length() >= width ? upper : "0".repeat(width - upper.length()) + upper;
+    }
+
+    private record FormattedSecond(long epochSecond, String text) {}
+}
@@ -0,0 +1,26 @@
+package com.shah_s.bakery_payment_service.id;
+
+// Static access for entity constructors, which are not Spring-managed.
+// Node 0 until IdConfig installs the node id this instance configured or leased at startup.
+public final class References {
+
+    private static final ReferenceGenerator generator = new ReferenceGenerator(0);
+
+    private References() {}
+
+    public static String nextPaymentReference() {
+        return generator.next("PAY");
+    }
+
+    public static String nextRefundReference() {
+        return generator.next("REF");
+    }
+
+    public static void configureNodeId(int nodeId) {
+        generator.setNodeId(nodeId);
+    }
+
+    public static void resumeAfter(String reference) {
+        generator.resumeAfter(reference);
+    }
+}
@@ -0,0 +1,40 @@
+package com.shah_s.bakery_payment_service.id;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Time-ordered UUIDs (RFC 9562 version 7): 48-bit Unix millis, 12-bit monotonic counter, 62 random bits.
+// Consecutive ids from one JVM are strictly increasing, so primary-key inserts append to the right of the index.
+public final class UuidV7 {
+
+    private static final int COUNTER_BITS = 12;
+
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    // millis << 12 | counter of the last issued id
+    private static final AtomicLong lastIssued = new AtomicLong();
+
+    private UuidV7() {}
+
+    public static UUID next() {
+        long floor = System.currentTimeMillis() << COUNTER_BITS;
+        long issued;
+        long previous;
+        do {
+            previous = lastIssued.get();
+            // Past 4096 ids in a millisecond (or after a clock step back) the counter carries into the millis field
+            issued = Math.max(floor, previous + 1);
+        } while (!lastIssued.compareAndSet(previous, issued));
+
+        long millis = issued >>> COUNTER_BITS;
+        long mostSigBits = (millis << 16) | 0x7000L | (issued & COUNTER_MASK);
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    // Millisecond timestamp embedded in a version 7 UUID
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,50 @@
+package com.shah_s.bakery_payment_service.repository;
+
+import com.shah_s.bakery_payment_service.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // Claim a key for execution. Takes over a key that expired or whose owner stopped before finishing;
+    // returns 0 while another request holds or has completed it.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, status, created_at, expires_at) " +
+                   "VALUES (:key, :requestHash, 'IN_PROGRESS', :now, :expiresAt) " +
+                   "ON CONFLICT (idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+                   "status = 'IN_PROGRESS', response_status = NULL, response_body = NULL, " +
+                   "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+                   "WHERE idempotency_keys.expires_at < :now " +
+                   "OR (idempotency_keys.status = 'IN_PROGRESS' AND idempotency_keys.created_at < :staleBefore)",
+           nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash, @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt, @Param("staleBefore") LocalDateTime staleBefore);
+
+    // Store the response of the request that claimed the key; a claim taken over in the meantime is left alone
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.status = 'COMPLETED', k.responseStatus = :responseStatus, " +
+           "k.responseBody = :responseBody WHERE k.key = :key AND k.createdAt = :claimedAt AND k.status = 'IN_PROGRESS'")
+    int complete(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("responseStatus") int responseStatus, @Param("responseBody") String responseBody);
+
+    // Give up a claim whose request failed, so a retry executes again
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.key = :key AND k.createdAt = :claimedAt AND k.status = 'IN_PROGRESS'")
+    int release(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt);
+
+    // Delete expired keys
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
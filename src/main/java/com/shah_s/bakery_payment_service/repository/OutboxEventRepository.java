@@ -0,0 +1,35 @@
+package com.shah_s.bakery_payment_service.repository;
+
+import com.shah_s.bakery_payment_service.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Claim a batch of due events (and events whose worker died mid-flight) without blocking other pollers
+    @Query(value = "SELECT * FROM payment_outbox " +
+                   "WHERE (status = 'PENDING' AND available_at <= :now) " +
+                   "OR (status = 'PROCESSING' AND locked_at < :staleBefore) " +
+                   "ORDER BY available_at ASC " +
+                   "LIMIT :batchSize " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("now") LocalDateTime now,
+                                 @Param("staleBefore") LocalDateTime staleBefore,
+                                 @Param("batchSize") int batchSize);
+
+    // Count events by status
+    long countByStatus(OutboxEvent.OutboxStatus status);
+
+    // Delete completed events older than the retention window
+    @Modifying
+    @Query("DELETE FROM OutboxEvent o WHERE o.status = 'COMPLETED' AND o.processedAt < :cutoffTime")
+    int deleteCompletedBefore(@Param("cutoffTime") LocalDateTime cutoffTime);
+}
@@ -1,9 +1,12 @@
 package com.shah_s.bakery_payment_service.repository;
 
+import com.shah_s.bakery_payment_service.dto.PaymentSummaryResponse;
 import com.shah_s.bakery_payment_service.entity.Payment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,7 +18,80 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, UUID> {
+public interface PaymentRepository extends JpaRepository<Payment, UUID>, JpaSpecificationExecutor<Payment> {
+
+    // Columns of PaymentSummaryResponse
+    String SUMMARY_SELECT = "SELECT p.id AS id, p.paymentReference AS paymentReference, p.orderId AS orderId, " +
+            "p.userId AS userId, p.paymentMethod AS paymentMethod, p.paymentGateway AS paymentGateway, " +
+            "p.status AS status, p.amount AS amount, p.currencyCode AS currencyCode, " +
+            "p.cardLastFour AS cardLastFour, p.cardBrand AS cardBrand, p.failureCode AS failureCode, " +
+            "p.refundedAmount AS totalRefundedAmount, p.reservedRefundAmount AS reservedRefundAmount, " +
+            "p.createdAt AS createdAt, p.updatedAt AS updatedAt " +
+            "FROM Payment p";
+
+    // Keyset predicate and order for newest-first listings; the row-value comparison lets Postgres seek the created_at, id indexes
+    String BEFORE_CURSOR = "(p.createdAt, p.id) < (:cursorAt, :cursorId)";
+
+    String NEWEST_FIRST = " ORDER BY p.createdAt DESC, p.id DESC";
+
+    // Refunds admitted before reservations existed hold none, so releasing never drives the reservation below zero
+    String RELEASE_RESERVATION = "CASE WHEN p.reservedRefundAmount > :amount THEN p.reservedRefundAmount - :amount ELSE 0 END";
+
+    // Refund balance columns of one payment
+    interface RefundBalance {
+
+        Payment.PaymentStatus getStatus();
+
+        BigDecimal getAmount();
+
+        BigDecimal getRefundedAmount();
+
+        BigDecimal getReservedRefundAmount();
+
+        default BigDecimal getAvailableAmount() {
+            if (getStatus() != Payment.PaymentStatus.COMPLETED) {
+                return BigDecimal.ZERO;
+            }
+            return getAmount().subtract(getRefundedAmount()).subtract(getReservedRefundAmount());
+        }
+    }
+
+    // Payments before a cursor
+    @Query("SELECT p FROM Payment p WHERE " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<Payment> findPageBefore(@Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                 Pageable pageable);
+
+    // Payments of a user before a cursor
+    @Query("SELECT p FROM Payment p WHERE p.userId = :userId AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<Payment> findPageByUserIdBefore(@Param("userId") UUID userId,
+                                         @Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                         Pageable pageable);
+
+    // Payments with a status before a cursor
+    @Query("SELECT p FROM Payment p WHERE p.status = :status AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<Payment> findPageByStatusBefore(@Param("status") Payment.PaymentStatus status,
+                                         @Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                         Pageable pageable);
+
+    // Payment summaries before a cursor
+    @Query(SUMMARY_SELECT + " WHERE " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<PaymentSummaryResponse> findSummaryPageBefore(@Param("cursorAt") LocalDateTime cursorAt,
+                                                       @Param("cursorId") UUID cursorId,
+                                                       Pageable pageable);
+
+    // Payment summaries of a user before a cursor
+    @Query(SUMMARY_SELECT + " WHERE p.userId = :userId AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<PaymentSummaryResponse> findSummaryPageByUserIdBefore(@Param("userId") UUID userId,
+                                                               @Param("cursorAt") LocalDateTime cursorAt,
+                                                               @Param("cursorId") UUID cursorId,
+                                                               Pageable pageable);
+
+    // Payment summaries with a status before a cursor
+    @Query(SUMMARY_SELECT + " WHERE p.status = :status AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<PaymentSummaryResponse> findSummaryPageByStatusBefore(@Param("status") Payment.PaymentStatus status,
+                                                               @Param("cursorAt") LocalDateTime cursorAt,
+                                                               @Param("cursorId") UUID cursorId,
+                                                               Pageable pageable);
 
     // Find payment by payment reference
     Optional<Payment> findByPaymentReference(String paymentReference);
@@ -103,6 +179,40 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     @Query("SELECT DISTINCT p FROM Payment p JOIN p.refunds r ORDER BY p.createdAt DESC")
     List<Payment> findPaymentsWithRefunds();
 
+    // Current refund balance straight from the row; scalar columns bypass any Payment already in the persistence context
+    @Query("SELECT p.status AS status, p.amount AS amount, " +
+           "p.refundedAmount AS refundedAmount, p.reservedRefundAmount AS reservedRefundAmount " +
+           "FROM Payment p WHERE p.id = :paymentId")
+    Optional<RefundBalance> findRefundBalance(@Param("paymentId") UUID paymentId);
+
+    // Reserve balance for an admitted refund; matches no row unless the payment is completed and the balance covers the amount
+    @Modifying
+    @Query("UPDATE Payment p SET p.reservedRefundAmount = p.reservedRefundAmount + :amount, " +
+           "p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :paymentId AND p.status = 'COMPLETED' " +
+           "AND p.refundedAmount + p.reservedRefundAmount + :amount <= p.amount")
+    int reserveRefund(@Param("paymentId") UUID paymentId, @Param("amount") BigDecimal amount);
+
+    // Give back the balance held by a refund that failed or was rejected
+    @Modifying
+    @Query("UPDATE Payment p SET p.reservedRefundAmount = " + RELEASE_RESERVATION + ", " +
+           "p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP WHERE p.id = :paymentId")
+    int releaseRefundReservation(@Param("paymentId") UUID paymentId, @Param("amount") BigDecimal amount);
+
+    // Move a completed refund from the reservation to the counters; matches no row if it would refund more than the payment amount
+    @Modifying
+    @Query("UPDATE Payment p SET p.refundedAmount = p.refundedAmount + :amount, p.refundCount = p.refundCount + 1, " +
+           "p.reservedRefundAmount = " + RELEASE_RESERVATION + ", " +
+           "p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :paymentId AND p.refundedAmount + :amount <= p.amount")
+    int recordCompletedRefund(@Param("paymentId") UUID paymentId, @Param("amount") BigDecimal amount);
+
+    // Mark a completed payment refunded once its counters reach the payment amount
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = 'REFUNDED', p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :paymentId AND p.status = 'COMPLETED' AND p.refundedAmount >= p.amount")
+    int markRefundedIfFullyRefunded(@Param("paymentId") UUID paymentId);
+
     // Count payments by status
     long countByStatus(Payment.PaymentStatus status);
 
@@ -235,31 +345,4 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     List<Object[]> getTopUsersByPaymentVolume(@Param("startDate") LocalDateTime startDate,
                                              @Param("endDate") LocalDateTime endDate,
                                              Pageable pageable);
-
-    // Advanced search with multiple filters
-    @Query("SELECT p FROM Payment p " +
-           "WHERE (:userId IS NULL OR p.userId = :userId) " +
-           "AND (:status IS NULL OR p.status = :status) " +
-           "AND (:paymentMethod IS NULL OR p.paymentMethod = :paymentMethod) " +
-           "AND (:paymentGateway IS NULL OR p.paymentGateway = :paymentGateway) " +
-           "AND (:minAmount IS NULL OR p.amount >= :minAmount) " +
-           "AND (:maxAmount IS NULL OR p.amount <= :maxAmount) " +
-           "AND (:startDate IS NULL OR p.createdAt >= :startDate) " +
-           "AND (:endDate IS NULL OR p.createdAt <= :endDate) " +
-           "ORDER BY p.createdAt DESC")
-    List<Payment> findPaymentsWithFilters(@Param("userId") UUID userId,
-                                         @Param("status") Payment.PaymentStatus status,
-                                         @Param("paymentMethod") Payment.PaymentMethod paymentMethod,
-                                         @Param("paymentGateway") Payment.PaymentGateway paymentGateway,
-                                         @Param("minAmount") BigDecimal minAmount,
-                                         @Param("maxAmount") BigDecimal maxAmount,
-                                         @Param("startDate") LocalDateTime startDate,
-                                         @Param("endDate") LocalDateTime endDate);
-
-    // Search payments by description or notes
-    @Query("SELECT p FROM Payment p " +
-           "WHERE LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(p.notes) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "ORDER BY p.createdAt DESC")
-    List<Payment> searchPaymentsByText(@Param("searchTerm") String searchTerm);
 }
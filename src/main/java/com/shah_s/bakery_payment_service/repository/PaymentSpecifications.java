@@ -0,0 +1,63 @@
+package com.shah_s.bakery_payment_service.repository;
+
+import com.shah_s.bakery_payment_service.dto.PageCursor;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Filter predicates for admin payment screens; only supplied filters become SQL predicates,
+// so Postgres plans each combination against the matching (column, created_at, id) index
+public final class PaymentSpecifications {
+
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private PaymentSpecifications() {}
+
+    public static Specification<Payment> withFilters(UUID userId, Payment.PaymentStatus status,
+                                                     Payment.PaymentMethod paymentMethod,
+                                                     Payment.PaymentGateway paymentGateway,
+                                                     BigDecimal minAmount, BigDecimal maxAmount,
+                                                     LocalDateTime startDate, LocalDateTime endDate) {
+        return Specification.allOf(
+                equal("userId", userId),
+                equal("status", status),
+                equal("paymentMethod", paymentMethod),
+                equal("paymentGateway", paymentGateway),
+                amountAtLeast(minAmount),
+                amountAtMost(maxAmount),
+                createdFrom(startDate),
+                createdUntil(endDate));
+    }
+
+    // Keyset position for NEWEST_FIRST; the redundant created_at bound gives the planner an index range
+    public static Specification<Payment> before(PageCursor cursor) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.<LocalDateTime>get("createdAt"), cursor.createdAt()),
+                cb.or(cb.lessThan(root.<LocalDateTime>get("createdAt"), cursor.createdAt()),
+                      cb.lessThan(root.<UUID>get("id"), cursor.id())));
+    }
+
+    private static Specification<Payment> equal(String attribute, Object value) {
+        return value == null ? null : (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    private static Specification<Payment> amountAtLeast(BigDecimal minAmount) {
+        return minAmount == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<BigDecimal>get("amount"), minAmount);
+    }
+
+    private static Specification<Payment> amountAtMost(BigDecimal maxAmount) {
+        return maxAmount == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.<BigDecimal>get("amount"), maxAmount);
+    }
+
+    private static Specification<Payment> createdFrom(LocalDateTime startDate) {
+        return startDate == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), startDate);
+    }
+
+    private static Specification<Payment> createdUntil(LocalDateTime endDate) {
+        return endDate == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.<LocalDateTime>get("createdAt"), endDate);
+    }
+}
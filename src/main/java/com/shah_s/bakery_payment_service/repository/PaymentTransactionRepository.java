@@ -1,6 +1,7 @@
 package com.shah_s.bakery_payment_service.repository;
 
 import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,6 +16,42 @@ import java.util.UUID;
 @Repository
 public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, UUID> {
 
+    // Keyset predicates and orders over (created_at, id)
+    String BEFORE_CURSOR = "(pt.createdAt, pt.id) < (:cursorAt, :cursorId)";
+
+    String AFTER_CURSOR = "(pt.createdAt, pt.id) > (:cursorAt, :cursorId)";
+
+    String NEWEST_FIRST = " ORDER BY pt.createdAt DESC, pt.id DESC";
+
+    String OLDEST_FIRST = " ORDER BY pt.createdAt ASC, pt.id ASC";
+
+    // Transactions of a payment before a cursor
+    @Query("SELECT pt FROM PaymentTransaction pt WHERE pt.payment.id = :paymentId AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<PaymentTransaction> findPageByPaymentIdBefore(@Param("paymentId") UUID paymentId,
+                                                       @Param("cursorAt") LocalDateTime cursorAt,
+                                                       @Param("cursorId") UUID cursorId,
+                                                       Pageable pageable);
+
+    // Transactions with a status before a cursor
+    @Query("SELECT pt FROM PaymentTransaction pt WHERE pt.status = :status AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<PaymentTransaction> findPageByStatusBefore(@Param("status") PaymentTransaction.TransactionStatus status,
+                                                    @Param("cursorAt") LocalDateTime cursorAt,
+                                                    @Param("cursorId") UUID cursorId,
+                                                    Pageable pageable);
+
+    // Transactions of a type before a cursor
+    @Query("SELECT pt FROM PaymentTransaction pt WHERE pt.transactionType = :transactionType AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<PaymentTransaction> findPageByTypeBefore(@Param("transactionType") PaymentTransaction.TransactionType transactionType,
+                                                  @Param("cursorAt") LocalDateTime cursorAt,
+                                                  @Param("cursorId") UUID cursorId,
+                                                  Pageable pageable);
+
+    // Pending transactions after a cursor, oldest first
+    @Query("SELECT pt FROM PaymentTransaction pt WHERE pt.status = 'PENDING' AND " + AFTER_CURSOR + OLDEST_FIRST)
+    List<PaymentTransaction> findPendingPageAfter(@Param("cursorAt") LocalDateTime cursorAt,
+                                                  @Param("cursorId") UUID cursorId,
+                                                  Pageable pageable);
+
     // Find transactions by payment ID
     List<PaymentTransaction> findByPaymentIdOrderByCreatedAtDesc(UUID paymentId);
 
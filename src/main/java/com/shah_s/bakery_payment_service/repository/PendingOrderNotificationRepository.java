@@ -0,0 +1,34 @@
+package com.shah_s.bakery_payment_service.repository;
+
+import com.shah_s.bakery_payment_service.entity.PendingOrderNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PendingOrderNotificationRepository extends JpaRepository<PendingOrderNotification, UUID> {
+
+    // Claim due notifications without blocking other nodes
+    @Query(value = "SELECT * FROM pending_order_notifications " +
+                   "WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+                   "ORDER BY next_attempt_at ASC " +
+                   "LIMIT :batchSize " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PendingOrderNotification> claimDue(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
+
+    // Drop stored updates superseded by a delivered one
+    @Modifying
+    @Query("DELETE FROM PendingOrderNotification n WHERE n.orderId IN :orderIds AND n.queuedAt <= :deliveredQueuedAt")
+    int deleteDelivered(@Param("orderIds") Collection<UUID> orderIds,
+                        @Param("deliveredQueuedAt") LocalDateTime deliveredQueuedAt);
+
+    // Count notifications by status
+    long countByStatus(PendingOrderNotification.NotificationStatus status);
+}
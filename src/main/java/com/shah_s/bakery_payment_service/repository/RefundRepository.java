@@ -4,6 +4,7 @@ import com.shah_s.bakery_payment_service.entity.Refund;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,7 +16,44 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface RefundRepository extends JpaRepository<Refund, UUID> {
+public interface RefundRepository extends JpaRepository<Refund, UUID>, JpaSpecificationExecutor<Refund> {
+
+    // Keyset predicates and orders over (created_at, id)
+    String BEFORE_CURSOR = "(r.createdAt, r.id) < (:cursorAt, :cursorId)";
+
+    String AFTER_CURSOR = "(r.createdAt, r.id) > (:cursorAt, :cursorId)";
+
+    String NEWEST_FIRST = " ORDER BY r.createdAt DESC, r.id DESC";
+
+    String OLDEST_FIRST = " ORDER BY r.createdAt ASC, r.id ASC";
+
+    // Refunds before a cursor
+    @Query("SELECT r FROM Refund r WHERE " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<Refund> findPageBefore(@Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                Pageable pageable);
+
+    // Refunds of a payment before a cursor
+    @Query("SELECT r FROM Refund r WHERE r.payment.id = :paymentId AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<Refund> findPageByPaymentIdBefore(@Param("paymentId") UUID paymentId,
+                                           @Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                           Pageable pageable);
+
+    // Refunds requested by a user before a cursor
+    @Query("SELECT r FROM Refund r WHERE r.requestedBy = :requestedBy AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<Refund> findPageByRequestedByBefore(@Param("requestedBy") UUID requestedBy,
+                                             @Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                             Pageable pageable);
+
+    // Refunds with a status before a cursor
+    @Query("SELECT r FROM Refund r WHERE r.status = :status AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<Refund> findPageByStatusBefore(@Param("status") Refund.RefundStatus status,
+                                        @Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                        Pageable pageable);
+
+    // Pending refunds after a cursor, oldest first so the queue is worked in order
+    @Query("SELECT r FROM Refund r WHERE r.status = 'PENDING' AND " + AFTER_CURSOR + OLDEST_FIRST)
+    List<Refund> findPendingPageAfter(@Param("cursorAt") LocalDateTime cursorAt, @Param("cursorId") UUID cursorId,
+                                      Pageable pageable);
 
     // Find refund by refund reference
     Optional<Refund> findByRefundReference(String refundReference);
@@ -23,6 +61,10 @@ public interface RefundRepository extends JpaRepository<Refund, UUID> {
     // Check if refund reference exists
     boolean existsByRefundReference(String refundReference);
 
+    // Find refund together with its payment (for processing outside a persistence context)
+    @Query("SELECT r FROM Refund r JOIN FETCH r.payment WHERE r.id = :refundId")
+    Optional<Refund> findWithPaymentById(@Param("refundId") UUID refundId);
+
     // Find refund by gateway refund ID
     Optional<Refund> findByGatewayRefundId(String gatewayRefundId);
 
@@ -157,29 +199,4 @@ public interface RefundRepository extends JpaRepository<Refund, UUID> {
     List<Object[]> getTopUsersByRefundAmount(@Param("startDate") LocalDateTime startDate,
                                             @Param("endDate") LocalDateTime endDate,
                                             Pageable pageable);
-
-    // Search refunds by reason or notes
-    @Query("SELECT r FROM Refund r " +
-           "WHERE LOWER(r.reason) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(r.notes) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "ORDER BY r.createdAt DESC")
-    List<Refund> searchRefundsByText(@Param("searchTerm") String searchTerm);
-
-    // Advanced search with multiple filters
-    @Query("SELECT r FROM Refund r " +
-           "WHERE (:status IS NULL OR r.status = :status) " +
-           "AND (:requestedBy IS NULL OR r.requestedBy = :requestedBy) " +
-           "AND (:approvedBy IS NULL OR r.approvedBy = :approvedBy) " +
-           "AND (:minAmount IS NULL OR r.amount >= :minAmount) " +
-           "AND (:maxAmount IS NULL OR r.amount <= :maxAmount) " +
-           "AND (:startDate IS NULL OR r.createdAt >= :startDate) " +
-           "AND (:endDate IS NULL OR r.createdAt <= :endDate) " +
-           "ORDER BY r.createdAt DESC")
-    List<Refund> findRefundsWithFilters(@Param("status") Refund.RefundStatus status,
-                                       @Param("requestedBy") UUID requestedBy,
-                                       @Param("approvedBy") UUID approvedBy,
-                                       @Param("minAmount") BigDecimal minAmount,
-                                       @Param("maxAmount") BigDecimal maxAmount,
-                                       @Param("startDate") LocalDateTime startDate,
-                                       @Param("endDate") LocalDateTime endDate);
 }
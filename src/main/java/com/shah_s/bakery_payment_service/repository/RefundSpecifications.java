@@ -0,0 +1,59 @@
+package com.shah_s.bakery_payment_service.repository;
+
+import com.shah_s.bakery_payment_service.dto.PageCursor;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Filter predicates for admin refund screens; see PaymentSpecifications
+public final class RefundSpecifications {
+
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private RefundSpecifications() {}
+
+    public static Specification<Refund> withFilters(Refund.RefundStatus status, UUID requestedBy, UUID approvedBy,
+                                                    BigDecimal minAmount, BigDecimal maxAmount,
+                                                    LocalDateTime startDate, LocalDateTime endDate) {
+        return Specification.allOf(
+                equal("status", status),
+                equal("requestedBy", requestedBy),
+                equal("approvedBy", approvedBy),
+                amountAtLeast(minAmount),
+                amountAtMost(maxAmount),
+                createdFrom(startDate),
+                createdUntil(endDate));
+    }
+
+    // Keyset position for NEWEST_FIRST; the redundant created_at bound gives the planner an index range
+    public static Specification<Refund> before(PageCursor cursor) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.<LocalDateTime>get("createdAt"), cursor.createdAt()),
+                cb.or(cb.lessThan(root.<LocalDateTime>get("createdAt"), cursor.createdAt()),
+                      cb.lessThan(root.<UUID>get("id"), cursor.id())));
+    }
+
+    private static Specification<Refund> equal(String attribute, Object value) {
+        return value == null ? null : (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    private static Specification<Refund> amountAtLeast(BigDecimal minAmount) {
+        return minAmount == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<BigDecimal>get("amount"), minAmount);
+    }
+
+    private static Specification<Refund> amountAtMost(BigDecimal maxAmount) {
+        return maxAmount == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.<BigDecimal>get("amount"), maxAmount);
+    }
+
+    private static Specification<Refund> createdFrom(LocalDateTime startDate) {
+        return startDate == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), startDate);
+    }
+
+    private static Specification<Refund> createdUntil(LocalDateTime endDate) {
+        return endDate == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.<LocalDateTime>get("createdAt"), endDate);
+    }
+}
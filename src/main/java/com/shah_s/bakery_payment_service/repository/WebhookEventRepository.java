@@ -0,0 +1,59 @@
+package com.shah_s.bakery_payment_service.repository;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.WebhookEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, UUID> {
+
+    // Return claimed events whose batch failed for another attempt, or give up after max attempts
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE webhook_events SET " +
+                   "status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE 'RECEIVED' END, " +
+                   "processed_at = CASE WHEN attempts >= :maxAttempts THEN CAST(:now AS timestamp) END, " +
+                   "locked_at = NULL, last_error = :error " +
+                   "WHERE id IN (:ids) AND status = 'PROCESSING'", nativeQuery = true)
+    int release(@Param("ids") Collection<UUID> ids, @Param("error") String error,
+                @Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now);
+
+    // Queue processed events again, e.g. after fixing whatever made them fail
+    @Transactional
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = 'RECEIVED', e.attempts = 0, e.lockedAt = NULL, " +
+           "e.processedAt = NULL, e.lastError = NULL " +
+           "WHERE e.status IN :statuses AND (:gateway IS NULL OR e.gateway = :gateway) " +
+           "AND e.receivedAt >= :from AND e.receivedAt < :to")
+    int replay(@Param("statuses") Collection<WebhookEvent.EventStatus> statuses,
+               @Param("gateway") Payment.PaymentGateway gateway,
+               @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = 'RECEIVED', e.attempts = 0, e.lockedAt = NULL, " +
+           "e.processedAt = NULL, e.lastError = NULL WHERE e.id = :id AND e.status <> 'PROCESSING'")
+    int replayById(@Param("id") UUID id);
+
+    // Newest first
+    List<WebhookEvent> findByStatusOrderByIdDesc(WebhookEvent.EventStatus status, Pageable pageable);
+
+    long countByStatus(WebhookEvent.EventStatus status);
+
+    // Delete applied and ignored events older than the retention window; failed ones stay for replay
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WebhookEvent e WHERE e.status IN ('APPLIED', 'IGNORED') AND e.processedAt < :cutoffTime")
+    int deleteProcessedBefore(@Param("cutoffTime") LocalDateTime cutoffTime);
+}
@@ -0,0 +1,243 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Per-user daily limit backed by daily_user_totals; the limit check is one conditional upsert instead of a SUM
+@Service
+public class DailyLimitLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyLimitLedger.class);
+
+    private static final int STRIPE_COUNT = 64;
+
+    private static final int ENTRIES_PER_STRIPE = 1024;
+
+    private static final String USER_SCOPE = "";
+
+    // Adds the amount only if the new total stays within the limit; returns no row otherwise
+    private static final String RESERVE_SQL =
+            "INSERT INTO daily_user_totals AS t (total_date, user_id, card_key, total_amount, payment_count, updated_at) " +
+            "SELECT CAST(:day AS date), CAST(:userId AS uuid), :cardKey, CAST(:amount AS numeric), 1, now() " +
+            "WHERE CAST(:amount AS numeric) <= CAST(:limit AS numeric) " +
+            "ON CONFLICT (total_date, user_id, card_key) DO UPDATE " +
+            "SET total_amount = t.total_amount + EXCLUDED.total_amount, " +
+            "payment_count = t.payment_count + 1, " +
+            "updated_at = now() " +
+            "WHERE t.total_amount + EXCLUDED.total_amount <= CAST(:limit AS numeric) " +
+            "RETURNING t.total_amount";
+
+    private static final String RELEASE_SQL =
+            "UPDATE daily_user_totals " +
+            "SET total_amount = GREATEST(total_amount - :amount, 0), " +
+            "payment_count = GREATEST(payment_count - 1, 0), " +
+            "updated_at = now() " +
+            "WHERE total_date = :day AND user_id = :userId AND card_key = :cardKey";
+
+    private static final String CURRENT_TOTAL_SQL =
+            "SELECT total_amount FROM daily_user_totals " +
+            "WHERE total_date = :day AND user_id = :userId AND card_key = :cardKey";
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    @Value("${payment.limits.daily-limit:50000.00}")
+    private BigDecimal dailyLimit;
+
+    @Value("${payment.limits.card-daily-limit:0}")
+    private BigDecimal cardDailyLimit;
+
+    @Value("${payment.limits.ledger-cache-ttl:5s}")
+    private Duration cacheTtl;
+
+    public DailyLimitLedger(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Reserve the amount against today's user total (and card total when a card limit is configured)
+    public void reserve(UUID userId, String cardKey, BigDecimal amount) {
+        LocalDate today = LocalDate.now();
+
+        reserveOrThrow(new LedgerKey(today, userId, USER_SCOPE), amount, dailyLimit,
+                "Daily payment limit exceeded");
+
+        if (cardKey != null && cardDailyLimit.signum() > 0) {
+            reserveOrThrow(new LedgerKey(today, userId, cardKey), amount, cardDailyLimit,
+                    "Daily card payment limit exceeded");
+        }
+    }
+
+    // Give back a reservation, e.g. when the payment is cancelled
+    public void release(UUID userId, String cardKey, BigDecimal amount, LocalDate day) {
+        releaseKey(new LedgerKey(day, userId, USER_SCOPE), amount);
+
+        if (cardKey != null && cardDailyLimit.signum() > 0) {
+            releaseKey(new LedgerKey(day, userId, cardKey), amount);
+        }
+    }
+
+    // Give back several reservations in one JDBC batch, e.g. for a chunk of expired payments
+    public void releaseAll(List<Release> releases) {
+        if (releases.isEmpty()) {
+            return;
+        }
+
+        List<LedgerKey> keys = new ArrayList<>();
+        List<MapSqlParameterSource> batch = new ArrayList<>();
+        for (Release release : releases) {
+            LedgerKey userKey = new LedgerKey(release.day(), release.userId(), USER_SCOPE);
+            keys.add(userKey);
+            batch.add(params(userKey).addValue("amount", release.amount()));
+
+            if (release.cardKey() != null && cardDailyLimit.signum() > 0) {
+                LedgerKey cardKey = new LedgerKey(release.day(), release.userId(), release.cardKey());
+                keys.add(cardKey);
+                batch.add(params(cardKey).addValue("amount", release.amount()));
+            }
+        }
+
+        jdbcTemplate.batchUpdate(RELEASE_SQL, batch.toArray(new MapSqlParameterSource[0]));
+        afterCommit(() -> keys.forEach(key -> stripeFor(key).remove(key)));
+    }
+
+    // Card scope key for per-card limits
+    public static String cardKey(String cardBrand, String cardLastFour) {
+        if (cardLastFour == null || cardLastFour.isBlank()) {
+            return null;
+        }
+        return (cardBrand != null ? cardBrand.toUpperCase() : "CARD") + ":" + cardLastFour;
+    }
+
+    private void reserveOrThrow(LedgerKey key, BigDecimal amount, BigDecimal limit, String message) {
+        Stripe stripe = stripeFor(key);
+
+        // Fast rejection from a recently confirmed total; totals only grow between releases
+        BigDecimal knownTotal = stripe.get(key, cacheTtl);
+        if (knownTotal != null && knownTotal.add(amount).compareTo(limit) > 0) {
+            throw new PaymentServiceException(message);
+        }
+
+        List<BigDecimal> newTotal = jdbcTemplate.queryForList(RESERVE_SQL, params(key)
+                .addValue("amount", amount)
+                .addValue("limit", limit), BigDecimal.class);
+
+        if (newTotal.isEmpty()) {
+            List<BigDecimal> currentTotal = jdbcTemplate.queryForList(CURRENT_TOTAL_SQL, params(key), BigDecimal.class);
+            if (!currentTotal.isEmpty()) {
+                stripe.put(key, currentTotal.get(0));
+            }
+            logger.debug("Daily limit rejected for user {} scope '{}'", key.userId(), key.cardKey());
+            throw new PaymentServiceException(message);
+        }
+
+        // Only publish the new total once the reservation is durable
+        afterCommit(() -> stripe.put(key, newTotal.get(0)));
+    }
+
+    private void releaseKey(LedgerKey key, BigDecimal amount) {
+        jdbcTemplate.update(RELEASE_SQL, params(key).addValue("amount", amount));
+
+        Stripe stripe = stripeFor(key);
+        afterCommit(() -> stripe.remove(key));
+    }
+
+    private MapSqlParameterSource params(LedgerKey key) {
+        return new MapSqlParameterSource()
+                .addValue("day", key.day())
+                .addValue("userId", key.userId())
+                .addValue("cardKey", key.cardKey());
+    }
+
+    private Stripe stripeFor(LedgerKey key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPE_COUNT)];
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // One reservation to give back; day is the payment's creation date
+    public record Release(UUID userId, String cardKey, BigDecimal amount, LocalDate day) {}
+
+    private record LedgerKey(LocalDate day, UUID userId, String cardKey) {}
+
+    private record KnownTotal(BigDecimal total, long confirmedAtNanos) {}
+
+    // One lock and a small LRU of confirmed totals per stripe
+    private static class Stripe {
+
+        final private ReentrantLock lock = new ReentrantLock();
+
+        final private Map<LedgerKey, KnownTotal> totals = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LedgerKey, KnownTotal> eldest) {
+                return size() > ENTRIES_PER_STRIPE;
+            }
+        };
+
+        BigDecimal get(LedgerKey key, Duration ttl) {
+            lock.lock();
+            try {
+                KnownTotal known = totals.get(key);
+                if (known == null || System.nanoTime() - known.confirmedAtNanos() > ttl.toNanos()) {
+                    return null;
+                }
+                return known.total();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(LedgerKey key, BigDecimal total) {
+            lock.lock();
+            try {
+                KnownTotal known = totals.get(key);
+                // Concurrent commits can land out of order; keep the larger confirmed total
+                if (known == null || total.compareTo(known.total()) >= 0) {
+                    totals.put(key, new KnownTotal(total, System.nanoTime()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(LedgerKey key) {
+            lock.lock();
+            try {
+                totals.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
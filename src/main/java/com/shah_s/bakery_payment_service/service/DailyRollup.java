@@ -0,0 +1,32 @@
+package com.shah_s.bakery_payment_service.service;
+
+import java.util.List;
+
+// One daily rollup table: source rows grouped by created day and the key columns.
+// The first measure is always the row count; the rest are amount sums.
+public record DailyRollup(String name, String rollupTable, String sourceTable,
+                          List<String> keyColumns, List<Measure> measures) {
+
+    public static final DailyRollup PAYMENTS = new DailyRollup("payments", "payment_daily_rollups", "payments",
+            List.of("payment_gateway", "payment_method", "status", "currency_code"),
+            List.of(new Measure("payment_count", "COUNT(*)"),
+                    new Measure("total_amount", "COALESCE(SUM(amount), 0)"),
+                    new Measure("total_fees", "COALESCE(SUM(gateway_fee), 0)"),
+                    new Measure("total_net", "COALESCE(SUM(net_amount), 0)")));
+
+    public static final DailyRollup REFUNDS = new DailyRollup("refunds", "refund_daily_rollups", "refunds",
+            List.of("status", "currency_code"),
+            List.of(new Measure("refund_count", "COUNT(*)"),
+                    new Measure("total_amount", "COALESCE(SUM(amount), 0)")));
+
+    public static final DailyRollup TRANSACTIONS = new DailyRollup("transactions", "transaction_daily_rollups",
+            "payment_transactions",
+            List.of("transaction_type", "status", "currency_code"),
+            List.of(new Measure("transaction_count", "COUNT(*)"),
+                    new Measure("total_amount", "COALESCE(SUM(amount), 0)")));
+
+    public static final List<DailyRollup> ALL = List.of(PAYMENTS, REFUNDS, TRANSACTIONS);
+
+    // Rollup column and the aggregate over source rows that fills it
+    public record Measure(String column, String sourceExpression) {}
+}
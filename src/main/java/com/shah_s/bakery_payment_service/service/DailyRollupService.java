@@ -0,0 +1,294 @@
+package com.shah_s.bakery_payment_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Maintains the daily rollup tables and answers range aggregates from them.
+// A catch-up job rebuilds every day that has rows updated since the watermark; queries read clean
+// full days from the rollup and only aggregate raw rows for the boundary days and days changed since.
+@Service
+public class DailyRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyRollupService.class);
+
+    private static final String ENSURE_WATERMARK_SQL =
+            "INSERT INTO rollup_watermarks (name) VALUES (:name) ON CONFLICT (name) DO NOTHING";
+
+    private static final String CLAIM_SQL =
+            "UPDATE rollup_watermarks SET locked_until = :until " +
+            "WHERE name = :name AND (locked_until IS NULL OR locked_until < :now)";
+
+    private static final String RENEW_SQL =
+            "UPDATE rollup_watermarks SET locked_until = :until WHERE name = :name";
+
+    private static final String COMPLETE_SQL =
+            "UPDATE rollup_watermarks SET watermark = :watermark, locked_until = NULL, updated_at = :now " +
+            "WHERE name = :name";
+
+    private static final String RELEASE_SQL =
+            "UPDATE rollup_watermarks SET locked_until = NULL WHERE name = :name";
+
+    private static final String WATERMARK_SQL =
+            "SELECT watermark FROM rollup_watermarks WHERE name = :name";
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    // Rows updated within the lag may still be in uncommitted transactions; they are picked up next run
+    @Value("${payment.rollup.refresh-lag:1m}")
+    private Duration refreshLag;
+
+    @Value("${payment.rollup.lease:10m}")
+    private Duration lease;
+
+    public DailyRollupService(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Bring every rollup up to date
+    @Scheduled(fixedDelayString = "${payment.rollup.refresh-interval:60000}",
+               initialDelayString = "${payment.rollup.initial-delay:30000}")
+    public void refreshAll() {
+        for (DailyRollup rollup : DailyRollup.ALL) {
+            try {
+                refresh(rollup);
+            } catch (Exception e) {
+                logger.error("Failed to refresh {} rollup: {}", rollup.name(), e.getMessage());
+            }
+        }
+    }
+
+    // Rebuild the days changed since the watermark; returns the number of days rebuilt, or -1 if another instance holds the lease
+    public int refresh(DailyRollup rollup) {
+        MapSqlParameterSource name = new MapSqlParameterSource("name", rollup.name());
+        jdbcTemplate.update(ENSURE_WATERMARK_SQL, name);
+
+        LocalDateTime now = LocalDateTime.now();
+        if (jdbcTemplate.update(CLAIM_SQL, leaseParams(rollup, now)) == 0) {
+            return -1;
+        }
+
+        try {
+            LocalDateTime watermark = readWatermark(rollup);
+            LocalDateTime upTo = now.minus(refreshLag);
+
+            List<LocalDate> days = watermark == null
+                    ? jdbcTemplate.queryForList("SELECT DISTINCT CAST(created_at AS date) AS day FROM " +
+                            rollup.sourceTable() + " ORDER BY day", name, LocalDate.class)
+                    : jdbcTemplate.queryForList("SELECT DISTINCT CAST(created_at AS date) AS day FROM " +
+                            rollup.sourceTable() + " WHERE updated_at > :watermark AND updated_at <= :upTo ORDER BY day",
+                            new MapSqlParameterSource("watermark", watermark).addValue("upTo", upTo), LocalDate.class);
+
+            for (LocalDate day : days) {
+                transactionTemplate.executeWithoutResult(tx -> rebuildDay(rollup, day));
+                jdbcTemplate.update(RENEW_SQL, leaseParams(rollup, LocalDateTime.now()));
+            }
+
+            jdbcTemplate.update(COMPLETE_SQL, new MapSqlParameterSource("name", rollup.name())
+                    .addValue("watermark", watermark == null ? upTo : max(watermark, upTo))
+                    .addValue("now", LocalDateTime.now()));
+
+            if (!days.isEmpty()) {
+                logger.info("Rebuilt {} days of the {} rollup", days.size(), rollup.name());
+            }
+            return days.size();
+        } catch (RuntimeException e) {
+            jdbcTemplate.update(RELEASE_SQL, name);
+            throw e;
+        }
+    }
+
+    // Aggregate source rows created in [start, end] by the rollup's key columns
+    public List<Bucket> aggregate(DailyRollup rollup, LocalDateTime start, LocalDateTime end) {
+        LocalDate fullFrom = start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? start.toLocalDate() : start.toLocalDate().plusDays(1);
+        LocalDate fullTo = end.toLocalDate();
+        LocalDateTime watermark = readWatermark(rollup);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end);
+
+        // Nothing usable in the rollup: aggregate the raw range
+        if (watermark == null || !fullFrom.isBefore(fullTo)) {
+            return query(rollup, List.of(rawBranch(rollup, "created_at >= :start AND created_at <= :end")), params);
+        }
+
+        params.addValue("fullFrom", fullFrom)
+                .addValue("fullTo", fullTo)
+                .addValue("fullFromStart", fullFrom.atStartOfDay())
+                .addValue("fullToStart", fullTo.atStartOfDay())
+                .addValue("watermark", watermark);
+
+        List<LocalDate> changedDays = jdbcTemplate.queryForList(
+                "SELECT DISTINCT CAST(created_at AS date) FROM " + rollup.sourceTable() +
+                " WHERE updated_at > :watermark AND created_at >= :fullFromStart AND created_at < :fullToStart",
+                params, LocalDate.class);
+
+        List<String> branches = new ArrayList<>();
+        if (changedDays.isEmpty()) {
+            branches.add(rollupBranch(rollup, "rollup_date >= :fullFrom AND rollup_date < :fullTo"));
+        } else {
+            params.addValue("changedDays", changedDays);
+            branches.add(rollupBranch(rollup,
+                    "rollup_date >= :fullFrom AND rollup_date < :fullTo AND rollup_date NOT IN (:changedDays)"));
+            branches.add(rawBranch(rollup, "created_at >= :fullFromStart AND created_at < :fullToStart " +
+                    "AND CAST(created_at AS date) IN (:changedDays)"));
+        }
+        if (start.isBefore(fullFrom.atStartOfDay())) {
+            branches.add(rawBranch(rollup, "created_at >= :start AND created_at < :fullFromStart"));
+        }
+        branches.add(rawBranch(rollup, "created_at >= :fullToStart AND created_at <= :end"));
+
+        return query(rollup, branches, params);
+    }
+
+    private void rebuildDay(DailyRollup rollup, LocalDate day) {
+        String keys = String.join(", ", rollup.keyColumns());
+        MapSqlParameterSource params = new MapSqlParameterSource("day", day)
+                .addValue("dayStart", day.atStartOfDay())
+                .addValue("dayEnd", day.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.update("DELETE FROM " + rollup.rollupTable() + " WHERE rollup_date = :day", params);
+        jdbcTemplate.update("INSERT INTO " + rollup.rollupTable() + " (rollup_date, " + keys + ", " +
+                rollup.measures().stream().map(DailyRollup.Measure::column).collect(Collectors.joining(", ")) + ") " +
+                "SELECT CAST(:day AS date), " + keys + ", " +
+                rollup.measures().stream().map(DailyRollup.Measure::sourceExpression).collect(Collectors.joining(", ")) +
+                " FROM " + rollup.sourceTable() +
+                " WHERE created_at >= :dayStart AND created_at < :dayEnd" +
+                " GROUP BY " + keys, params);
+    }
+
+    private List<Bucket> query(DailyRollup rollup, List<String> branches, MapSqlParameterSource params) {
+        String keys = String.join(", ", rollup.keyColumns());
+        String sums = rollup.measures().stream()
+                .map(measure -> "SUM(" + measure.column() + ")")
+                .collect(Collectors.joining(", "));
+        String sql = "SELECT " + keys + ", " + sums + " FROM (" + String.join(" UNION ALL ", branches) + ") u " +
+                "GROUP BY " + keys;
+
+        int keyCount = rollup.keyColumns().size();
+        int measureCount = rollup.measures().size();
+        return jdbcTemplate.query(sql, params, (rs, rowNum) -> {
+            String[] bucketKeys = new String[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                bucketKeys[i] = rs.getString(i + 1);
+            }
+            BigDecimal[] amounts = new BigDecimal[measureCount - 1];
+            for (int i = 1; i < measureCount; i++) {
+                amounts[i - 1] = rs.getBigDecimal(keyCount + i + 1);
+            }
+            return new Bucket(bucketKeys, rs.getLong(keyCount + 1), amounts);
+        });
+    }
+
+    private String rollupBranch(DailyRollup rollup, String condition) {
+        return "SELECT " + String.join(", ", rollup.keyColumns()) + ", " +
+                rollup.measures().stream().map(DailyRollup.Measure::column).collect(Collectors.joining(", ")) +
+                " FROM " + rollup.rollupTable() + " WHERE " + condition;
+    }
+
+    private String rawBranch(DailyRollup rollup, String condition) {
+        String keys = String.join(", ", rollup.keyColumns());
+        return "SELECT " + keys + ", " +
+                rollup.measures().stream()
+                        .map(measure -> measure.sourceExpression() + " AS " + measure.column())
+                        .collect(Collectors.joining(", ")) +
+                " FROM " + rollup.sourceTable() + " WHERE " + condition + " GROUP BY " + keys;
+    }
+
+    private LocalDateTime readWatermark(DailyRollup rollup) {
+        List<LocalDateTime> watermark = jdbcTemplate.queryForList(WATERMARK_SQL,
+                new MapSqlParameterSource("name", rollup.name()), LocalDateTime.class);
+        return watermark.isEmpty() ? null : watermark.get(0);
+    }
+
+    private MapSqlParameterSource leaseParams(DailyRollup rollup, LocalDateTime now) {
+        return new MapSqlParameterSource("name", rollup.name())
+                .addValue("now", now)
+                .addValue("until", now.plus(lease));
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    // Aggregated measures for one combination of key values; amounts follow the rollup's measures after the count
+    public record Bucket(String[] keys, long count, BigDecimal[] amounts) {
+
+        public String key(int index) {
+            return keys[index];
+        }
+
+        public BigDecimal amount(int index) {
+            return amounts[index] != null ? amounts[index] : BigDecimal.ZERO;
+        }
+    }
+
+    // Running totals for one group of buckets (method, gateway, status, ...)
+    public static class Totals {
+
+        private long count;
+
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        private BigDecimal fees = BigDecimal.ZERO;
+
+        private long completed;
+
+        private long failed;
+
+        public Totals add(Bucket bucket, BigDecimal bucketFees, String status) {
+            count += bucket.count();
+            amount = amount.add(bucket.amount(0));
+            fees = fees.add(bucketFees);
+            if ("COMPLETED".equals(status)) {
+                completed += bucket.count();
+            } else if ("FAILED".equals(status)) {
+                failed += bucket.count();
+            }
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public BigDecimal getFees() {
+            return fees;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public Double getAverage() {
+            return count == 0 ? null : amount.doubleValue() / count;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.shah_s.bakery_payment_service.service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Caps concurrent calls to one payment gateway; a few callers may wait briefly, the rest are rejected
+public class GatewayBulkhead {
+
+    final private Semaphore permits;
+
+    final private int maxConcurrent;
+
+    final private int maxQueued;
+
+    final private long maxWaitNanos;
+
+    final private AtomicInteger queued = new AtomicInteger();
+
+    public GatewayBulkhead(int maxConcurrent, int maxQueued, Duration maxWait) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    // True when the caller may proceed; it must then call exit()
+    public boolean tryEnter() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void exit() {
+        permits.release();
+    }
+
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+}
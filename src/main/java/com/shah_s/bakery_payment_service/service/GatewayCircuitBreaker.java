@@ -0,0 +1,149 @@
+package com.shah_s.bakery_payment_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+// Count-based circuit breaker for one payment gateway.
+// CLOSED tracks the outcome of the last windowSize calls; OPEN fails fast for openDuration;
+// HALF_OPEN lets a few probe calls through and closes only if they all succeed.
+public class GatewayCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayCircuitBreaker.class);
+
+    public static final long NOT_PERMITTED = -1;
+
+    final private String name;
+
+    final private int failureRateThreshold;
+
+    final private int minimumCalls;
+
+    final private long openDurationNanos;
+
+    final private int halfOpenProbes;
+
+    // Ring of recent outcomes in CLOSED state; true = failure
+    final private boolean[] outcomes;
+
+    private int nextOutcome;
+
+    private int recordedCalls;
+
+    private int recordedFailures;
+
+    private State state = State.CLOSED;
+
+    // Bumped on every transition so results of calls started in an earlier state are ignored
+    private long generation;
+
+    private long openedAtNanos;
+
+    private int probesInFlight;
+
+    private int probeSuccesses;
+
+    public GatewayCircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                                 Duration openDuration, int halfOpenProbes) {
+        this.name = name;
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    // Returns a permit to pass to onResult/release, or NOT_PERMITTED when the call must fail fast
+    public synchronized long tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                return NOT_PERMITTED;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                return NOT_PERMITTED;
+            }
+            probesInFlight++;
+        }
+        return generation;
+    }
+
+    public synchronized void onResult(long permit, boolean failure) {
+        if (permit != generation) {
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (failure) {
+                transitionTo(State.OPEN);
+            } else if (++probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        record(failure);
+        if (recordedCalls >= minimumCalls && recordedFailures * 100 >= failureRateThreshold * recordedCalls) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    // Give back a permit whose call never reached the gateway
+    public synchronized void release(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        // Report HALF_OPEN as soon as the open period is over, even before the next call
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == outcomes.length) {
+            if (outcomes[nextOutcome]) {
+                recordedFailures--;
+            }
+        } else {
+            recordedCalls++;
+        }
+
+        outcomes[nextOutcome] = failure;
+        if (failure) {
+            recordedFailures++;
+        }
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("Circuit breaker for gateway {} changed from {} to {}", name, state, newState);
+
+        state = newState;
+        generation++;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+
+        if (newState == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        } else if (newState == State.CLOSED) {
+            nextOutcome = 0;
+            recordedCalls = 0;
+            recordedFailures = 0;
+        }
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
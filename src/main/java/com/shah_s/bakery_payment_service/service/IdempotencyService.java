@@ -0,0 +1,265 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shah_s.bakery_payment_service.entity.IdempotencyKey;
+import com.shah_s.bakery_payment_service.exception.IdempotencyKeyException;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Idempotency-Key handling for write endpoints: the first request with a key executes, retries with the same key
+// get its stored response. Recent responses and in-flight requests live in a bounded local cache in front of the
+// idempotency_keys table, which makes keys hold across instances and restarts.
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    final private IdempotencyKeyRepository repository;
+
+    final private ObjectMapper objectMapper;
+
+    // Completed responses and in-flight requests share one map, so concurrent duplicates join the same future
+    final private AsyncCache<String, StoredResponse> responses;
+
+    final private Duration ttl;
+
+    final private Duration claimTimeout;
+
+    final private Duration waitTimeout;
+
+    final private Duration pollInterval;
+
+    final private Counter executed;
+
+    final private Counter replayed;
+
+    final private Counter joined;
+
+    public IdempotencyService(IdempotencyKeyRepository repository,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${payment.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${payment.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${payment.idempotency.claim-timeout:60s}") Duration claimTimeout,
+                              @Value("${payment.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                              @Value("${payment.idempotency.poll-interval:100ms}") Duration pollInterval) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+        this.waitTimeout = waitTimeout;
+        this.pollInterval = pollInterval;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .buildAsync();
+
+        this.executed = Counter.builder("payment.idempotency.requests").tag("result", "executed")
+                .description("Keyed requests that executed").register(meterRegistry);
+        this.replayed = Counter.builder("payment.idempotency.requests").tag("result", "replayed")
+                .description("Keyed requests answered with a stored response").register(meterRegistry);
+        this.joined = Counter.builder("payment.idempotency.requests").tag("result", "joined")
+                .description("Keyed requests that waited on an in-flight duplicate").register(meterRegistry);
+    }
+
+    // Run action once per key and scope; requests without a key run as before.
+    // Only successful responses are stored: after an error or a non-2xx response the key can be retried.
+    public <T> ResponseEntity<T> execute(String key, String scope, Object request, Class<T> responseType,
+                                         Supplier<ResponseEntity<T>> action) {
+        return execute(key, scope, request, objectMapper.constructType(responseType), action);
+    }
+
+    // For generic response bodies such as lists
+    public <T> ResponseEntity<T> execute(String key, String scope, Object request, TypeReference<T> responseType,
+                                         Supplier<ResponseEntity<T>> action) {
+        return execute(key, scope, request, objectMapper.constructType(responseType), action);
+    }
+
+    private <T> ResponseEntity<T> execute(String key, String scope, Object request, JavaType responseType,
+                                          Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new PaymentServiceException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String storageKey = scope + ":" + key;
+        String requestHash = hash(request);
+
+        for (;;) {
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(storageKey, mine);
+            if (existing == null) {
+                return executeClaimed(storageKey, requestHash, responseType, action, mine);
+            }
+
+            if (!existing.isDone()) {
+                joined.increment();
+            }
+            StoredResponse stored = await(existing);
+            if (stored != null) {
+                return replay(stored, requestHash, responseType);
+            }
+
+            // The earlier request failed without a stored response; this one executes instead
+            responses.asMap().remove(storageKey, existing);
+        }
+    }
+
+    // Delete expired keys
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval:3600000}")
+    public void purgeExpired() {
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    // This instance owns the key locally; claim it in the table or wait for the instance that holds it
+    private <T> ResponseEntity<T> executeClaimed(String storageKey, String requestHash, JavaType responseType,
+                                                 Supplier<ResponseEntity<T>> action,
+                                                 CompletableFuture<StoredResponse> mine) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        try {
+            for (;;) {
+                LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+                if (repository.claim(storageKey, requestHash, now, now.plus(ttl), now.minus(claimTimeout)) == 1) {
+                    return run(storageKey, requestHash, now, action, mine);
+                }
+
+                IdempotencyKey row = repository.findById(storageKey).orElse(null);
+                if (row != null && row.getStatus() == IdempotencyKey.KeyStatus.COMPLETED) {
+                    StoredResponse stored = new StoredResponse(row.getRequestHash(), row.getResponseStatus(),
+                            row.getResponseBody());
+                    mine.complete(stored);
+                    return replay(stored, requestHash, responseType);
+                }
+
+                if (System.nanoTime() > deadline) {
+                    throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                            "A request with this " + HEADER + " is still in progress");
+                }
+                sleep(pollInterval);
+            }
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private <T> ResponseEntity<T> run(String storageKey, String requestHash, LocalDateTime claimedAt,
+                                      Supplier<ResponseEntity<T>> action, CompletableFuture<StoredResponse> mine) {
+        executed.increment();
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            repository.release(storageKey, claimedAt);
+            throw e;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            repository.release(storageKey, claimedAt);
+            mine.complete(null);
+            return response;
+        }
+
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(),
+                writeBody(response.getBody()));
+        repository.complete(storageKey, claimedAt, stored.status(), stored.body());
+        mine.complete(stored);
+        return response;
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String requestHash, JavaType responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request");
+        }
+
+        replayed.increment();
+        try {
+            T body = stored.body() != null ? objectMapper.readValue(stored.body(), responseType) : null;
+            return ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new PaymentServiceException("Failed to replay stored response: " + e.getMessage(), e);
+        }
+    }
+
+    // Null when the request being waited on failed or returned an error
+    private StoredResponse await(CompletableFuture<StoredResponse> future) {
+        try {
+            return future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                    "A request with this " + HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentServiceException("Interrupted while waiting for a duplicate request", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new PaymentServiceException("Failed to fingerprint request: " + e.getMessage(), e);
+        }
+    }
+
+    private String writeBody(Object body) {
+        try {
+            return body != null ? objectMapper.writeValueAsString(body) : null;
+        } catch (JsonProcessingException e) {
+            throw new PaymentServiceException("Failed to store response: " + e.getMessage(), e);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentServiceException("Interrupted while waiting for a duplicate request", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, int status, String body) {}
+}
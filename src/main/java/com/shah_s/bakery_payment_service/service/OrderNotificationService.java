@@ -0,0 +1,309 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.client.OrderServiceClient;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.PendingOrderNotification;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Coalesces payment updates per order and flushes them to order-service in batches
+@Service
+public class OrderNotificationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNotificationService.class);
+
+    final private OrderServiceClient orderServiceClient;
+
+    final private TaskExecutor notificationExecutor;
+
+    final private OrderNotificationStore notificationStore;
+
+    // Latest not-yet-flushed update per order
+    final private ConcurrentHashMap<UUID, PendingUpdate> pending = new ConcurrentHashMap<>();
+
+    // Orders with a delivery in progress; they stay in pending until it finishes so updates cannot overtake each other
+    final private Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    final private AtomicLong sequence = new AtomicLong();
+
+    final private Counter queued;
+
+    final private Counter coalesced;
+
+    final private Counter delivered;
+
+    final private Counter deferred;
+
+    final private Timer bulkCalls;
+
+    final private Timer singleCalls;
+
+    final private int batchSize;
+
+    final private Duration bulkProbeInterval;
+
+    // Set when order-service does not expose the bulk endpoint; probed again after bulkProbeInterval
+    private volatile boolean bulkDisabled;
+
+    private volatile long bulkProbeAtNanos;
+
+    public OrderNotificationService(OrderServiceClient orderServiceClient,
+                                    @Qualifier("notificationExecutor") TaskExecutor notificationExecutor,
+                                    OrderNotificationStore notificationStore,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${payment.notification.batch-size:100}") int batchSize,
+                                    @Value("${payment.notification.bulk-probe-interval:10m}") Duration bulkProbeInterval) {
+        this.orderServiceClient = orderServiceClient;
+        this.notificationExecutor = notificationExecutor;
+        this.notificationStore = notificationStore;
+        this.batchSize = batchSize;
+        this.bulkProbeInterval = bulkProbeInterval;
+
+        this.queued = Counter.builder("payment.order.notifications").tag("result", "queued")
+                .description("Payment updates queued for order-service").register(meterRegistry);
+        this.coalesced = Counter.builder("payment.order.notifications").tag("result", "coalesced")
+                .description("Payment updates replaced by a newer update before flushing").register(meterRegistry);
+        this.delivered = Counter.builder("payment.order.notifications").tag("result", "delivered")
+                .description("Payment updates accepted by order-service").register(meterRegistry);
+        this.deferred = Counter.builder("payment.order.notifications").tag("result", "deferred")
+                .description("Payment updates stored for a later retry").register(meterRegistry);
+        Gauge.builder("payment.order.notifications.pending", pending, Map::size)
+                .description("Payment updates waiting for the next flush").register(meterRegistry);
+        Gauge.builder("payment.order.notifications.in.flight", inFlight, Set::size)
+                .description("Orders with a delivery to order-service in progress").register(meterRegistry);
+        this.bulkCalls = notificationTimer(meterRegistry, "bulk");
+        this.singleCalls = notificationTimer(meterRegistry, "single");
+    }
+
+    // Queue a payment status update for the order (payload is captured on the caller's thread)
+    public void notifyPaymentStatus(Payment payment) {
+        notifyPaymentStatus(payment.getOrderId(), payment.getId(), payment.getPaymentReference(), payment.getStatus(),
+                payment.getAmount(), payment.getGatewayResponse());
+    }
+
+    // Queue a payment status update from its columns, for set-based updates that never load the entity
+    public void notifyPaymentStatus(UUID orderId, UUID paymentId, String paymentReference,
+                                    Payment.PaymentStatus status, BigDecimal amount, String gatewayResponse) {
+        Map<String, Object> paymentUpdate = Map.of(
+                "paymentId", paymentId,
+                "paymentReference", paymentReference,
+                "status", status.name(),
+                "amount", amount,
+                "gatewayResponse", gatewayResponse != null ? gatewayResponse : ""
+        );
+        PendingUpdate update = new PendingUpdate(orderId, paymentUpdate, LocalDateTime.now(), sequence.incrementAndGet());
+
+        queued.increment();
+        pending.compute(orderId, (id, current) -> {
+            if (current == null) {
+                return update;
+            }
+            coalesced.increment();
+            return current.sequence() > update.sequence() ? current : update;
+        });
+    }
+
+    // Flush the latest update of every order in batches; the interval is the coalescing window
+    @Scheduled(fixedDelayString = "${payment.notification.flush-interval:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<PendingUpdate> batch = new ArrayList<>(batchSize);
+        for (UUID orderId : pending.keySet()) {
+            if (!inFlight.add(orderId)) {
+                continue;
+            }
+            PendingUpdate update = pending.remove(orderId);
+            if (update == null) {
+                inFlight.remove(orderId);
+                continue;
+            }
+
+            batch.add(update);
+            if (batch.size() == batchSize) {
+                submit(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    // Retry updates that order-service did not accept earlier
+    @Scheduled(fixedDelayString = "${payment.notification.retry-interval:30000}")
+    public void retryUndelivered() {
+        List<PendingOrderNotification> due;
+        try {
+            due = notificationStore.claimDue(batchSize);
+        } catch (Exception e) {
+            logger.error("Failed to claim stored order notifications: {}", e.getMessage());
+            return;
+        }
+
+        for (PendingOrderNotification notification : due) {
+            UUID orderId = notification.getOrderId();
+            // A fresh update is being delivered; the stored one is deleted once it succeeds
+            if (!inFlight.add(orderId)) {
+                continue;
+            }
+
+            try {
+                notificationExecutor.execute(() -> redeliver(notification));
+            } catch (RuntimeException e) {
+                inFlight.remove(orderId);
+                logger.warn("Notification pool rejected retry for order {}: {}", orderId, e.getMessage());
+            }
+        }
+    }
+
+    // Nothing queued in memory is lost on shutdown
+    @PreDestroy
+    public void persistPending() {
+        for (UUID orderId : pending.keySet()) {
+            PendingUpdate update = pending.remove(orderId);
+            if (update != null) {
+                defer(update, "Service shutting down before delivery");
+            }
+        }
+    }
+
+    private void submit(List<PendingUpdate> batch) {
+        try {
+            notificationExecutor.execute(() -> deliver(batch));
+        } catch (RuntimeException e) {
+            logger.warn("Notification pool rejected batch of {}: {}", batch.size(), e.getMessage());
+            batch.forEach(update -> defer(update, "Notification pool rejected batch: " + e.getMessage()));
+            release(batch);
+        }
+    }
+
+    private void deliver(List<PendingUpdate> batch) {
+        try {
+            if (batch.size() > 1 && bulkAvailable()) {
+                try {
+                    bulkCalls.record(() -> orderServiceClient.updateOrderPaymentStatuses(
+                            batch.stream().map(PendingUpdate::bulkEntry).toList()));
+                    bulkDisabled = false;
+                    onDelivered(batch);
+                    return;
+                } catch (FeignException.NotFound | FeignException.MethodNotAllowed e) {
+                    bulkProbeAtNanos = System.nanoTime() + bulkProbeInterval.toNanos();
+                    bulkDisabled = true;
+                    logger.warn("Order service has no bulk payment-update endpoint; using per-order calls");
+                } catch (Exception e) {
+                    logger.warn("Bulk notification of {} orders failed, falling back to per-order calls: {}",
+                               batch.size(), e.getMessage());
+                }
+            }
+
+            for (PendingUpdate update : batch) {
+                try {
+                    singleCalls.record(() -> orderServiceClient.updateOrderPaymentStatus(update.orderId(), update.payload()));
+                    onDelivered(List.of(update));
+                } catch (Exception e) {
+                    defer(update, e.getMessage());
+                }
+            }
+        } finally {
+            release(batch);
+        }
+    }
+
+    private void redeliver(PendingOrderNotification notification) {
+        UUID orderId = notification.getOrderId();
+        try {
+            Map<String, Object> payload = notificationStore.readPayload(notification);
+            singleCalls.record(() -> orderServiceClient.updateOrderPaymentStatus(orderId, payload));
+            notificationStore.markDelivered(List.of(orderId), notification.getQueuedAt());
+            delivered.increment();
+            logger.debug("Stored order notification delivered: {}", orderId);
+        } catch (Exception e) {
+            try {
+                notificationStore.markFailed(orderId, notification.getQueuedAt(), e.getMessage());
+            } catch (Exception markError) {
+                // Claimed again once the claim times out
+                logger.error("Failed to reschedule order notification {}: {}", orderId, markError.getMessage());
+            }
+        } finally {
+            inFlight.remove(orderId);
+        }
+    }
+
+    // Order-service round-trips, failed ones included
+    private static Timer notificationTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("payment.order.notification.calls")
+                .tag("mode", mode)
+                .description("Calls to order-service carrying payment updates")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    private void onDelivered(List<PendingUpdate> updates) {
+        delivered.increment(updates.size());
+        logger.debug("Order service notified of {} payment updates", updates.size());
+
+        // Clear older stored copies; one statement for the whole batch
+        LocalDateTime newest = updates.stream().map(PendingUpdate::queuedAt)
+                .max(LocalDateTime::compareTo).orElseThrow();
+        try {
+            notificationStore.markDelivered(updates.stream().map(PendingUpdate::orderId).toList(), newest);
+        } catch (Exception e) {
+            logger.warn("Failed to clear stored order notifications: {}", e.getMessage());
+        }
+    }
+
+    private void defer(PendingUpdate update, String error) {
+        deferred.increment();
+        try {
+            notificationStore.saveUndelivered(update.orderId(), update.payload(), update.queuedAt(), error);
+        } catch (Exception e) {
+            logger.error("Failed to store undelivered notification for order {}: {}", update.orderId(), e.getMessage());
+        }
+    }
+
+    private void release(List<PendingUpdate> batch) {
+        batch.forEach(update -> inFlight.remove(update.orderId()));
+    }
+
+    private boolean bulkAvailable() {
+        return !bulkDisabled || System.nanoTime() - bulkProbeAtNanos >= 0;
+    }
+
+    private record PendingUpdate(UUID orderId, Map<String, Object> payload, LocalDateTime queuedAt, long sequence) {
+
+        Map<String, Object> bulkEntry() {
+            Map<String, Object> entry = new HashMap<>(payload);
+            entry.put("orderId", orderId);
+            return entry;
+        }
+    }
+}
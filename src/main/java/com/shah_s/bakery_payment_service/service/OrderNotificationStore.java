@@ -0,0 +1,129 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.entity.PendingOrderNotification;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.PendingOrderNotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Durable side of OrderNotificationService: keeps updates order-service has not accepted yet
+@Service
+@Transactional
+public class OrderNotificationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNotificationStore.class);
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    final private PendingOrderNotificationRepository repository;
+
+    final private ObjectMapper objectMapper;
+
+    @Value("${payment.notification.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${payment.notification.claim-timeout:60000}")
+    private long claimTimeoutMs;
+
+    @Value("${payment.retry.initial-delay:1000}")
+    private long initialBackoffMs;
+
+    @Value("${payment.notification.max-retry-delay:300000}")
+    private long maxBackoffMs;
+
+    public OrderNotificationStore(PendingOrderNotificationRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Store an update that could not be delivered, unless a newer one is already stored for the order
+    public void saveUndelivered(UUID orderId, Map<String, Object> payload, LocalDateTime queuedAt, String error) {
+        PendingOrderNotification notification = repository.findById(orderId)
+                .orElseGet(() -> new PendingOrderNotification(orderId));
+
+        if (notification.getQueuedAt() != null && notification.getQueuedAt().isAfter(queuedAt)) {
+            return;
+        }
+
+        notification.setPayload(writePayload(payload));
+        notification.setQueuedAt(queuedAt);
+        notification.setStatus(PendingOrderNotification.NotificationStatus.PENDING);
+        notification.setAttempts(1);
+        notification.setLastError(error);
+        notification.setNextAttemptAt(LocalDateTime.now().plusNanos(backoffMs(1) * 1_000_000L));
+        repository.save(notification);
+
+        logger.warn("Order notification for {} stored for retry: {}", orderId, error);
+    }
+
+    // Claim due notifications; pushing next_attempt_at forward keeps them owned until the claim times out
+    public List<PendingOrderNotification> claimDue(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingOrderNotification> due = repository.claimDue(now, batchSize);
+
+        due.forEach(notification -> notification.setNextAttemptAt(now.plusNanos(claimTimeoutMs * 1_000_000L)));
+        return due;
+    }
+
+    // Forget stored updates for orders that have since received a newer (or the same) update
+    public void markDelivered(Collection<UUID> orderIds, LocalDateTime deliveredQueuedAt) {
+        repository.deleteDelivered(orderIds, deliveredQueuedAt);
+    }
+
+    // Schedule another attempt with exponential backoff, or give up after max attempts
+    public void markFailed(UUID orderId, LocalDateTime queuedAt, String error) {
+        repository.findById(orderId)
+                .filter(notification -> notification.getQueuedAt().equals(queuedAt))
+                .ifPresent(notification -> {
+                    notification.setAttempts(notification.getAttempts() + 1);
+                    notification.setLastError(error);
+
+                    if (notification.getAttempts() >= maxAttempts) {
+                        notification.setStatus(PendingOrderNotification.NotificationStatus.FAILED);
+                        logger.error("Order notification for {} failed permanently after {} attempts: {}",
+                                    orderId, notification.getAttempts(), error);
+                        return;
+                    }
+
+                    notification.setNextAttemptAt(LocalDateTime.now()
+                            .plusNanos(backoffMs(notification.getAttempts()) * 1_000_000L));
+                });
+    }
+
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return repository.countByStatus(PendingOrderNotification.NotificationStatus.PENDING);
+    }
+
+    public Map<String, Object> readPayload(PendingOrderNotification notification) {
+        try {
+            return objectMapper.readValue(notification.getPayload(), PAYLOAD_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new PaymentServiceException("Invalid stored notification payload for order: " + notification.getOrderId(), e);
+        }
+    }
+
+    private String writePayload(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new PaymentServiceException("Failed to serialize notification payload", e);
+        }
+    }
+
+    private long backoffMs(int attempts) {
+        return Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+    }
+}
@@ -0,0 +1,97 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shah_s.bakery_payment_service.client.OrderGateway;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Service
+public class OrderSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSnapshotService.class);
+
+    final private OrderGateway orderGateway;
+
+    // Completed snapshots and in-flight lookups share one map, so concurrent misses join the same future
+    final private AsyncCache<UUID, Map<String, Object>> snapshots;
+
+    final private Counter hits;
+
+    final private Counter misses;
+
+    final private Counter coalesced;
+
+    public OrderSnapshotService(OrderGateway orderGateway,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.order-cache.maximum-size:10000}") long maximumSize,
+                                @Value("${payment.order-cache.ttl:30s}") Duration ttl) {
+        this.orderGateway = orderGateway;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .buildAsync();
+
+        this.hits = Counter.builder("payment.order.snapshot.requests").tag("result", "hit")
+                .description("Order snapshot lookups served from cache").register(meterRegistry);
+        this.misses = Counter.builder("payment.order.snapshot.requests").tag("result", "miss")
+                .description("Order snapshot lookups that called order-service").register(meterRegistry);
+        this.coalesced = Counter.builder("payment.order.snapshot.requests").tag("result", "coalesced")
+                .description("Order snapshot lookups that joined an in-flight call").register(meterRegistry);
+        Gauge.builder("payment.order.snapshot.size", snapshots, cache -> cache.synchronous().estimatedSize())
+                .description("Cached order snapshots").register(meterRegistry);
+    }
+
+    // Start (or join) an order lookup without blocking the caller
+    public CompletableFuture<Map<String, Object>> getOrderAsync(UUID orderId) {
+        boolean[] loaded = new boolean[1];
+        CompletableFuture<Map<String, Object>> lookup = snapshots.get(orderId, (key, executor) -> {
+            loaded[0] = true;
+            logger.debug("Fetching order snapshot: {}", key);
+            return orderGateway.getOrder(key);
+        });
+
+        if (loaded[0]) {
+            misses.increment();
+        } else if (lookup.isDone()) {
+            hits.increment();
+        } else {
+            coalesced.increment();
+        }
+        return lookup;
+    }
+
+    // Blocking lookup
+    public Map<String, Object> getOrder(UUID orderId) {
+        return await(getOrderAsync(orderId));
+    }
+
+    // Wait for a lookup started with getOrderAsync, surfacing the original failure
+    public Map<String, Object> await(CompletableFuture<Map<String, Object>> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new PaymentServiceException("Order lookup failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Drop a snapshot after the order is known to have changed
+    public void invalidate(UUID orderId) {
+        snapshots.synchronous().invalidate(orderId);
+    }
+}
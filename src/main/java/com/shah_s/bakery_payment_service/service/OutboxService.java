@@ -0,0 +1,123 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.OutboxEvent;
+import com.shah_s.bakery_payment_service.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@Transactional
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    final private OutboxEventRepository outboxEventRepository;
+
+    @Value("${payment.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${payment.outbox.stale-lock-timeout:60000}")
+    private long staleLockTimeoutMs;
+
+    @Value("${payment.retry.initial-delay:1000}")
+    private long initialBackoffMs;
+
+    @Value("${payment.retry.max-delay:10000}")
+    private long maxBackoffMs;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    // Enqueue payment processing (joins the caller's transaction)
+    public void enqueuePayment(UUID paymentId) {
+        outboxEventRepository.save(new OutboxEvent(OutboxEvent.EventType.PAYMENT_PROCESS, paymentId));
+        logger.debug("Payment processing enqueued: {}", paymentId);
+    }
+
+    // Enqueue processing of several payments (joins the caller's transaction)
+    public void enqueuePayments(List<UUID> paymentIds) {
+        outboxEventRepository.saveAll(paymentIds.stream()
+                .map(paymentId -> new OutboxEvent(OutboxEvent.EventType.PAYMENT_PROCESS, paymentId))
+                .toList());
+        logger.debug("Processing enqueued for {} payments", paymentIds.size());
+    }
+
+    // Enqueue refund processing (joins the caller's transaction)
+    public void enqueueRefund(UUID refundId) {
+        outboxEventRepository.save(new OutboxEvent(OutboxEvent.EventType.REFUND_PROCESS, refundId));
+        logger.debug("Refund processing enqueued: {}", refundId);
+    }
+
+    // Enqueue processing of several refunds (joins the caller's transaction)
+    public void enqueueRefunds(List<UUID> refundIds) {
+        outboxEventRepository.saveAll(refundIds.stream()
+                .map(refundId -> new OutboxEvent(OutboxEvent.EventType.REFUND_PROCESS, refundId))
+                .toList());
+        logger.debug("Processing enqueued for {} refunds", refundIds.size());
+    }
+
+    // Claim a batch of due events; row locks are released on commit, the PROCESSING status keeps them owned
+    public List<OutboxEvent> claimBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.claimBatch(now,
+                now.minusNanos(staleLockTimeoutMs * 1_000_000L), batchSize);
+
+        events.forEach(OutboxEvent::markClaimed);
+        return events;
+    }
+
+    // Mark event as completed
+    public void markCompleted(UUID eventId) {
+        outboxEventRepository.findById(eventId).ifPresent(event -> {
+            event.setStatus(OutboxEvent.OutboxStatus.COMPLETED);
+            event.setProcessedAt(LocalDateTime.now());
+            event.setLockedAt(null);
+        });
+    }
+
+    // Release event for another attempt with exponential backoff, or give up after max attempts
+    public void markFailed(UUID eventId, String error) {
+        outboxEventRepository.findById(eventId).ifPresent(event -> {
+            event.setLastError(error);
+            event.setLockedAt(null);
+
+            if (event.getAttempts() >= maxAttempts) {
+                event.setStatus(OutboxEvent.OutboxStatus.FAILED);
+                event.setProcessedAt(LocalDateTime.now());
+                logger.error("Outbox event {} ({} {}) failed permanently after {} attempts: {}",
+                            event.getId(), event.getEventType(), event.getAggregateId(), event.getAttempts(), error);
+                return;
+            }
+
+            redeliverLater(event);
+        });
+    }
+
+    // Release event for redelivery with backoff; never gives up, since the gateway turned it away without acting on it
+    public void markDeferred(UUID eventId, String reason) {
+        outboxEventRepository.findById(eventId).ifPresent(event -> {
+            event.setLastError(reason);
+            event.setLockedAt(null);
+            redeliverLater(event);
+        });
+    }
+
+    private void redeliverLater(OutboxEvent event) {
+        long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(event.getAttempts() - 1, 20));
+        event.setStatus(OutboxEvent.OutboxStatus.PENDING);
+        event.setAvailableAt(LocalDateTime.now().plusNanos(backoffMs * 1_000_000L));
+    }
+
+    // Purge completed events
+    public int purgeCompleted(LocalDateTime cutoffTime) {
+        return outboxEventRepository.deleteCompletedBefore(cutoffTime);
+    }
+}
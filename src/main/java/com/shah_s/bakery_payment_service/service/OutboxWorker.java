@@ -0,0 +1,128 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.config.MdcHandlerInterceptor;
+import com.shah_s.bakery_payment_service.entity.OutboxEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+@Component
+public class OutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxWorker.class);
+
+    final private OutboxService outboxService;
+
+    final private PaymentProcessingService paymentProcessingService;
+
+    final private RefundProcessingService refundProcessingService;
+
+    final private TaskExecutor gatewayExecutor;
+
+    final private Semaphore inFlight;
+
+    final private int batchSize;
+
+    @Value("${payment.outbox.retention-hours:24}")
+    private int retentionHours;
+
+    public OutboxWorker(OutboxService outboxService, PaymentProcessingService paymentProcessingService,
+                        RefundProcessingService refundProcessingService,
+                        @Qualifier("gatewayExecutor") TaskExecutor gatewayExecutor,
+                        MeterRegistry meterRegistry,
+                        @Value("${payment.outbox.batch-size:50}") int batchSize,
+                        @Value("${payment.outbox.max-in-flight:200}") int maxInFlight) {
+        this.outboxService = outboxService;
+        this.paymentProcessingService = paymentProcessingService;
+        this.refundProcessingService = refundProcessingService;
+        this.gatewayExecutor = gatewayExecutor;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        Gauge.builder("payment.outbox.in.flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .description("Outbox events handed to the gateway pool and not finished yet").register(meterRegistry);
+    }
+
+    // Claim due events and hand them to the worker pool; only claims what the pool can take
+    @Scheduled(fixedDelayString = "${payment.outbox.poll-interval:500}")
+    public void poll() {
+        int capacity = Math.min(batchSize, inFlight.availablePermits());
+        if (capacity == 0) {
+            return;
+        }
+
+        List<OutboxEvent> events;
+        try {
+            events = outboxService.claimBatch(capacity);
+        } catch (Exception e) {
+            logger.error("Failed to claim outbox events: {}", e.getMessage());
+            return;
+        }
+
+        for (OutboxEvent event : events) {
+            inFlight.acquireUninterruptibly();
+            try {
+                gatewayExecutor.execute(() -> dispatch(event));
+            } catch (RuntimeException e) {
+                inFlight.release();
+                outboxService.markFailed(event.getId(), "Worker pool rejected event: " + e.getMessage());
+            }
+        }
+
+        if (!events.isEmpty()) {
+            logger.debug("Dispatched {} outbox events", events.size());
+        }
+    }
+
+    // Purge completed events
+    @Scheduled(fixedDelayString = "${payment.outbox.cleanup-interval:3600000}")
+    public void purgeCompleted() {
+        int deleted = outboxService.purgeCompleted(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            logger.info("Purged {} completed outbox events", deleted);
+        }
+    }
+
+    private void dispatch(OutboxEvent event) {
+        String mdcKey = event.getEventType() == OutboxEvent.EventType.REFUND_PROCESS
+                ? MdcHandlerInterceptor.REFUND_ID : MdcHandlerInterceptor.PAYMENT_ID;
+        MDC.put(mdcKey, String.valueOf(event.getAggregateId()));
+        try {
+            boolean done = switch (event.getEventType()) {
+                case PAYMENT_PROCESS -> {
+                    paymentProcessingService.processPayment(event.getAggregateId());
+                    yield true;
+                }
+                case REFUND_PROCESS -> refundProcessingService.processRefund(event.getAggregateId());
+            };
+            if (done) {
+                outboxService.markCompleted(event.getId());
+            } else {
+                outboxService.markDeferred(event.getId(), "Gateway turned the call away; redelivering");
+            }
+        } catch (Exception e) {
+            logger.error("Outbox event {} ({} {}) failed: {}",
+                        event.getId(), event.getEventType(), event.getAggregateId(), e.getMessage());
+            try {
+                outboxService.markFailed(event.getId(), e.getMessage());
+            } catch (Exception markError) {
+                // Left in PROCESSING; reclaimed once the lock goes stale
+                logger.error("Failed to release outbox event {}: {}", event.getId(), markError.getMessage());
+            }
+        } finally {
+            MDC.remove(mdcKey);
+            inFlight.release();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService.PaymentGatewayResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+// Cancels PENDING payments past expires_at. Each chunk is claimed and cancelled by one statement; SKIP LOCKED lets
+// every instance sweep at once without taking the same rows or waiting on payments being processed.
+@Service
+public class PaymentExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentExpiryService.class);
+
+    public static final String EXPIRED_REASON = "Payment expired";
+
+    public static final String EXPIRED_CODE = "EXPIRED";
+
+    private static final String EXPIRE_CHUNK_SQL =
+            "WITH claimed AS (" +
+            "SELECT id FROM payments WHERE status = 'PENDING' AND expires_at < :now " +
+            "ORDER BY expires_at LIMIT :chunkSize FOR UPDATE SKIP LOCKED) " +
+            "UPDATE payments p SET status = 'CANCELLED', cancelled_at = :now, " +
+            "failure_reason = :reason, failure_code = :code, " +
+            "version = p.version + 1, updated_at = now() " +
+            "FROM claimed WHERE p.id = claimed.id " +
+            "RETURNING p.id, p.order_id, p.user_id, p.payment_reference, p.amount, p.card_brand, p.card_last_four, " +
+            "p.created_at, p.gateway_payment_id";
+
+    private static final String OLDEST_EXPIRED_SQL =
+            "SELECT MIN(expires_at) FROM payments WHERE status = 'PENDING' AND expires_at < :now";
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private PaymentRepository paymentRepository;
+
+    final private PaymentGatewayService paymentGatewayService;
+
+    final private DailyLimitLedger dailyLimitLedger;
+
+    final private OrderNotificationService orderNotificationService;
+
+    final private TaskExecutor gatewayExecutor;
+
+    final private PaymentMetrics paymentMetrics;
+
+    final private int chunkSize;
+
+    final private int maxChunks;
+
+    final private Counter expired;
+
+    final private Counter voided;
+
+    final private Counter voidFailures;
+
+    final private Timer sweepTimer;
+
+    // Age of the oldest expired payment still PENDING after the last sweep
+    private volatile double lagSeconds;
+
+    public PaymentExpiryService(NamedParameterJdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                PaymentRepository paymentRepository,
+                                PaymentGatewayService paymentGatewayService,
+                                DailyLimitLedger dailyLimitLedger,
+                                OrderNotificationService orderNotificationService,
+                                @Qualifier("gatewayExecutor") TaskExecutor gatewayExecutor,
+                                PaymentMetrics paymentMetrics,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.expiry.chunk-size:200}") int chunkSize,
+                                @Value("${payment.expiry.max-chunks:50}") int maxChunks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.paymentRepository = paymentRepository;
+        this.paymentGatewayService = paymentGatewayService;
+        this.dailyLimitLedger = dailyLimitLedger;
+        this.orderNotificationService = orderNotificationService;
+        this.gatewayExecutor = gatewayExecutor;
+        this.paymentMetrics = paymentMetrics;
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+
+        this.expired = Counter.builder("payment.expiry.payments")
+                .description("PENDING payments cancelled after expiring").register(meterRegistry);
+        this.voided = Counter.builder("payment.expiry.voids").tag("result", "success")
+                .description("Authorizations of expired payments voided at the gateway").register(meterRegistry);
+        this.voidFailures = Counter.builder("payment.expiry.voids").tag("result", "failure")
+                .description("Authorizations of expired payments the gateway did not void").register(meterRegistry);
+        this.sweepTimer = Timer.builder("payment.expiry.sweep")
+                .description("Duration of one expiry sweep").register(meterRegistry);
+        Gauge.builder("payment.expiry.lag", this, service -> service.lagSeconds)
+                .description("Age of the oldest expired payment still PENDING (seconds)")
+                .baseUnit("seconds").register(meterRegistry);
+    }
+
+    // Sweep expired payments chunk by chunk; a backlog larger than maxChunks is finished by the next run
+    @Scheduled(fixedDelayString = "${payment.expiry.sweep-interval:30000}")
+    public void sweep() {
+        Timer.Sample sample = Timer.start();
+        int total = sweepChunks();
+        sample.stop(sweepTimer);
+
+        if (total > 0) {
+            logger.info("Expired {} pending payments", total);
+        }
+        lagSeconds = currentLagSeconds();
+    }
+
+    private int sweepChunks() {
+        int total = 0;
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<ExpiredPayment> payments;
+            try {
+                payments = transactionTemplate.execute(status -> expireChunk(LocalDateTime.now()));
+            } catch (Exception e) {
+                logger.error("Failed to expire pending payments: {}", e.getMessage());
+                break;
+            }
+
+            payments.forEach(payment -> orderNotificationService.notifyPaymentStatus(payment.orderId(), payment.id(),
+                    payment.paymentReference(), Payment.PaymentStatus.CANCELLED, payment.amount(), EXPIRED_REASON));
+            voidAuthorizations(payments);
+
+            total += payments.size();
+            if (payments.size() < chunkSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    // Cancel one chunk and give back its daily limit reservations in the same transaction
+    private List<ExpiredPayment> expireChunk(LocalDateTime now) {
+        List<ExpiredPayment> payments = jdbcTemplate.query(EXPIRE_CHUNK_SQL, new MapSqlParameterSource()
+                .addValue("now", now)
+                .addValue("chunkSize", chunkSize)
+                .addValue("reason", EXPIRED_REASON)
+                .addValue("code", EXPIRED_CODE), (rs, rowNum) -> new ExpiredPayment(
+                rs.getObject("id", UUID.class),
+                rs.getObject("order_id", UUID.class),
+                rs.getObject("user_id", UUID.class),
+                rs.getString("payment_reference"),
+                rs.getBigDecimal("amount"),
+                DailyLimitLedger.cardKey(rs.getString("card_brand"), rs.getString("card_last_four")),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                StringUtils.hasText(rs.getString("gateway_payment_id"))));
+
+        dailyLimitLedger.releaseAll(payments.stream()
+                .map(payment -> new DailyLimitLedger.Release(payment.userId(), payment.cardKey(), payment.amount(),
+                        payment.createdAt().toLocalDate()))
+                .toList());
+        expired.increment(payments.size());
+        paymentMetrics.transition(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.CANCELLED, payments.size());
+        return payments;
+    }
+
+    // A PENDING payment with a gateway transaction got a pending answer, so the gateway still holds that transaction.
+    // Void them concurrently on the gateway pool; the payments are already cancelled either way.
+    private void voidAuthorizations(List<ExpiredPayment> payments) {
+        List<UUID> held = payments.stream().filter(ExpiredPayment::heldAtGateway).map(ExpiredPayment::id).toList();
+        if (held.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Void>> voids = paymentRepository.findAllById(held).stream()
+                .map(this::submitVoid)
+                .toList();
+        CompletableFuture.allOf(voids.toArray(new CompletableFuture[0])).join();
+    }
+
+    private CompletableFuture<Void> submitVoid(Payment payment) {
+        try {
+            return CompletableFuture.runAsync(() -> voidAuthorization(payment), gatewayExecutor);
+        } catch (RejectedExecutionException e) {
+            voidFailures.increment();
+            logger.warn("Gateway pool rejected void of expired payment {}: {}", payment.getPaymentReference(), e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void voidAuthorization(Payment payment) {
+        try {
+            PaymentGatewayResponse response = paymentGatewayService.voidPayment(payment);
+            if (!response.isSuccess()) {
+                voidFailures.increment();
+                logger.warn("Gateway did not void expired payment {}: {}",
+                           payment.getPaymentReference(), response.getGatewayResponse());
+                return;
+            }
+
+            voided.increment();
+            transactionTemplate.executeWithoutResult(status -> paymentRepository.findById(payment.getId())
+                    .ifPresent(current -> {
+                        current.setGatewayResponse(response.getGatewayResponse());
+                        current.setGatewayRawResponse(response.getRawResponse());
+                    }));
+        } catch (Exception e) {
+            voidFailures.increment();
+            logger.warn("Failed to void expired payment {}: {}", payment.getPaymentReference(), e.getMessage());
+        }
+    }
+
+    private double currentLagSeconds() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            Timestamp oldest = jdbcTemplate.queryForObject(OLDEST_EXPIRED_SQL,
+                    new MapSqlParameterSource("now", now), Timestamp.class);
+            return oldest != null ? Duration.between(oldest.toLocalDateTime(), now).toMillis() / 1000.0 : 0;
+        } catch (Exception e) {
+            logger.warn("Failed to measure expiry lag: {}", e.getMessage());
+            return lagSeconds;
+        }
+    }
+
+    private record ExpiredPayment(UUID id, UUID orderId, UUID userId, String paymentReference, BigDecimal amount,
+                                  String cardKey, LocalDateTime createdAt, boolean heldAtGateway) {}
+}
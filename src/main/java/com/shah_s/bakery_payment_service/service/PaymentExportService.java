@@ -0,0 +1,289 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streams payments straight from a forward-only JDBC cursor to the response; nothing is held per row
+@Service
+public class PaymentExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentExportService.class);
+
+    private static final String[] COLUMNS = {
+            "id", "paymentReference", "orderId", "userId", "paymentMethod", "paymentGateway", "status",
+            "amount", "currencyCode", "cardBrand", "cardLastFour", "failureCode",
+            "createdAt", "capturedAt", "updatedAt"
+    };
+
+    private static final String EXPORT_SELECT =
+            "SELECT id, payment_reference, order_id, user_id, payment_method, payment_gateway, status, " +
+            "amount, currency_code, card_brand, card_last_four, failure_code, " +
+            "created_at, captured_at, updated_at " +
+            "FROM payments " +
+            "WHERE created_at >= ? AND created_at < ? ";
+
+    private static final String EXPORT_ORDER = "ORDER BY created_at, id";
+
+    private static final String EXPORT_SQL = EXPORT_SELECT + EXPORT_ORDER;
+
+    // Status only appears when it is filtered on, so the plan can use idx_payment_status_created
+    private static final String EXPORT_BY_STATUS_SQL = EXPORT_SELECT + "AND status = ? " + EXPORT_ORDER;
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate readOnlyTransaction;
+
+    final private ObjectMapper objectMapper;
+
+    final private Map<ExportFormat, Counter> exportedRows = new EnumMap<>(ExportFormat.class);
+
+    final private int flushRows;
+
+    public PaymentExportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.export.fetch-size:1000}") int fetchSize,
+                                @Value("${payment.export.flush-rows:500}") int flushRows) {
+        // Own template: the fetch size must not leak into other queries
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+
+        // pgjdbc only streams with a fetch size inside a transaction (autocommit off)
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.objectMapper = objectMapper;
+        this.flushRows = flushRows;
+
+        for (ExportFormat format : ExportFormat.values()) {
+            exportedRows.put(format, Counter.builder("payment.export.rows")
+                    .tag("format", format.name().toLowerCase())
+                    .description("Payment rows written to exports")
+                    .register(meterRegistry));
+        }
+    }
+
+    // Write payments created in [from, to) to the stream; throws IOException once the client goes away
+    public long export(LocalDateTime from, LocalDateTime to, Payment.PaymentStatus status,
+                       ExportFormat format, OutputStream out) throws IOException {
+        String sql = status != null ? EXPORT_BY_STATUS_SQL : EXPORT_SQL;
+        AtomicLong rows = new AtomicLong();
+        long started = System.nanoTime();
+
+        try {
+            RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out, objectMapper);
+            Object[] values = new Object[COLUMNS.length];
+
+            writer.begin();
+            readOnlyTransaction.executeWithoutResult(tx -> jdbcTemplate.query(sql, ps -> {
+                ps.setObject(1, from);
+                ps.setObject(2, to);
+                if (status != null) {
+                    ps.setString(3, status.name());
+                }
+            }, (ResultSet rs) -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Export interrupted");
+                }
+                readRow(rs, values);
+                try {
+                    writer.row(values);
+                    // Regular flushes keep memory flat and surface a disconnected client quickly
+                    if (rows.incrementAndGet() % flushRows == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            writer.end();
+        } catch (UncheckedIOException e) {
+            logger.info("Payment export aborted after {} rows: {}", rows.get(), e.getCause().getMessage());
+            throw e.getCause();
+        } catch (CancellationException e) {
+            logger.info("Payment export cancelled after {} rows", rows.get());
+            throw new IOException("Export cancelled", e);
+        } finally {
+            exportedRows.get(format).increment(rows.get());
+        }
+
+        logger.info("Exported {} payments as {} in {} ms", rows.get(), format,
+                   (System.nanoTime() - started) / 1_000_000);
+        return rows.get();
+    }
+
+    private static void readRow(ResultSet rs, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            Object value = rs.getObject(i + 1);
+            values[i] = value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : value;
+        }
+    }
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        final private String contentType;
+
+        final private String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static ExportFormat from(String value) {
+            for (ExportFormat format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new PaymentServiceException("Unsupported export format: " + value);
+        }
+    }
+
+    private interface RowWriter {
+
+        void begin() throws IOException;
+
+        void row(Object[] values) throws IOException;
+
+        void flush() throws IOException;
+
+        void end() throws IOException;
+    }
+
+    // One JSON object per line; null columns are omitted like in API responses
+    private static class NdjsonRowWriter implements RowWriter {
+
+        final private JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void begin() {}
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                if (value instanceof BigDecimal number) {
+                    generator.writeNumberField(COLUMNS[i], number);
+                } else {
+                    generator.writeStringField(COLUMNS[i], value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.flush();
+        }
+    }
+
+    // RFC 4180 CSV with a header row
+    private static class CsvRowWriter implements RowWriter {
+
+        final private BufferedWriter writer;
+
+        CsvRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writeLine(COLUMNS);
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            writeLine(values);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.flush();
+        }
+
+        private void writeLine(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = values[i];
+                if (value != null) {
+                    writeField(value instanceof BigDecimal number ? number.toPlainString() : value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String field) throws IOException {
+            boolean quote = field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                    || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
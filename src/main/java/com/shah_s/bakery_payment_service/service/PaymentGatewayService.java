@@ -3,34 +3,113 @@ package com.shah_s.bakery_payment_service.service;
 import com.shah_s.bakery_payment_service.entity.Payment;
 import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
 import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 public class PaymentGatewayService {
 
     private static final Logger logger = LoggerFactory.getLogger(PaymentGatewayService.class);
 
+    public static final String GATEWAY_UNAVAILABLE = "GATEWAY_UNAVAILABLE";
+
+    public static final String GATEWAY_BUSY = "GATEWAY_BUSY";
+
+    public static final String GATEWAY_TIMEOUT = "GATEWAY_TIMEOUT";
+
+    // Failure codes that point at the gateway itself rather than the payment; these trip the breaker
+    private static final Set<String> GATEWAY_FAULT_CODES = Set.of(GATEWAY_TIMEOUT);
+
+    // Failures where the call never reached the gateway, so it is safe to send again. Not timeouts: the gateway
+    // may still have captured the payment, which a success webhook then settles; resending could charge twice.
+    private static final Set<String> TRANSIENT_FAILURE_CODES = Set.of(GATEWAY_UNAVAILABLE, GATEWAY_BUSY);
+
+    final private Map<Payment.PaymentGateway, GatewayCircuitBreaker> circuitBreakers = new EnumMap<>(Payment.PaymentGateway.class);
+
+    final private Map<Payment.PaymentGateway, GatewayBulkhead> bulkheads = new EnumMap<>(Payment.PaymentGateway.class);
+
+    final private Map<Payment.PaymentGateway, Counter> circuitOpenRejections = new EnumMap<>(Payment.PaymentGateway.class);
+
+    final private Map<Payment.PaymentGateway, Counter> bulkheadRejections = new EnumMap<>(Payment.PaymentGateway.class);
+
+    // Tagged by gateway, payment method, operation and result; all enums, so the series count is bounded
+    final private Meter.MeterProvider<Timer> callTimers;
+
+    public PaymentGatewayService(MeterRegistry meterRegistry,
+                                 @Value("${payment.gateway-isolation.max-concurrent:4}") int maxConcurrent,
+                                 @Value("${payment.gateway-isolation.max-queued:4}") int maxQueued,
+                                 @Value("${payment.gateway-isolation.max-wait:500ms}") Duration maxWait,
+                                 @Value("${payment.gateway-isolation.window-size:20}") int windowSize,
+                                 @Value("${payment.gateway-isolation.minimum-calls:10}") int minimumCalls,
+                                 @Value("${payment.gateway-isolation.failure-rate-threshold:50}") int failureRateThreshold,
+                                 @Value("${payment.gateway-isolation.open-duration:30s}") Duration openDuration,
+                                 @Value("${payment.gateway-isolation.half-open-probes:3}") int halfOpenProbes) {
+        for (Payment.PaymentGateway gateway : Payment.PaymentGateway.values()) {
+            GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(gateway.name(), windowSize, minimumCalls,
+                    failureRateThreshold, openDuration, halfOpenProbes);
+            GatewayBulkhead bulkhead = new GatewayBulkhead(maxConcurrent, maxQueued, maxWait);
+            circuitBreakers.put(gateway, breaker);
+            bulkheads.put(gateway, bulkhead);
+
+            String tag = gateway.name().toLowerCase();
+            Gauge.builder("payment.gateway.circuit.state", breaker, b -> b.getState().ordinal())
+                    .tag("gateway", tag)
+                    .description("Circuit breaker state: 0 closed, 1 open, 2 half-open").register(meterRegistry);
+            Gauge.builder("payment.gateway.bulkhead.active", bulkhead, GatewayBulkhead::getActiveCount)
+                    .tag("gateway", tag)
+                    .description("Gateway calls in progress").register(meterRegistry);
+            Gauge.builder("payment.gateway.bulkhead.queued", bulkhead, GatewayBulkhead::getQueuedCount)
+                    .tag("gateway", tag)
+                    .description("Gateway calls waiting for a bulkhead permit").register(meterRegistry);
+            circuitOpenRejections.put(gateway, Counter.builder("payment.gateway.rejections")
+                    .tag("gateway", tag).tag("reason", "circuit_open")
+                    .description("Gateway calls failed fast").register(meterRegistry));
+            bulkheadRejections.put(gateway, Counter.builder("payment.gateway.rejections")
+                    .tag("gateway", tag).tag("reason", "bulkhead_full")
+                    .description("Gateway calls failed fast").register(meterRegistry));
+        }
+
+        this.callTimers = Timer.builder("payment.gateway.call")
+                .description("Gateway calls including the wait for a bulkhead permit")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .withRegistry(meterRegistry);
+    }
+
     // Process payment through gateway
     public PaymentGatewayResponse processPayment(Payment payment) {
         logger.info("Processing payment through gateway: {} - {}",
                    payment.getPaymentGateway(), payment.getPaymentReference());
 
-        return switch (payment.getPaymentGateway()) {
+        return guarded(payment, Operation.SALE, () -> switch (payment.getPaymentGateway()) {
             case STRIPE -> processStripePayment(payment);
             case PAYPAL -> processPayPalPayment(payment);
             case SQUARE -> processSquarePayment(payment);
             case MOCK -> processMockPayment(payment);
             case MANUAL -> processManualPayment(payment);
-        };
+        });
     }
 
     // Process refund through gateway
@@ -38,13 +117,13 @@ public class PaymentGatewayService {
         logger.info("Processing refund through gateway: {} - {}",
                    refund.getPayment().getPaymentGateway(), refund.getRefundReference());
 
-        return switch (refund.getPayment().getPaymentGateway()) {
+        return guarded(refund.getPayment(), Operation.REFUND, () -> switch (refund.getPayment().getPaymentGateway()) {
             case STRIPE -> processStripeRefund(refund);
             case PAYPAL -> processPayPalRefund(refund);
             case SQUARE -> processSquareRefund(refund);
             case MOCK -> processMockRefund(refund);
             case MANUAL -> processManualRefund(refund);
-        };
+        });
     }
 
     // Authorize payment (for two-step processing)
@@ -52,7 +131,8 @@ public class PaymentGatewayService {
         logger.info("Authorizing payment: {}", payment.getPaymentReference());
 
         // Mock authorization
-        return simulateGatewayResponse(payment, PaymentTransaction.TransactionType.AUTHORIZATION);
+        return guarded(payment, Operation.AUTHORIZE,
+                () -> simulateGatewayResponse(payment, PaymentTransaction.TransactionType.AUTHORIZATION));
     }
 
     // Capture authorized payment
@@ -60,7 +140,8 @@ public class PaymentGatewayService {
         logger.info("Capturing payment: {} amount: {}", payment.getPaymentReference(), amount);
 
         // Mock capture
-        return simulateGatewayResponse(payment, PaymentTransaction.TransactionType.CAPTURE);
+        return guarded(payment, Operation.CAPTURE,
+                () -> simulateGatewayResponse(payment, PaymentTransaction.TransactionType.CAPTURE));
     }
 
     // Void authorized payment
@@ -68,7 +149,100 @@ public class PaymentGatewayService {
         logger.info("Voiding payment: {}", payment.getPaymentReference());
 
         // Mock void
-        return simulateGatewayResponse(payment, PaymentTransaction.TransactionType.VOID);
+        return guarded(payment, Operation.VOID,
+                () -> simulateGatewayResponse(payment, PaymentTransaction.TransactionType.VOID));
+    }
+
+    public static boolean isTransientFailure(String failureCode) {
+        return failureCode != null && TRANSIENT_FAILURE_CODES.contains(failureCode);
+    }
+
+    // Current breaker state per gateway
+    public Map<Payment.PaymentGateway, GatewayCircuitBreaker.State> getCircuitStates() {
+        Map<Payment.PaymentGateway, GatewayCircuitBreaker.State> states = new EnumMap<>(Payment.PaymentGateway.class);
+        circuitBreakers.forEach((gateway, breaker) -> states.put(gateway, breaker.getState()));
+        return states;
+    }
+
+    // Time a guarded call under payment.gateway.call
+    private PaymentGatewayResponse guarded(Payment payment, Operation operation, Supplier<PaymentGatewayResponse> call) {
+        long startNanos = System.nanoTime();
+        String result = "error";
+        try {
+            PaymentGatewayResponse response = guarded(payment.getPaymentGateway(), call);
+            result = callResult(response);
+            return response;
+        } finally {
+            callTimers.withTags(Tags.of(
+                    "gateway", payment.getPaymentGateway().name().toLowerCase(),
+                    "method", payment.getPaymentMethod() != null ? payment.getPaymentMethod().name().toLowerCase() : "none",
+                    "operation", operation.name().toLowerCase(),
+                    "result", result)).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Fast failures are reported apart from real gateway answers so they do not flatter the latency percentiles
+    private static String callResult(PaymentGatewayResponse response) {
+        if (response.isSuccess()) {
+            return "success";
+        }
+        if (response.isPending()) {
+            return "pending";
+        }
+        if (GATEWAY_UNAVAILABLE.equals(response.getFailureCode()) || GATEWAY_BUSY.equals(response.getFailureCode())) {
+            return "rejected";
+        }
+        return "failure";
+    }
+
+    // Run a gateway call behind that gateway's circuit breaker and bulkhead, so one slow provider cannot starve the others
+    private PaymentGatewayResponse guarded(Payment.PaymentGateway gateway, Supplier<PaymentGatewayResponse> call) {
+        GatewayCircuitBreaker breaker = circuitBreakers.get(gateway);
+        long permit = breaker.tryAcquirePermission();
+        if (permit == GatewayCircuitBreaker.NOT_PERMITTED) {
+            circuitOpenRejections.get(gateway).increment();
+            return fastFailResponse(GATEWAY_UNAVAILABLE, "Gateway " + gateway + " is temporarily unavailable");
+        }
+
+        GatewayBulkhead bulkhead = bulkheads.get(gateway);
+        boolean entered;
+        try {
+            entered = bulkhead.tryEnter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            breaker.release(permit);
+            throw new PaymentServiceException("Interrupted waiting for gateway " + gateway, e);
+        }
+        if (!entered) {
+            breaker.release(permit);
+            bulkheadRejections.get(gateway).increment();
+            return fastFailResponse(GATEWAY_BUSY, "Gateway " + gateway + " is at capacity");
+        }
+
+        PaymentGatewayResponse response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            breaker.onResult(permit, true);
+            throw e;
+        } finally {
+            bulkhead.exit();
+        }
+
+        breaker.onResult(permit, response.getFailureCode() != null && GATEWAY_FAULT_CODES.contains(response.getFailureCode()));
+        return response;
+    }
+
+    private PaymentGatewayResponse fastFailResponse(String failureCode, String message) {
+        logger.warn("{}: {}", failureCode, message);
+
+        return PaymentGatewayResponse.builder()
+                .success(false)
+                .pending(false)
+                .gatewayResponse(message)
+                .rawResponse(generateFailureResponse(message))
+                .failureCode(failureCode)
+                .build();
     }
 
     // Private gateway implementations
@@ -149,8 +323,8 @@ public class PaymentGatewayService {
                 .build();
     }
 
-    // Simulate gateway response
-    private PaymentGatewayResponse simulateGatewayResponse(Payment payment, PaymentTransaction.TransactionType transactionType) {
+    // Simulate gateway response (package-private for benchmarks)
+    PaymentGatewayResponse simulateGatewayResponse(Payment payment, PaymentTransaction.TransactionType transactionType) {
         // Simulate random success/failure (90% success rate)
         boolean success = ThreadLocalRandom.current().nextDouble() < 0.90;
 
@@ -185,7 +359,7 @@ public class PaymentGatewayService {
                     .gatewayTransactionId(generateTransactionId())
                     .gatewayResponse(failureReason)
                     .rawResponse(generateFailureResponse(failureReason))
-                    .failureCode("DECLINED")
+                    .failureCode("Gateway timeout".equals(failureReason) ? GATEWAY_TIMEOUT : "DECLINED")
                     .build();
         }
     }
@@ -217,7 +391,7 @@ public class PaymentGatewayService {
                     .gatewayTransactionId(generateTransactionId())
                     .gatewayResponse(failureReason)
                     .rawResponse(generateRefundFailureResponse(failureReason))
-                    .failureCode("REFUND_FAILED")
+                    .failureCode("Gateway timeout".equals(failureReason) ? GATEWAY_TIMEOUT : "REFUND_FAILED")
                     .build();
         }
     }
@@ -310,4 +484,12 @@ public class PaymentGatewayService {
             }
         }
     }
+
+    private enum Operation {
+        SALE,
+        REFUND,
+        AUTHORIZE,
+        CAPTURE,
+        VOID
+    }
 }
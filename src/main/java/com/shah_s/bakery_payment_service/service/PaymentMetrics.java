@@ -0,0 +1,170 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Payment lifecycle meters shared by the services that move payments and refunds between states. Tags only take enum
+// names and a fixed set of failure codes, so the number of series stays bounded whatever a gateway or webhook sends.
+@Component
+public class PaymentMetrics {
+
+    public static final String PROCESSING_ERROR = "PROCESSING_ERROR";
+
+    private static final String OTHER = "OTHER";
+
+    // Reported under their own name; free-text codes from gateways and webhooks are counted as OTHER
+    private static final Set<String> KNOWN_FAILURE_CODES = Set.of(
+            PaymentGatewayService.GATEWAY_TIMEOUT, PaymentGatewayService.GATEWAY_UNAVAILABLE,
+            PaymentGatewayService.GATEWAY_BUSY, "DECLINED", "REFUND_FAILED", PaymentExpiryService.EXPIRED_CODE,
+            ProcessingTimeoutService.TIMEOUT_CODE, PaymentProcessingService.CAPTURED_AFTER_CANCEL_CODE, PROCESSING_ERROR);
+
+    final private Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+
+    final private Meter.MeterProvider<Counter> transitions;
+
+    final private Meter.MeterProvider<Counter> failures;
+
+    final private Map<RefundOutcome, Counter> refundOutcomes = new EnumMap<>(RefundOutcome.class);
+
+    public PaymentMetrics(MeterRegistry meterRegistry) {
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("payment.create.phase")
+                    .tag("phase", phase.tag())
+                    .description("Time spent in one phase of payment creation")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry));
+        }
+        for (RefundOutcome outcome : RefundOutcome.values()) {
+            refundOutcomes.put(outcome, Counter.builder("payment.refund.outcomes")
+                    .tag("result", outcome.name().toLowerCase())
+                    .description("Refund attempts by gateway outcome").register(meterRegistry));
+        }
+
+        this.transitions = Counter.builder("payment.status.transitions")
+                .description("Committed payment status changes")
+                .withRegistry(meterRegistry);
+        this.failures = Counter.builder("payment.failures")
+                .description("Failed payment and refund attempts by failure code")
+                .withRegistry(meterRegistry);
+    }
+
+    public void recordPhase(Phase phase, Timer.Sample sample) {
+        sample.stop(phaseTimers.get(phase));
+    }
+
+    // Time the commit of the current transaction: the writes Hibernate still holds are flushed here
+    public void timeCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long startNanos;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                startNanos = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                phaseTimers.get(Phase.COMMIT).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    public void transition(Payment.PaymentStatus from, Payment.PaymentStatus to) {
+        transition(from, to, 1);
+    }
+
+    // Counted once the surrounding transaction commits, so rolled-back changes never show up
+    public void transition(Payment.PaymentStatus from, Payment.PaymentStatus to, int count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        Counter counter = transitions.withTags(Tags.of("from", tag(from), "to", tag(to)));
+        afterCommit(() -> counter.increment(count));
+    }
+
+    public void paymentFailure(String failureCode) {
+        Counter counter = failures.withTags(Tags.of("type", "payment", "code", failureCodeTag(failureCode)));
+        afterCommit(counter::increment);
+    }
+
+    public void refundOutcome(Refund.RefundStatus status, String failureCode) {
+        RefundOutcome outcome = switch (status) {
+            case COMPLETED -> RefundOutcome.COMPLETED;
+            case FAILED -> PROCESSING_ERROR.equals(failureCode) ? RefundOutcome.ERROR : RefundOutcome.FAILED;
+            default -> RefundOutcome.PENDING;
+        };
+        Counter counter = refundOutcomes.get(outcome);
+        afterCommit(counter::increment);
+
+        if (status == Refund.RefundStatus.FAILED) {
+            Counter failure = failures.withTags(Tags.of("type", "refund", "code", failureCodeTag(failureCode)));
+            afterCommit(failure::increment);
+        }
+    }
+
+    static String failureCodeTag(String failureCode) {
+        if (failureCode == null) {
+            return "NONE";
+        }
+        return KNOWN_FAILURE_CODES.contains(failureCode) ? failureCode : OTHER;
+    }
+
+    private static String tag(Payment.PaymentStatus status) {
+        return status != null ? status.name().toLowerCase() : "none";
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Phases of PaymentService.createPayment; ORDER_LOOKUP is only the part of the lookup the request waited for,
+    // since it overlaps with the duplicate check
+    public enum Phase {
+        DUPLICATE_CHECK,
+        ORDER_LOOKUP,
+        VALIDATION,
+        LIMIT_RESERVATION,
+        INSERT,
+        ENQUEUE,
+        COMMIT;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private enum RefundOutcome {
+        COMPLETED,
+        PENDING,
+        FAILED,
+        ERROR
+    }
+}
@@ -0,0 +1,277 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService.PaymentGatewayResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class PaymentProcessingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentProcessingService.class);
+
+    // The gateway captured a payment already cancelled here; kept CANCELLED and flagged so it is voided or refunded
+    public static final String CAPTURED_AFTER_CANCEL_CODE = "CAPTURED_AFTER_CANCEL";
+
+    // Matches only an open payment with no gateway call in flight, so a duplicate outbox event or one reclaimed
+    // after its lock went stale never charges twice; returns the status the payment had before
+    private static final String CLAIM_SQL =
+            "UPDATE payments p SET status = 'PROCESSING', processing_started_at = :now, " +
+            "version = p.version + 1, updated_at = now() " +
+            "FROM payments previous " +
+            "WHERE p.id = :id AND previous.id = p.id AND p.status IN ('PENDING', 'PROCESSING') " +
+            "AND p.processing_started_at IS NULL " +
+            "RETURNING previous.status";
+
+    final private PaymentRepository paymentRepository;
+
+    final private PaymentGatewayService paymentGatewayService;
+
+    final private OrderNotificationService orderNotificationService;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private PaymentRetryScheduler paymentRetryScheduler;
+
+    final private PaymentMetrics paymentMetrics;
+
+    public PaymentProcessingService(PaymentRepository paymentRepository, PaymentGatewayService paymentGatewayService, OrderNotificationService orderNotificationService, TransactionTemplate transactionTemplate, NamedParameterJdbcTemplate jdbcTemplate, PaymentRetryScheduler paymentRetryScheduler, PaymentMetrics paymentMetrics) {
+        this.paymentRepository = paymentRepository;
+        this.paymentGatewayService = paymentGatewayService;
+        this.orderNotificationService = orderNotificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.paymentRetryScheduler = paymentRetryScheduler;
+        this.paymentMetrics = paymentMetrics;
+    }
+
+    // Drive a payment through the gateway; the gateway call runs outside any database transaction
+    public void processPayment(UUID paymentId) {
+        Payment payment = transactionTemplate.execute(status -> claimPayment(paymentId));
+        if (payment == null) {
+            return;
+        }
+
+        logger.info("Processing payment: {}", payment.getPaymentReference());
+
+        PaymentGatewayResponse gatewayResponse;
+        try {
+            gatewayResponse = paymentGatewayService.processPayment(payment);
+        } catch (Exception e) {
+            logger.error("Payment processing failed: {} - {}", payment.getPaymentReference(), e.getMessage());
+
+            Payment failedPayment = transactionTemplate.execute(status -> applyProcessingError(paymentId, e));
+            publishOutcome(failedPayment);
+            return;
+        }
+
+        Payment processedPayment = transactionTemplate.execute(status -> applyGatewayResponse(paymentId, gatewayResponse));
+        publishOutcome(processedPayment);
+
+        logger.info("Payment processing completed: {} status: {}",
+                   processedPayment.getPaymentReference(), processedPayment.getStatus());
+    }
+
+    private Payment claimPayment(UUID paymentId) {
+        List<String> previousStatus = jdbcTemplate.queryForList(CLAIM_SQL, new MapSqlParameterSource()
+                .addValue("id", paymentId)
+                .addValue("now", LocalDateTime.now()), String.class);
+
+        // Loaded after the claim so the payment handed to the gateway is the claimed one
+        Payment payment = findPayment(paymentId);
+
+        // Cancelled, updated or settled while the event was queued, or another event's gateway call still owns it.
+        // A call that never reports back is failed for review by ProcessingTimeoutService.
+        if (previousStatus.isEmpty()) {
+            logger.info("Skipping processing of payment {} in status {}",
+                       payment.getPaymentReference(), payment.getStatus());
+            return null;
+        }
+
+        paymentMetrics.transition(Payment.PaymentStatus.valueOf(previousStatus.get(0)), Payment.PaymentStatus.PROCESSING);
+        return payment;
+    }
+
+    // Apply an outcome the gateway reported by webhook (joins the caller's transaction). Success still settles a
+    // failed payment and flags a cancelled one; returns null when the payment is already past the reported state.
+    public Payment applyReportedOutcome(UUID paymentId, PaymentGatewayResponse gatewayResponse) {
+        Payment payment = findPayment(paymentId);
+
+        if (isCaptureOfCancelled(payment, gatewayResponse)) {
+            return CAPTURED_AFTER_CANCEL_CODE.equals(payment.getFailureCode())
+                    ? null : flagCapturedAfterCancel(payment, gatewayResponse);
+        }
+
+        boolean open = payment.getStatus() == Payment.PaymentStatus.PENDING
+                || payment.getStatus() == Payment.PaymentStatus.PROCESSING;
+        if (!open && !isCaptureOfFailed(payment, gatewayResponse)) {
+            return null;
+        }
+
+        if (payment.getStatus() == Payment.PaymentStatus.FAILED) {
+            payment.setFailureReason(null);
+            payment.setFailureCode(null);
+        }
+        return applyOutcome(payment, gatewayResponse);
+    }
+
+    // Retry and notify once an outcome is committed
+    public void publishOutcome(Payment payment) {
+        scheduleRetry(payment);
+        orderNotificationService.notifyPaymentStatus(payment);
+    }
+
+    private Payment applyGatewayResponse(UUID paymentId, PaymentGatewayResponse gatewayResponse) {
+        Payment payment = findPayment(paymentId);
+
+        // The call outlived the processing timeout, or a failure webhook landed while it was in flight: its answer
+        // still settles the payment, and a capture always wins over a recorded failure
+        if (isTimedOut(payment) || isCaptureOfFailed(payment, gatewayResponse)) {
+            payment.setFailureReason(null);
+            payment.setFailureCode(null);
+            return applyOutcome(payment, gatewayResponse);
+        }
+
+        if (isCaptureOfCancelled(payment, gatewayResponse)) {
+            return flagCapturedAfterCancel(payment, gatewayResponse);
+        }
+
+        // A webhook may have settled the payment while the gateway call was in flight
+        if (payment.getStatus() != Payment.PaymentStatus.PROCESSING) {
+            logger.info("Payment {} already settled as {}; gateway response not applied",
+                       payment.getPaymentReference(), payment.getStatus());
+            return payment;
+        }
+
+        return applyOutcome(payment, gatewayResponse);
+    }
+
+    private Payment applyOutcome(Payment payment, PaymentGatewayResponse gatewayResponse) {
+        // Create transaction record
+        PaymentTransaction transaction = new PaymentTransaction(payment,
+                PaymentTransaction.TransactionType.SALE, payment.getAmount(),
+                "Payment processing");
+
+        Payment.PaymentStatus previousStatus = payment.getStatus();
+
+        // Update payment based on gateway response
+        if (gatewayResponse.isSuccess()) {
+            payment.setStatus(Payment.PaymentStatus.COMPLETED);
+            payment.setCapturedAt(LocalDateTime.now());
+            payment.setGatewayFee(gatewayResponse.getGatewayFee());
+            payment.calculateNetAmount();
+            payment.setNextRetryAt(null);
+            transaction.setStatus(PaymentTransaction.TransactionStatus.COMPLETED);
+            transaction.setProcessedAt(LocalDateTime.now());
+        } else if (gatewayResponse.isPending()) {
+            payment.setStatus(Payment.PaymentStatus.PENDING);
+        } else {
+            payment.setStatus(Payment.PaymentStatus.FAILED);
+            payment.setFailedAt(LocalDateTime.now());
+            payment.setFailureReason(gatewayResponse.getGatewayResponse());
+            payment.setFailureCode(gatewayResponse.getFailureCode());
+            payment.setNextRetryAt(paymentRetryScheduler.nextAttemptAt(payment,
+                    PaymentGatewayService.isTransientFailure(gatewayResponse.getFailureCode())));
+            transaction.setStatus(PaymentTransaction.TransactionStatus.FAILED);
+            transaction.setFailureReason(gatewayResponse.getGatewayResponse());
+            transaction.setFailureCode(gatewayResponse.getFailureCode());
+            paymentMetrics.paymentFailure(gatewayResponse.getFailureCode());
+        }
+        payment.setProcessingStartedAt(null);
+        paymentMetrics.transition(previousStatus, payment.getStatus());
+
+        // Update gateway information
+        payment.setGatewayPaymentId(gatewayResponse.getGatewayTransactionId());
+        payment.setGatewayResponse(gatewayResponse.getGatewayResponse());
+        payment.setGatewayRawResponse(gatewayResponse.getRawResponse());
+
+        transaction.setGatewayTransactionId(gatewayResponse.getGatewayTransactionId());
+        transaction.setGatewayResponse(gatewayResponse.getGatewayResponse());
+        transaction.setGatewayRawResponse(gatewayResponse.getRawResponse());
+
+        // Save payment and transaction
+        payment.addTransaction(transaction);
+        return paymentRepository.save(payment);
+    }
+
+    // Nothing voids the capture on its own and the daily limit was already given back, so it is left for review
+    private Payment flagCapturedAfterCancel(Payment payment, PaymentGatewayResponse gatewayResponse) {
+        logger.error("Gateway captured cancelled payment {} ({}); flagged for review",
+                    payment.getPaymentReference(), gatewayResponse.getGatewayTransactionId());
+
+        PaymentTransaction transaction = new PaymentTransaction(payment,
+                PaymentTransaction.TransactionType.SALE, payment.getAmount(),
+                "Captured after cancellation");
+        transaction.setStatus(PaymentTransaction.TransactionStatus.COMPLETED);
+        transaction.setProcessedAt(LocalDateTime.now());
+        transaction.setGatewayTransactionId(gatewayResponse.getGatewayTransactionId());
+        transaction.setGatewayResponse(gatewayResponse.getGatewayResponse());
+        transaction.setGatewayRawResponse(gatewayResponse.getRawResponse());
+
+        payment.setCapturedAt(LocalDateTime.now());
+        payment.setFailureCode(CAPTURED_AFTER_CANCEL_CODE);
+        payment.setFailureReason("Gateway captured the payment after it was cancelled; void or refund it");
+        payment.setProcessingStartedAt(null);
+        payment.setGatewayPaymentId(gatewayResponse.getGatewayTransactionId());
+        payment.setGatewayResponse(gatewayResponse.getGatewayResponse());
+        payment.setGatewayRawResponse(gatewayResponse.getRawResponse());
+        payment.addTransaction(transaction);
+        paymentMetrics.paymentFailure(CAPTURED_AFTER_CANCEL_CODE);
+        return paymentRepository.save(payment);
+    }
+
+    private Payment applyProcessingError(UUID paymentId, Exception e) {
+        Payment payment = findPayment(paymentId);
+        if (payment.getStatus() != Payment.PaymentStatus.PROCESSING) {
+            return payment;
+        }
+
+        paymentMetrics.transition(payment.getStatus(), Payment.PaymentStatus.FAILED);
+        paymentMetrics.paymentFailure(PaymentMetrics.PROCESSING_ERROR);
+        payment.setStatus(Payment.PaymentStatus.FAILED);
+        payment.setFailedAt(LocalDateTime.now());
+        payment.setFailureReason("Payment processing error: " + e.getMessage());
+        payment.setProcessingStartedAt(null);
+        // No automatic retry: the request may have reached the gateway before the call failed
+        payment.setNextRetryAt(null);
+        return paymentRepository.save(payment);
+    }
+
+    // Queue the automatic retry once the failure is committed
+    private void scheduleRetry(Payment payment) {
+        if (payment.getStatus() == Payment.PaymentStatus.FAILED && payment.getNextRetryAt() != null) {
+            paymentRetryScheduler.schedule(payment.getId(), payment.getNextRetryAt());
+        }
+    }
+
+    private static boolean isCaptureOfFailed(Payment payment, PaymentGatewayResponse gatewayResponse) {
+        return gatewayResponse.isSuccess() && payment.getStatus() == Payment.PaymentStatus.FAILED;
+    }
+
+    private static boolean isCaptureOfCancelled(Payment payment, PaymentGatewayResponse gatewayResponse) {
+        return gatewayResponse.isSuccess() && payment.getStatus() == Payment.PaymentStatus.CANCELLED;
+    }
+
+    private static boolean isTimedOut(Payment payment) {
+        return payment.getStatus() == Payment.PaymentStatus.FAILED
+                && ProcessingTimeoutService.TIMEOUT_CODE.equals(payment.getFailureCode());
+    }
+
+    private Payment findPayment(UUID paymentId) {
+        return paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new PaymentServiceException("Payment not found with ID: " + paymentId));
+    }
+}
@@ -0,0 +1,184 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Automatic retries of transient gateway failures. The due time is persisted as payments.next_retry_at; a delay queue
+// holds the retries due soon so each fires on time, and a periodic poll refills it from the table (retries scheduled
+// by other instances or before a restart). A due retry is claimed with a conditional update and handed to the outbox
+// workers, which re-drive the payments through the gateway in parallel.
+@Service
+public class PaymentRetryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentRetryScheduler.class);
+
+    private static final String DUE_SOON_SQL =
+            "SELECT id, next_retry_at FROM payments " +
+            "WHERE status = 'FAILED' AND next_retry_at <= :horizon " +
+            "ORDER BY next_retry_at LIMIT :limit";
+
+    // Matches only payments still failed and due, so a retry is claimed once across instances
+    private static final String CLAIM_SQL =
+            "UPDATE payments SET status = 'PROCESSING', retry_count = COALESCE(retry_count, 0) + 1, " +
+            "last_retry_at = :now, next_retry_at = NULL, failure_reason = NULL, failure_code = NULL, " +
+            "processing_started_at = NULL, " +
+            "version = version + 1, updated_at = now() " +
+            "WHERE id IN (:ids) AND status = 'FAILED' AND next_retry_at <= :now " +
+            "RETURNING id";
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private OutboxService outboxService;
+
+    final private PaymentMetrics paymentMetrics;
+
+    final private DelayQueue<DueRetry> queue = new DelayQueue<>();
+
+    // Payments currently in the queue, so the poll does not queue them twice
+    final private Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    final private Counter scheduled;
+
+    final private Counter dispatched;
+
+    @Value("${payment.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${payment.retry.initial-delay:1000}")
+    private long initialDelayMs;
+
+    @Value("${payment.retry.max-delay:10000}")
+    private long maxDelayMs;
+
+    @Value("${payment.retry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payment.retry.poll-interval:10000}")
+    private long pollIntervalMs;
+
+    public PaymentRetryScheduler(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 OutboxService outboxService, PaymentMetrics paymentMetrics, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxService = outboxService;
+        this.paymentMetrics = paymentMetrics;
+
+        this.scheduled = Counter.builder("payment.retry.payments").tag("result", "scheduled")
+                .description("Transient payment failures scheduled for an automatic retry").register(meterRegistry);
+        this.dispatched = Counter.builder("payment.retry.payments").tag("result", "dispatched")
+                .description("Automatic payment retries handed to the gateway").register(meterRegistry);
+        Gauge.builder("payment.retry.queued", queue, DelayQueue::size)
+                .description("Retries waiting in the in-memory delay queue").register(meterRegistry);
+    }
+
+    // When to retry a failed payment: null for declines, other hard failures and payments out of attempts
+    public LocalDateTime nextAttemptAt(Payment payment, boolean transientFailure) {
+        int retries = payment.getRetryCount() != null ? payment.getRetryCount() : 0;
+        if (!transientFailure || retries >= maxAttempts) {
+            return null;
+        }
+
+        scheduled.increment();
+        return LocalDateTime.now().plusNanos(backoffMs(retries + 1) * 1_000_000L);
+    }
+
+    // Exponential backoff with equal jitter: half the delay is fixed, the other half random, so retries of payments
+    // that failed together (one gateway blip) spread out instead of hitting the gateway again at once
+    public long backoffMs(int attempt) {
+        long delay = Math.min(maxDelayMs, initialDelayMs << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // Hold a persisted retry in memory so it fires on time instead of on the next poll
+    public void schedule(UUID paymentId, LocalDateTime dueAt) {
+        if (queued.add(paymentId)) {
+            queue.offer(new DueRetry(paymentId, dueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
+    }
+
+    // Claim and dispatch the retries that came due
+    @Scheduled(fixedDelayString = "${payment.retry.tick-interval:250}")
+    public void dispatchDue() {
+        List<DueRetry> due = new ArrayList<>();
+        while (queue.drainTo(due, batchSize) > 0) {
+            List<UUID> paymentIds = due.stream().map(DueRetry::paymentId).toList();
+            paymentIds.forEach(queued::remove);
+            due.clear();
+
+            try {
+                List<UUID> claimed = transactionTemplate.execute(status -> claim(paymentIds));
+                dispatched.increment(claimed.size());
+                if (!claimed.isEmpty()) {
+                    logger.info("Retrying {} payments after transient gateway failures", claimed.size());
+                }
+            } catch (Exception e) {
+                // Still persisted as due; the next poll queues them again
+                logger.error("Failed to dispatch payment retries: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Queue retries that come due before the next poll
+    @Scheduled(fixedDelayString = "${payment.retry.poll-interval:10000}")
+    public void loadDue() {
+        LocalDateTime horizon = LocalDateTime.now().plusNanos(pollIntervalMs * 1_000_000L);
+        try {
+            jdbcTemplate.query(DUE_SOON_SQL, new MapSqlParameterSource()
+                    .addValue("horizon", horizon)
+                    .addValue("limit", batchSize * 10), rs -> {
+                schedule(rs.getObject("id", UUID.class), rs.getTimestamp("next_retry_at").toLocalDateTime());
+            });
+        } catch (Exception e) {
+            logger.error("Failed to load due payment retries: {}", e.getMessage());
+        }
+    }
+
+    private List<UUID> claim(List<UUID> paymentIds) {
+        List<UUID> claimed = jdbcTemplate.queryForList(CLAIM_SQL, new MapSqlParameterSource()
+                .addValue("ids", paymentIds)
+                .addValue("now", LocalDateTime.now()), UUID.class);
+
+        if (!claimed.isEmpty()) {
+            outboxService.enqueuePayments(claimed);
+            paymentMetrics.transition(Payment.PaymentStatus.FAILED, Payment.PaymentStatus.PROCESSING, claimed.size());
+        }
+        return claimed;
+    }
+
+    private record DueRetry(UUID paymentId, long dueAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((DueRetry) other).dueAtMillis);
+        }
+    }
+}
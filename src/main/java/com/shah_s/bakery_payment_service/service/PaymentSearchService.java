@@ -0,0 +1,38 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.dto.SearchCursor;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Relevance-ranked text search over payments (reference, card last four, description, notes)
+// and refunds (reference, reason, notes, card last four of the refunded payment)
+public interface PaymentSearchService {
+
+    // Shorter terms cannot use the trigram index
+    int MIN_TERM_LENGTH = 3;
+
+    // Best matches first, at most limit hits after the cursor position
+    List<Hit> searchPayments(String term, SearchCursor after, int limit);
+
+    List<Hit> searchRefunds(String term, SearchCursor after, int limit);
+
+    // Trimmed search term, rejected when it is too short to search efficiently
+    static String requireTerm(String term) {
+        String trimmed = term != null ? term.trim() : "";
+        if (trimmed.length() < MIN_TERM_LENGTH) {
+            throw new PaymentServiceException("Search term must be at least " + MIN_TERM_LENGTH + " characters");
+        }
+        return trimmed;
+    }
+
+    record Hit(UUID id, BigDecimal score, LocalDateTime createdAt) {
+
+        public SearchCursor cursor() {
+            return new SearchCursor(score, createdAt, id);
+        }
+    }
+}
@@ -1,29 +1,33 @@
 package com.shah_s.bakery_payment_service.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.shah_s.bakery_payment_service.client.OrderServiceClient;
 import com.shah_s.bakery_payment_service.dto.*;
 import com.shah_s.bakery_payment_service.entity.Payment;
-import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
+import com.shah_s.bakery_payment_service.exception.PaymentConflictException;
 import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
 import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.repository.PaymentSpecifications;
 import com.shah_s.bakery_payment_service.service.PaymentGatewayService.PaymentGatewayResponse;
+import com.shah_s.bakery_payment_service.service.PaymentMetrics.Phase;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,47 +44,67 @@ public class PaymentService {
 
     final private PaymentGatewayService paymentGatewayService;
 
-    final private OrderServiceClient orderServiceClient;
+    final private OrderSnapshotService orderSnapshotService;
+
+    final private OutboxService outboxService;
+
+    final private OrderNotificationService orderNotificationService;
+
+    final private DailyLimitLedger dailyLimitLedger;
 
     final private ObjectMapper objectMapper;
 
+    final private DailyRollupService dailyRollupService;
+
+    final private PaymentSearchService paymentSearchService;
+
+    final private PaymentMetrics paymentMetrics;
+
     @Value("${payment.limits.min-amount:0.50}")
     private BigDecimal minPaymentAmount;
 
     @Value("${payment.limits.max-amount:10000.00}")
     private BigDecimal maxPaymentAmount;
 
-    @Value("${payment.limits.daily-limit:50000.00}")
-    private BigDecimal dailyPaymentLimit;
-
-    public PaymentService(PaymentRepository paymentRepository, PaymentTransactionService paymentTransactionService, RefundService refundService, PaymentGatewayService paymentGatewayService, OrderServiceClient orderServiceClient, ObjectMapper objectMapper) {
+    public PaymentService(PaymentRepository paymentRepository, PaymentTransactionService paymentTransactionService, RefundService refundService, PaymentGatewayService paymentGatewayService, OrderSnapshotService orderSnapshotService, OutboxService outboxService, OrderNotificationService orderNotificationService, DailyLimitLedger dailyLimitLedger, ObjectMapper objectMapper, DailyRollupService dailyRollupService, PaymentSearchService paymentSearchService, PaymentMetrics paymentMetrics) {
         this.paymentRepository = paymentRepository;
         this.paymentTransactionService = paymentTransactionService;
         this.refundService = refundService;
         this.paymentGatewayService = paymentGatewayService;
-        this.orderServiceClient = orderServiceClient;
+        this.orderSnapshotService = orderSnapshotService;
+        this.outboxService = outboxService;
+        this.orderNotificationService = orderNotificationService;
+        this.dailyLimitLedger = dailyLimitLedger;
         this.objectMapper = objectMapper;
+        this.dailyRollupService = dailyRollupService;
+        this.paymentSearchService = paymentSearchService;
+        this.paymentMetrics = paymentMetrics;
     }
 
-    // Create payment
+    // Create payment; each phase is timed (payment.create.phase) to tell Postgres, order-service and limit waits apart
     public PaymentResponse createPayment(PaymentRequest request) {
         logger.info("Creating payment for order: {} amount: {}", request.getOrderId(), request.getAmount());
 
         try {
-            // Validate payment request
-            validatePaymentRequest(request);
+            // Start the order lookup; it overlaps with the duplicate check below
+            CompletableFuture<Map<String, Object>> orderLookup = orderSnapshotService.getOrderAsync(request.getOrderId());
 
             // Check if payment already exists for order
+            Timer.Sample phase = Timer.start();
             Optional<Payment> existingPayment = paymentRepository.findByOrderId(request.getOrderId());
+            paymentMetrics.recordPhase(Phase.DUPLICATE_CHECK, phase);
             if (existingPayment.isPresent()) {
                 throw new PaymentServiceException("Payment already exists for order: " + request.getOrderId());
             }
 
-            // Verify order exists
-            Map<String, Object> orderInfo = orderServiceClient.getOrderById(request.getOrderId());
-            if (orderInfo == null) {
-                throw new PaymentServiceException("Order not found: " + request.getOrderId());
-            }
+            phase = Timer.start();
+            Map<String, Object> order = orderSnapshotService.await(orderLookup);
+            paymentMetrics.recordPhase(Phase.ORDER_LOOKUP, phase);
+
+            // Validate payment request against the order
+            phase = Timer.start();
+            validatePaymentRequest(request, order);
+            paymentMetrics.recordPhase(Phase.VALIDATION, phase);
 
             // Create payment entity
             Payment payment = new Payment(request.getOrderId(), request.getUserId(),
@@ -107,11 +131,24 @@ public class PaymentService {
                 payment.setExpiresAt(LocalDateTime.now().plusMinutes(15));
             }
 
-            // Save payment
-            Payment savedPayment = paymentRepository.save(payment);
-
-            // Process payment asynchronously
-            processPaymentAsync(savedPayment);
+            // Count the amount against the user's daily limit; rolls back with the payment
+            phase = Timer.start();
+            dailyLimitLedger.reserve(request.getUserId(),
+                    DailyLimitLedger.cardKey(request.getCardBrand(), request.getCardLastFour()),
+                    request.getAmount());
+            paymentMetrics.recordPhase(Phase.LIMIT_RESERVATION, phase);
+
+            // Save payment; flushed here so the INSERT is timed on its own rather than inside the commit
+            phase = Timer.start();
+            Payment savedPayment = paymentRepository.saveAndFlush(payment);
+            paymentMetrics.recordPhase(Phase.INSERT, phase);
+
+            // Hand off to the outbox workers; committed together with the payment
+            phase = Timer.start();
+            outboxService.enqueuePayment(savedPayment.getId());
+            paymentMetrics.recordPhase(Phase.ENQUEUE, phase);
+            paymentMetrics.timeCommit();
+            paymentMetrics.transition(null, savedPayment.getStatus());
 
             logger.info("Payment created successfully: {}", savedPayment.getPaymentReference());
             return PaymentResponse.from(savedPayment);
@@ -155,33 +192,121 @@ public class PaymentService {
         return PaymentResponse.from(payment);
     }
 
-    // Get payments by user ID
+    // Get payments by user ID, newest first
     @Transactional(readOnly = true)
-    public List<PaymentResponse> getPaymentsByUserId(UUID userId) {
+    public CursorPage<PaymentResponse> getPaymentsByUserId(UUID userId, String cursor, int limit) {
         logger.debug("Fetching payments for user: {}", userId);
 
-        return paymentRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
-                .map(PaymentResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Payment> rows = paymentRepository.findPageByUserIdBefore(userId,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentService::cursorOf, PaymentResponse::from);
     }
 
-    // Get payments by status
+    // Get payments by status, newest first
     @Transactional(readOnly = true)
-    public List<PaymentResponse> getPaymentsByStatus(Payment.PaymentStatus status) {
+    public CursorPage<PaymentResponse> getPaymentsByStatus(Payment.PaymentStatus status, String cursor, int limit) {
         logger.debug("Fetching payments by status: {}", status);
 
-        return paymentRepository.findByStatusOrderByCreatedAtDesc(status).stream()
-                .map(PaymentResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Payment> rows = paymentRepository.findPageByStatusBefore(status,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentService::cursorOf, PaymentResponse::from);
     }
 
-    // Get all payments with pagination
+    // Get all payments, newest first
     @Transactional(readOnly = true)
-    public Page<PaymentResponse> getAllPayments(Pageable pageable) {
-        logger.debug("Fetching all payments with pagination");
+    public CursorPage<PaymentResponse> getAllPayments(String cursor, int limit) {
+        logger.debug("Fetching all payments page");
 
-        return paymentRepository.findAll(pageable)
-                .map(PaymentResponse::from);
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Payment> rows = paymentRepository.findPageBefore(
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentService::cursorOf, PaymentResponse::from);
+    }
+
+    // Payment summaries, newest first (single statement per page)
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentSummaryResponse> getAllPaymentSummaries(String cursor, int limit) {
+        logger.debug("Fetching payment summaries page");
+
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<PaymentSummaryResponse> rows = paymentRepository.findSummaryPageBefore(
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentService::summaryCursorOf, Function.identity());
+    }
+
+    // Payment summaries by user ID
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentSummaryResponse> getPaymentSummariesByUserId(UUID userId, String cursor, int limit) {
+        logger.debug("Fetching payment summaries for user: {}", userId);
+
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<PaymentSummaryResponse> rows = paymentRepository.findSummaryPageByUserIdBefore(userId,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentService::summaryCursorOf, Function.identity());
+    }
+
+    // Payment summaries by status
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentSummaryResponse> getPaymentSummariesByStatus(Payment.PaymentStatus status,
+                                                                          String cursor, int limit) {
+        logger.debug("Fetching payment summaries by status: {}", status);
+
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<PaymentSummaryResponse> rows = paymentRepository.findSummaryPageByStatusBefore(status,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentService::summaryCursorOf, Function.identity());
+    }
+
+    // Get payments with filters, newest first; only the supplied filters reach the SQL
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentResponse> getPaymentsWithFilters(UUID userId, Payment.PaymentStatus status,
+                                                              Payment.PaymentMethod paymentMethod,
+                                                              Payment.PaymentGateway paymentGateway,
+                                                              BigDecimal minAmount, BigDecimal maxAmount,
+                                                              LocalDateTime startDate, LocalDateTime endDate,
+                                                              String cursor, int limit) {
+        logger.debug("Fetching payments with filters");
+
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        Specification<Payment> filters = PaymentSpecifications.withFilters(userId, status, paymentMethod,
+                paymentGateway, minAmount, maxAmount, startDate, endDate);
+        List<Payment> rows = paymentRepository.findBy(filters.and(PaymentSpecifications.before(position)),
+                query -> query.sortBy(PaymentSpecifications.NEWEST_FIRST).limit(pageSize + 1).all());
+
+        return CursorPage.of(rows, pageSize, PaymentService::cursorOf, PaymentResponse::from);
+    }
+
+    // Search payments by reference, card last four, description or notes; best matches first
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentResponse> searchPayments(String searchTerm, String cursor, int limit) {
+        String term = PaymentSearchService.requireTerm(searchTerm);
+        logger.debug("Searching payments with term: {}", term);
+
+        int pageSize = CursorPage.pageSize(limit);
+        List<PaymentSearchService.Hit> hits = paymentSearchService.searchPayments(term,
+                SearchCursor.decode(cursor), pageSize + 1);
+        Map<UUID, Payment> payments = paymentRepository.findAllById(hits.stream().map(PaymentSearchService.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Payment::getId, Function.identity()));
+
+        return CursorPage.ofRanked(hits, pageSize, PaymentSearchService.Hit::cursor,
+                        hit -> payments.containsKey(hit.id()) ? PaymentResponse.from(payments.get(hit.id())) : null)
+                .filter(Objects::nonNull);
     }
 
     // Update payment status
@@ -193,6 +318,9 @@ public class PaymentService {
 
         // Validate status transition
         validateStatusTransition(payment.getStatus(), request.getStatus());
+        if (request.getStatus() == Payment.PaymentStatus.CANCELLED) {
+            requireNoGatewayCallInFlight(payment);
+        }
 
         Payment.PaymentStatus oldStatus = payment.getStatus();
         payment.setStatus(request.getStatus());
@@ -209,9 +337,10 @@ public class PaymentService {
         }
 
         Payment updatedPayment = paymentRepository.save(payment);
+        paymentMetrics.transition(oldStatus, updatedPayment.getStatus());
 
         // Notify order service of payment status change
-        notifyOrderServiceAsync(updatedPayment);
+        orderNotificationService.notifyPaymentStatus(updatedPayment);
 
         logger.info("Payment status updated successfully: {} from {} to {}",
                    paymentId, oldStatus, request.getStatus());
@@ -234,9 +363,12 @@ public class PaymentService {
             throw new PaymentServiceException("Payment is already cancelled");
         }
 
+        requireNoGatewayCallInFlight(payment);
+
+        Payment.PaymentStatus oldStatus = payment.getStatus();
+        paymentMetrics.transition(oldStatus, Payment.PaymentStatus.CANCELLED);
         payment.setStatus(Payment.PaymentStatus.CANCELLED);
-        payment.setCancelledAt(LocalDateTime.now());
-        payment.setFailureReason(reason);
+        handleStatusTransition(payment, oldStatus, Payment.PaymentStatus.CANCELLED, reason);
 
         // Try to void the payment at gateway if it was authorized
         if (payment.getAuthorizedAt() != null) {
@@ -252,7 +384,7 @@ public class PaymentService {
         Payment cancelledPayment = paymentRepository.save(payment);
 
         // Notify order service
-        notifyOrderServiceAsync(cancelledPayment);
+        orderNotificationService.notifyPaymentStatus(cancelledPayment);
 
         logger.info("Payment cancelled successfully: {}", paymentId);
         return PaymentResponse.from(cancelledPayment);
@@ -270,38 +402,77 @@ public class PaymentService {
         }
 
         payment.incrementRetryCount();
+        paymentMetrics.transition(payment.getStatus(), Payment.PaymentStatus.PROCESSING);
         payment.setStatus(Payment.PaymentStatus.PROCESSING);
         payment.setFailureReason(null);
         payment.setFailureCode(null);
+        payment.setNextRetryAt(null);
+        payment.setProcessingStartedAt(null);
 
         Payment savedPayment = paymentRepository.save(payment);
 
-        // Process payment asynchronously
-        processPaymentAsync(savedPayment);
+        // Hand off to the outbox workers
+        outboxService.enqueuePayment(savedPayment.getId());
 
         logger.info("Payment retry initiated: {}", paymentId);
         return PaymentResponse.from(savedPayment);
     }
 
-    // Get payment statistics
+    // Get payment statistics (served from the daily rollups; raw rows only for boundary and changed days)
     @Transactional(readOnly = true)
     public Map<String, Object> getPaymentStatistics(LocalDateTime startDate, LocalDateTime endDate) {
         logger.debug("Fetching payment statistics");
 
         try {
-            Object[] successRate = paymentRepository.getPaymentSuccessRate(startDate, endDate);
-            List<Object[]> methodStats = paymentRepository.getPaymentStatisticsByMethod(startDate, endDate);
-            List<Object[]> gatewayStats = paymentRepository.getPaymentStatisticsByGateway(startDate, endDate);
-            List<Object[]> statusStats = paymentRepository.getPaymentStatisticsByStatus(startDate, endDate);
-            BigDecimal totalAmount = paymentRepository.getTotalAmountByDateRange(startDate, endDate);
-            BigDecimal totalFees = paymentRepository.getTotalGatewayFees(startDate, endDate);
-            BigDecimal netAmount = paymentRepository.getTotalNetAmount(startDate, endDate);
+            List<DailyRollupService.Bucket> buckets =
+                    dailyRollupService.aggregate(DailyRollup.PAYMENTS, startDate, endDate);
+
+            Map<Payment.PaymentGateway, DailyRollupService.Totals> byGateway = new EnumMap<>(Payment.PaymentGateway.class);
+            Map<Payment.PaymentMethod, DailyRollupService.Totals> byMethod = new EnumMap<>(Payment.PaymentMethod.class);
+            Map<Payment.PaymentStatus, DailyRollupService.Totals> byStatus = new EnumMap<>(Payment.PaymentStatus.class);
+            BigDecimal totalFees = BigDecimal.ZERO;
+            BigDecimal netAmount = BigDecimal.ZERO;
+
+            // Keys: gateway, method, status, currency; amounts: amount, fees, net
+            for (DailyRollupService.Bucket bucket : buckets) {
+                String status = bucket.key(2);
+                byGateway.computeIfAbsent(Payment.PaymentGateway.valueOf(bucket.key(0)), key -> new DailyRollupService.Totals())
+                        .add(bucket, bucket.amount(1), status);
+                byMethod.computeIfAbsent(Payment.PaymentMethod.valueOf(bucket.key(1)), key -> new DailyRollupService.Totals())
+                        .add(bucket, bucket.amount(1), status);
+                byStatus.computeIfAbsent(Payment.PaymentStatus.valueOf(status), key -> new DailyRollupService.Totals())
+                        .add(bucket, bucket.amount(1), status);
+
+                if (Payment.PaymentStatus.COMPLETED.name().equals(status)) {
+                    totalFees = totalFees.add(bucket.amount(1));
+                    netAmount = netAmount.add(bucket.amount(2));
+                }
+            }
+
+            long totalPayments = byStatus.values().stream().mapToLong(DailyRollupService.Totals::getCount).sum();
+            BigDecimal totalAmount = byStatus.values().stream()
+                    .map(DailyRollupService.Totals::getAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+            List<Object[]> methodStats = byMethod.entrySet().stream()
+                    .sorted((a, b) -> b.getValue().getAmount().compareTo(a.getValue().getAmount()))
+                    .map(entry -> new Object[] {entry.getKey(), entry.getValue().getCount(), entry.getValue().getAmount(),
+                            entry.getValue().getAverage(), entry.getValue().getFees()})
+                    .toList();
+            List<Object[]> gatewayStats = byGateway.entrySet().stream()
+                    .sorted((a, b) -> b.getValue().getAmount().compareTo(a.getValue().getAmount()))
+                    .map(entry -> new Object[] {entry.getKey(), entry.getValue().getCount(), entry.getValue().getAmount(),
+                            entry.getValue().getCompleted(), entry.getValue().getFailed()})
+                    .toList();
+            List<Object[]> statusStats = byStatus.entrySet().stream()
+                    .map(entry -> new Object[] {entry.getKey(), entry.getValue().getCount(), entry.getValue().getAmount()})
+                    .toList();
 
             return Map.ofEntries(
-                    Map.entry("totalPayments", successRate[0]),
-                    Map.entry("successfulPayments", successRate[1]),
-                    Map.entry("failedPayments", successRate[2]),
-                    Map.entry("pendingPayments", successRate[3]),
+                    Map.entry("totalPayments", totalPayments),
+                    Map.entry("successfulPayments", countOf(byStatus, Payment.PaymentStatus.COMPLETED)),
+                    Map.entry("failedPayments", countOf(byStatus, Payment.PaymentStatus.FAILED)),
+                    Map.entry("pendingPayments", countOf(byStatus, Payment.PaymentStatus.PENDING)),
                     Map.entry("totalAmount", totalAmount),
                     Map.entry("totalFees", totalFees),
                     Map.entry("netAmount", netAmount),
@@ -323,99 +494,21 @@ public class PaymentService {
     }
 
     // Private helper methods
-    @Async
-    protected void processPaymentAsync(Payment payment) {
-        logger.info("Processing payment asynchronously: {}", payment.getPaymentReference());
-
-        try {
-            // Update status to processing
-            payment.setStatus(Payment.PaymentStatus.PROCESSING);
-            paymentRepository.save(payment);
-
-            // Process through gateway
-            PaymentGatewayResponse gatewayResponse = paymentGatewayService.processPayment(payment);
-
-            // Create transaction record
-            PaymentTransaction transaction = new PaymentTransaction(payment,
-                    PaymentTransaction.TransactionType.SALE, payment.getAmount(),
-                    "Payment processing");
-
-            // Update payment based on gateway response
-            if (gatewayResponse.isSuccess()) {
-                payment.setStatus(Payment.PaymentStatus.COMPLETED);
-                payment.setCapturedAt(LocalDateTime.now());
-                payment.setGatewayFee(gatewayResponse.getGatewayFee());
-                payment.calculateNetAmount();
-                transaction.setStatus(PaymentTransaction.TransactionStatus.COMPLETED);
-                transaction.setProcessedAt(LocalDateTime.now());
-            } else if (gatewayResponse.isPending()) {
-                payment.setStatus(Payment.PaymentStatus.PENDING);
-            } else {
-                payment.setStatus(Payment.PaymentStatus.FAILED);
-                payment.setFailedAt(LocalDateTime.now());
-                payment.setFailureReason(gatewayResponse.getGatewayResponse());
-                payment.setFailureCode(gatewayResponse.getFailureCode());
-                transaction.setStatus(PaymentTransaction.TransactionStatus.FAILED);
-                transaction.setFailureReason(gatewayResponse.getGatewayResponse());
-                transaction.setFailureCode(gatewayResponse.getFailureCode());
-            }
-
-            // Update gateway information
-            payment.setGatewayPaymentId(gatewayResponse.getGatewayTransactionId());
-            payment.setGatewayResponse(gatewayResponse.getGatewayResponse());
-            payment.setGatewayRawResponse(gatewayResponse.getRawResponse());
-
-            transaction.setGatewayTransactionId(gatewayResponse.getGatewayTransactionId());
-            transaction.setGatewayResponse(gatewayResponse.getGatewayResponse());
-            transaction.setGatewayRawResponse(gatewayResponse.getRawResponse());
-
-            // Save payment and transaction
-            payment.addTransaction(transaction);
-            paymentRepository.save(payment);
-
-            // Notify order service
-            notifyOrderServiceAsync(payment);
-
-            logger.info("Payment processing completed: {} status: {}",
-                       payment.getPaymentReference(), payment.getStatus());
-
-        } catch (Exception e) {
-            logger.error("Payment processing failed: {} - {}", payment.getPaymentReference(), e.getMessage());
-
-            // Update payment as failed
-            payment.setStatus(Payment.PaymentStatus.FAILED);
-            payment.setFailedAt(LocalDateTime.now());
-            payment.setFailureReason("Payment processing error: " + e.getMessage());
-            paymentRepository.save(payment);
-
-            // Notify order service
-            notifyOrderServiceAsync(payment);
-        }
+    private static long countOf(Map<Payment.PaymentStatus, DailyRollupService.Totals> byStatus, Payment.PaymentStatus status) {
+        DailyRollupService.Totals totals = byStatus.get(status);
+        return totals != null ? totals.getCount() : 0L;
     }
 
-    @Async
-    protected void notifyOrderServiceAsync(Payment payment) {
-        try {
-            Map<String, Object> paymentUpdate = Map.of(
-                    "paymentId", payment.getId(),
-                    "paymentReference", payment.getPaymentReference(),
-                    "status", payment.getStatus().name(),
-                    "amount", payment.getAmount(),
-                    "gatewayResponse", payment.getGatewayResponse() != null ? payment.getGatewayResponse() : ""
-            );
-
-            orderServiceClient.updateOrderPaymentStatus(payment.getOrderId(), paymentUpdate);
+    private static PageCursor cursorOf(Payment payment) {
+        return new PageCursor(payment.getCreatedAt(), payment.getId());
+    }
 
-            logger.debug("Order service notified of payment update: {}", payment.getPaymentReference());
-        } catch (Exception e) {
-            logger.error("Failed to notify order service for payment {}: {}",
-                        payment.getPaymentReference(), e.getMessage());
-        }
+    private static PageCursor summaryCursorOf(PaymentSummaryResponse summary) {
+        return new PageCursor(summary.getCreatedAt(), summary.getId());
     }
 
-    private void validatePaymentRequest(PaymentRequest request) {
-        // Retrieve order info
-        Map<String, Object> orderInfo = orderServiceClient.getOrderById(request.getOrderId());
+    private void validatePaymentRequest(PaymentRequest request, Map<String, Object> orderInfo) {
+        // Verify order exists
         if (orderInfo == null) {
             throw new PaymentServiceException("Order not found: " + request.getOrderId());
         }
@@ -442,14 +535,13 @@ public class PaymentService {
         if (request.getAmount().compareTo(maxPaymentAmount) > 0) {
             throw new PaymentServiceException("Payment amount exceeds maximum: " + maxPaymentAmount);
         }
+    }
 
-        // Check daily limit for user
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime endOfDay = startOfDay.plusDays(1).minusNanos(1);
-
-        BigDecimal dailyTotal = paymentRepository.getTotalAmountByDateRange(startOfDay, endOfDay);
-        if (dailyTotal.add(request.getAmount()).compareTo(dailyPaymentLimit) > 0) {
-            throw new PaymentServiceException("Daily payment limit exceeded");
+    // The gateway call runs outside any transaction; cancelling under it could leave a capture nobody voids
+    private void requireNoGatewayCallInFlight(Payment payment) {
+        if (payment.getProcessingStartedAt() != null) {
+            throw new PaymentConflictException("Payment " + payment.getPaymentReference() +
+                    " is being processed by the gateway; cancel again once it settles");
         }
     }
 
@@ -489,6 +581,10 @@ public class PaymentService {
             case CANCELLED -> {
                 payment.setCancelledAt(now);
                 payment.setFailureReason(reason);
+                // Cancelled payments no longer count towards the daily limit, whichever endpoint cancelled them
+                dailyLimitLedger.release(payment.getUserId(),
+                        DailyLimitLedger.cardKey(payment.getCardBrand(), payment.getCardLastFour()),
+                        payment.getAmount(), payment.getCreatedAt().toLocalDate());
             }
         }
     }
@@ -1,5 +1,7 @@
 package com.shah_s.bakery_payment_service.service;
 
+import com.shah_s.bakery_payment_service.dto.CursorPage;
+import com.shah_s.bakery_payment_service.dto.PageCursor;
 import com.shah_s.bakery_payment_service.dto.PaymentTransactionResponse;
 import com.shah_s.bakery_payment_service.entity.Payment;
 import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
@@ -14,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,9 +33,12 @@ public class PaymentTransactionService {
 
     final private PaymentRepository paymentRepository;
 
-    public PaymentTransactionService(PaymentTransactionRepository paymentTransactionRepository, PaymentRepository paymentRepository) {
+    final private DailyRollupService dailyRollupService;
+
+    public PaymentTransactionService(PaymentTransactionRepository paymentTransactionRepository, PaymentRepository paymentRepository, DailyRollupService dailyRollupService) {
         this.paymentTransactionRepository = paymentTransactionRepository;
         this.paymentRepository = paymentRepository;
+        this.dailyRollupService = dailyRollupService;
     }
 
     // Create transaction
@@ -64,32 +70,43 @@ public class PaymentTransactionService {
 
     // Get transactions by payment ID
     @Transactional(readOnly = true)
-    public List<PaymentTransactionResponse> getTransactionsByPaymentId(UUID paymentId) {
+    public CursorPage<PaymentTransactionResponse> getTransactionsByPaymentId(UUID paymentId, String cursor, int limit) {
         logger.debug("Fetching transactions for payment: {}", paymentId);
 
-        return paymentTransactionRepository.findByPaymentIdOrderByCreatedAtDesc(paymentId).stream()
-                .map(PaymentTransactionResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<PaymentTransaction> rows = paymentTransactionRepository.findPageByPaymentIdBefore(paymentId,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentTransactionService::cursorOf, PaymentTransactionResponse::from);
     }
 
     // Get transactions by status
     @Transactional(readOnly = true)
-    public List<PaymentTransactionResponse> getTransactionsByStatus(PaymentTransaction.TransactionStatus status) {
+    public CursorPage<PaymentTransactionResponse> getTransactionsByStatus(PaymentTransaction.TransactionStatus status,
+                                                                         String cursor, int limit) {
         logger.debug("Fetching transactions by status: {}", status);
 
-        return paymentTransactionRepository.findByStatusOrderByCreatedAtDesc(status).stream()
-                .map(PaymentTransactionResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<PaymentTransaction> rows = paymentTransactionRepository.findPageByStatusBefore(status,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentTransactionService::cursorOf, PaymentTransactionResponse::from);
     }
 
     // Get transactions by type
     @Transactional(readOnly = true)
-    public List<PaymentTransactionResponse> getTransactionsByType(PaymentTransaction.TransactionType transactionType) {
+    public CursorPage<PaymentTransactionResponse> getTransactionsByType(PaymentTransaction.TransactionType transactionType,
+                                                                       String cursor, int limit) {
         logger.debug("Fetching transactions by type: {}", transactionType);
 
-        return paymentTransactionRepository.findByTransactionTypeOrderByCreatedAtDesc(transactionType).stream()
-                .map(PaymentTransactionResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<PaymentTransaction> rows = paymentTransactionRepository.findPageByTypeBefore(transactionType,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentTransactionService::cursorOf, PaymentTransactionResponse::from);
     }
 
     // Get transaction by gateway transaction ID
@@ -143,24 +160,30 @@ public class PaymentTransactionService {
         return PaymentTransactionResponse.from(failedTransaction);
     }
 
-    // Get pending transactions
+    // Get pending transactions, oldest first
     @Transactional(readOnly = true)
-    public List<PaymentTransactionResponse> getPendingTransactions() {
+    public CursorPage<PaymentTransactionResponse> getPendingTransactions(String cursor, int limit) {
         logger.debug("Fetching pending transactions");
 
-        return paymentTransactionRepository.findPendingTransactions().stream()
-                .map(PaymentTransactionResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.ascendingStart());
+        List<PaymentTransaction> rows = paymentTransactionRepository.findPendingPageAfter(
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentTransactionService::cursorOf, PaymentTransactionResponse::from);
     }
 
     // Get failed transactions
     @Transactional(readOnly = true)
-    public List<PaymentTransactionResponse> getFailedTransactions() {
+    public CursorPage<PaymentTransactionResponse> getFailedTransactions(String cursor, int limit) {
         logger.debug("Fetching failed transactions");
 
-        return paymentTransactionRepository.findFailedTransactions().stream()
-                .map(PaymentTransactionResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<PaymentTransaction> rows = paymentTransactionRepository.findPageByStatusBefore(PaymentTransaction.TransactionStatus.FAILED,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, PaymentTransactionService::cursorOf, PaymentTransactionResponse::from);
     }
 
     // Get old pending transactions (for cleanup)
@@ -192,28 +215,40 @@ public class PaymentTransactionService {
                 .map(PaymentTransactionResponse::from);
     }
 
-    // Get transaction statistics
+    // Get transaction statistics (served from the daily rollups; raw rows only for boundary and changed days)
     @Transactional(readOnly = true)
     public Map<String, Object> getTransactionStatistics(LocalDateTime startDate, LocalDateTime endDate) {
         logger.debug("Fetching transaction statistics");
 
         try {
-            List<Object[]> typeStats = paymentTransactionRepository.getTransactionStatisticsByType(startDate, endDate);
-            List<Object[]> statusStats = paymentTransactionRepository.getTransactionStatisticsByStatus(startDate, endDate);
-
-            long totalTransactions = paymentTransactionRepository.countByCreatedAtBetween(startDate, endDate);
-            long completedTransactions = paymentTransactionRepository.countByStatusAndCreatedAtBetween(
-                    PaymentTransaction.TransactionStatus.COMPLETED, startDate, endDate);
-            long failedTransactions = paymentTransactionRepository.countByStatusAndCreatedAtBetween(
-                    PaymentTransaction.TransactionStatus.FAILED, startDate, endDate);
-            long pendingTransactions = paymentTransactionRepository.countByStatusAndCreatedAtBetween(
-                    PaymentTransaction.TransactionStatus.PENDING, startDate, endDate);
+            Map<PaymentTransaction.TransactionType, DailyRollupService.Totals> byType =
+                    new EnumMap<>(PaymentTransaction.TransactionType.class);
+            Map<PaymentTransaction.TransactionStatus, DailyRollupService.Totals> byStatus =
+                    new EnumMap<>(PaymentTransaction.TransactionStatus.class);
+
+            // Keys: type, status, currency; amounts: amount
+            for (DailyRollupService.Bucket bucket : dailyRollupService.aggregate(DailyRollup.TRANSACTIONS, startDate, endDate)) {
+                String status = bucket.key(1);
+                byType.computeIfAbsent(PaymentTransaction.TransactionType.valueOf(bucket.key(0)), key -> new DailyRollupService.Totals())
+                        .add(bucket, BigDecimal.ZERO, status);
+                byStatus.computeIfAbsent(PaymentTransaction.TransactionStatus.valueOf(status), key -> new DailyRollupService.Totals())
+                        .add(bucket, BigDecimal.ZERO, status);
+            }
+
+            List<Object[]> typeStats = byType.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue().getCount(), a.getValue().getCount()))
+                    .map(entry -> new Object[] {entry.getKey(), entry.getValue().getCount(), entry.getValue().getAmount(),
+                            entry.getValue().getCompleted(), entry.getValue().getFailed()})
+                    .toList();
+            List<Object[]> statusStats = byStatus.entrySet().stream()
+                    .map(entry -> new Object[] {entry.getKey(), entry.getValue().getCount(), entry.getValue().getAmount()})
+                    .toList();
 
             return Map.of(
-                    "totalTransactions", totalTransactions,
-                    "completedTransactions", completedTransactions,
-                    "failedTransactions", failedTransactions,
-                    "pendingTransactions", pendingTransactions,
+                    "totalTransactions", byStatus.values().stream().mapToLong(DailyRollupService.Totals::getCount).sum(),
+                    "completedTransactions", countOf(byStatus, PaymentTransaction.TransactionStatus.COMPLETED),
+                    "failedTransactions", countOf(byStatus, PaymentTransaction.TransactionStatus.FAILED),
+                    "pendingTransactions", countOf(byStatus, PaymentTransaction.TransactionStatus.PENDING),
                     "transactionsByType", typeStats,
                     "transactionsByStatus", statusStats,
                     "dateRange", Map.of(
@@ -230,6 +265,16 @@ public class PaymentTransactionService {
         }
     }
 
+    private static long countOf(Map<PaymentTransaction.TransactionStatus, DailyRollupService.Totals> byStatus,
+                                PaymentTransaction.TransactionStatus status) {
+        DailyRollupService.Totals totals = byStatus.get(status);
+        return totals != null ? totals.getCount() : 0L;
+    }
+
+    private static PageCursor cursorOf(PaymentTransaction transaction) {
+        return new PageCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+
     // Add missing repository methods in PaymentTransactionRepository
     // (These should be added to PaymentTransactionRepository.java)
     /*
@@ -0,0 +1,86 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.dto.SearchCursor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+// Search over the generated search_text columns (see schema.sql): whole words through the tsvector index,
+// substrings of references and free text through the trigram index
+@Service
+public class PostgresPaymentSearchService implements PaymentSearchService {
+
+    // Word matches rank above substring matches; rounded so the score can be compared exactly in the cursor
+    private static final String SCORE =
+            "ROUND(CAST(ts_rank(to_tsvector('simple', t.search_text), websearch_to_tsquery('simple', :term)) " +
+            "+ word_similarity(:term, t.search_text) AS numeric), 6)";
+
+    private static final String MATCHES =
+            "(to_tsvector('simple', t.search_text) @@ websearch_to_tsquery('simple', :term) " +
+            "OR t.search_text LIKE :pattern)";
+
+    private static final String PAGE =
+            ") hits WHERE (score, created_at, id) < (:cursorScore, :cursorAt, :cursorId) " +
+            "ORDER BY score DESC, created_at DESC, id DESC LIMIT :limit";
+
+    private static final String PAYMENT_SEARCH_SQL =
+            "SELECT id, created_at, score FROM (" +
+            "SELECT t.id, t.created_at, " + SCORE + " AS score FROM payments t WHERE " + MATCHES +
+            PAGE;
+
+    private static final String REFUND_SCORE =
+            SCORE + " + CASE WHEN p.card_last_four = :term THEN 1 ELSE 0 END AS score ";
+
+    // Refunds also match on the card of the refunded payment. An OR across the two joined tables cannot use
+    // either table's indexes, so each side is its own branch; both compute the same score for a refund,
+    // so UNION folds a refund matched by both into one hit
+    private static final String REFUND_SEARCH_SQL =
+            "SELECT id, created_at, score FROM (" +
+            "SELECT t.id, t.created_at, " + REFUND_SCORE +
+            "FROM refunds t JOIN payments p ON p.id = t.payment_id WHERE " + MATCHES +
+            " UNION " +
+            "SELECT t.id, t.created_at, " + REFUND_SCORE +
+            "FROM payments p JOIN refunds t ON t.payment_id = p.id WHERE p.card_last_four = :term" +
+            PAGE;
+
+    private static final RowMapper<Hit> HIT_MAPPER = (rs, rowNum) -> new Hit(
+            rs.getObject("id", UUID.class),
+            rs.getBigDecimal("score"),
+            rs.getTimestamp("created_at").toLocalDateTime());
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PostgresPaymentSearchService(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Hit> searchPayments(String term, SearchCursor after, int limit) {
+        return jdbcTemplate.query(PAYMENT_SEARCH_SQL, params(term, after, limit), HIT_MAPPER);
+    }
+
+    @Override
+    public List<Hit> searchRefunds(String term, SearchCursor after, int limit) {
+        return jdbcTemplate.query(REFUND_SEARCH_SQL, params(term, after, limit), HIT_MAPPER);
+    }
+
+    private static MapSqlParameterSource params(String term, SearchCursor after, int limit) {
+        String normalized = term.trim().toLowerCase(Locale.ROOT);
+        return new MapSqlParameterSource()
+                .addValue("term", normalized)
+                .addValue("pattern", "%" + escapeLike(normalized) + "%")
+                .addValue("cursorScore", after.score())
+                .addValue("cursorAt", after.createdAt())
+                .addValue("cursorId", after.id())
+                .addValue("limit", limit);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
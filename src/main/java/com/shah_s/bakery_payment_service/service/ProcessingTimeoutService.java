@@ -0,0 +1,153 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Fails PROCESSING payments whose gateway call never reported back (the worker died mid-call), so they do not stay
+// claimed forever. They are not retried automatically since the gateway may have captured them; a late gateway
+// answer or a success webhook still settles them, otherwise PROCESSING_TIMEOUT marks them for review.
+@Service
+public class ProcessingTimeoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingTimeoutService.class);
+
+    public static final String TIMEOUT_REASON = "Gateway call did not report back; needs review";
+
+    public static final String TIMEOUT_CODE = "PROCESSING_TIMEOUT";
+
+    private static final String TIME_OUT_CHUNK_SQL =
+            "WITH claimed AS (" +
+            "SELECT id FROM payments WHERE status = 'PROCESSING' AND processing_started_at < :staleBefore " +
+            "ORDER BY processing_started_at LIMIT :chunkSize FOR UPDATE SKIP LOCKED) " +
+            "UPDATE payments p SET status = 'FAILED', failed_at = :now, processing_started_at = NULL, " +
+            "failure_reason = :reason, failure_code = :code, next_retry_at = NULL, " +
+            "version = p.version + 1, updated_at = now() " +
+            "FROM claimed WHERE p.id = claimed.id " +
+            "RETURNING p.id, p.order_id, p.payment_reference, p.amount";
+
+    private static final String STALE_COUNT_SQL =
+            "SELECT COUNT(*) FROM payments WHERE status = 'PROCESSING' AND processing_started_at < :staleBefore";
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private OrderNotificationService orderNotificationService;
+
+    final private PaymentMetrics paymentMetrics;
+
+    final private Duration timeout;
+
+    final private int chunkSize;
+
+    final private int maxChunks;
+
+    final private Counter timedOut;
+
+    // Stale claims found by the last pass
+    private volatile long staleClaims;
+
+    public ProcessingTimeoutService(NamedParameterJdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    OrderNotificationService orderNotificationService,
+                                    PaymentMetrics paymentMetrics,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${payment.processing-timeout.timeout:5m}") Duration timeout,
+                                    @Value("${payment.processing-timeout.chunk-size:200}") int chunkSize,
+                                    @Value("${payment.processing-timeout.max-chunks:50}") int maxChunks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.orderNotificationService = orderNotificationService;
+        this.paymentMetrics = paymentMetrics;
+        this.timeout = timeout;
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+
+        this.timedOut = Counter.builder("payment.processing.timeouts")
+                .description("PROCESSING payments failed for review after their gateway call never reported back")
+                .register(meterRegistry);
+        Gauge.builder("payment.processing.stale", this, service -> service.staleClaims)
+                .description("PROCESSING payments whose gateway call outlived the timeout, as of the last pass")
+                .register(meterRegistry);
+    }
+
+    // Fail stale claims chunk by chunk; a backlog larger than maxChunks is finished by the next run
+    @Scheduled(fixedDelayString = "${payment.processing-timeout.sweep-interval:60000}")
+    public void sweep() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(timeout);
+        staleClaims = countStale(staleBefore);
+        if (staleClaims == 0) {
+            return;
+        }
+
+        int total = 0;
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<TimedOutPayment> payments;
+            try {
+                payments = transactionTemplate.execute(status -> timeOutChunk(staleBefore));
+            } catch (Exception e) {
+                logger.error("Failed to time out stale processing payments: {}", e.getMessage());
+                break;
+            }
+
+            payments.forEach(payment -> orderNotificationService.notifyPaymentStatus(payment.orderId(), payment.id(),
+                    payment.paymentReference(), Payment.PaymentStatus.FAILED, payment.amount(), TIMEOUT_REASON));
+
+            total += payments.size();
+            if (payments.size() < chunkSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            logger.warn("Failed {} payments whose gateway call did not report back within {}", total, timeout);
+        }
+    }
+
+    private List<TimedOutPayment> timeOutChunk(LocalDateTime staleBefore) {
+        List<TimedOutPayment> payments = jdbcTemplate.query(TIME_OUT_CHUNK_SQL, new MapSqlParameterSource()
+                .addValue("staleBefore", staleBefore)
+                .addValue("now", LocalDateTime.now())
+                .addValue("chunkSize", chunkSize)
+                .addValue("reason", TIMEOUT_REASON)
+                .addValue("code", TIMEOUT_CODE), (rs, rowNum) -> new TimedOutPayment(
+                rs.getObject("id", UUID.class),
+                rs.getObject("order_id", UUID.class),
+                rs.getString("payment_reference"),
+                rs.getBigDecimal("amount")));
+
+        timedOut.increment(payments.size());
+        paymentMetrics.transition(Payment.PaymentStatus.PROCESSING, Payment.PaymentStatus.FAILED, payments.size());
+        payments.forEach(payment -> paymentMetrics.paymentFailure(TIMEOUT_CODE));
+        return payments;
+    }
+
+    private long countStale(LocalDateTime staleBefore) {
+        try {
+            Long count = jdbcTemplate.queryForObject(STALE_COUNT_SQL,
+                    new MapSqlParameterSource("staleBefore", staleBefore), Long.class);
+            return count != null ? count : 0;
+        } catch (Exception e) {
+            logger.warn("Failed to count stale processing payments: {}", e.getMessage());
+            return staleClaims;
+        }
+    }
+
+    private record TimedOutPayment(UUID id, UUID orderId, String paymentReference, BigDecimal amount) {}
+}
@@ -0,0 +1,217 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.repository.RefundRepository;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService.PaymentGatewayResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Service
+public class RefundProcessingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefundProcessingService.class);
+
+    // Matches only an open refund the gateway has not seen yet and no other worker is sending, so a duplicate
+    // or stale outbox event never refunds twice
+    private static final String CLAIM_SQL =
+            "UPDATE refunds SET status = 'PROCESSING', processing_started_at = :now, updated_at = now() " +
+            "WHERE id = :id AND status IN ('PENDING', 'PROCESSING') " +
+            "AND processing_started_at IS NULL AND gateway_refund_id IS NULL";
+
+    final private RefundRepository refundRepository;
+
+    final private PaymentRepository paymentRepository;
+
+    final private PaymentGatewayService paymentGatewayService;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private PaymentMetrics paymentMetrics;
+
+    public RefundProcessingService(RefundRepository refundRepository, PaymentRepository paymentRepository, PaymentGatewayService paymentGatewayService, TransactionTemplate transactionTemplate, NamedParameterJdbcTemplate jdbcTemplate, PaymentMetrics paymentMetrics) {
+        this.refundRepository = refundRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentGatewayService = paymentGatewayService;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.paymentMetrics = paymentMetrics;
+    }
+
+    // Drive a refund through the gateway; the gateway call runs outside any database transaction. Returns false
+    // when the breaker or bulkhead turned the call away before it reached the gateway: the refund is back to
+    // PENDING and the caller redelivers it later.
+    public boolean processRefund(UUID refundId) {
+        Refund refund = transactionTemplate.execute(status -> claimRefund(refundId));
+        if (refund == null) {
+            return true;
+        }
+
+        logger.info("Processing refund: {}", refund.getRefundReference());
+
+        PaymentGatewayResponse gatewayResponse;
+        try {
+            gatewayResponse = paymentGatewayService.processRefund(refund);
+        } catch (Exception e) {
+            logger.error("Refund processing failed: {} - {}", refund.getRefundReference(), e.getMessage());
+
+            transactionTemplate.executeWithoutResult(status -> applyProcessingError(refundId, e));
+            return true;
+        }
+
+        if (PaymentGatewayService.isTransientFailure(gatewayResponse.getFailureCode())) {
+            logger.warn("Refund {} deferred: {}", refund.getRefundReference(), gatewayResponse.getGatewayResponse());
+            boolean released = Boolean.TRUE.equals(transactionTemplate.execute(status -> releaseClaim(refundId)));
+            return !released;
+        }
+
+        Refund processedRefund = transactionTemplate.execute(status -> applyGatewayResponse(refundId, gatewayResponse));
+
+        logger.info("Refund processing completed: {} status: {}",
+                   processedRefund.getRefundReference(), processedRefund.getStatus());
+        return true;
+    }
+
+    private Refund claimRefund(UUID refundId) {
+        int claimed = jdbcTemplate.update(CLAIM_SQL, new MapSqlParameterSource()
+                .addValue("id", refundId)
+                .addValue("now", LocalDateTime.now()));
+
+        // Loaded after the claim so the refund handed to the gateway is the claimed one
+        Refund refund = refundRepository.findWithPaymentById(refundId)
+                .orElseThrow(() -> new PaymentServiceException("Refund not found with ID: " + refundId));
+
+        // Rejected or settled while the event was queued, already with the gateway, or another worker is sending it
+        if (claimed == 0) {
+            logger.info("Skipping processing of refund {} in status {}",
+                       refund.getRefundReference(), refund.getStatus());
+            return null;
+        }
+
+        return refund;
+    }
+
+    // Apply an outcome the gateway reported by webhook (joins the caller's transaction); null once the refund has settled
+    public Refund applyReportedOutcome(UUID refundId, PaymentGatewayResponse gatewayResponse) {
+        Refund refund = findRefund(refundId);
+        return isOpen(refund) ? applyOutcome(refund, gatewayResponse) : null;
+    }
+
+    private Refund applyGatewayResponse(UUID refundId, PaymentGatewayResponse gatewayResponse) {
+        Refund refund = findRefund(refundId);
+
+        // A webhook may have settled the refund while the gateway call was in flight
+        if (!isOpen(refund)) {
+            logger.info("Refund {} already settled as {}; gateway response not applied",
+                       refund.getRefundReference(), refund.getStatus());
+            return refund;
+        }
+
+        return applyOutcome(refund, gatewayResponse);
+    }
+
+    private Refund applyOutcome(Refund refund, PaymentGatewayResponse gatewayResponse) {
+        boolean completing = gatewayResponse.isSuccess() && isOpen(refund);
+        boolean failing = !gatewayResponse.isSuccess() && !gatewayResponse.isPending() && isOpen(refund);
+
+        // Update refund based on gateway response
+        if (gatewayResponse.isSuccess()) {
+            refund.setStatus(Refund.RefundStatus.COMPLETED);
+            refund.setCompletedAt(LocalDateTime.now());
+        } else if (gatewayResponse.isPending()) {
+            refund.setStatus(Refund.RefundStatus.PROCESSING);
+        } else {
+            refund.setStatus(Refund.RefundStatus.FAILED);
+            refund.setFailedAt(LocalDateTime.now());
+            refund.setFailureReason(gatewayResponse.getGatewayResponse());
+            refund.setFailureCode(gatewayResponse.getFailureCode());
+        }
+        refund.setProcessingStartedAt(null);
+        paymentMetrics.refundOutcome(refund.getStatus(), refund.getFailureCode());
+
+        // Update gateway information
+        refund.setGatewayRefundId(gatewayResponse.getGatewayTransactionId());
+        refund.setGatewayResponse(gatewayResponse.getGatewayResponse());
+        refund.setGatewayRawResponse(gatewayResponse.getRawResponse());
+
+        Refund savedRefund = refundRepository.save(refund);
+
+        // Count the refund against the payment and update its status if fully refunded
+        if (completing) {
+            recordCompletedRefund(savedRefund);
+        } else if (failing) {
+            paymentRepository.releaseRefundReservation(savedRefund.getPayment().getId(), savedRefund.getAmount());
+        }
+
+        return savedRefund;
+    }
+
+    // Hand the refund back as PENDING with its reservation kept; false when a webhook settled it meanwhile
+    private Boolean releaseClaim(UUID refundId) {
+        Refund refund = findRefund(refundId);
+        if (!isOpen(refund)) {
+            return false;
+        }
+
+        refund.setStatus(Refund.RefundStatus.PENDING);
+        refund.setProcessingStartedAt(null);
+        refundRepository.save(refund);
+        return true;
+    }
+
+    private void applyProcessingError(UUID refundId, Exception e) {
+        Refund refund = findRefund(refundId);
+
+        // Settled by a webhook while the gateway call was in flight; its outcome stands
+        if (!isOpen(refund)) {
+            logger.info("Refund {} already settled as {}; processing error not applied",
+                       refund.getRefundReference(), refund.getStatus());
+            return;
+        }
+
+        paymentRepository.releaseRefundReservation(refund.getPayment().getId(), refund.getAmount());
+        refund.setStatus(Refund.RefundStatus.FAILED);
+        refund.setFailedAt(LocalDateTime.now());
+        refund.setFailureReason("Refund processing error: " + e.getMessage());
+        refund.setProcessingStartedAt(null);
+        refundRepository.save(refund);
+        paymentMetrics.refundOutcome(Refund.RefundStatus.FAILED, PaymentMetrics.PROCESSING_ERROR);
+    }
+
+    private void recordCompletedRefund(Refund refund) {
+        Payment payment = refund.getPayment();
+
+        if (paymentRepository.recordCompletedRefund(payment.getId(), refund.getAmount()) == 0) {
+            logger.error("Refund {} would exceed the refundable amount of payment {}",
+                        refund.getRefundReference(), payment.getPaymentReference());
+            throw new PaymentServiceException("Refund " + refund.getRefundReference()
+                    + " exceeds refundable amount of payment " + payment.getPaymentReference());
+        }
+
+        if (paymentRepository.markRefundedIfFullyRefunded(payment.getId()) > 0) {
+            paymentMetrics.transition(Payment.PaymentStatus.COMPLETED, Payment.PaymentStatus.REFUNDED);
+            logger.info("Payment {} marked as fully refunded", payment.getPaymentReference());
+        }
+    }
+
+    // Pending and processing refunds still hold a reservation on the payment's balance
+    private static boolean isOpen(Refund refund) {
+        return refund.getStatus() == Refund.RefundStatus.PENDING || refund.getStatus() == Refund.RefundStatus.PROCESSING;
+    }
+
+    private Refund findRefund(UUID refundId) {
+        return refundRepository.findById(refundId)
+                .orElseThrow(() -> new PaymentServiceException("Refund not found with ID: " + refundId));
+    }
+}
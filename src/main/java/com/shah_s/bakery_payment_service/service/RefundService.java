@@ -1,29 +1,36 @@
 package com.shah_s.bakery_payment_service.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.dto.CursorPage;
+import com.shah_s.bakery_payment_service.dto.PageCursor;
 import com.shah_s.bakery_payment_service.dto.RefundRequest;
 import com.shah_s.bakery_payment_service.dto.RefundResponse;
+import com.shah_s.bakery_payment_service.dto.SearchCursor;
 import com.shah_s.bakery_payment_service.entity.Payment;
 import com.shah_s.bakery_payment_service.entity.Refund;
 import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
 import com.shah_s.bakery_payment_service.repository.PaymentRepository;
 import com.shah_s.bakery_payment_service.repository.RefundRepository;
-import com.shah_s.bakery_payment_service.service.PaymentGatewayService.PaymentGatewayResponse;
+import com.shah_s.bakery_payment_service.repository.RefundSpecifications;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,15 +43,24 @@ public class RefundService {
 
     final private PaymentRepository paymentRepository;
 
-    final private PaymentGatewayService paymentGatewayService;
+    final private OutboxService outboxService;
 
     final private ObjectMapper objectMapper;
 
-    public RefundService(RefundRepository refundRepository, PaymentRepository paymentRepository, PaymentGatewayService paymentGatewayService, ObjectMapper objectMapper) {
+    final private DailyRollupService dailyRollupService;
+
+    final private PaymentSearchService paymentSearchService;
+
+    @Value("${payment.refund.reservation-attempts:5}")
+    private int reservationAttempts;
+
+    public RefundService(RefundRepository refundRepository, PaymentRepository paymentRepository, OutboxService outboxService, ObjectMapper objectMapper, DailyRollupService dailyRollupService, PaymentSearchService paymentSearchService) {
         this.refundRepository = refundRepository;
         this.paymentRepository = paymentRepository;
-        this.paymentGatewayService = paymentGatewayService;
+        this.outboxService = outboxService;
         this.objectMapper = objectMapper;
+        this.dailyRollupService = dailyRollupService;
+        this.paymentSearchService = paymentSearchService;
     }
 
     // Create refund
@@ -56,8 +72,9 @@ public class RefundService {
             Payment payment = paymentRepository.findById(request.getPaymentId())
                     .orElseThrow(() -> new PaymentServiceException("Payment not found with ID: " + request.getPaymentId()));
 
-            // Validate refund request
+            // Validate refund request, then hold the amount against concurrent refunds of the same payment
             validateRefundRequest(payment, request);
+            reserveRefundableAmount(payment, request.getAmount());
 
             // Create refund entity
             Refund refund = new Refund(payment, request.getAmount(), request.getReason(), request.getRequestedBy());
@@ -71,8 +88,8 @@ public class RefundService {
             // Save refund
             Refund savedRefund = refundRepository.save(refund);
 
-            // Process refund asynchronously
-            processRefundAsync(savedRefund);
+            // Hand off to the outbox workers; committed together with the refund
+            outboxService.enqueueRefund(savedRefund.getId());
 
             logger.info("Refund created successfully: {}", savedRefund.getRefundReference());
             return RefundResponse.from(savedRefund);
@@ -83,6 +100,50 @@ public class RefundService {
         }
     }
 
+    // Create several refunds in one unit of work; inserts go to the database in JDBC batches
+    public List<RefundResponse> createRefunds(List<RefundRequest> requests) {
+        logger.info("Creating {} refunds in bulk", requests.size());
+
+        Map<UUID, Payment> payments = paymentRepository.findAllById(requests.stream()
+                        .map(RefundRequest::getPaymentId).distinct().toList()).stream()
+                .collect(Collectors.toMap(Payment::getId, Function.identity()));
+
+        // Refunds in the same request must not jointly exceed what the payment can refund. Sorted by payment id, so
+        // concurrent bulk requests lock shared payments in the same order instead of deadlocking
+        Map<UUID, BigDecimal> requestedPerPayment = new TreeMap<>();
+        List<Refund> refunds = new ArrayList<>(requests.size());
+        for (RefundRequest request : requests) {
+            Payment payment = payments.get(request.getPaymentId());
+            if (payment == null) {
+                throw new PaymentServiceException("Payment not found with ID: " + request.getPaymentId());
+            }
+
+            validateRefundRequest(payment, request);
+            BigDecimal requested = requestedPerPayment.merge(payment.getId(), request.getAmount(), BigDecimal::add);
+            if (requested.compareTo(payment.getRefundableAmount()) > 0) {
+                throw new PaymentServiceException("Refunds for payment " + payment.getPaymentReference()
+                        + " exceed refundable amount: " + payment.getRefundableAmount());
+            }
+
+            Refund refund = new Refund(payment, request.getAmount(), request.getReason(), request.getRequestedBy());
+            refund.setNotes(request.getNotes());
+            if (request.getMetadata() != null) {
+                refund.setMetadata(convertMetadataToJson(request.getMetadata()));
+            }
+            refunds.add(refund);
+        }
+
+        requestedPerPayment.forEach((paymentId, amount) -> reserveRefundableAmount(payments.get(paymentId), amount));
+
+        List<Refund> savedRefunds = refundRepository.saveAll(refunds);
+        outboxService.enqueueRefunds(savedRefunds.stream().map(Refund::getId).toList());
+
+        logger.info("Bulk refund created {} refunds across {} payments", savedRefunds.size(), payments.size());
+        return savedRefunds.stream()
+                .map(RefundResponse::from)
+                .collect(Collectors.toList());
+    }
+
     // Get refund by ID
     @Transactional(readOnly = true)
     public RefundResponse getRefundById(UUID refundId) {
@@ -107,41 +168,54 @@ public class RefundService {
 
     // Get refunds by payment ID
     @Transactional(readOnly = true)
-    public List<RefundResponse> getRefundsByPaymentId(UUID paymentId) {
+    public CursorPage<RefundResponse> getRefundsByPaymentId(UUID paymentId, String cursor, int limit) {
         logger.debug("Fetching refunds for payment: {}", paymentId);
 
-        return refundRepository.findByPaymentIdOrderByCreatedAtDesc(paymentId).stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Refund> rows = refundRepository.findPageByPaymentIdBefore(paymentId,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
     // Get refunds by status
     @Transactional(readOnly = true)
-    public List<RefundResponse> getRefundsByStatus(Refund.RefundStatus status) {
+    public CursorPage<RefundResponse> getRefundsByStatus(Refund.RefundStatus status, String cursor, int limit) {
         logger.debug("Fetching refunds by status: {}", status);
 
-        return refundRepository.findByStatusOrderByCreatedAtDesc(status).stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Refund> rows = refundRepository.findPageByStatusBefore(status,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
-    // Get all refunds with pagination
+    // Get all refunds, newest first
     @Transactional(readOnly = true)
-    public Page<RefundResponse> getAllRefunds(Pageable pageable) {
-        logger.debug("Fetching all refunds with pagination");
+    public CursorPage<RefundResponse> getAllRefunds(String cursor, int limit) {
+        logger.debug("Fetching all refunds page");
 
-        return refundRepository.findAll(pageable)
-                .map(RefundResponse::from);
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Refund> rows = refundRepository.findPageBefore(
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
     // Get refunds by user
     @Transactional(readOnly = true)
-    public List<RefundResponse> getRefundsByUser(UUID userId) {
+    public CursorPage<RefundResponse> getRefundsByUser(UUID userId, String cursor, int limit) {
         logger.debug("Fetching refunds requested by user: {}", userId);
 
-        return refundRepository.findByRequestedByOrderByCreatedAtDesc(userId).stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Refund> rows = refundRepository.findPageByRequestedByBefore(userId,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
     // Approve refund
@@ -159,11 +233,9 @@ public class RefundService {
         refund.setApprovedBy(approvedBy);
         refund.setProcessedAt(LocalDateTime.now());
 
+        // Still driven by the event createRefund queued; a second event would only race it to the gateway
         Refund approvedRefund = refundRepository.save(refund);
 
-        // Process refund asynchronously
-        processRefundAsync(approvedRefund);
-
         logger.info("Refund approved: {}", refundId);
         return RefundResponse.from(approvedRefund);
     }
@@ -185,56 +257,79 @@ public class RefundService {
         refund.setApprovedBy(rejectedBy); // Track who rejected it
 
         Refund rejectedRefund = refundRepository.save(refund);
+        paymentRepository.releaseRefundReservation(refund.getPayment().getId(), refund.getAmount());
         logger.info("Refund rejected: {}", refundId);
 
         return RefundResponse.from(rejectedRefund);
     }
 
-    // Get pending refunds
+    // Get pending refunds, oldest first
     @Transactional(readOnly = true)
-    public List<RefundResponse> getPendingRefunds() {
+    public CursorPage<RefundResponse> getPendingRefunds(String cursor, int limit) {
         logger.debug("Fetching pending refunds");
 
-        return refundRepository.findPendingRefunds().stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.ascendingStart());
+        List<Refund> rows = refundRepository.findPendingPageAfter(
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
     // Get completed refunds
     @Transactional(readOnly = true)
-    public List<RefundResponse> getCompletedRefunds() {
+    public CursorPage<RefundResponse> getCompletedRefunds(String cursor, int limit) {
         logger.debug("Fetching completed refunds");
 
-        return refundRepository.findCompletedRefunds().stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Refund> rows = refundRepository.findPageByStatusBefore(Refund.RefundStatus.COMPLETED,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
     // Get failed refunds
     @Transactional(readOnly = true)
-    public List<RefundResponse> getFailedRefunds() {
+    public CursorPage<RefundResponse> getFailedRefunds(String cursor, int limit) {
         logger.debug("Fetching failed refunds");
 
-        return refundRepository.findFailedRefunds().stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        List<Refund> rows = refundRepository.findPageByStatusBefore(Refund.RefundStatus.FAILED,
+                position.createdAt(), position.id(), CursorPage.probe(pageSize));
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
-    // Get refund statistics
+    // Get refund statistics (served from the daily rollups; raw rows only for boundary and changed days)
     @Transactional(readOnly = true)
     public Map<String, Object> getRefundStatistics(LocalDateTime startDate, LocalDateTime endDate) {
         logger.debug("Fetching refund statistics");
 
         try {
-            Object[] successRate = refundRepository.getRefundSuccessRate(startDate, endDate);
-            List<Object[]> statusStats = refundRepository.getRefundStatisticsByStatus(startDate, endDate);
-            BigDecimal totalRefundAmount = refundRepository.getTotalRefundAmountByDateRange(startDate, endDate);
+            Map<Refund.RefundStatus, DailyRollupService.Totals> byStatus = new EnumMap<>(Refund.RefundStatus.class);
+
+            // Keys: status, currency; amounts: amount
+            for (DailyRollupService.Bucket bucket : dailyRollupService.aggregate(DailyRollup.REFUNDS, startDate, endDate)) {
+                byStatus.computeIfAbsent(Refund.RefundStatus.valueOf(bucket.key(0)), key -> new DailyRollupService.Totals())
+                        .add(bucket, BigDecimal.ZERO, bucket.key(0));
+            }
+
+            long totalRefunds = byStatus.values().stream().mapToLong(DailyRollupService.Totals::getCount).sum();
+            BigDecimal totalRefundAmount = byStatus.values().stream()
+                    .map(DailyRollupService.Totals::getAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            List<Object[]> statusStats = byStatus.entrySet().stream()
+                    .map(entry -> new Object[] {entry.getKey(), entry.getValue().getCount(), entry.getValue().getAmount(),
+                            entry.getValue().getAverage()})
+                    .toList();
 
             return Map.of(
-                    "totalRefunds", successRate[0],
-                    "successfulRefunds", successRate[1],
-                    "failedRefunds", successRate[2],
-                    "pendingRefunds", successRate[3],
+                    "totalRefunds", totalRefunds,
+                    "successfulRefunds", countOf(byStatus, Refund.RefundStatus.COMPLETED),
+                    "failedRefunds", countOf(byStatus, Refund.RefundStatus.FAILED),
+                    "pendingRefunds", countOf(byStatus, Refund.RefundStatus.PENDING),
                     "totalRefundAmount", totalRefundAmount,
                     "refundsByStatus", statusStats,
                     "dateRange", Map.of(
@@ -251,74 +346,50 @@ public class RefundService {
         }
     }
 
-    // Search refunds
+    // Search refunds by reference, reason, notes or the card last four of the payment; best matches first
     @Transactional(readOnly = true)
-    public List<RefundResponse> searchRefunds(String searchTerm) {
-        logger.debug("Searching refunds with term: {}", searchTerm);
-
-        return refundRepository.searchRefundsByText(searchTerm).stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+    public CursorPage<RefundResponse> searchRefunds(String searchTerm, String cursor, int limit) {
+        String term = PaymentSearchService.requireTerm(searchTerm);
+        logger.debug("Searching refunds with term: {}", term);
+
+        int pageSize = CursorPage.pageSize(limit);
+        List<PaymentSearchService.Hit> hits = paymentSearchService.searchRefunds(term,
+                SearchCursor.decode(cursor), pageSize + 1);
+        Map<UUID, Refund> refunds = refundRepository.findAllById(hits.stream().map(PaymentSearchService.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Refund::getId, Function.identity()));
+
+        return CursorPage.ofRanked(hits, pageSize, PaymentSearchService.Hit::cursor,
+                        hit -> refunds.containsKey(hit.id()) ? RefundResponse.from(refunds.get(hit.id())) : null)
+                .filter(Objects::nonNull);
     }
 
     // Get refunds with filters
     @Transactional(readOnly = true)
-    public List<RefundResponse> getRefundsWithFilters(Refund.RefundStatus status, UUID requestedBy,
-                                                    UUID approvedBy, BigDecimal minAmount, BigDecimal maxAmount,
-                                                    LocalDateTime startDate, LocalDateTime endDate) {
+    public CursorPage<RefundResponse> getRefundsWithFilters(Refund.RefundStatus status, UUID requestedBy,
+                                                            UUID approvedBy, BigDecimal minAmount, BigDecimal maxAmount,
+                                                            LocalDateTime startDate, LocalDateTime endDate,
+                                                            String cursor, int limit) {
         logger.debug("Fetching refunds with filters");
 
-        return refundRepository.findRefundsWithFilters(status, requestedBy, approvedBy,
-                                                      minAmount, maxAmount, startDate, endDate).stream()
-                .map(RefundResponse::from)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.pageSize(limit);
+        PageCursor position = PageCursor.decode(cursor, PageCursor.descendingStart());
+        Specification<Refund> filters = RefundSpecifications.withFilters(status, requestedBy, approvedBy,
+                minAmount, maxAmount, startDate, endDate);
+        List<Refund> rows = refundRepository.findBy(filters.and(RefundSpecifications.before(position)),
+                query -> query.sortBy(RefundSpecifications.NEWEST_FIRST).limit(pageSize + 1).all());
+
+        return CursorPage.of(rows, pageSize, RefundService::cursorOf, RefundResponse::from);
     }
 
     // Private helper methods
-    @Async
-    protected void processRefundAsync(Refund refund) {
-        logger.info("Processing refund asynchronously: {}", refund.getRefundReference());
-
-        try {
-            // Process through gateway
-            PaymentGatewayResponse gatewayResponse = paymentGatewayService.processRefund(refund);
-
-            // Update refund based on gateway response
-            if (gatewayResponse.isSuccess()) {
-                refund.setStatus(Refund.RefundStatus.COMPLETED);
-                refund.setCompletedAt(LocalDateTime.now());
-            } else if (gatewayResponse.isPending()) {
-                refund.setStatus(Refund.RefundStatus.PROCESSING);
-            } else {
-                refund.setStatus(Refund.RefundStatus.FAILED);
-                refund.setFailedAt(LocalDateTime.now());
-                refund.setFailureReason(gatewayResponse.getGatewayResponse());
-                refund.setFailureCode(gatewayResponse.getFailureCode());
-            }
-
-            // Update gateway information
-            refund.setGatewayRefundId(gatewayResponse.getGatewayTransactionId());
-            refund.setGatewayResponse(gatewayResponse.getGatewayResponse());
-            refund.setGatewayRawResponse(gatewayResponse.getRawResponse());
-
-            // Save refund
-            refundRepository.save(refund);
-
-            // Update payment status if fully refunded
-            updatePaymentRefundStatus(refund.getPayment());
-
-            logger.info("Refund processing completed: {} status: {}",
-                       refund.getRefundReference(), refund.getStatus());
-
-        } catch (Exception e) {
-            logger.error("Refund processing failed: {} - {}", refund.getRefundReference(), e.getMessage());
+    private static long countOf(Map<Refund.RefundStatus, DailyRollupService.Totals> byStatus, Refund.RefundStatus status) {
+        DailyRollupService.Totals totals = byStatus.get(status);
+        return totals != null ? totals.getCount() : 0L;
+    }
 
-            // Update refund as failed
-            refund.setStatus(Refund.RefundStatus.FAILED);
-            refund.setFailedAt(LocalDateTime.now());
-            refund.setFailureReason("Refund processing error: " + e.getMessage());
-            refundRepository.save(refund);
-        }
+    private static PageCursor cursorOf(Refund refund) {
+        return new PageCursor(refund.getCreatedAt(), refund.getId());
     }
 
     private void validateRefundRequest(Payment payment, RefundRequest request) {
@@ -337,15 +408,29 @@ public class RefundService {
         }
     }
 
-    private void updatePaymentRefundStatus(Payment payment) {
-        BigDecimal totalRefunded = payment.getTotalRefundedAmount();
+    // Reserve refundable balance with one conditional update. The update only fails when the balance changed since it
+    // was read, so the balance is re-read and the update retried a bounded number of times.
+    private void reserveRefundableAmount(Payment payment, BigDecimal amount) {
+        for (int attempt = 1; ; attempt++) {
+            PaymentRepository.RefundBalance balance = paymentRepository.findRefundBalance(payment.getId())
+                    .orElseThrow(() -> new PaymentServiceException("Payment not found with ID: " + payment.getId()));
 
-        if (totalRefunded.compareTo(payment.getAmount()) >= 0) {
-            // Payment is fully refunded
-            payment.setStatus(Payment.PaymentStatus.REFUNDED);
-            paymentRepository.save(payment);
+            if (balance.getStatus() != Payment.PaymentStatus.COMPLETED) {
+                throw new PaymentServiceException("Payment cannot be refunded");
+            }
+            if (amount.compareTo(balance.getAvailableAmount()) > 0) {
+                throw new PaymentServiceException("Refund amount exceeds refundable amount: " + balance.getAvailableAmount());
+            }
 
-            logger.info("Payment {} marked as fully refunded", payment.getPaymentReference());
+            if (paymentRepository.reserveRefund(payment.getId(), amount) == 1) {
+                return;
+            }
+            if (attempt >= reservationAttempts) {
+                throw new PaymentServiceException("Payment " + payment.getPaymentReference()
+                        + " is being refunded concurrently, please retry");
+            }
+            logger.debug("Refund reservation for payment {} raced a concurrent change, attempt {}",
+                        payment.getPaymentReference(), attempt);
         }
     }
 
@@ -0,0 +1,332 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.dto.WebhookEventPayload;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.entity.WebhookEvent;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.repository.RefundRepository;
+import com.shah_s.bakery_payment_service.repository.WebhookEventRepository;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService.PaymentGatewayResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+// Applies received webhooks to payments and refunds. A claim takes the oldest events whose ordering key (the payment)
+// has nothing in flight anywhere; each key's events are then applied in occurrence order in one transaction, keys in
+// parallel. Claims are serialized by an advisory lock, so two instances never hold events of the same payment.
+@Component
+public class WebhookEventProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookEventProcessor.class);
+
+    private static final long CLAIM_LOCK_ID = 0x77656268L;
+
+    private static final String CLAIM_LOCK_SQL = "SELECT pg_advisory_xact_lock(" + CLAIM_LOCK_ID + ")";
+
+    private static final String CLAIM_SQL =
+            "WITH busy AS (" +
+            "SELECT DISTINCT ordering_key FROM webhook_events " +
+            "WHERE status = 'PROCESSING' AND locked_at >= :staleBefore AND ordering_key IS NOT NULL), " +
+            "claimed AS (" +
+            "SELECT w.id FROM webhook_events w " +
+            "WHERE (w.status = 'RECEIVED' OR (w.status = 'PROCESSING' AND w.locked_at < :staleBefore)) " +
+            "AND NOT EXISTS (SELECT 1 FROM busy b WHERE b.ordering_key = w.ordering_key) " +
+            "ORDER BY w.id LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+            "UPDATE webhook_events w SET status = 'PROCESSING', locked_at = :now, attempts = w.attempts + 1 " +
+            "FROM claimed WHERE w.id = claimed.id " +
+            "RETURNING w.id, w.ordering_key, w.occurred_at";
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private WebhookEventRepository webhookEventRepository;
+
+    final private PaymentRepository paymentRepository;
+
+    final private RefundRepository refundRepository;
+
+    final private PaymentProcessingService paymentProcessingService;
+
+    final private RefundProcessingService refundProcessingService;
+
+    final private ObjectMapper objectMapper;
+
+    final private TaskExecutor webhookExecutor;
+
+    final private Counter applied;
+
+    final private Counter ignored;
+
+    final private Counter failed;
+
+    @Value("${payment.webhook.batch-size:500}")
+    private int batchSize;
+
+    @Value("${payment.webhook.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    @Value("${payment.webhook.max-retries:5}")
+    private int maxAttempts;
+
+    @Value("${payment.webhook.retention-hours:72}")
+    private int retentionHours;
+
+    public WebhookEventProcessor(NamedParameterJdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 WebhookEventRepository webhookEventRepository,
+                                 PaymentRepository paymentRepository,
+                                 RefundRepository refundRepository,
+                                 PaymentProcessingService paymentProcessingService,
+                                 RefundProcessingService refundProcessingService,
+                                 ObjectMapper objectMapper,
+                                 @Qualifier("webhookExecutor") TaskExecutor webhookExecutor,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentRepository = paymentRepository;
+        this.refundRepository = refundRepository;
+        this.paymentProcessingService = paymentProcessingService;
+        this.refundProcessingService = refundProcessingService;
+        this.objectMapper = objectMapper;
+        this.webhookExecutor = webhookExecutor;
+
+        this.applied = Counter.builder("payment.webhook.events").tag("result", "applied")
+                .description("Webhook events applied to a payment or refund").register(meterRegistry);
+        this.ignored = Counter.builder("payment.webhook.events").tag("result", "ignored")
+                .description("Webhook events with nothing left to change").register(meterRegistry);
+        this.failed = Counter.builder("payment.webhook.events").tag("result", "failed")
+                .description("Webhook event attempts that failed").register(meterRegistry);
+    }
+
+    // Claim a batch, apply it key by key and wait for it, so the next claim sees these keys settled
+    @Scheduled(fixedDelayString = "${payment.webhook.poll-interval:200}")
+    public void poll() {
+        List<ClaimedEvent> events;
+        try {
+            events = transactionTemplate.execute(status -> claim());
+        } catch (Exception e) {
+            logger.error("Failed to claim webhook events: {}", e.getMessage());
+            return;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<ClaimedEvent>> byKey = new LinkedHashMap<>();
+        for (ClaimedEvent event : events) {
+            // Events without a key cannot touch anything; each is its own group
+            String key = event.orderingKey() != null ? event.orderingKey() : event.id().toString();
+            byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(event);
+        }
+
+        List<CompletableFuture<Void>> groups = new ArrayList<>(byKey.size());
+        for (List<ClaimedEvent> group : byKey.values()) {
+            group.sort(Comparator.comparing(ClaimedEvent::occurredAt).thenComparing(ClaimedEvent::id));
+            try {
+                groups.add(CompletableFuture.runAsync(() -> applyGroup(group), webhookExecutor)
+                        .exceptionally(e -> {
+                            logger.error("Failed to apply webhook events: {}", e.getMessage());
+                            return null;
+                        }));
+            } catch (RejectedExecutionException e) {
+                // Pool queue is full; left PROCESSING until the claim goes stale
+                logger.warn("Webhook pool rejected {} events: {}", group.size(), e.getMessage());
+            }
+        }
+        CompletableFuture.allOf(groups.toArray(new CompletableFuture[0])).join();
+
+        logger.debug("Applied {} webhook events for {} payments", events.size(), byKey.size());
+    }
+
+    // Delete applied and ignored events past the retention window
+    @Scheduled(fixedDelayString = "${payment.webhook.cleanup-interval:3600000}")
+    public void purgeProcessed() {
+        int deleted = webhookEventRepository.deleteProcessedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            logger.info("Purged {} processed webhook events", deleted);
+        }
+    }
+
+    private List<ClaimedEvent> claim() {
+        jdbcTemplate.getJdbcTemplate().execute(CLAIM_LOCK_SQL);
+
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(CLAIM_SQL, new MapSqlParameterSource()
+                .addValue("now", now)
+                .addValue("staleBefore", now.minusSeconds(timeoutSeconds))
+                .addValue("batchSize", batchSize), (rs, rowNum) -> new ClaimedEvent(
+                rs.getObject("id", UUID.class),
+                rs.getString("ordering_key"),
+                rs.getTimestamp("occurred_at").toLocalDateTime()));
+    }
+
+    // All of a payment's events in one transaction; if that fails, one at a time so one bad event holds back no other
+    private void applyGroup(List<ClaimedEvent> group) {
+        try {
+            List<Payment> changed = transactionTemplate.execute(status -> {
+                List<Payment> payments = new ArrayList<>();
+                group.forEach(event -> apply(event.id(), payments));
+                return payments;
+            });
+            publish(changed);
+            return;
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                release(group.get(0), e);
+                return;
+            }
+            logger.warn("Webhook batch for {} failed, applying events one by one: {}",
+                       group.get(0).orderingKey(), e.getMessage());
+        }
+
+        for (ClaimedEvent event : group) {
+            try {
+                List<Payment> changed = transactionTemplate.execute(status -> {
+                    List<Payment> payments = new ArrayList<>();
+                    apply(event.id(), payments);
+                    return payments;
+                });
+                publish(changed);
+            } catch (Exception e) {
+                release(event, e);
+            }
+        }
+    }
+
+    private void apply(UUID eventId, List<Payment> changed) {
+        WebhookEvent event = webhookEventRepository.findById(eventId)
+                .orElseThrow(() -> new PaymentServiceException("Webhook event not found: " + eventId));
+        WebhookEventPayload payload = readPayload(event);
+
+        String ignoredReason = switch (payload.getType()) {
+            case WebhookEventPayload.PAYMENT_SUCCEEDED -> applyPaymentOutcome(event, payload, true, changed);
+            case WebhookEventPayload.PAYMENT_FAILED -> applyPaymentOutcome(event, payload, false, changed);
+            case WebhookEventPayload.REFUND_SUCCEEDED -> applyRefundOutcome(event, payload, true);
+            case WebhookEventPayload.REFUND_FAILED -> applyRefundOutcome(event, payload, false);
+            default -> "Unsupported event type";
+        };
+
+        event.setStatus(ignoredReason == null ? WebhookEvent.EventStatus.APPLIED : WebhookEvent.EventStatus.IGNORED);
+        event.setLastError(ignoredReason);
+        event.setLockedAt(null);
+        event.setProcessedAt(LocalDateTime.now());
+
+        if (ignoredReason == null) {
+            applied.increment();
+        } else {
+            ignored.increment();
+            logger.debug("Webhook {} {} ignored: {}", payload.getType(), payload.getId(), ignoredReason);
+        }
+    }
+
+    // Null when applied, otherwise why the event changed nothing
+    private String applyPaymentOutcome(WebhookEvent event, WebhookEventPayload payload, boolean success,
+                                       List<Payment> changed) {
+        if (payload.getPaymentReference() == null) {
+            return "No payment reference";
+        }
+        Payment payment = paymentRepository.findByPaymentReference(payload.getPaymentReference()).orElse(null);
+        if (payment == null) {
+            return "Unknown payment";
+        }
+
+        PaymentGatewayResponse response = PaymentGatewayResponse.builder()
+                .success(success)
+                .pending(false)
+                .gatewayTransactionId(Objects.requireNonNullElse(payload.getGatewayTransactionId(),
+                        Objects.requireNonNullElse(payment.getGatewayPaymentId(), "")))
+                .gatewayResponse(Objects.requireNonNullElse(payload.getMessage(),
+                        success ? "Transaction approved" : "Payment failed"))
+                .rawResponse(event.getPayload())
+                .failureCode(success ? null : Objects.requireNonNullElse(payload.getFailureCode(), "DECLINED"))
+                .gatewayFee(payload.getFee() != null ? payload.getFee()
+                        : Objects.requireNonNullElse(payment.getGatewayFee(), BigDecimal.ZERO))
+                .build();
+
+        Payment updated = paymentProcessingService.applyReportedOutcome(payment.getId(), response);
+        if (updated == null) {
+            return "Payment already " + payment.getStatus();
+        }
+        if (!changed.contains(updated)) {
+            changed.add(updated);
+        }
+        return null;
+    }
+
+    private String applyRefundOutcome(WebhookEvent event, WebhookEventPayload payload, boolean success) {
+        if (payload.getRefundReference() == null) {
+            return "No refund reference";
+        }
+        Refund refund = refundRepository.findByRefundReference(payload.getRefundReference()).orElse(null);
+        if (refund == null) {
+            return "Unknown refund";
+        }
+
+        PaymentGatewayResponse response = PaymentGatewayResponse.builder()
+                .success(success)
+                .pending(false)
+                .gatewayTransactionId(Objects.requireNonNullElse(payload.getGatewayTransactionId(),
+                        Objects.requireNonNullElse(refund.getGatewayRefundId(), "")))
+                .gatewayResponse(Objects.requireNonNullElse(payload.getMessage(),
+                        success ? "Refund processed successfully" : "Refund failed"))
+                .rawResponse(event.getPayload())
+                .failureCode(success ? null : Objects.requireNonNullElse(payload.getFailureCode(), "REFUND_FAILED"))
+                .build();
+
+        return refundProcessingService.applyReportedOutcome(refund.getId(), response) != null
+                ? null : "Refund already " + refund.getStatus();
+    }
+
+    private void publish(List<Payment> changed) {
+        changed.forEach(paymentProcessingService::publishOutcome);
+    }
+
+    private void release(ClaimedEvent event, Exception e) {
+        failed.increment();
+        logger.error("Webhook event {} failed: {}", event.id(), e.getMessage());
+        try {
+            webhookEventRepository.release(List.of(event.id()), String.valueOf(e.getMessage()), maxAttempts,
+                    LocalDateTime.now());
+        } catch (Exception releaseError) {
+            // Left PROCESSING; claimed again once the claim goes stale
+            logger.error("Failed to release webhook event {}: {}", event.id(), releaseError.getMessage());
+        }
+    }
+
+    private WebhookEventPayload readPayload(WebhookEvent event) {
+        try {
+            return objectMapper.readValue(event.getPayload(), WebhookEventPayload.class);
+        } catch (JsonProcessingException e) {
+            throw new PaymentServiceException("Invalid stored webhook payload: " + event.getId(), e);
+        }
+    }
+
+    private record ClaimedEvent(UUID id, String orderingKey, LocalDateTime occurredAt) {}
+}
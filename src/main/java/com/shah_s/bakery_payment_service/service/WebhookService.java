@@ -0,0 +1,185 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shah_s.bakery_payment_service.dto.WebhookEventPayload;
+import com.shah_s.bakery_payment_service.dto.WebhookEventResponse;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.WebhookEvent;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.id.UuidV7;
+import com.shah_s.bakery_payment_service.repository.WebhookEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Webhook intake: verify the signature, append the event, acknowledge. Applying it to payments and refunds is left
+// to WebhookEventProcessor, so a settlement burst costs the gateway one HMAC and one INSERT per delivery.
+@Service
+public class WebhookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookService.class);
+
+    // Redeliveries hit the unique (gateway, event_id) constraint and insert nothing
+    private static final String APPEND_SQL =
+            "INSERT INTO webhook_events (id, gateway, event_id, event_type, payment_reference, refund_reference, " +
+            "ordering_key, payload, occurred_at, received_at, status, attempts) " +
+            "VALUES (:id, :gateway, :eventId, :eventType, :paymentReference, :refundReference, " +
+            ":orderingKey, :payload, :occurredAt, :receivedAt, 'RECEIVED', 0) " +
+            "ON CONFLICT (gateway, event_id) DO NOTHING";
+
+    private static final int MAX_EVENT_ID_LENGTH = 255;
+
+    private static final int MAX_FIELD_LENGTH = 50;
+
+    final private NamedParameterJdbcTemplate jdbcTemplate;
+
+    final private WebhookEventRepository webhookEventRepository;
+
+    final private WebhookSignatureVerifier signatureVerifier;
+
+    final private ObjectMapper objectMapper;
+
+    // Event ids already appended; gateways retry aggressively during bursts, these skip the INSERT
+    final private Cache<String, Boolean> appended;
+
+    final private Counter accepted;
+
+    final private Counter duplicates;
+
+    final private Counter rejected;
+
+    public WebhookService(NamedParameterJdbcTemplate jdbcTemplate,
+                          WebhookEventRepository webhookEventRepository,
+                          WebhookSignatureVerifier signatureVerifier,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          @Value("${payment.webhook.dedupe-cache-size:100000}") long dedupeCacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.webhookEventRepository = webhookEventRepository;
+        this.signatureVerifier = signatureVerifier;
+        this.objectMapper = objectMapper;
+        this.appended = Caffeine.newBuilder().maximumSize(dedupeCacheSize).build();
+
+        this.accepted = Counter.builder("payment.webhook.deliveries").tag("result", "accepted")
+                .description("Webhook deliveries appended for processing").register(meterRegistry);
+        this.duplicates = Counter.builder("payment.webhook.deliveries").tag("result", "duplicate")
+                .description("Webhook redeliveries of events already received").register(meterRegistry);
+        this.rejected = Counter.builder("payment.webhook.deliveries").tag("result", "rejected")
+                .description("Webhook deliveries with a bad signature or body").register(meterRegistry);
+    }
+
+    public boolean accepts(Payment.PaymentGateway gateway) {
+        return signatureVerifier.accepts(gateway);
+    }
+
+    // Durably record one delivery; returns false for a redelivery of an event already recorded
+    public boolean receive(Payment.PaymentGateway gateway, String signatureHeader, byte[] body) {
+        WebhookEventPayload payload;
+        try {
+            signatureVerifier.verify(gateway, signatureHeader, body);
+            payload = parse(body);
+        } catch (PaymentServiceException e) {
+            rejected.increment();
+            throw e;
+        }
+
+        String dedupeKey = gateway + ":" + payload.getId();
+        if (appended.getIfPresent(dedupeKey) != null) {
+            duplicates.increment();
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int inserted = jdbcTemplate.update(APPEND_SQL, new MapSqlParameterSource()
+                .addValue("id", UuidV7.next())
+                .addValue("gateway", gateway.name())
+                .addValue("eventId", payload.getId())
+                .addValue("eventType", payload.getType())
+                .addValue("paymentReference", payload.getPaymentReference())
+                .addValue("refundReference", payload.getRefundReference())
+                .addValue("orderingKey", payload.orderingKey())
+                .addValue("payload", new String(body, StandardCharsets.UTF_8))
+                .addValue("occurredAt", payload.getCreated() != null ? payload.getCreated() : now)
+                .addValue("receivedAt", now));
+        appended.put(dedupeKey, Boolean.TRUE);
+
+        if (inserted == 0) {
+            duplicates.increment();
+            return false;
+        }
+
+        accepted.increment();
+        logger.debug("Webhook {} {} received from {}", payload.getType(), payload.getId(), gateway);
+        return true;
+    }
+
+    // Queue events received in a window again; nothing that is being applied right now is touched
+    public int replay(Collection<WebhookEvent.EventStatus> statuses, Payment.PaymentGateway gateway,
+                      LocalDateTime from, LocalDateTime to) {
+        if (statuses.contains(WebhookEvent.EventStatus.PROCESSING)) {
+            throw new PaymentServiceException("Events being processed cannot be replayed");
+        }
+
+        int replayed = webhookEventRepository.replay(statuses, gateway, from, to);
+        logger.info("Replaying {} webhook events ({} {} from {} to {})", replayed, statuses, gateway, from, to);
+        return replayed;
+    }
+
+    public void replayEvent(UUID eventId) {
+        if (webhookEventRepository.replayById(eventId) == 0) {
+            throw new PaymentServiceException("Webhook event not found or still being processed: " + eventId);
+        }
+        logger.info("Replaying webhook event {}", eventId);
+    }
+
+    // Newest first, at most 500
+    public List<WebhookEventResponse> findByStatus(WebhookEvent.EventStatus status, int limit) {
+        return webhookEventRepository.findByStatusOrderByIdDesc(status, PageRequest.of(0, Math.max(1, Math.min(limit, 500))))
+                .stream()
+                .map(WebhookEventResponse::from)
+                .toList();
+    }
+
+    private WebhookEventPayload parse(byte[] body) {
+        WebhookEventPayload payload;
+        try {
+            payload = objectMapper.readValue(body, WebhookEventPayload.class);
+        } catch (IOException e) {
+            throw new PaymentServiceException("Invalid webhook body: " + e.getMessage());
+        }
+
+        if (isBlank(payload.getId()) || payload.getId().length() > MAX_EVENT_ID_LENGTH) {
+            throw new PaymentServiceException("Webhook event id is missing or too long");
+        }
+        if (isBlank(payload.getType()) || payload.getType().length() > MAX_FIELD_LENGTH) {
+            throw new PaymentServiceException("Webhook event type is missing or too long");
+        }
+        if (tooLong(payload.getPaymentReference()) || tooLong(payload.getRefundReference())) {
+            throw new PaymentServiceException("Webhook event reference is too long");
+        }
+        return payload;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static boolean tooLong(String value) {
+        return value != null && value.length() > MAX_FIELD_LENGTH;
+    }
+}
@@ -0,0 +1,154 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.exception.WebhookSignatureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+// HMAC-SHA256 webhook signatures: "t=<unix seconds>,v1=<hex>" over "<t>.<raw body>", keyed by
+// payment.gateways.<gateway>.webhook-secret. Several v1 entries are accepted while a secret is rotated.
+// Only gateways with payment.gateways.<gateway>.enabled=true and a secret of their own take webhooks.
+@Component
+public class WebhookSignatureVerifier {
+
+    public static final String HEADER = "Webhook-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    // Initialized once per gateway; verification clones it instead of re-deriving the key
+    final private Map<Payment.PaymentGateway, Mac> prototypes = new EnumMap<>(Payment.PaymentGateway.class);
+
+    final private Duration tolerance;
+
+    public WebhookSignatureVerifier(Environment environment,
+                                    @Value("${payment.webhook.signature-tolerance:5m}") Duration tolerance) {
+        this.tolerance = tolerance;
+
+        for (Payment.PaymentGateway gateway : Payment.PaymentGateway.values()) {
+            String prefix = "payment.gateways." + gateway.name().toLowerCase();
+            String secret = environment.getProperty(prefix + ".webhook-secret");
+            if (secret == null || secret.isBlank()) {
+                continue;
+            }
+            // Anyone could sign events with a key published in sample configuration
+            if (isPlaceholder(secret)) {
+                throw new IllegalStateException(prefix + ".webhook-secret is a placeholder; set the gateway's real "
+                        + "signing secret or leave it empty");
+            }
+            if (environment.getProperty(prefix + ".enabled", Boolean.class, false)) {
+                prototypes.put(gateway, newMac(secret));
+            }
+        }
+    }
+
+    public boolean accepts(Payment.PaymentGateway gateway) {
+        return prototypes.containsKey(gateway);
+    }
+
+    // Reject the body unless one of the header's signatures matches and its timestamp is recent
+    public void verify(Payment.PaymentGateway gateway, String signatureHeader, byte[] body) {
+        if (signatureHeader == null || signatureHeader.isBlank()) {
+            throw new WebhookSignatureException("Missing " + HEADER + " header");
+        }
+
+        String timestamp = null;
+        List<String> signatures = new ArrayList<>(2);
+        for (String part : signatureHeader.split(",")) {
+            String[] pair = part.trim().split("=", 2);
+            if (pair.length != 2) {
+                continue;
+            }
+            if ("t".equals(pair[0])) {
+                timestamp = pair[1];
+            } else if ("v1".equals(pair[0])) {
+                signatures.add(pair[1]);
+            }
+        }
+
+        if (timestamp == null || signatures.isEmpty()) {
+            throw new WebhookSignatureException("Malformed " + HEADER + " header");
+        }
+
+        // Checked first: a stale or replayed delivery costs no HMAC
+        long age = System.currentTimeMillis() / 1000 - parseTimestamp(timestamp);
+        if (Math.abs(age) > tolerance.toSeconds()) {
+            throw new WebhookSignatureException("Webhook signature timestamp outside tolerance");
+        }
+
+        byte[] expected = sign(gateway, timestamp, body);
+        for (String signature : signatures) {
+            if (MessageDigest.isEqual(expected, decode(signature))) {
+                return;
+            }
+        }
+        throw new WebhookSignatureException("Invalid webhook signature");
+    }
+
+    // Header value for a body, as the gateway would send it (webhook simulator)
+    public String signatureHeader(Payment.PaymentGateway gateway, long timestampSeconds, byte[] body) {
+        String timestamp = Long.toString(timestampSeconds);
+        return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(sign(gateway, timestamp, body));
+    }
+
+    private byte[] sign(Payment.PaymentGateway gateway, String timestamp, byte[] body) {
+        Mac prototype = prototypes.get(gateway);
+        if (prototype == null) {
+            throw new WebhookSignatureException("Webhooks are not configured for gateway " + gateway);
+        }
+
+        try {
+            Mac mac = (Mac) prototype.clone();
+            mac.update(timestamp.getBytes(StandardCharsets.US_ASCII));
+            mac.update((byte) '.');
+            return mac.doFinal(body);
+        } catch (CloneNotSupportedException e) {
+            throw new PaymentServiceException("HMAC provider does not support cloning", e);
+        }
+    }
+
+    private static long parseTimestamp(String timestamp) {
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            throw new WebhookSignatureException("Invalid webhook signature timestamp");
+        }
+    }
+
+    // Sample values such as whsec_xxxx
+    private static boolean isPlaceholder(String secret) {
+        return secret.toLowerCase().contains("xxxx");
+    }
+
+    // Malformed hex never matches
+    private static byte[] decode(String hex) {
+        try {
+            return HexFormat.of().parseHex(hex);
+        } catch (IllegalArgumentException e) {
+            return new byte[0];
+        }
+    }
+
+    private static Mac newMac(String secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize webhook HMAC", e);
+        }
+    }
+}
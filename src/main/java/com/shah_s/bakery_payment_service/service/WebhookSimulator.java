@@ -0,0 +1,84 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.dto.WebhookEventPayload;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Local stand-in for a gateway: signs events with the gateway's webhook secret and delivers them over HTTP,
+// optionally several times, the way gateways redeliver. Only for development (payment.webhook.simulator.enabled).
+@Service
+@ConditionalOnProperty(name = "payment.webhook.simulator.enabled", havingValue = "true")
+public class WebhookSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookSimulator.class);
+
+    final private WebhookSignatureVerifier signatureVerifier;
+
+    final private ObjectMapper objectMapper;
+
+    final private RestClient restClient;
+
+    public WebhookSimulator(WebhookSignatureVerifier signatureVerifier, ObjectMapper objectMapper,
+                            @Value("${payment.webhook.simulator.target-url:http://localhost:${server.port}/api/payments/webhook}") String targetUrl) {
+        this.signatureVerifier = signatureVerifier;
+        this.objectMapper = objectMapper;
+        this.restClient = RestClient.builder().baseUrl(targetUrl).build();
+    }
+
+    // Deliver one event; returns the HTTP status of each delivery
+    public List<Integer> deliver(Payment.PaymentGateway gateway, WebhookEventPayload event, int deliveries) {
+        if (event.getId() == null) {
+            event.setId("evt_sim_" + UUID.randomUUID());
+        }
+
+        byte[] body = writeBody(event);
+        List<Integer> statuses = new ArrayList<>(deliveries);
+        for (int i = 0; i < deliveries; i++) {
+            // Signed per delivery, as a gateway retry would be
+            String signature = signatureVerifier.signatureHeader(gateway, System.currentTimeMillis() / 1000, body);
+            statuses.add(post(gateway, signature, body));
+        }
+
+        logger.info("Simulated {} {} for {} ({} deliveries): {}",
+                   gateway, event.getType(), event.orderingKey(), deliveries, statuses);
+        return statuses;
+    }
+
+    private int post(Payment.PaymentGateway gateway, String signature, byte[] body) {
+        try {
+            ResponseEntity<Void> response = restClient.post()
+                    .uri("/{gateway}", gateway.name().toLowerCase())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(WebhookSignatureVerifier.HEADER, signature)
+                    .body(body)
+                    .retrieve()
+                    .toBodilessEntity();
+            return response.getStatusCode().value();
+        } catch (RestClientResponseException e) {
+            return e.getStatusCode().value();
+        }
+    }
+
+    private byte[] writeBody(WebhookEventPayload event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new PaymentServiceException("Failed to serialize simulated webhook", e);
+        }
+    }
+}
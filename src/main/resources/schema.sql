@@ -0,0 +1,99 @@
+-- Runs after Hibernate's schema update (spring.jpa.defer-datasource-initialization); every statement is idempotent.
+
+-- Text search: lower-cased search_text per row, a trigram index for substring matches
+-- and a tsvector index for whole-word matches
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS search_text text GENERATED ALWAYS AS (
+    lower(coalesce(payment_reference, '') || ' ' || coalesce(card_last_four, '') || ' ' ||
+          coalesce(description, '') || ' ' || coalesce(notes, ''))
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_payment_search_trgm ON payments USING gin (search_text gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_payment_search_fts ON payments USING gin (to_tsvector('simple', search_text));
+
+ALTER TABLE refunds ADD COLUMN IF NOT EXISTS search_text text GENERATED ALWAYS AS (
+    lower(coalesce(refund_reference, '') || ' ' || coalesce(reason, '') || ' ' || coalesce(notes, ''))
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_refund_search_trgm ON refunds USING gin (search_text gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_refund_search_fts ON refunds USING gin (to_tsvector('simple', search_text));
+
+-- One-time data backfills: each runs only in the statement that inserts its marker row, so later boots skip it
+-- (and concurrent boots wait on the marker's key instead of both running it)
+CREATE TABLE IF NOT EXISTS schema_backfills (
+    name       varchar(100) PRIMARY KEY,
+    applied_at timestamp    NOT NULL DEFAULT now()
+);
+
+-- Reference generator node ids: each instance without payment.id.node-id leases one at startup (see IdConfig)
+CREATE TABLE IF NOT EXISTS reference_node_leases (
+    node_id    integer      PRIMARY KEY,
+    owner      varchar(200) NOT NULL,
+    expires_at timestamp    NOT NULL
+);
+
+-- Refund counters: backfill payments whose counters disagree with their completed refunds
+-- (rows written before the columns existed)
+WITH marker AS (
+    INSERT INTO schema_backfills (name) VALUES ('payment_refund_counters')
+    ON CONFLICT (name) DO NOTHING
+    RETURNING name
+)
+UPDATE payments p
+SET refunded_amount = r.total, refund_count = r.completed, version = p.version + 1, updated_at = now()
+FROM marker,
+     (SELECT payment_id, SUM(amount) AS total, COUNT(*) AS completed
+      FROM refunds WHERE status = 'COMPLETED' GROUP BY payment_id) r
+WHERE r.payment_id = p.id
+  AND (p.refunded_amount, p.refund_count) IS DISTINCT FROM (r.total, r.completed);
+
+-- Refund reservations: open refunds admitted before reservations existed hold balance too
+WITH marker AS (
+    INSERT INTO schema_backfills (name) VALUES ('payment_refund_reservations')
+    ON CONFLICT (name) DO NOTHING
+    RETURNING name
+)
+UPDATE payments p
+SET reserved_refund_amount = r.total, version = p.version + 1, updated_at = now()
+FROM marker,
+     (SELECT payment_id, SUM(amount) AS total
+      FROM refunds WHERE status IN ('PENDING', 'PROCESSING') GROUP BY payment_id) r
+WHERE r.payment_id = p.id
+  AND p.reserved_refund_amount = 0;
+
+-- Daily limit ledger: payments created today before the ledger existed count against today's totals.
+-- Rows are written for the user total ('') and for each card (see DailyLimitLedger.cardKey)
+WITH marker AS (
+    INSERT INTO schema_backfills (name) VALUES ('daily_user_totals')
+    ON CONFLICT (name) DO NOTHING
+    RETURNING name
+)
+INSERT INTO daily_user_totals AS t (total_date, user_id, card_key, total_amount, payment_count, updated_at)
+SELECT CURRENT_DATE, p.user_id, s.card_key, SUM(p.amount), COUNT(*), now()
+FROM marker,
+     payments p
+     CROSS JOIN LATERAL (VALUES (''),
+         (CASE WHEN btrim(coalesce(p.card_last_four, '')) <> ''
+               THEN upper(coalesce(p.card_brand, 'CARD')) || ':' || p.card_last_four END)) s (card_key)
+WHERE p.created_at >= CURRENT_DATE
+  AND p.status <> 'CANCELLED'
+  AND s.card_key IS NOT NULL
+GROUP BY p.user_id, s.card_key
+ON CONFLICT (total_date, user_id, card_key) DO UPDATE
+SET total_amount = GREATEST(t.total_amount, EXCLUDED.total_amount),
+    payment_count = GREATEST(t.payment_count, EXCLUDED.payment_count),
+    updated_at = now();
+
+-- Expiry sweeper: only PENDING payments can expire, so the index stays as small as the open checkouts
+CREATE INDEX IF NOT EXISTS idx_payment_pending_expires ON payments (expires_at) WHERE status = 'PENDING';
+
+-- Processing timeout sweep: only payments with a gateway call in flight
+CREATE INDEX IF NOT EXISTS idx_payment_processing_started ON payments (processing_started_at)
+    WHERE status = 'PROCESSING';
+
+-- Retry scheduler: only failures with a planned automatic retry
+CREATE INDEX IF NOT EXISTS idx_payment_retry_due ON payments (next_retry_at)
+    WHERE status = 'FAILED' AND next_retry_at IS NOT NULL;
@@ -0,0 +1,154 @@
+package com.shah_s.bakery_payment_service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.dto.BulkRefundRequest;
+import com.shah_s.bakery_payment_service.dto.RefundRequest;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.IdempotencyService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST /api/refunds/bulk through the JDBC metrics proxy; outbox polling is pushed out so refunds stay pending
+@Import(TestcontainersConfiguration.class)
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.outbox.poll-interval=3600000"
+})
+class BulkRefundTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void bulkRefundIsWrittenInMultiRowBatches() throws Exception {
+        Payment first = saveCompletedPayment("50.00");
+        Payment second = saveCompletedPayment("50.00");
+        // Registered on the first batch, which may not have happened yet
+        DistributionSummary before = meterRegistry.find("payment.jdbc.write.rows").tag("mode", "batch").summary();
+        long batchesBefore = before != null ? before.count() : 0;
+        double rowsBefore = before != null ? before.totalAmount() : 0;
+
+        mockMvc.perform(post("/api/refunds/bulk")
+                        .header("X-User-Role", "ADMIN")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(refund(first, "5.00"), refund(first, "7.00"), refund(second, "10.00"),
+                                refund(second, "2.50"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(4));
+
+        assertThat(refundCount(first) + refundCount(second)).isEqualTo(4);
+        DistributionSummary batches = meterRegistry.get("payment.jdbc.write.rows").tag("mode", "batch").summary();
+        long batchesSent = batches.count() - batchesBefore;
+        assertThat(batchesSent).isPositive();
+        // More rows than round-trips: the refund and outbox inserts went out several per batch
+        assertThat(batches.totalAmount() - rowsBefore).isGreaterThan(batchesSent);
+    }
+
+    @Test
+    void oneInvalidEntryRollsBackTheWholeRequest() throws Exception {
+        Payment valid = saveCompletedPayment("50.00");
+        Payment overdrawn = saveCompletedPayment("10.00");
+
+        mockMvc.perform(post("/api/refunds/bulk")
+                        .header("X-User-Role", "ADMIN")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(refund(valid, "5.00"), refund(overdrawn, "6.00"), refund(overdrawn, "6.00"))))
+                .andExpect(status().is4xxClientError());
+
+        assertThat(refundCount(valid) + refundCount(overdrawn)).isZero();
+        assertThat(paymentRepository.findRefundBalance(valid.getId()).orElseThrow().getReservedRefundAmount())
+                .isEqualByComparingTo("0.00");
+        assertThat(paymentRepository.findRefundBalance(overdrawn.getId()).orElseThrow().getReservedRefundAmount())
+                .isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void retriedBulkRequestReplaysTheOriginalRefunds() throws Exception {
+        Payment payment = saveCompletedPayment("50.00");
+        String body = body(refund(payment, "5.00"), refund(payment, "7.00"));
+        String key = UUID.randomUUID().toString();
+
+        String created = mockMvc.perform(post("/api/refunds/bulk")
+                        .header("X-User-Role", "ADMIN")
+                        .header(IdempotencyService.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        // The client never saw the answer and sends the same request again
+        String replayed = mockMvc.perform(post("/api/refunds/bulk")
+                        .header("X-User-Role", "ADMIN")
+                        .header(IdempotencyService.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(objectMapper.readTree(replayed)).isEqualTo(objectMapper.readTree(created));
+        assertThat(refundCount(payment)).isEqualTo(2);
+        assertThat(paymentRepository.findRefundBalance(payment.getId()).orElseThrow().getReservedRefundAmount())
+                .isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void metricsProxyStillUnwrapsToThePool() throws Exception {
+        assertThat(dataSource.isWrapperFor(HikariDataSource.class)).isTrue();
+        assertThat(dataSource.unwrap(HikariDataSource.class)).isInstanceOf(HikariDataSource.class);
+    }
+
+    private String body(RefundRequest... refunds) throws Exception {
+        return objectMapper.writeValueAsString(new BulkRefundRequest(List.of(refunds)));
+    }
+
+    private static RefundRequest refund(Payment payment, String amount) {
+        return new RefundRequest(payment.getId(), new BigDecimal(amount), "Bulk refund test", UUID.randomUUID());
+    }
+
+    private long refundCount(Payment payment) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refunds WHERE payment_id = ?",
+                Long.class, payment.getId());
+    }
+
+    private Payment saveCompletedPayment(String amount) {
+        return TestPayments.save(paymentRepository, Payment.PaymentStatus.COMPLETED, amount);
+    }
+}
@@ -0,0 +1,276 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.DailyLimitLedger;
+import com.shah_s.bakery_payment_service.service.PaymentExpiryService;
+import com.shah_s.bakery_payment_service.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Small limits so a few reservations reach them; scheduled expiry sweeps are pushed out so only the test sweeps
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.limits.daily-limit=100.00",
+        "payment.limits.card-daily-limit=60.00",
+        "payment.expiry.sweep-interval=3600000"
+})
+class DailyLimitLedgerTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyLimitLedgerTests.class);
+
+    private static final String VISA_CARD = "VISA:4242";
+
+    @Autowired
+    private DailyLimitLedger dailyLimitLedger;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentExpiryService paymentExpiryService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reservesUpToTheLimitAndRejectsPastIt() {
+        UUID userId = UUID.randomUUID();
+
+        reserve(userId, null, "40.00");
+        reserve(userId, null, "40.00");
+        reserve(userId, null, "20.00");
+
+        assertThatThrownBy(() -> reserve(userId, null, "0.01"))
+                .isInstanceOf(PaymentServiceException.class)
+                .hasMessage("Daily payment limit exceeded");
+        assertThat(total(userId, "")).isEqualByComparingTo("100.00");
+        assertThat(count(userId, "")).isEqualTo(3);
+
+        // A single payment over the limit never creates the row
+        UUID other = UUID.randomUUID();
+        assertThatThrownBy(() -> reserve(other, null, "100.01")).isInstanceOf(PaymentServiceException.class);
+        assertThat(total(other, "")).isNull();
+    }
+
+    @Test
+    void parallelReservesForOneUserNeverExceedTheLimit() throws Exception {
+        UUID userId = UUID.randomUUID();
+
+        List<Callable<Boolean>> reserves = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            reserves.add(() -> admit(userId, "1.00"));
+        }
+
+        int admitted = run("one user", reserves);
+
+        assertThat(admitted).isEqualTo(100);
+        assertThat(total(userId, "")).isEqualByComparingTo("100.00");
+        assertThat(count(userId, "")).isEqualTo(100);
+    }
+
+    @Test
+    void parallelReservesAcrossManyUsersNeverExceedTheirLimits() throws Exception {
+        // More users than cache stripes, so several users share a stripe
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            users.add(UUID.randomUUID());
+        }
+
+        // Interleaved so every user is contended at the same time
+        List<Callable<Boolean>> reserves = new ArrayList<>();
+        for (int round = 0; round < 12; round++) {
+            for (UUID userId : users) {
+                reserves.add(() -> admit(userId, "10.00"));
+            }
+        }
+
+        int admitted = run("200 users", reserves);
+
+        assertThat(admitted).isEqualTo(200 * 10);
+        for (UUID userId : users) {
+            assertThat(total(userId, "")).isEqualByComparingTo("100.00");
+        }
+    }
+
+    @Test
+    void releaseMakesRoomAgainAfterARejection() {
+        UUID userId = UUID.randomUUID();
+        reserve(userId, null, "100.00");
+
+        // The rejection leaves the confirmed total in the cache; the release must drop it
+        assertThatThrownBy(() -> reserve(userId, null, "30.00")).isInstanceOf(PaymentServiceException.class);
+        dailyLimitLedger.release(userId, null, new BigDecimal("30.00"), LocalDate.now());
+
+        reserve(userId, null, "30.00");
+        assertThat(total(userId, "")).isEqualByComparingTo("100.00");
+        assertThat(count(userId, "")).isEqualTo(1);
+    }
+
+    @Test
+    void releaseAllGivesBackEveryReservationAndNeverGoesNegative() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        String card = DailyLimitLedger.cardKey("VISA", "4242");
+        reserve(first, card, "50.00");
+        reserve(second, null, "70.00");
+
+        dailyLimitLedger.releaseAll(List.of(
+                new DailyLimitLedger.Release(first, card, new BigDecimal("20.00"), LocalDate.now()),
+                new DailyLimitLedger.Release(second, null, new BigDecimal("70.00"), LocalDate.now()),
+                new DailyLimitLedger.Release(second, null, new BigDecimal("5.00"), LocalDate.now())));
+
+        assertThat(total(first, "")).isEqualByComparingTo("30.00");
+        assertThat(total(first, card)).isEqualByComparingTo("30.00");
+        assertThat(total(second, "")).isEqualByComparingTo("0.00");
+        assertThat(count(second, "")).isZero();
+
+        // Yesterday's releases leave today's totals alone
+        dailyLimitLedger.releaseAll(List.of(
+                new DailyLimitLedger.Release(first, card, new BigDecimal("30.00"), LocalDate.now().minusDays(1))));
+        assertThat(total(first, "")).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    void cardLimitIsKeptPerCardWithinTheUserLimit() {
+        UUID userId = UUID.randomUUID();
+        String visa = DailyLimitLedger.cardKey("visa", "4242");
+        String mastercard = DailyLimitLedger.cardKey("MASTERCARD", "1111");
+
+        reserve(userId, visa, "50.00");
+
+        // The card rejection rolls back the user reservation made in the same transaction
+        assertThatThrownBy(() -> reserve(userId, visa, "20.00"))
+                .isInstanceOf(PaymentServiceException.class)
+                .hasMessage("Daily card payment limit exceeded");
+        assertThat(total(userId, "")).isEqualByComparingTo("50.00");
+
+        reserve(userId, mastercard, "20.00");
+        assertThatThrownBy(() -> reserve(userId, DailyLimitLedger.cardKey("AMEX", "0005"), "40.00"))
+                .isInstanceOf(PaymentServiceException.class)
+                .hasMessage("Daily payment limit exceeded");
+
+        assertThat(total(userId, "")).isEqualByComparingTo("70.00");
+        assertThat(total(userId, "VISA:4242")).isEqualByComparingTo("50.00");
+        assertThat(total(userId, "MASTERCARD:1111")).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void cardKeyNormalisesTheBrandAndSkipsPaymentsWithoutACard() {
+        assertThat(DailyLimitLedger.cardKey("visa", "4242")).isEqualTo("VISA:4242");
+        assertThat(DailyLimitLedger.cardKey(null, "4242")).isEqualTo("CARD:4242");
+        assertThat(DailyLimitLedger.cardKey("VISA", " ")).isNull();
+        assertThat(DailyLimitLedger.cardKey("VISA", null)).isNull();
+    }
+
+    @Test
+    void cancellingAPaymentReleasesItsAmount() {
+        UUID userId = UUID.randomUUID();
+        Payment payment = savePending(userId, "40.00", LocalDateTime.now().plusMinutes(10));
+        reserve(userId, VISA_CARD, "40.00");
+
+        paymentService.cancelPayment(payment.getId(), "Changed my mind");
+
+        assertThat(total(userId, "")).isEqualByComparingTo("0.00");
+        assertThat(total(userId, VISA_CARD)).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void expiringAPaymentReleasesItsAmount() {
+        UUID userId = UUID.randomUUID();
+        savePending(userId, "40.00", LocalDateTime.now().minusMinutes(1));
+        savePending(userId, "25.00", LocalDateTime.now().plusMinutes(10));
+        reserve(userId, VISA_CARD, "40.00");
+        reserve(userId, VISA_CARD, "25.00");
+
+        paymentExpiryService.sweep();
+
+        assertThat(total(userId, "")).isEqualByComparingTo("25.00");
+        assertThat(total(userId, VISA_CARD)).isEqualByComparingTo("25.00");
+        assertThat(count(userId, "")).isEqualTo(1);
+    }
+
+    // As in payment creation: the reservation runs inside the payment's transaction
+    private void reserve(UUID userId, String cardKey, String amount) {
+        transactionTemplate.executeWithoutResult(status ->
+                dailyLimitLedger.reserve(userId, cardKey, new BigDecimal(amount)));
+    }
+
+    private boolean admit(UUID userId, String amount) {
+        try {
+            reserve(userId, null, amount);
+            return true;
+        } catch (PaymentServiceException e) {
+            assertThat(e.getMessage()).isEqualTo("Daily payment limit exceeded");
+            return false;
+        }
+    }
+
+    private int run(String scenario, List<Callable<Boolean>> reserves) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        long started = System.nanoTime();
+        int admitted = 0;
+        try {
+            for (Future<Boolean> result : executor.invokeAll(reserves)) {
+                if (result.get()) {
+                    admitted++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        logger.info("Daily limit reserves ({}): {} requests, {} admitted in {}s, {} requests/s", scenario,
+                    reserves.size(), admitted, String.format("%.2f", seconds), String.format("%.0f", reserves.size() / seconds));
+        return admitted;
+    }
+
+    private BigDecimal total(UUID userId, String cardKey) {
+        List<BigDecimal> totals = jdbcTemplate.queryForList("SELECT total_amount FROM daily_user_totals " +
+                "WHERE total_date = ? AND user_id = ? AND card_key = ?", BigDecimal.class, LocalDate.now(), userId, cardKey);
+        return totals.isEmpty() ? null : totals.get(0);
+    }
+
+    private Integer count(UUID userId, String cardKey) {
+        return jdbcTemplate.queryForObject("SELECT payment_count FROM daily_user_totals " +
+                "WHERE total_date = ? AND user_id = ? AND card_key = ?", Integer.class, LocalDate.now(), userId, cardKey);
+    }
+
+    private Payment savePending(UUID userId, String amount, LocalDateTime expiresAt) {
+        return TestPayments.save(paymentRepository, Payment.PaymentStatus.PENDING, amount, payment -> {
+            payment.setUserId(userId);
+            payment.setCardBrand("VISA");
+            payment.setCardLastFour("4242");
+            payment.setExpiresAt(expiresAt);
+        });
+    }
+}
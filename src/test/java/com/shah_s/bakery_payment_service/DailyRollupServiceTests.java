@@ -0,0 +1,97 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.DailyRollup;
+import com.shah_s.bakery_payment_service.service.DailyRollupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.rollup.initial-delay=3600000",
+        "payment.rollup.refresh-lag=0s"
+})
+class DailyRollupServiceTests {
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rollupMatchesRawAggregationAcrossDays() {
+        for (int daysAgo = 1; daysAgo <= 3; daysAgo++) {
+            savePayment(daysAgo, Payment.PaymentStatus.COMPLETED, "20.00");
+            savePayment(daysAgo, Payment.PaymentStatus.FAILED, "5.00");
+        }
+        dailyRollupService.refresh(DailyRollup.PAYMENTS);
+
+        LocalDateTime start = LocalDate.now().minusDays(5).atTime(12, 0);
+        LocalDateTime end = LocalDateTime.now().plusHours(1);
+
+        assertThat(totalsByStatus(dailyRollupService.aggregate(DailyRollup.PAYMENTS, start, end)))
+                .isEqualTo(rawTotalsByStatus(start, end));
+    }
+
+    @Test
+    void changesAfterTheLastRefreshAreVisibleImmediately() {
+        Payment payment = savePayment(2, Payment.PaymentStatus.PENDING, "42.00");
+        dailyRollupService.refresh(DailyRollup.PAYMENTS);
+
+        // Bypass the refresh: the changed day must be read from the source table
+        jdbcTemplate.update("UPDATE payments SET status = 'COMPLETED', updated_at = now() WHERE id = ?", payment.getId());
+
+        LocalDateTime start = LocalDate.now().minusDays(5).atStartOfDay();
+        LocalDateTime end = LocalDateTime.now().plusHours(1);
+
+        assertThat(totalsByStatus(dailyRollupService.aggregate(DailyRollup.PAYMENTS, start, end)))
+                .isEqualTo(rawTotalsByStatus(start, end));
+    }
+
+    private Payment savePayment(int daysAgo, Payment.PaymentStatus status, String amount) {
+        Payment payment = TestPayments.save(paymentRepository, status, amount);
+
+        jdbcTemplate.update("UPDATE payments SET created_at = created_at - make_interval(days => ?), updated_at = now() " +
+                "WHERE id = ?", daysAgo, payment.getId());
+        return payment;
+    }
+
+    private Map<String, String> totalsByStatus(List<DailyRollupService.Bucket> buckets) {
+        Map<String, BigDecimal[]> totals = new TreeMap<>();
+        for (DailyRollupService.Bucket bucket : buckets) {
+            BigDecimal[] sum = totals.computeIfAbsent(bucket.key(2), key -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+            sum[0] = sum[0].add(BigDecimal.valueOf(bucket.count()));
+            sum[1] = sum[1].add(bucket.amount(0));
+        }
+        Map<String, String> result = new TreeMap<>();
+        totals.forEach((status, sum) -> result.put(status, sum[0] + "/" + sum[1].stripTrailingZeros().toPlainString()));
+        return result;
+    }
+
+    private Map<String, String> rawTotalsByStatus(LocalDateTime start, LocalDateTime end) {
+        Map<String, String> result = new TreeMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*), COALESCE(SUM(amount), 0) FROM payments " +
+                        "WHERE created_at >= ? AND created_at <= ? GROUP BY status", rs -> {
+                    result.put(rs.getString(1), rs.getLong(2) + "/" + rs.getBigDecimal(3).stripTrailingZeros().toPlainString());
+                }, start, end);
+        return result;
+    }
+}
@@ -0,0 +1,262 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.dto.CursorPage;
+import com.shah_s.bakery_payment_service.dto.PaymentResponse;
+import com.shah_s.bakery_payment_service.dto.SearchCursor;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.service.PaymentService;
+import com.shah_s.bakery_payment_service.service.PostgresPaymentSearchService;
+import com.shah_s.bakery_payment_service.service.RefundService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// EXPLAINs the SQL actually run for the filter and search endpoints against a seeded database
+@Import({TestcontainersConfiguration.class, FilterQueryPlanTests.StatementCapture.class})
+@SpringBootTest(properties = "eureka.client.enabled=false")
+class FilterQueryPlanTests {
+
+    private static final int SEED_PAYMENTS = 20_000;
+
+    private static final List<CapturedStatement> captured = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean capturing;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private RefundService refundService;
+
+    @Autowired
+    private PostgresPaymentSearchService searchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void seed() {
+        Integer seeded = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments WHERE payment_reference LIKE 'PLAN-%'", Integer.class);
+        if (seeded != null && seeded > 0) {
+            return;
+        }
+
+        jdbcTemplate.update("INSERT INTO payments (id, payment_reference, order_id, user_id, payment_method, " +
+                "payment_gateway, status, amount, currency_code, net_amount, created_at, updated_at) " +
+                "SELECT gen_random_uuid(), 'PLAN-' || g, gen_random_uuid(), CAST(md5('user' || (g % 500)) AS uuid), " +
+                "(ARRAY['CASH','CARD','DIGITAL_WALLET','BANK_TRANSFER','CRYPTO'])[1 + g % 5], " +
+                "(ARRAY['STRIPE','PAYPAL','SQUARE','MANUAL','MOCK'])[1 + (g / 5) % 5], " +
+                "(ARRAY['PENDING','PROCESSING','COMPLETED','FAILED','CANCELLED','REFUNDED'])[1 + (g / 25) % 6], " +
+                "10 + g % 90, 'USD', 10 + g % 90, now() - make_interval(mins => g), now() " +
+                "FROM generate_series(1, ?) g", SEED_PAYMENTS);
+        jdbcTemplate.update("INSERT INTO refunds (id, refund_reference, payment_id, status, amount, currency_code, " +
+                "requested_by, approved_by, created_at, updated_at) " +
+                "SELECT gen_random_uuid(), 'PLAN-R-' || g, p.id, " +
+                "(ARRAY['PENDING','PROCESSING','COMPLETED','FAILED'])[1 + g % 4], 5, 'USD', p.user_id, " +
+                "CASE WHEN g % 3 = 0 THEN CAST(md5('approver' || (g % 20)) AS uuid) END, p.created_at, now() " +
+                "FROM generate_series(1, ?, 2) g JOIN payments p ON p.payment_reference = 'PLAN-' || g", SEED_PAYMENTS);
+        jdbcTemplate.execute("ANALYZE payments");
+        jdbcTemplate.execute("ANALYZE refunds");
+    }
+
+    @Test
+    void statusFilterUsesTheStatusIndex() {
+        String plan = explainPaymentFilter(null, Payment.PaymentStatus.FAILED, null, null, null);
+
+        assertThat(plan).contains("idx_payment_status_created").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void userFilterUsesTheUserIndex() {
+        UUID userId = jdbcTemplate.queryForObject("SELECT CAST(md5('user7') AS uuid)", UUID.class);
+        String plan = explainPaymentFilter(userId, null, null, null, null);
+
+        assertThat(plan).contains("idx_payment_user_created").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void methodAndGatewayFiltersUseAnIndex() {
+        String plan = explainPaymentFilter(null, null, Payment.PaymentMethod.CRYPTO, Payment.PaymentGateway.PAYPAL, null);
+
+        assertThat(plan).containsPattern("idx_payment_(method|gateway)_created").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void laterPagesSeekTheSameIndex() {
+        CursorPage<PaymentResponse> first = paymentService.getPaymentsWithFilters(null, Payment.PaymentStatus.COMPLETED,
+                null, null, null, null, null, null, null, 50);
+        String plan = explainPaymentFilter(null, Payment.PaymentStatus.COMPLETED, null, null, first.getNextCursor());
+
+        assertThat(plan).contains("idx_payment_status_created").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void noFiltersWalkTheCreatedIndex() {
+        String plan = explainPaymentFilter(null, null, null, null, null);
+
+        assertThat(plan).contains("idx_payment_created").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void onlySuppliedFiltersReachTheSql() {
+        CapturedStatement statement = capture("from payments", () -> paymentService.getPaymentsWithFilters(null,
+                Payment.PaymentStatus.PENDING, null, null, null, null, null, null, null, 10));
+
+        assertThat(statement.sql().toLowerCase(Locale.ROOT))
+                .doesNotContain("is null")
+                .doesNotContain("user_id=")
+                .doesNotContain("payment_method=");
+    }
+
+    @Test
+    void refundFiltersUseTheirIndexes() {
+        CapturedStatement byStatus = capture("from refunds", () -> refundService.getRefundsWithFilters(
+                Refund.RefundStatus.FAILED, null, null, null, null, null, null, null, 50));
+        assertThat(explain(byStatus)).contains("idx_refund_status_created").doesNotContain("Seq Scan");
+
+        UUID approver = jdbcTemplate.queryForObject("SELECT CAST(md5('approver3') AS uuid)", UUID.class);
+        CapturedStatement byApprover = capture("from refunds", () -> refundService.getRefundsWithFilters(
+                null, null, approver, null, null, null, null, null, 50));
+        assertThat(explain(byApprover)).contains("idx_refund_approver_created").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void refundSearchUsesTheTextAndCardIndexes() {
+        String plan = explain(capture("from refunds", () -> searchService.searchRefunds("4242", SearchCursor.start(), 20)));
+
+        assertThat(plan).containsPattern("idx_refund_search_(trgm|fts)")
+                .contains("idx_payment_card_last_four")
+                .doesNotContain("Seq Scan");
+    }
+
+    private String explainPaymentFilter(UUID userId, Payment.PaymentStatus status, Payment.PaymentMethod method,
+                                        Payment.PaymentGateway gateway, String cursor) {
+        return explain(capture("from payments", () -> paymentService.getPaymentsWithFilters(userId, status, method,
+                gateway, null, null, null, null, cursor, 50)));
+    }
+
+    // First statement against the table while the action runs (later ones are lazy loads)
+    private static CapturedStatement capture(String fromClause, Runnable action) {
+        captured.clear();
+        capturing = true;
+        try {
+            action.run();
+        } finally {
+            capturing = false;
+        }
+        return captured.stream()
+                .filter(statement -> statement.sql().toLowerCase(Locale.ROOT).contains(fromClause))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No statement " + fromClause + " was executed"));
+    }
+
+    // Re-run the statement under EXPLAIN with the same bind values
+    private String explain(CapturedStatement statement) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+            for (Bind bind : statement.binds()) {
+                bind.method().invoke(explain, bind.args());
+            }
+
+            List<String> lines = new ArrayList<>();
+            try (ResultSet rs = explain.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+            }
+            return String.join("\n", lines);
+        } catch (SQLException | ReflectiveOperationException e) {
+            throw new IllegalStateException("EXPLAIN failed for: " + statement.sql(), e);
+        }
+    }
+
+    record Bind(Method method, Object[] args) {}
+
+    record CapturedStatement(String sql, List<Bind> binds) {}
+
+    // Wraps the application DataSource so prepared statements and their bind calls are recorded while capturing
+    @TestConfiguration(proxyBeanMethods = false)
+    static class StatementCapture {
+
+        @Bean
+        static BeanPostProcessor statementCapturePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                return wrap(super.getConnection());
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (capturing && method.getName().equals("prepareStatement") && result instanceof PreparedStatement ps) {
+                            return recording(ps, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        private static PreparedStatement recording(PreparedStatement statement, String sql) {
+            List<Bind> binds = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("set") && args != null && args.length >= 2
+                                && method.getParameterTypes()[0] == int.class) {
+                            binds.add(new Bind(method, args.clone()));
+                        }
+                        if (method.getName().equals("executeQuery")) {
+                            captured.add(new CapturedStatement(sql, List.copyOf(binds)));
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
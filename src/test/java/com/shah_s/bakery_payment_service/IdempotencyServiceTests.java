@@ -0,0 +1,143 @@
+package com.shah_s.bakery_payment_service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.exception.IdempotencyKeyException;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.IdempotencyKeyRepository;
+import com.shah_s.bakery_payment_service.service.IdempotencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "eureka.client.enabled=false")
+class IdempotencyServiceTests {
+
+    private static final Map<String, Object> REQUEST = Map.of("orderId", "order-1", "amount", "12.50");
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void concurrentDuplicatesExecuteOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger executions = new AtomicInteger();
+
+        List<Callable<ResponseEntity<String>>> duplicates = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            duplicates.add(() -> idempotencyService.execute(key, "test", REQUEST, String.class, () -> {
+                executions.incrementAndGet();
+                sleep(200);
+                return ResponseEntity.status(HttpStatus.CREATED).body("created");
+            }));
+        }
+
+        List<ResponseEntity<String>> responses = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            for (Future<ResponseEntity<String>> response : executor.invokeAll(duplicates)) {
+                responses.add(response.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(executions).hasValue(1);
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(response.getBody()).isEqualTo("created");
+        });
+        assertThat(responses).filteredOn(response -> response.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER))
+                .hasSize(19);
+    }
+
+    @Test
+    void anotherInstanceReplaysTheStoredResponse() {
+        String key = UUID.randomUUID().toString();
+        idempotencyService.execute(key, "test", REQUEST, String.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body("created"));
+
+        // Separate local cache, shared table
+        ResponseEntity<String> replayed = otherInstance(Duration.ofHours(1)).execute(key, "test", REQUEST, String.class,
+                () -> { throw new AssertionError("must not execute again"); });
+
+        assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(replayed.getBody()).isEqualTo("created");
+        assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void reusingAKeyForADifferentRequestIsRejected() {
+        String key = UUID.randomUUID().toString();
+        idempotencyService.execute(key, "test", REQUEST, String.class, () -> ResponseEntity.ok("first"));
+
+        assertThatThrownBy(() -> idempotencyService.execute(key, "test", Map.of("orderId", "order-2"), String.class,
+                () -> ResponseEntity.ok("second")))
+                .isInstanceOfSatisfying(IdempotencyKeyException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    @Test
+    void failedRequestsCanBeRetried() {
+        String key = UUID.randomUUID().toString();
+        assertThatThrownBy(() -> idempotencyService.execute(key, "test", REQUEST, String.class,
+                () -> { throw new PaymentServiceException("Gateway unavailable"); }))
+                .hasMessage("Gateway unavailable");
+
+        ResponseEntity<String> retried = idempotencyService.execute(key, "test", REQUEST, String.class,
+                () -> ResponseEntity.ok("succeeded"));
+
+        assertThat(retried.getBody()).isEqualTo("succeeded");
+        assertThat(retried.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void expiredKeysArePurged() {
+        String key = UUID.randomUUID().toString();
+        IdempotencyService shortLived = otherInstance(Duration.ofMillis(1));
+        shortLived.execute(key, "test", REQUEST, String.class, () -> ResponseEntity.ok("done"));
+
+        sleep(50);
+        shortLived.purgeExpired();
+
+        assertThat(repository.findById("test:" + key)).isEmpty();
+    }
+
+    private IdempotencyService otherInstance(Duration ttl) {
+        return new IdempotencyService(repository, objectMapper, new SimpleMeterRegistry(), 100, ttl,
+                Duration.ofSeconds(60), Duration.ofSeconds(5), Duration.ofMillis(50));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
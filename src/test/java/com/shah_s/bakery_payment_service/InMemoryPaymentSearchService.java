@@ -0,0 +1,99 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.dto.SearchCursor;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.service.PaymentSearchService;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// In-memory PaymentSearchService for tests: whole-word matches rank above substring matches, like the Postgres search
+class InMemoryPaymentSearchService implements PaymentSearchService {
+
+    private static final BigDecimal WORD_MATCH = BigDecimal.ONE;
+
+    private static final BigDecimal SUBSTRING_MATCH = new BigDecimal("0.5");
+
+    private static final BigDecimal CARD_MATCH = BigDecimal.ONE;
+
+    private record Document(UUID id, LocalDateTime createdAt, String text, Set<String> words, String cardLastFour) {}
+
+    final private Map<UUID, Document> payments = new ConcurrentHashMap<>();
+
+    final private Map<UUID, Document> refunds = new ConcurrentHashMap<>();
+
+    void index(Payment payment) {
+        payments.put(payment.getId(), document(payment.getId(), payment.getCreatedAt(), null,
+                payment.getPaymentReference(), payment.getCardLastFour(), payment.getDescription(), payment.getNotes()));
+    }
+
+    void index(Refund refund) {
+        refunds.put(refund.getId(), document(refund.getId(), refund.getCreatedAt(), refund.getPayment().getCardLastFour(),
+                refund.getRefundReference(), refund.getReason(), refund.getNotes()));
+    }
+
+    @Override
+    public List<Hit> searchPayments(String term, SearchCursor after, int limit) {
+        return search(payments, term, after, limit);
+    }
+
+    @Override
+    public List<Hit> searchRefunds(String term, SearchCursor after, int limit) {
+        return search(refunds, term, after, limit);
+    }
+
+    private static List<Hit> search(Map<UUID, Document> documents, String term, SearchCursor after, int limit) {
+        String normalized = term.trim().toLowerCase(Locale.ROOT);
+        Set<String> termWords = words(normalized);
+
+        return documents.values().stream()
+                .map(document -> {
+                    BigDecimal score = BigDecimal.ZERO;
+                    if (document.words().containsAll(termWords)) {
+                        score = score.add(WORD_MATCH);
+                    }
+                    if (document.text().contains(normalized)) {
+                        score = score.add(SUBSTRING_MATCH);
+                    }
+                    if (normalized.equals(document.cardLastFour())) {
+                        score = score.add(CARD_MATCH);
+                    }
+                    return score.signum() > 0
+                            ? new Hit(document.id(), score.setScale(6, RoundingMode.HALF_UP), document.createdAt())
+                            : null;
+                })
+                .filter(Objects::nonNull)
+                .filter(hit -> after.isFollowedBy(hit.score(), hit.createdAt(), hit.id()))
+                .sorted(Comparator.comparing(Hit::score)
+                        .thenComparing(Hit::createdAt)
+                        .thenComparing(hit -> hit.id().toString())
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static Document document(UUID id, LocalDateTime createdAt, String cardLastFour, String... fields) {
+        String text = Stream.of(fields).map(field -> field != null ? field : "")
+                .collect(Collectors.joining(" ")).toLowerCase(Locale.ROOT);
+        return new Document(id, createdAt, text, words(text), cardLastFour);
+    }
+
+    private static Set<String> words(String text) {
+        return Arrays.stream(text.split("[^\\p{Alnum}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,41 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.id.UuidV7;
+import com.shah_s.bakery_payment_service.service.PaymentSearchService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+class InMemoryPaymentSearchServiceTests extends PaymentSearchServiceContract {
+
+    final private InMemoryPaymentSearchService searchService = new InMemoryPaymentSearchService();
+
+    @Override
+    protected PaymentSearchService searchService() {
+        return searchService;
+    }
+
+    @Override
+    protected Payment savePayment(String description, String notes, String cardLastFour) {
+        Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                new BigDecimal("9.99"), description);
+        payment.setId(UuidV7.next());
+        payment.setNotes(notes);
+        payment.setCardLastFour(cardLastFour);
+        payment.setCreatedAt(LocalDateTime.now());
+        searchService.index(payment);
+        return payment;
+    }
+
+    @Override
+    protected Refund saveRefund(Payment payment, String reason) {
+        Refund refund = new Refund(payment, new BigDecimal("9.99"), reason, UUID.randomUUID());
+        refund.setId(UuidV7.next());
+        refund.setCreatedAt(LocalDateTime.now());
+        searchService.index(refund);
+        return refund;
+    }
+}
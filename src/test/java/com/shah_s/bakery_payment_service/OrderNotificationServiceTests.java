@@ -0,0 +1,166 @@
+package com.shah_s.bakery_payment_service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.StubOrderService.RecordedRequest;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.PendingOrderNotification;
+import com.shah_s.bakery_payment_service.repository.PendingOrderNotificationRepository;
+import com.shah_s.bakery_payment_service.service.OrderNotificationService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class OrderNotificationServiceTests {
+
+    private static final StubOrderService orderService = startStub();
+
+    @Autowired
+    private OrderNotificationService notificationService;
+
+    @Autowired
+    private PendingOrderNotificationRepository pendingRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void orderServiceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.openfeign.client.config.order-service.url", orderService::baseUrl);
+        registry.add("eureka.client.enabled", () -> false);
+        // Tests drive flush and retry themselves
+        registry.add("payment.notification.flush-interval", () -> 3_600_000);
+        registry.add("payment.notification.retry-interval", () -> 3_600_000);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        orderService.close();
+    }
+
+    @BeforeEach
+    void reset() {
+        orderService.reset();
+        pendingRepository.deleteAll();
+        ReflectionTestUtils.setField(notificationService, "bulkDisabled", false);
+    }
+
+    @Test
+    void coalescesUpdatesPerOrderIntoOneBulkCall() throws Exception {
+        Payment first = payment();
+        Payment second = payment();
+
+        notify(first, Payment.PaymentStatus.PENDING);
+        notify(first, Payment.PaymentStatus.PROCESSING);
+        notify(first, Payment.PaymentStatus.COMPLETED);
+        notify(second, Payment.PaymentStatus.PENDING);
+        notificationService.flush();
+
+        List<RecordedRequest> requests = orderService.awaitRequests(1, Duration.ofSeconds(5));
+        Thread.sleep(200);
+
+        assertThat(orderService.requests()).hasSize(1);
+        assertThat(requests.get(0).path()).isEqualTo("/api/orders/payment-updates/bulk");
+
+        List<Map<String, Object>> updates = objectMapper.readValue(requests.get(0).body(), new TypeReference<>() {});
+        assertThat(updates).hasSize(2);
+        assertThat(updates).filteredOn(update -> first.getOrderId().toString().equals(update.get("orderId")))
+                .singleElement()
+                .satisfies(update -> assertThat(update.get("status")).isEqualTo("COMPLETED"));
+    }
+
+    @Test
+    void fallsBackToPerOrderCallsWhenBulkEndpointIsMissing() throws Exception {
+        orderService.respondWith((method, path) -> path.endsWith("/bulk") ? 404 : 200);
+        Payment first = payment();
+        Payment second = payment();
+
+        notify(first, Payment.PaymentStatus.COMPLETED);
+        notify(second, Payment.PaymentStatus.FAILED);
+        notificationService.flush();
+
+        List<RecordedRequest> requests = orderService.awaitRequests(3, Duration.ofSeconds(5));
+
+        assertThat(requests).extracting(RecordedRequest::path).containsExactlyInAnyOrder(
+                "/api/orders/payment-updates/bulk",
+                "/api/orders/" + first.getOrderId() + "/payment-update",
+                "/api/orders/" + second.getOrderId() + "/payment-update");
+    }
+
+    @Test
+    void storesUndeliveredUpdatesAndRetriesThem() throws Exception {
+        orderService.respondWith((method, path) -> 503);
+        Payment payment = payment();
+
+        notify(payment, Payment.PaymentStatus.COMPLETED);
+        notificationService.flush();
+
+        PendingOrderNotification stored = awaitStored(payment.getOrderId());
+        assertThat(stored.getPayload()).contains("COMPLETED");
+
+        // Order service recovers; make the stored update due now
+        orderService.respondWith((method, path) -> 200);
+        stored.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        pendingRepository.save(stored);
+        notificationService.retryUndelivered();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (pendingRepository.existsById(payment.getOrderId()) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(pendingRepository.existsById(payment.getOrderId())).isFalse();
+        assertThat(orderService.requests()).last()
+                .satisfies(request -> assertThat(request.path())
+                        .isEqualTo("/api/orders/" + payment.getOrderId() + "/payment-update"));
+    }
+
+    private void notify(Payment payment, Payment.PaymentStatus status) {
+        payment.setStatus(status);
+        notificationService.notifyPaymentStatus(payment);
+    }
+
+    private PendingOrderNotification awaitStored(UUID orderId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            var stored = pendingRepository.findById(orderId);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("No stored notification for order " + orderId);
+    }
+
+    private static Payment payment() {
+        Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                new BigDecimal("12.50"), "Test payment");
+        payment.setId(UUID.randomUUID());
+        return payment;
+    }
+
+    private static StubOrderService startStub() {
+        try {
+            return new StubOrderService();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.client.ReactiveOrderGateway;
+import com.shah_s.bakery_payment_service.service.OrderSnapshotService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Snapshot cache in front of a real reactive gateway and a local order-service stub; a short TTL so tests can outlive it
+class OrderSnapshotServiceTests {
+
+    private static final Duration TTL = Duration.ofMillis(300);
+
+    private StubOrderService orderService;
+
+    private ReactiveOrderGateway gateway;
+
+    private MeterRegistry meterRegistry;
+
+    private OrderSnapshotService snapshotService;
+
+    @BeforeEach
+    void start() throws Exception {
+        orderService = new StubOrderService();
+        gateway = new ReactiveOrderGateway(WebClient.builder(),
+                new DefaultListableBeanFactory().getBeanProvider(ReactorLoadBalancerExchangeFilterFunction.class),
+                orderService.baseUrl() + "/api/orders", false, false, 4, 1000,
+                Duration.ofSeconds(30), 2000, 2000);
+        meterRegistry = new SimpleMeterRegistry();
+        snapshotService = new OrderSnapshotService(gateway, meterRegistry, 1000, TTL);
+    }
+
+    @AfterEach
+    void stop() {
+        gateway.destroy();
+        orderService.close();
+    }
+
+    @Test
+    void concurrentMissesForOneOrderMakeOneRemoteCall() throws Exception {
+        UUID orderId = UUID.randomUUID();
+        orderService.addOrder(orderId, "42.50");
+
+        // Hold the answer until every caller has asked, so none of them finds a completed snapshot
+        CountDownLatch release = new CountDownLatch(1);
+        orderService.respondWith((method, path) -> {
+            await(release);
+            return 200;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        try {
+            List<Future<Map<String, Object>>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(() -> snapshotService.getOrder(orderId)));
+            }
+            awaitLookups(50);
+            release.countDown();
+
+            for (Future<Map<String, Object>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsEntry("id", orderId.toString());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertThat(orderService.requests()).hasSize(1);
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(requests("coalesced")).isEqualTo(49);
+        assertThat(requests("hit")).isZero();
+    }
+
+    @Test
+    void completedSnapshotsAreServedFromCacheUntilTheTtl() throws Exception {
+        UUID orderId = UUID.randomUUID();
+        orderService.addOrder(orderId, "10.00");
+
+        snapshotService.getOrder(orderId);
+        snapshotService.getOrder(orderId);
+        snapshotService.getOrder(orderId);
+
+        assertThat(orderService.requests()).hasSize(1);
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(requests("hit")).isEqualTo(2);
+
+        Thread.sleep(TTL.toMillis() * 2);
+        snapshotService.getOrder(orderId);
+
+        assertThat(orderService.requests()).hasSize(2);
+        assertThat(requests("miss")).isEqualTo(2);
+        assertThat(meterRegistry.get("payment.order.snapshot.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void failedLookupsAreNotCached() {
+        UUID orderId = UUID.randomUUID();
+
+        assertThatThrownBy(() -> snapshotService.getOrder(orderId))
+                .isInstanceOf(WebClientResponseException.NotFound.class);
+
+        orderService.addOrder(orderId, "12.00");
+        assertThat(snapshotService.getOrder(orderId)).containsEntry("id", orderId.toString());
+        assertThat(orderService.requests()).hasSize(2);
+        assertThat(requests("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void invalidatedSnapshotsAreFetchedAgain() {
+        UUID orderId = UUID.randomUUID();
+        orderService.addOrder(orderId, "10.00");
+
+        snapshotService.getOrder(orderId);
+        snapshotService.invalidate(orderId);
+        CompletableFuture<Map<String, Object>> lookup = snapshotService.getOrderAsync(orderId);
+
+        assertThat(snapshotService.await(lookup)).containsEntry("id", orderId.toString());
+        assertThat(orderService.requests()).hasSize(2);
+    }
+
+    // Wait until every submitted lookup has been counted as a miss or a coalesced join
+    private void awaitLookups(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests("miss") + requests("coalesced") < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("payment.order.snapshot.requests").tag("result", result).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.dto.RefundRequest;
+import com.shah_s.bakery_payment_service.dto.RefundResponse;
+import com.shah_s.bakery_payment_service.entity.OutboxEvent;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.exception.PaymentConflictException;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.repository.RefundRepository;
+import com.shah_s.bakery_payment_service.service.OutboxService;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService;
+import com.shah_s.bakery_payment_service.service.PaymentProcessingService;
+import com.shah_s.bakery_payment_service.service.PaymentService;
+import com.shah_s.bakery_payment_service.service.RefundProcessingService;
+import com.shah_s.bakery_payment_service.service.RefundService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+
+// The outbox worker is pushed out; the tests claim events and drive them the way it does. A second delivery is
+// simulated from inside the first gateway call, while that call is still in flight.
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.outbox.poll-interval=3600000",
+        "payment.retry.poll-interval=3600000"
+})
+class OutboxProcessingTests {
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private RefundProcessingService refundProcessingService;
+
+    @Autowired
+    private RefundService refundService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RefundRepository refundRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private PaymentGatewayService paymentGatewayService;
+
+    @Test
+    void staleReclaimedPaymentEventDoesNotChargeTwice() {
+        Payment payment = save(Payment.PaymentStatus.PENDING);
+        outboxService.enqueuePayment(payment.getId());
+        OutboxEvent event = claim(payment.getId());
+
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                // The call outlives the stale-lock timeout: another worker reclaims the event, and a duplicate arrives
+                expireLock(event.getId());
+                assertThat(claim(payment.getId()).getId()).isEqualTo(event.getId());
+                paymentProcessingService.processPayment(payment.getId());
+                paymentProcessingService.processPayment(payment.getId());
+            }
+            return invocation.callRealMethod();
+        }).when(paymentGatewayService).processPayment(any(Payment.class));
+
+        paymentProcessingService.processPayment(payment.getId());
+
+        assertThat(calls).hasValue(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_transactions WHERE payment_id = ?",
+                Long.class, payment.getId())).isEqualTo(1);
+        Payment processed = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(processed.getStatus()).isNotEqualTo(Payment.PaymentStatus.PROCESSING);
+        assertThat(processed.getProcessingStartedAt()).isNull();
+    }
+
+    @Test
+    void cancelIsRefusedWhileTheGatewayCallIsInFlight() {
+        Payment payment = save(Payment.PaymentStatus.PENDING);
+
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            calls.incrementAndGet();
+            assertThatThrownBy(() -> paymentService.cancelPayment(payment.getId(), "Customer changed their mind"))
+                    .isInstanceOf(PaymentConflictException.class);
+            return invocation.callRealMethod();
+        }).when(paymentGatewayService).processPayment(any(Payment.class));
+
+        paymentProcessingService.processPayment(payment.getId());
+
+        assertThat(calls).hasValue(1);
+        Payment processed = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(processed.getStatus()).isNotEqualTo(Payment.PaymentStatus.CANCELLED);
+        assertThat(processed.getProcessingStartedAt()).isNull();
+    }
+
+    @Test
+    void refundApprovedOrReclaimedMidCallIsSentOnce() {
+        Payment payment = save(Payment.PaymentStatus.COMPLETED);
+        RefundResponse refund = refundService.createRefund(new RefundRequest(payment.getId(),
+                new BigDecimal("5.00"), "Outbox test", UUID.randomUUID()));
+        OutboxEvent event = claim(refund.getId());
+
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                // Already with the gateway: approval is refused and queues nothing
+                assertThatThrownBy(() -> refundService.approveRefund(refund.getId(), UUID.randomUUID()))
+                        .isInstanceOf(PaymentServiceException.class);
+                assertThat(outboxEvents(refund.getId())).isEqualTo(1);
+
+                expireLock(event.getId());
+                assertThat(claim(refund.getId()).getId()).isEqualTo(event.getId());
+                refundProcessingService.processRefund(refund.getId());
+            }
+            return invocation.callRealMethod();
+        }).when(paymentGatewayService).processRefund(any(Refund.class));
+
+        refundProcessingService.processRefund(refund.getId());
+        // A later duplicate finds the refund settled
+        refundProcessingService.processRefund(refund.getId());
+
+        assertThat(calls).hasValue(1);
+        PaymentRepository.RefundBalance balance = paymentRepository.findRefundBalance(payment.getId()).orElseThrow();
+        assertThat(balance.getRefundedAmount()).isLessThanOrEqualTo(new BigDecimal("5.00"));
+        assertThat(balance.getReservedRefundAmount()).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void refundTurnedAwayByAnOpenBreakerIsRedelivered() {
+        Payment payment = save(Payment.PaymentStatus.COMPLETED);
+        RefundResponse refund = refundService.createRefund(new RefundRequest(payment.getId(),
+                new BigDecimal("5.00"), "Outbox test", UUID.randomUUID()));
+        OutboxEvent event = claim(refund.getId());
+
+        // What the gateway service answers while the breaker is open, without calling the gateway
+        doReturn(PaymentGatewayService.PaymentGatewayResponse.builder()
+                .success(false)
+                .failureCode(PaymentGatewayService.GATEWAY_UNAVAILABLE)
+                .gatewayResponse("Gateway MOCK is temporarily unavailable")
+                .build()).when(paymentGatewayService).processRefund(any(Refund.class));
+
+        assertThat(refundProcessingService.processRefund(refund.getId())).isFalse();
+        outboxService.markDeferred(event.getId(), "Gateway turned the call away; redelivering");
+
+        Refund deferred = refundRepository.findById(refund.getId()).orElseThrow();
+        assertThat(deferred.getStatus()).isEqualTo(Refund.RefundStatus.PENDING);
+        assertThat(deferred.getProcessingStartedAt()).isNull();
+        assertThat(deferred.getFailureCode()).isNull();
+        assertThat(paymentRepository.findRefundBalance(payment.getId()).orElseThrow().getReservedRefundAmount())
+                .isEqualByComparingTo("5.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM payment_outbox WHERE id = ?",
+                String.class, event.getId())).isEqualTo(OutboxEvent.OutboxStatus.PENDING.name());
+
+        // The breaker closes and the redelivered event reaches the gateway
+        doCallRealMethod().when(paymentGatewayService).processRefund(any(Refund.class));
+        jdbcTemplate.update("UPDATE payment_outbox SET available_at = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), event.getId());
+        assertThat(claim(refund.getId()).getId()).isEqualTo(event.getId());
+
+        assertThat(refundProcessingService.processRefund(refund.getId())).isTrue();
+        assertThat(refundRepository.findById(refund.getId()).orElseThrow().getStatus())
+                .isNotIn(Refund.RefundStatus.PENDING, Refund.RefundStatus.PROCESSING);
+    }
+
+    // Claims due events like the worker does and returns the one for the aggregate
+    private OutboxEvent claim(UUID aggregateId) {
+        List<OutboxEvent> claimed = outboxService.claimBatch(50);
+        return claimed.stream()
+                .filter(event -> event.getAggregateId().equals(aggregateId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void expireLock(UUID eventId) {
+        jdbcTemplate.update("UPDATE payment_outbox SET locked_at = ? WHERE id = ?",
+                LocalDateTime.now().minusHours(1), eventId);
+    }
+
+    private long outboxEvents(UUID aggregateId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_outbox WHERE aggregate_id = ?",
+                Long.class, aggregateId);
+    }
+
+    private Payment save(Payment.PaymentStatus status) {
+        return TestPayments.save(paymentRepository, status, "18.00");
+    }
+}
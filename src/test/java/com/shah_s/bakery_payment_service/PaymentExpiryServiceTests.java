@@ -0,0 +1,124 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.PaymentExpiryService;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService;
+import com.shah_s.bakery_payment_service.service.PaymentProcessingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Small chunks so one sweep spans several claims; scheduled sweeps are pushed out so only the test sweeps
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.expiry.sweep-interval=3600000",
+        "payment.expiry.chunk-size=3",
+        "payment.expiry.max-chunks=1000"
+})
+class PaymentExpiryServiceTests {
+
+    @Autowired
+    private PaymentExpiryService paymentExpiryService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoSpyBean
+    private PaymentGatewayService paymentGatewayService;
+
+    @Test
+    void expiredPendingPaymentsAreCancelledOnce() throws Exception {
+        List<Payment> expired = new ArrayList<>();
+        List<Payment> held = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Payment payment = i % 4 == 0 ? saveHeldAtGateway(LocalDateTime.now().minusMinutes(1 + i))
+                    : savePending(LocalDateTime.now().minusMinutes(1 + i));
+            expired.add(payment);
+            if (i % 4 == 0) {
+                held.add(payment);
+            }
+        }
+        Payment open = savePending(LocalDateTime.now().plusMinutes(10));
+        double expiredBefore = expiredCount();
+
+        // Two sweepers at once, as on two instances
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(paymentExpiryService::sweep);
+            Future<?> second = executor.submit(paymentExpiryService::sweep);
+            first.get();
+            second.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (Payment payment : expired) {
+            Payment reloaded = paymentRepository.findById(payment.getId()).orElseThrow();
+            assertThat(reloaded.getStatus()).isEqualTo(Payment.PaymentStatus.CANCELLED);
+            assertThat(reloaded.getFailureCode()).isEqualTo(PaymentExpiryService.EXPIRED_CODE);
+            assertThat(reloaded.getCancelledAt()).isNotNull();
+        }
+        assertThat(paymentRepository.findById(open.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.PENDING);
+        assertThat(expiredCount() - expiredBefore).isEqualTo(expired.size());
+        // Only the transactions the gateway still holds are voided, each once
+        verify(paymentGatewayService, times(held.size())).voidPayment(any(Payment.class));
+        for (Payment payment : held) {
+            verify(paymentGatewayService).voidPayment(argThat(voided -> voided.getId().equals(payment.getId())));
+        }
+        assertThat(meterRegistry.get("payment.expiry.lag").gauge().value()).isZero();
+    }
+
+    private double expiredCount() {
+        return meterRegistry.get("payment.expiry.payments").counter().count();
+    }
+
+    private Payment savePending(LocalDateTime expiresAt) {
+        return TestPayments.save(paymentRepository, Payment.PaymentStatus.PENDING, "15.00",
+                payment -> payment.setExpiresAt(expiresAt));
+    }
+
+    // Processed while still open: the manual gateway answers pending and keeps a transaction open, then it expires
+    private Payment saveHeldAtGateway(LocalDateTime expiresAt) {
+        Payment payment = TestPayments.save(paymentRepository, Payment.PaymentStatus.PENDING, "15.00", pending -> {
+            pending.setPaymentGateway(Payment.PaymentGateway.MANUAL);
+            pending.setExpiresAt(LocalDateTime.now().plusMinutes(10));
+        });
+        paymentProcessingService.processPayment(payment.getId());
+
+        Payment processed = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(processed.getStatus()).isEqualTo(Payment.PaymentStatus.PENDING);
+        assertThat(processed.getGatewayPaymentId()).isNotBlank();
+
+        jdbcTemplate.update("UPDATE payments SET expires_at = ? WHERE id = ?", expiresAt, payment.getId());
+        return processed;
+    }
+}
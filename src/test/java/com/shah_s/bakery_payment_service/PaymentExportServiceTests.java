@@ -0,0 +1,114 @@
+package com.shah_s.bakery_payment_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.PaymentExportService;
+import com.shah_s.bakery_payment_service.service.PaymentExportService.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.export.fetch-size=2",
+        "payment.export.flush-rows=2"
+})
+class PaymentExportServiceTests {
+
+    @Autowired
+    private PaymentExportService exportService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void streamsNdjsonInCreationOrder() throws Exception {
+        UUID userId = UUID.randomUUID();
+        List<Payment> saved = savePayments(userId, 5, Payment.PaymentStatus.REFUNDED);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1),
+                Payment.PaymentStatus.REFUNDED, ExportFormat.NDJSON, out);
+
+        List<JsonNode> lines = out.toString(StandardCharsets.UTF_8).lines()
+                .map(this::readJson)
+                .filter(node -> node.get("userId").asText().equals(userId.toString()))
+                .toList();
+
+        assertThat(rows).isGreaterThanOrEqualTo(5);
+        assertThat(lines).extracting(node -> node.get("paymentReference").asText())
+                .containsExactlyElementsOf(saved.stream().map(Payment::getPaymentReference).toList());
+        assertThat(lines.get(0).get("amount").decimalValue()).isEqualByComparingTo("12.50");
+        assertThat(lines.get(0).has("failureCode")).isFalse();
+    }
+
+    @Test
+    void writesCsvWithHeaderAndQuotedFields() throws Exception {
+        UUID userId = UUID.randomUUID();
+        savePayments(userId, 2, Payment.PaymentStatus.FAILED)
+                .forEach(payment -> {
+                    payment.setFailureCode("DECLINED, \"hard\"");
+                    paymentRepository.saveAndFlush(payment);
+                });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1),
+                Payment.PaymentStatus.FAILED, ExportFormat.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines.get(0)).startsWith("id,paymentReference,orderId,userId");
+        assertThat(lines).filteredOn(line -> line.contains(userId.toString())).hasSize(2)
+                .allMatch(line -> line.contains(",12.50,"))
+                .allMatch(line -> line.contains(",\"DECLINED, \"\"hard\"\"\","));
+    }
+
+    @Test
+    void stopsWhenTheClientDisconnects() {
+        savePayments(UUID.randomUUID(), 6, Payment.PaymentStatus.CANCELLED);
+
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> exportService.export(LocalDateTime.now().minusHours(1),
+                LocalDateTime.now().plusHours(1), Payment.PaymentStatus.CANCELLED, ExportFormat.NDJSON, disconnected))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Broken pipe");
+    }
+
+    private List<Payment> savePayments(UUID userId, int count, Payment.PaymentStatus status) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> TestPayments.save(paymentRepository, status, "12.50", payment -> payment.setUserId(userId)))
+                .toList();
+    }
+
+    private JsonNode readJson(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
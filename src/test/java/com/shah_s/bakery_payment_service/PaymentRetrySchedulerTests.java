@@ -0,0 +1,115 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService;
+import com.shah_s.bakery_payment_service.service.PaymentRetryScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Outbox workers and scheduled retry runs are pushed out so only the test dispatches
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.outbox.poll-interval=3600000",
+        "payment.retry.tick-interval=3600000",
+        "payment.retry.poll-interval=3600000"
+})
+class PaymentRetrySchedulerTests {
+
+    @Autowired
+    private PaymentRetryScheduler paymentRetryScheduler;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void dueRetriesAreClaimedOnceAndHandedToTheOutbox() throws Exception {
+        Payment transientFailure = saveFailed(PaymentGatewayService.GATEWAY_UNAVAILABLE, LocalDateTime.now().minusSeconds(1));
+        Payment declined = saveFailed("DECLINED", null);
+
+        paymentRetryScheduler.schedule(transientFailure.getId(), transientFailure.getNextRetryAt());
+        paymentRetryScheduler.schedule(transientFailure.getId(), transientFailure.getNextRetryAt());
+        paymentRetryScheduler.schedule(declined.getId(), LocalDateTime.now().minusSeconds(1));
+
+        // Two dispatchers at once, as on two instances
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(paymentRetryScheduler::dispatchDue);
+            Future<?> second = executor.submit(paymentRetryScheduler::dispatchDue);
+            first.get();
+            second.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        Payment retried = paymentRepository.findById(transientFailure.getId()).orElseThrow();
+        assertThat(retried.getStatus()).isEqualTo(Payment.PaymentStatus.PROCESSING);
+        assertThat(retried.getRetryCount()).isEqualTo(1);
+        assertThat(retried.getNextRetryAt()).isNull();
+        assertThat(retried.getFailureCode()).isNull();
+        assertThat(outboxEvents(transientFailure.getId())).isEqualTo(1);
+
+        assertThat(paymentRepository.findById(declined.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.FAILED);
+        assertThat(outboxEvents(declined.getId())).isZero();
+    }
+
+    @Test
+    void onlyTransientFailuresWithAttemptsLeftAreScheduled() {
+        Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                new BigDecimal("9.00"), "Retry test");
+
+        LocalDateTime before = LocalDateTime.now();
+        LocalDateTime next = paymentRetryScheduler.nextAttemptAt(payment, true);
+        assertThat(next).isBetween(before.plusNanos(500_000_000L), LocalDateTime.now().plusSeconds(1));
+
+        assertThat(paymentRetryScheduler.nextAttemptAt(payment, false)).isNull();
+
+        payment.setRetryCount(3);
+        assertThat(paymentRetryScheduler.nextAttemptAt(payment, true)).isNull();
+
+        // Only failures that never reached the gateway are sent again
+        assertThat(PaymentGatewayService.isTransientFailure(PaymentGatewayService.GATEWAY_UNAVAILABLE)).isTrue();
+        assertThat(PaymentGatewayService.isTransientFailure(PaymentGatewayService.GATEWAY_BUSY)).isTrue();
+        assertThat(PaymentGatewayService.isTransientFailure(PaymentGatewayService.GATEWAY_TIMEOUT)).isFalse();
+    }
+
+    @Test
+    void backoffGrowsUpToTheMaximumWithJitter() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long delay = Math.min(10000, 1000L << (attempt - 1));
+            for (int i = 0; i < 50; i++) {
+                assertThat(paymentRetryScheduler.backoffMs(attempt)).isBetween(delay / 2, delay);
+            }
+        }
+    }
+
+    private long outboxEvents(UUID paymentId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_outbox WHERE aggregate_id = ?",
+                Long.class, paymentId);
+    }
+
+    private Payment saveFailed(String failureCode, LocalDateTime nextRetryAt) {
+        return TestPayments.save(paymentRepository, Payment.PaymentStatus.FAILED, "12.00", payment -> {
+            payment.setFailedAt(LocalDateTime.now().minusSeconds(5));
+            payment.setFailureCode(failureCode);
+            payment.setNextRetryAt(nextRetryAt);
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.dto.SearchCursor;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.service.PaymentSearchService;
+import com.shah_s.bakery_payment_service.service.PaymentSearchService.Hit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Behaviour every PaymentSearchService must share, so the in-memory implementation stays a faithful stand-in
+abstract class PaymentSearchServiceContract {
+
+    protected abstract PaymentSearchService searchService();
+
+    protected abstract Payment savePayment(String description, String notes, String cardLastFour);
+
+    protected abstract Refund saveRefund(Payment payment, String reason);
+
+    @Test
+    void findsPaymentsByWordInDescriptionOrNotes() {
+        String word = uniqueWord();
+        Payment inDescription = savePayment("Birthday cake " + word, null, null);
+        Payment inNotes = savePayment("Sourdough", word + " for pickup", null);
+        savePayment("Sourdough", "No match here", null);
+
+        assertThat(ids(searchService().searchPayments(word, SearchCursor.start(), 10)))
+                .containsExactlyInAnyOrder(inDescription.getId(), inNotes.getId());
+    }
+
+    @Test
+    void findsPaymentsBySubstringOfTheReference() {
+        Payment payment = savePayment("Baguettes", null, null);
+        String reference = payment.getPaymentReference();
+
+        assertThat(ids(searchService().searchPayments(reference.substring(reference.length() - 6),
+                SearchCursor.start(), 50)))
+                .contains(payment.getId());
+    }
+
+    @Test
+    void findsPaymentsByCardLastFour() {
+        String card = cardLastFour();
+        Payment payment = savePayment("Croissants", null, card);
+
+        assertThat(ids(searchService().searchPayments(card, SearchCursor.start(), 200))).contains(payment.getId());
+    }
+
+    @Test
+    void ranksWholeWordMatchesAboveSubstringMatches() {
+        String word = uniqueWord();
+        Payment substring = savePayment("Order xx" + word + "yy", null, null);
+        Payment wholeWord = savePayment("Order " + word + " today", null, null);
+
+        assertThat(ids(searchService().searchPayments(word, SearchCursor.start(), 10)))
+                .containsExactly(wholeWord.getId(), substring.getId());
+    }
+
+    @Test
+    void findsRefundsByReasonAndByTheCardOfThePayment() {
+        String word = uniqueWord();
+        String card = cardLastFour();
+        Refund byReason = saveRefund(savePayment("Tart", null, null), "Customer said " + word);
+        Refund byCard = saveRefund(savePayment("Tart", null, card), "Damaged box");
+
+        assertThat(ids(searchService().searchRefunds(word, SearchCursor.start(), 10)))
+                .containsExactly(byReason.getId());
+        assertThat(ids(searchService().searchRefunds(card, SearchCursor.start(), 200)))
+                .contains(byCard.getId());
+    }
+
+    @Test
+    void pagesThroughEveryMatchExactlyOnce() {
+        String word = uniqueWord();
+        List<UUID> saved = IntStream.range(0, 5)
+                .mapToObj(i -> savePayment("Macarons " + word, null, null).getId())
+                .toList();
+
+        List<UUID> seen = new ArrayList<>();
+        SearchCursor cursor = SearchCursor.start();
+        List<Hit> page;
+        do {
+            page = searchService().searchPayments(word, cursor, 2);
+            page.forEach(hit -> seen.add(hit.id()));
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).cursor();
+        } while (page.size() == 2);
+
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(saved);
+    }
+
+    private static List<UUID> ids(List<Hit> hits) {
+        return hits.stream().map(Hit::id).toList();
+    }
+
+    // Letters only, so it is one word for every tokenizer and matches nothing else
+    private static String uniqueWord() {
+        StringBuilder word = new StringBuilder("w");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 12; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String cardLastFour() {
+        return String.format("%04d", ThreadLocalRandom.current().nextInt(10000));
+    }
+}
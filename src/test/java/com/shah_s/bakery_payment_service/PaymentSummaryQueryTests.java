@@ -0,0 +1,158 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.dto.CursorPage;
+import com.shah_s.bakery_payment_service.dto.PaymentResponse;
+import com.shah_s.bakery_payment_service.dto.PaymentSummaryResponse;
+import com.shah_s.bakery_payment_service.dto.RefundRequest;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.PaymentTransaction;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.repository.RefundRepository;
+import com.shah_s.bakery_payment_service.service.PaymentService;
+import com.shah_s.bakery_payment_service.service.RefundService;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Counts the statements Hibernate prepares on the test thread while one page is read; outbox polling is pushed out
+// so refunds stay pending and keep their reservations
+@Import({TestcontainersConfiguration.class, PaymentSummaryQueryTests.StatementCounting.class})
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.outbox.poll-interval=3600000"
+})
+class PaymentSummaryQueryTests {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final ThreadLocal<int[]> statements = new ThreadLocal<>();
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RefundRepository refundRepository;
+
+    @Autowired
+    private RefundService refundService;
+
+    private UUID seededUserId;
+
+    // A full page of payments that each have a transaction and a refund to load
+    @BeforeEach
+    void seed() {
+        seed(PAGE_SIZE + 5);
+    }
+
+    private void seed(int count) {
+        for (int i = 0; i < count; i++) {
+            Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                    new BigDecimal("20.00"), "Summary query test");
+            payment.setStatus(Payment.PaymentStatus.COMPLETED);
+            payment.addTransaction(new PaymentTransaction(payment, PaymentTransaction.TransactionType.SALE,
+                    payment.getAmount(), "Summary query test"));
+            Payment saved = paymentRepository.saveAndFlush(payment);
+            seededUserId = saved.getUserId();
+            refundRepository.saveAndFlush(new Refund(saved, new BigDecimal("1.00"), "Summary query test", UUID.randomUUID()));
+        }
+    }
+
+    @Test
+    void summaryPageIsOneStatement() {
+        Counted<CursorPage<PaymentSummaryResponse>> page =
+                counted(() -> paymentService.getAllPaymentSummaries(null, PAGE_SIZE));
+
+        assertThat(page.result().getItems()).hasSize(PAGE_SIZE);
+        assertThat(page.statements()).isEqualTo(1);
+    }
+
+    @Test
+    void filteredSummaryPagesAreOneStatement() {
+        assertThat(counted(() -> paymentService.getPaymentSummariesByStatus(Payment.PaymentStatus.COMPLETED,
+                null, PAGE_SIZE)).statements()).isEqualTo(1);
+        assertThat(counted(() -> paymentService.getPaymentSummariesByUserId(seededUserId,
+                null, PAGE_SIZE)).statements()).isEqualTo(1);
+    }
+
+    @Test
+    void summaryRefundableAmountLeavesOutReservedRefunds() {
+        Payment payment = TestPayments.save(paymentRepository, Payment.PaymentStatus.COMPLETED, "20.00");
+        refundService.createRefund(new RefundRequest(payment.getId(), new BigDecimal("5.00"), "Summary query test",
+                UUID.randomUUID()));
+
+        Counted<CursorPage<PaymentSummaryResponse>> page =
+                counted(() -> paymentService.getPaymentSummariesByUserId(payment.getUserId(), null, PAGE_SIZE));
+
+        assertThat(page.statements()).isEqualTo(1);
+        PaymentSummaryResponse summary = page.result().getItems().get(0);
+        assertThat(summary.getReservedRefundAmount()).isEqualByComparingTo("5.00");
+        assertThat(summary.getRefundableAmount()).isEqualByComparingTo("15.00")
+                .isEqualByComparingTo(paymentRepository.findById(payment.getId()).orElseThrow().getRefundableAmount());
+    }
+
+    // The page plus one batch per collection (default_batch_fetch_size covers the page), not 1 + 2N
+    @Test
+    void fullPageLoadsCollectionsInBatches() {
+        Counted<CursorPage<PaymentResponse>> page = counted(() -> paymentService.getAllPayments(null, PAGE_SIZE));
+
+        assertThat(page.result().getItems()).hasSize(PAGE_SIZE);
+        assertThat(page.statements()).isLessThanOrEqualTo(3);
+    }
+
+    // The largest page a client can ask for still needs one batch per collection
+    @Test
+    void maxLimitPageLoadsCollectionsInBatches() {
+        seed(CursorPage.MAX_LIMIT);
+
+        Counted<CursorPage<PaymentResponse>> page =
+                counted(() -> paymentService.getAllPayments(null, CursorPage.MAX_LIMIT));
+
+        assertThat(page.result().getItems()).hasSize(CursorPage.MAX_LIMIT);
+        assertThat(page.statements()).isLessThanOrEqualTo(3);
+    }
+
+    private static <T> Counted<T> counted(Supplier<T> read) {
+        int[] count = new int[1];
+        statements.set(count);
+        try {
+            T result = read.get();
+            return new Counted<>(result, count[0]);
+        } finally {
+            statements.remove();
+        }
+    }
+
+    record Counted<T>(T result, int statements) {}
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class StatementCounting {
+
+        @Bean
+        HibernatePropertiesCustomizer statementCountingCustomizer() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                int[] count = statements.get();
+                if (count != null) {
+                    count[0]++;
+                }
+                return sql;
+            });
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.repository.RefundRepository;
+import com.shah_s.bakery_payment_service.service.PaymentSearchService;
+import com.shah_s.bakery_payment_service.service.PostgresPaymentSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "eureka.client.enabled=false")
+class PostgresPaymentSearchServiceTests extends PaymentSearchServiceContract {
+
+    @Autowired
+    private PostgresPaymentSearchService searchService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RefundRepository refundRepository;
+
+    @Override
+    protected PaymentSearchService searchService() {
+        return searchService;
+    }
+
+    @Override
+    protected Payment savePayment(String description, String notes, String cardLastFour) {
+        Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                new BigDecimal("9.99"), description);
+        payment.setNotes(notes);
+        payment.setCardLastFour(cardLastFour);
+        return paymentRepository.saveAndFlush(payment);
+    }
+
+    @Override
+    protected Refund saveRefund(Payment payment, String reason) {
+        return refundRepository.saveAndFlush(new Refund(payment, new BigDecimal("9.99"), reason, UUID.randomUUID()));
+    }
+}
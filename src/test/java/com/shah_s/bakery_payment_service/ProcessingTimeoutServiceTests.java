@@ -0,0 +1,62 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.ProcessingTimeoutService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Scheduled sweeps are pushed out so only the test sweeps
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.processing-timeout.sweep-interval=3600000",
+        "payment.processing-timeout.timeout=5m"
+})
+class ProcessingTimeoutServiceTests {
+
+    @Autowired
+    private ProcessingTimeoutService processingTimeoutService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void stuckClaimsAreFailedForReview() {
+        Payment stuck = saveProcessing(LocalDateTime.now().minusMinutes(30));
+        Payment inFlight = saveProcessing(LocalDateTime.now().minusSeconds(5));
+        double timedOutBefore = meterRegistry.get("payment.processing.timeouts").counter().count();
+
+        processingTimeoutService.sweep();
+
+        Payment failed = paymentRepository.findById(stuck.getId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(Payment.PaymentStatus.FAILED);
+        assertThat(failed.getFailureCode()).isEqualTo(ProcessingTimeoutService.TIMEOUT_CODE);
+        assertThat(failed.getProcessingStartedAt()).isNull();
+        assertThat(failed.getNextRetryAt()).isNull();
+        assertThat(paymentRepository.findById(inFlight.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.PROCESSING);
+        assertThat(meterRegistry.get("payment.processing.timeouts").counter().count() - timedOutBefore)
+                .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("payment.processing.stale").gauge().value()).isGreaterThanOrEqualTo(1);
+
+        // Nothing stale is left for the next pass
+        processingTimeoutService.sweep();
+        assertThat(meterRegistry.get("payment.processing.stale").gauge().value()).isZero();
+    }
+
+    private Payment saveProcessing(LocalDateTime processingStartedAt) {
+        return TestPayments.save(paymentRepository, Payment.PaymentStatus.PROCESSING, "12.00",
+                payment -> payment.setProcessingStartedAt(processingStartedAt));
+    }
+}
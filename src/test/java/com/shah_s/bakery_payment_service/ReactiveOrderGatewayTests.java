@@ -0,0 +1,73 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.client.ReactiveOrderGateway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactiveOrderGatewayTests {
+
+    private StubOrderService orderService;
+
+    private ReactiveOrderGateway gateway;
+
+    @BeforeEach
+    void start() throws Exception {
+        orderService = new StubOrderService();
+        gateway = new ReactiveOrderGateway(WebClient.builder(),
+                new DefaultListableBeanFactory().getBeanProvider(ReactorLoadBalancerExchangeFilterFunction.class),
+                orderService.baseUrl() + "/api/orders", false, false, 4, 1000,
+                Duration.ofSeconds(30), 2000, 2000);
+    }
+
+    @AfterEach
+    void stop() {
+        gateway.destroy();
+        orderService.close();
+    }
+
+    @Test
+    void fetchesOrder() {
+        UUID orderId = UUID.randomUUID();
+        orderService.addOrder(orderId, "42.50");
+
+        Map<String, Object> order = gateway.getOrder(orderId).join();
+
+        assertThat(order).containsEntry("id", orderId.toString());
+        assertThat(order.get("totalAmount").toString()).isEqualTo("42.5");
+    }
+
+    @Test
+    void failsForUnknownOrder() {
+        assertThatThrownBy(() -> gateway.getOrder(UUID.randomUUID()).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(WebClientResponseException.NotFound.class);
+    }
+
+    @Test
+    void queuesLookupsBeyondThePoolSize() {
+        List<UUID> orderIds = IntStream.range(0, 50).mapToObj(i -> UUID.randomUUID()).toList();
+        orderIds.forEach(orderId -> orderService.addOrder(orderId, "10.00"));
+
+        List<CompletableFuture<Map<String, Object>>> lookups = orderIds.stream().map(gateway::getOrder).toList();
+        CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(lookups).allSatisfy(lookup -> assertThat(lookup.join()).containsKey("totalAmount"));
+        assertThat(orderService.requests()).hasSize(50);
+    }
+}
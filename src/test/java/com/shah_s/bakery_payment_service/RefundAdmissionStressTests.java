@@ -0,0 +1,160 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.dto.RefundRequest;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.service.RefundService;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Outbox polling is pushed out so admitted refunds stay pending and keep their reservations
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.outbox.poll-interval=3600000"
+})
+class RefundAdmissionStressTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefundAdmissionStressTests.class);
+
+    @Autowired
+    private RefundService refundService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void parallelRefundsOfOnePaymentNeverExceedItsAmount() throws Exception {
+        Payment payment = saveCompletedPayment("100.00");
+
+        List<Callable<Boolean>> refunds = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            refunds.add(() -> admit(payment, "1.00"));
+        }
+
+        int admitted = run("one payment", refunds);
+
+        assertThat(admitted).isEqualTo(100);
+        assertBalanced(payment.getId());
+        assertThat(paymentRepository.findRefundBalance(payment.getId()).orElseThrow().getAvailableAmount())
+                .isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void parallelRefundsAcrossManyPaymentsNeverExceedTheirAmounts() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            payments.add(saveCompletedPayment("20.00"));
+        }
+
+        // Interleaved so every payment is contended at the same time
+        List<Callable<Boolean>> refunds = new ArrayList<>();
+        for (int round = 0; round < 8; round++) {
+            for (Payment payment : payments) {
+                refunds.add(() -> admit(payment, "3.00"));
+            }
+        }
+
+        int admitted = run("50 payments", refunds);
+
+        assertThat(admitted).isEqualTo(50 * 6);
+        for (Payment payment : payments) {
+            assertBalanced(payment.getId());
+        }
+    }
+
+    @Test
+    void overlappingBulkRefundsDoNotDeadlock() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            payments.add(saveCompletedPayment("100.00"));
+        }
+
+        // Every bulk request covers all payments, each listing them in its own order
+        List<Callable<Boolean>> bulks = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            List<RefundRequest> requests = new ArrayList<>();
+            for (Payment payment : payments) {
+                requests.add(new RefundRequest(payment.getId(), new BigDecimal("2.00"), "Order cancelled", UUID.randomUUID()));
+            }
+            Collections.shuffle(requests);
+            bulks.add(() -> refundService.createRefunds(requests).size() == requests.size());
+        }
+
+        int admitted = run("overlapping bulk requests", bulks);
+
+        assertThat(admitted).isEqualTo(30);
+        for (Payment payment : payments) {
+            assertBalanced(payment.getId());
+            assertThat(paymentRepository.findRefundBalance(payment.getId()).orElseThrow().getReservedRefundAmount())
+                    .isEqualByComparingTo("60.00");
+        }
+    }
+
+    private boolean admit(Payment payment, String amount) {
+        try {
+            refundService.createRefund(new RefundRequest(payment.getId(), new BigDecimal(amount),
+                    "Order cancelled", UUID.randomUUID()));
+            return true;
+        } catch (PaymentServiceException e) {
+            assertThat(e.getMessage()).containsAnyOf("exceeds refundable amount", "cannot be refunded");
+            return false;
+        }
+    }
+
+    private int run(String scenario, List<Callable<Boolean>> refunds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        long started = System.nanoTime();
+        int admitted = 0;
+        try {
+            for (Future<Boolean> result : executor.invokeAll(refunds)) {
+                if (result.get()) {
+                    admitted++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        logger.info("Refund admission ({}): {} requests, {} admitted in {}s, {} requests/s", scenario,
+                   refunds.size(), admitted, String.format("%.2f", seconds), String.format("%.0f", refunds.size() / seconds));
+        return admitted;
+    }
+
+    // The reservation equals the open refunds and, with the completed ones, stays within the payment amount
+    private void assertBalanced(UUID paymentId) {
+        PaymentRepository.RefundBalance balance = paymentRepository.findRefundBalance(paymentId).orElseThrow();
+        BigDecimal open = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(amount), 0) FROM refunds " +
+                "WHERE payment_id = ? AND status IN ('PENDING', 'PROCESSING')", BigDecimal.class, paymentId);
+
+        assertThat(balance.getReservedRefundAmount()).isEqualByComparingTo(open);
+        assertThat(balance.getRefundedAmount().add(balance.getReservedRefundAmount()))
+                .isLessThanOrEqualTo(balance.getAmount());
+    }
+
+    private Payment saveCompletedPayment(String amount) {
+        return TestPayments.save(paymentRepository, Payment.PaymentStatus.COMPLETED, amount);
+    }
+}
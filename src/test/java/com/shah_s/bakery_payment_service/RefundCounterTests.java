@@ -0,0 +1,104 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "eureka.client.enabled=false")
+class RefundCounterTests {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentCompletionsNeverRefundMoreThanTheAmount() throws Exception {
+        Payment payment = saveCompletedPayment("10.00");
+
+        List<Callable<Integer>> completions = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            completions.add(() -> transactionTemplate.execute(status ->
+                    paymentRepository.recordCompletedRefund(payment.getId(), new BigDecimal("1.00"))));
+        }
+
+        int applied = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Integer> result : executor.invokeAll(completions)) {
+                applied += result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Payment reloaded = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(applied).isEqualTo(10);
+        assertThat(reloaded.getTotalRefundedAmount()).isEqualByComparingTo("10.00");
+        assertThat(reloaded.getRefundCount()).isEqualTo(10);
+        assertThat(reloaded.getRefundableAmount()).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void paymentIsMarkedRefundedOnlyOnceFullyRefunded() {
+        Payment payment = saveCompletedPayment("30.00");
+
+        assertThat(recordAndMark(payment, "20.00")).isZero();
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.COMPLETED);
+
+        assertThat(recordAndMark(payment, "10.00")).isEqualTo(1);
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.REFUNDED);
+    }
+
+    @Test
+    void savingAStalePaymentFailsAndKeepsTheCounters() {
+        Payment payment = saveCompletedPayment("50.00");
+        transactionTemplate.execute(status ->
+                paymentRepository.recordCompletedRefund(payment.getId(), new BigDecimal("5.00")));
+
+        // The detached copy predates the counter update
+        payment.setNotes("Edited after the refund completed");
+        assertThatThrownBy(() -> paymentRepository.saveAndFlush(payment))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        Payment current = paymentRepository.findById(payment.getId()).orElseThrow();
+        current.setNotes("Edited after the refund completed");
+        paymentRepository.saveAndFlush(current);
+
+        Payment reloaded = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(reloaded.getNotes()).isEqualTo("Edited after the refund completed");
+        assertThat(reloaded.getTotalRefundedAmount()).isEqualByComparingTo("5.00");
+        assertThat(reloaded.getRefundCount()).isEqualTo(1);
+    }
+
+    private int recordAndMark(Payment payment, String amount) {
+        return transactionTemplate.execute(status -> {
+            paymentRepository.recordCompletedRefund(payment.getId(), new BigDecimal(amount));
+            return paymentRepository.markRefundedIfFullyRefunded(payment.getId());
+        });
+    }
+
+    private Payment saveCompletedPayment(String amount) {
+        return TestPayments.save(paymentRepository, Payment.PaymentStatus.COMPLETED, amount);
+    }
+}
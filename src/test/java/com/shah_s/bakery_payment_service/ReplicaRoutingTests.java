@@ -0,0 +1,214 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.config.ReplicaSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.DoublePredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The primary comes from TestcontainersConfiguration; a second container stands in for the replica
+@Testcontainers
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.datasource.replicas.health-check-interval=3600000",
+        "payment.datasource.replicas.connection-timeout=1s"
+})
+class ReplicaRoutingTests {
+
+    private static final String REPLICA_DATABASE = "replica_db";
+
+    @Container
+    static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"))
+            .withDatabaseName(REPLICA_DATABASE);
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("payment.datasource.replicas.urls", replica::getJdbcUrl);
+        registry.add("payment.datasource.replicas.username", replica::getUsername);
+        registry.add("payment.datasource.replicas.password", replica::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReplicaSet replicaSet;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void checkReplicas() {
+        replicaSet.checkHealth();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        assertThat(databaseIn(readOnly())).isEqualTo(REPLICA_DATABASE);
+    }
+
+    @Test
+    void readWriteTransactionsUseThePrimary() {
+        assertThat(databaseIn(readWrite())).isNotEqualTo(REPLICA_DATABASE);
+    }
+
+    @Test
+    void readsAfterAWriteInTheSameRequestStayOnThePrimary() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        assertThat(databaseIn(readOnly())).isEqualTo(REPLICA_DATABASE);
+        String primary = databaseIn(readWrite());
+        assertThat(databaseIn(readOnly())).isEqualTo(primary);
+
+        // A new request starts unpinned
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(databaseIn(readOnly())).isEqualTo(REPLICA_DATABASE);
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhileTheReplicaIsDown() throws SQLException {
+        setReplicaConnectionsAllowed(false);
+        try {
+            replicaSet.checkHealth();
+            assertThat(databaseIn(readOnly())).isNotEqualTo(REPLICA_DATABASE);
+        } finally {
+            setReplicaConnectionsAllowed(true);
+        }
+
+        assertThat(awaitReplicaReads()).isEqualTo(REPLICA_DATABASE);
+    }
+
+    @Test
+    void standbyThatStoppedStreamingFallsBackToThePrimary() throws SQLException {
+        setStandbyWithoutReceiver(true);
+        try {
+            // The replayed and received positions match, so only the receiver check takes it out of rotation
+            assertThat(awaitLag(Double::isNaN)).isNaN();
+            assertThat(databaseIn(readOnly())).isNotEqualTo(REPLICA_DATABASE);
+        } finally {
+            setStandbyWithoutReceiver(false);
+        }
+
+        assertThat(awaitReplicaReads()).isEqualTo(REPLICA_DATABASE);
+    }
+
+    // The health check may first hit a killed pooled connection, so it can take a few checks to see the new session
+    private double awaitLag(DoublePredicate expected) {
+        double lag = lag();
+        for (int attempt = 0; attempt < 10 && !expected.test(lag); attempt++) {
+            sleep(200);
+            replicaSet.checkHealth();
+            lag = lag();
+        }
+        return lag;
+    }
+
+    private double lag() {
+        return meterRegistry.get("payment.datasource.replica.lag").gauge().value();
+    }
+
+    // Pooled connections killed above are evicted on their next use, so recovery can take a few checks
+    private String awaitReplicaReads() {
+        String database = null;
+        for (int attempt = 0; attempt < 10 && !REPLICA_DATABASE.equals(database); attempt++) {
+            sleep(200);
+            replicaSet.checkHealth();
+            database = databaseIn(readOnly());
+        }
+        return database;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private TransactionTemplate readWrite() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private String databaseIn(TransactionTemplate template) {
+        return template.execute(status -> jdbcTemplate.queryForObject("SELECT current_database()", String.class));
+    }
+
+    // Shadow the recovery functions and the WAL receiver view for new sessions, so the replica database looks like a
+    // standby that replayed everything it received before its receiver stopped; pooled sessions are dropped
+    private static void setStandbyWithoutReceiver(boolean enabled) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword());
+             Statement statement = connection.createStatement()) {
+            if (enabled) {
+                statement.execute("CREATE SCHEMA IF NOT EXISTS fake_standby");
+                statement.execute("CREATE OR REPLACE FUNCTION fake_standby.pg_is_in_recovery() RETURNS boolean " +
+                        "LANGUAGE sql AS 'SELECT true'");
+                statement.execute("CREATE OR REPLACE FUNCTION fake_standby.pg_last_wal_receive_lsn() RETURNS pg_lsn " +
+                        "LANGUAGE sql AS 'SELECT ''0/3000000''::pg_lsn'");
+                statement.execute("CREATE OR REPLACE FUNCTION fake_standby.pg_last_wal_replay_lsn() RETURNS pg_lsn " +
+                        "LANGUAGE sql AS 'SELECT ''0/3000000''::pg_lsn'");
+                statement.execute("CREATE OR REPLACE VIEW fake_standby.pg_stat_wal_receiver AS " +
+                        "SELECT NULL::integer AS pid, NULL::text AS status WHERE false");
+                // pg_catalog listed last so the shadows win
+                statement.execute("ALTER DATABASE " + REPLICA_DATABASE +
+                        " SET search_path = fake_standby, \"$user\", public, pg_catalog");
+            } else {
+                statement.execute("ALTER DATABASE " + REPLICA_DATABASE + " RESET search_path");
+            }
+            statement.execute("SELECT pg_terminate_backend(pid) FROM pg_stat_activity " +
+                    "WHERE datname = '" + REPLICA_DATABASE + "' AND pid <> pg_backend_pid()");
+        }
+    }
+
+    // Refuse new connections to the replica database and drop the pooled ones
+    private static void setReplicaConnectionsAllowed(boolean allowed) throws SQLException {
+        String adminUrl = replica.getJdbcUrl().replace("/" + REPLICA_DATABASE, "/postgres");
+        try (Connection admin = DriverManager.getConnection(adminUrl, replica.getUsername(), replica.getPassword());
+             Statement statement = admin.createStatement()) {
+            statement.execute("ALTER DATABASE " + REPLICA_DATABASE + " WITH ALLOW_CONNECTIONS " + allowed);
+            if (!allowed) {
+                statement.execute("SELECT pg_terminate_backend(pid) FROM pg_stat_activity " +
+                        "WHERE datname = '" + REPLICA_DATABASE + "' AND pid <> pg_backend_pid()");
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.shah_s.bakery_payment_service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+// Minimal local order-service for tests; records every request and answers with a configurable status
+class StubOrderService implements AutoCloseable {
+
+    record RecordedRequest(String method, String path, String body) {}
+
+    final private HttpServer server;
+
+    final private List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+
+    final private Map<UUID, String> orders = new ConcurrentHashMap<>();
+
+    private volatile BiFunction<String, String, Integer> responder = (method, path) -> 200;
+
+    StubOrderService() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    // Status code per (method, path); 200 for everything by default
+    void respondWith(BiFunction<String, String, Integer> responder) {
+        this.responder = responder;
+    }
+
+    // Serve GET /api/orders/{orderId}
+    void addOrder(UUID orderId, String totalAmount) {
+        orders.put(orderId, "{\"id\":\"" + orderId + "\",\"totalAmount\":" + totalAmount + "}");
+    }
+
+    List<RecordedRequest> requests() {
+        return List.copyOf(requests);
+    }
+
+    List<RecordedRequest> awaitRequests(int count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (requests.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        return requests();
+    }
+
+    void reset() {
+        requests.clear();
+        orders.clear();
+        responder = (method, path) -> 200;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new RecordedRequest(method, path, body));
+
+        int status = responder.apply(method, path);
+        String response = "{}";
+        if (status == 200 && "GET".equals(method) && path.startsWith("/api/orders/")) {
+            String order = orders.get(UUID.fromString(path.substring("/api/orders/".length())));
+            if (order == null) {
+                status = 404;
+            } else {
+                response = order;
+            }
+        }
+
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.shah_s.bakery_payment_service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Card payments for a fresh order and user, saved and flushed so the database sees them straight away
+final class TestPayments {
+
+    private TestPayments() {}
+
+    static Payment save(PaymentRepository paymentRepository, Payment.PaymentStatus status, String amount) {
+        return save(paymentRepository, status, amount, payment -> {});
+    }
+
+    // The customizer sets whatever else a test needs before the insert
+    static Payment save(PaymentRepository paymentRepository, Payment.PaymentStatus status, String amount,
+                        Consumer<Payment> customizer) {
+        Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                new BigDecimal(amount), "Test payment");
+        payment.setStatus(status);
+        customizer.accept(payment);
+        return paymentRepository.saveAndFlush(payment);
+    }
+}
@@ -0,0 +1,305 @@
+package com.shah_s.bakery_payment_service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_payment_service.dto.RefundRequest;
+import com.shah_s.bakery_payment_service.dto.RefundResponse;
+import com.shah_s.bakery_payment_service.dto.WebhookEventPayload;
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import com.shah_s.bakery_payment_service.entity.WebhookEvent;
+import com.shah_s.bakery_payment_service.exception.WebhookSignatureException;
+import com.shah_s.bakery_payment_service.repository.PaymentRepository;
+import com.shah_s.bakery_payment_service.repository.RefundRepository;
+import com.shah_s.bakery_payment_service.repository.WebhookEventRepository;
+import com.shah_s.bakery_payment_service.service.PaymentGatewayService;
+import com.shah_s.bakery_payment_service.service.PaymentProcessingService;
+import com.shah_s.bakery_payment_service.service.RefundProcessingService;
+import com.shah_s.bakery_payment_service.service.RefundService;
+import com.shah_s.bakery_payment_service.service.WebhookEventProcessor;
+import com.shah_s.bakery_payment_service.service.WebhookService;
+import com.shah_s.bakery_payment_service.service.WebhookSignatureVerifier;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// Scheduled webhook and outbox runs are pushed out so only the test applies events
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "payment.gateways.mock.enabled=true",
+        "payment.gateways.mock.webhook-secret=whsec_test",
+        "payment.webhook.poll-interval=3600000",
+        "payment.outbox.poll-interval=3600000"
+})
+class WebhookProcessingTests {
+
+    private static final Payment.PaymentGateway GATEWAY = Payment.PaymentGateway.MOCK;
+
+    @Autowired
+    private WebhookService webhookService;
+
+    @Autowired
+    private WebhookEventProcessor webhookEventProcessor;
+
+    @Autowired
+    private WebhookSignatureVerifier signatureVerifier;
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+
+    @Autowired
+    private RefundService refundService;
+
+    @Autowired
+    private RefundProcessingService refundProcessingService;
+
+    @Autowired
+    private RefundRepository refundRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private PaymentGatewayService paymentGatewayService;
+
+    @Test
+    void onlySignedRecentDeliveriesAreAccepted() throws Exception {
+        byte[] body = body(event("payment.succeeded", "PAY-UNKNOWN", LocalDateTime.now()));
+        long now = System.currentTimeMillis() / 1000;
+
+        assertThatThrownBy(() -> webhookService.receive(GATEWAY, "t=" + now + ",v1=00ff", body))
+                .isInstanceOf(WebhookSignatureException.class);
+        assertThatThrownBy(() -> webhookService.receive(GATEWAY, signatureVerifier.signatureHeader(GATEWAY, now - 3600, body), body))
+                .isInstanceOf(WebhookSignatureException.class);
+        assertThatThrownBy(() -> webhookService.receive(GATEWAY, null, body))
+                .isInstanceOf(WebhookSignatureException.class);
+
+        String signature = signatureVerifier.signatureHeader(GATEWAY, now, body);
+        assertThat(webhookService.receive(GATEWAY, "t=" + now + ",v1=00ff,v1=" + signature.split("v1=")[1], body)).isTrue();
+    }
+
+    @Test
+    void eventsOfOnePaymentApplyInOccurrenceOrder() throws Exception {
+        Payment payment = saveProcessing();
+        LocalDateTime failedAt = LocalDateTime.now().minusSeconds(10);
+
+        // Delivered out of order: the timeout that came first arrives last
+        deliver(event("payment.succeeded", payment.getPaymentReference(), failedAt.plusSeconds(5)));
+        WebhookEventPayload timeout = event("payment.failed", payment.getPaymentReference(), failedAt);
+        timeout.setFailureCode("GATEWAY_TIMEOUT");
+        deliver(timeout);
+
+        webhookEventProcessor.poll();
+
+        Payment settled = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(settled.getStatus()).isEqualTo(Payment.PaymentStatus.COMPLETED);
+        assertThat(settled.getNextRetryAt()).isNull();
+        assertThat(settled.getFailureCode()).isNull();
+        assertThat(eventStatuses(payment.getPaymentReference()))
+                .containsOnly(WebhookEvent.EventStatus.APPLIED.name());
+    }
+
+    @Test
+    void burstOfRedeliveriesAppliesEachEventOnce() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        List<Callable<Boolean>> deliveries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Payment payment = saveProcessing();
+            payments.add(payment);
+            byte[] body = body(event("payment.succeeded", payment.getPaymentReference(), LocalDateTime.now()));
+            for (int copy = 0; copy < 3; copy++) {
+                deliveries.add(() -> webhookService.receive(GATEWAY,
+                        signatureVerifier.signatureHeader(GATEWAY, System.currentTimeMillis() / 1000, body), body));
+            }
+        }
+
+        int appended = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (Future<Boolean> delivery : executor.invokeAll(deliveries)) {
+                appended += delivery.get() ? 1 : 0;
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(appended).isEqualTo(payments.size());
+
+        webhookEventProcessor.poll();
+
+        for (Payment payment : payments) {
+            Payment settled = paymentRepository.findById(payment.getId()).orElseThrow();
+            assertThat(settled.getStatus()).isEqualTo(Payment.PaymentStatus.COMPLETED);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_transactions WHERE payment_id = ?",
+                    Long.class, payment.getId())).isEqualTo(1);
+            assertThat(eventStatuses(payment.getPaymentReference())).containsExactly(WebhookEvent.EventStatus.APPLIED.name());
+        }
+        assertThat(webhookEventRepository.countByStatus(WebhookEvent.EventStatus.PROCESSING)).isZero();
+    }
+
+    @Test
+    void settledPaymentsIgnoreLateEventsUntilReplayed() throws Exception {
+        Payment payment = saveProcessing();
+        deliver(event("payment.succeeded", payment.getPaymentReference(), LocalDateTime.now()));
+        webhookEventProcessor.poll();
+
+        WebhookEventPayload late = event("payment.failed", payment.getPaymentReference(), LocalDateTime.now());
+        deliver(late);
+        webhookEventProcessor.poll();
+
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.COMPLETED);
+        assertThat(eventStatuses(payment.getPaymentReference()))
+                .containsExactlyInAnyOrder(WebhookEvent.EventStatus.APPLIED.name(), WebhookEvent.EventStatus.IGNORED.name());
+
+        UUID ignoredId = jdbcTemplate.queryForObject(
+                "SELECT id FROM webhook_events WHERE event_id = ?", UUID.class, late.getId());
+        webhookService.replayEvent(ignoredId);
+        assertThat(webhookEventRepository.findById(ignoredId).orElseThrow().getStatus())
+                .isEqualTo(WebhookEvent.EventStatus.RECEIVED);
+    }
+
+    @Test
+    void captureAfterAFailureWebhookSettlesThePayment() throws Exception {
+        Payment payment = save(Payment.PaymentStatus.PENDING);
+
+        // The failure webhook lands while the worker's gateway call is still running, then the call captures
+        doAnswer(invocation -> {
+            deliver(event("payment.failed", payment.getPaymentReference(), LocalDateTime.now()));
+            webhookEventProcessor.poll();
+            assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStatus())
+                    .isEqualTo(Payment.PaymentStatus.FAILED);
+            return approved();
+        }).when(paymentGatewayService).processPayment(any(Payment.class));
+
+        paymentProcessingService.processPayment(payment.getId());
+
+        Payment settled = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(settled.getStatus()).isEqualTo(Payment.PaymentStatus.COMPLETED);
+        assertThat(settled.getFailureCode()).isNull();
+        assertThat(settled.getNextRetryAt()).isNull();
+    }
+
+    @Test
+    void captureWebhookAfterAFailedCallSettlesThePayment() throws Exception {
+        Payment payment = TestPayments.save(paymentRepository, Payment.PaymentStatus.FAILED, "18.00",
+                failed -> failed.setFailureCode("DECLINED"));
+
+        deliver(event("payment.succeeded", payment.getPaymentReference(), LocalDateTime.now()));
+        webhookEventProcessor.poll();
+
+        Payment settled = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(settled.getStatus()).isEqualTo(Payment.PaymentStatus.COMPLETED);
+        assertThat(settled.getFailureCode()).isNull();
+        assertThat(eventStatuses(payment.getPaymentReference())).containsExactly(WebhookEvent.EventStatus.APPLIED.name());
+    }
+
+    @Test
+    void captureOfACancelledPaymentIsFlaggedForReview() throws Exception {
+        Payment payment = save(Payment.PaymentStatus.CANCELLED);
+
+        deliver(event("payment.succeeded", payment.getPaymentReference(), LocalDateTime.now()));
+        webhookEventProcessor.poll();
+
+        Payment flagged = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(flagged.getStatus()).isEqualTo(Payment.PaymentStatus.CANCELLED);
+        assertThat(flagged.getFailureCode()).isEqualTo(PaymentProcessingService.CAPTURED_AFTER_CANCEL_CODE);
+        assertThat(flagged.getCapturedAt()).isNotNull();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_transactions " +
+                "WHERE payment_id = ? AND status = 'COMPLETED'", Long.class, payment.getId())).isEqualTo(1);
+        assertThat(eventStatuses(payment.getPaymentReference())).containsExactly(WebhookEvent.EventStatus.APPLIED.name());
+
+        // A redelivered capture is not recorded twice
+        deliver(event("payment.succeeded", payment.getPaymentReference(), LocalDateTime.now()));
+        webhookEventProcessor.poll();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_transactions WHERE payment_id = ?",
+                Long.class, payment.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void refundSettledByWebhookSurvivesAFailingGatewayCall() throws Exception {
+        Payment payment = save(Payment.PaymentStatus.COMPLETED);
+        RefundResponse refund = refundService.createRefund(new RefundRequest(payment.getId(),
+                new BigDecimal("5.00"), "Webhook test", UUID.randomUUID()));
+
+        // The success webhook lands while the worker's gateway call is still running, then the call fails
+        doAnswer(invocation -> {
+            deliver(new WebhookEventPayload("evt_" + UUID.randomUUID(), WebhookEventPayload.REFUND_SUCCEEDED,
+                    null, refund.getRefundReference()));
+            webhookEventProcessor.poll();
+            throw new IllegalStateException("Connection reset");
+        }).when(paymentGatewayService).processRefund(any(Refund.class));
+
+        refundProcessingService.processRefund(refund.getId());
+
+        assertThat(refundRepository.findById(refund.getId()).orElseThrow().getStatus())
+                .isEqualTo(Refund.RefundStatus.COMPLETED);
+        PaymentRepository.RefundBalance balance = paymentRepository.findRefundBalance(payment.getId()).orElseThrow();
+        assertThat(balance.getRefundedAmount()).isEqualByComparingTo("5.00");
+        assertThat(balance.getReservedRefundAmount()).isEqualByComparingTo("0.00");
+    }
+
+    private static PaymentGatewayService.PaymentGatewayResponse approved() {
+        return PaymentGatewayService.PaymentGatewayResponse.builder()
+                .success(true)
+                .gatewayTransactionId("txn_" + UUID.randomUUID())
+                .gatewayResponse("Transaction approved")
+                .gatewayFee(new BigDecimal("0.50"))
+                .build();
+    }
+
+    private List<String> eventStatuses(String paymentReference) {
+        return jdbcTemplate.queryForList("SELECT status FROM webhook_events WHERE payment_reference = ?",
+                String.class, paymentReference);
+    }
+
+    private void deliver(WebhookEventPayload event) throws Exception {
+        byte[] body = body(event);
+        assertThat(webhookService.receive(GATEWAY,
+                signatureVerifier.signatureHeader(GATEWAY, System.currentTimeMillis() / 1000, body), body)).isTrue();
+    }
+
+    private byte[] body(WebhookEventPayload event) throws Exception {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    private static WebhookEventPayload event(String type, String paymentReference, LocalDateTime occurredAt) {
+        WebhookEventPayload event = new WebhookEventPayload("evt_" + UUID.randomUUID(), type, paymentReference, null);
+        event.setCreated(occurredAt);
+        return event;
+    }
+
+    private Payment saveProcessing() {
+        return save(Payment.PaymentStatus.PROCESSING);
+    }
+
+    private Payment save(Payment.PaymentStatus status) {
+        return TestPayments.save(paymentRepository, status, "18.00");
+    }
+}
@@ -0,0 +1,91 @@
+package com.shah_s.bakery_payment_service.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncConfigTests {
+
+    private static final List<String> EXECUTORS = List.of("gatewayExecutor", "orderServiceExecutor",
+            "notificationExecutor", "webhookExecutor", "exportExecutor", "taskExecutor");
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(AsyncConfig.class)
+            .withPropertyValues(
+                    "payment.execution.gateway-concurrency=2",
+                    "payment.execution.gateway-queue-capacity=3");
+
+    @Test
+    void platformModeWiresBoundedThreadPools() {
+        contextRunner.run(context -> {
+            for (String name : EXECUTORS) {
+                assertThat(context.getBean(name)).as(name).isInstanceOf(ThreadPoolTaskExecutor.class);
+            }
+
+            ThreadPoolTaskExecutor gateway = context.getBean("gatewayExecutor", ThreadPoolTaskExecutor.class);
+            assertThat(gateway.getCorePoolSize()).isEqualTo(2);
+            assertThat(gateway.getMaxPoolSize()).isEqualTo(2);
+            assertThat(gateway.getThreadPoolExecutor().getQueue().remainingCapacity()).isEqualTo(3);
+            assertThat(context.getBean(AsyncConfig.class).getAsyncExecutor()).isSameAs(context.getBean("taskExecutor"));
+        });
+    }
+
+    @Test
+    void virtualModeWiresBoundedVirtualThreadExecutors() {
+        contextRunner.withPropertyValues("payment.execution.mode=virtual").run(context -> {
+            for (String name : EXECUTORS) {
+                assertThat(context.getBean(name)).as(name).isInstanceOf(BoundedVirtualThreadExecutor.class);
+            }
+            assertThat(context.getBean(AsyncConfig.class).getAsyncExecutor()).isSameAs(context.getBean("taskExecutor"));
+        });
+    }
+
+    @Test
+    void modeIsCaseInsensitive() {
+        contextRunner.withPropertyValues("payment.execution.mode= Virtual ").run(context ->
+                assertThat(context.getBean("gatewayExecutor")).isInstanceOf(BoundedVirtualThreadExecutor.class));
+    }
+
+    @Test
+    void unknownModeFailsStartup() {
+        contextRunner.withPropertyValues("payment.execution.mode=carrier").run(context ->
+                assertThat(context).hasFailed());
+    }
+
+    @Test
+    void bothModesRejectWorkPastConcurrencyPlusQueueCapacity() {
+        for (String mode : List.of("platform", "virtual")) {
+            contextRunner.withPropertyValues("payment.execution.mode=" + mode).run(context -> {
+                TaskExecutor gateway = context.getBean("gatewayExecutor", TaskExecutor.class);
+                CountDownLatch release = new CountDownLatch(1);
+                try {
+                    for (int i = 0; i < 5; i++) {
+                        gateway.execute(() -> await(release));
+                    }
+                    assertThatThrownBy(() -> gateway.execute(() -> {}))
+                            .as(mode)
+                            .isInstanceOf(TaskRejectedException.class);
+                } finally {
+                    release.countDown();
+                }
+            });
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.shah_s.bakery_payment_service.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchMetricsDataSourceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    private BatchMetricsDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        dataSource = new BatchMetricsDataSource(target, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void singleWritesRecordTheUpdateCount() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1, 250, 0);
+
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement update = connection.prepareStatement("UPDATE payments SET status = ?");
+            update.executeUpdate();
+            update.executeUpdate();
+            update.executeUpdate();
+        }
+
+        DistributionSummary single = rows("single");
+        assertThat(single.count()).isEqualTo(3);
+        assertThat(single.totalAmount()).isEqualTo(251);
+        assertThat(single.max()).isEqualTo(250);
+    }
+
+    @Test
+    void largeSingleWritesRecordTheUpdateCount() throws SQLException {
+        when(statement.executeLargeUpdate()).thenReturn(3_000L);
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.prepareStatement("DELETE FROM payment_transactions").executeLargeUpdate();
+        }
+
+        assertThat(rows("single").totalAmount()).isEqualTo(3_000);
+    }
+
+    @Test
+    void batchesRecordTheStatementsSentTogether() throws SQLException {
+        when(statement.executeBatch()).thenReturn(new int[] {1, 1, 1, 1}, new int[0]);
+
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO payments VALUES (?)");
+            insert.executeBatch();
+            insert.executeBatch();
+        }
+
+        DistributionSummary batch = rows("batch");
+        assertThat(batch.count()).isEqualTo(1);
+        assertThat(batch.totalAmount()).isEqualTo(4);
+    }
+
+    private DistributionSummary rows(String mode) {
+        return meterRegistry.get("payment.jdbc.write.rows").tag("mode", mode).summary();
+    }
+}
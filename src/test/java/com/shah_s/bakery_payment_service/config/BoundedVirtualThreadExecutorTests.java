@@ -0,0 +1,155 @@
+package com.shah_s.bakery_payment_service.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedVirtualThreadExecutorTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BoundedVirtualThreadExecutor executor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void neverRunsMoreTasksThanTheConcurrencyLimit() throws InterruptedException {
+        executor = new BoundedVirtualThreadExecutor("test", 3, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(3);
+    }
+
+    @Test
+    void tasksPastTheLimitWaitForAPermit() {
+        executor = new BoundedVirtualThreadExecutor("test", 2, 10);
+
+        for (int i = 0; i < 5; i++) {
+            executor.execute(this::awaitRelease);
+        }
+
+        awaitCondition(() -> executor.getActiveCount() == 2 && executor.getQueuedCount() == 3);
+        release.countDown();
+        awaitCondition(() -> executor.getActiveCount() == 0 && executor.getQueuedCount() == 0);
+    }
+
+    @Test
+    void rejectsSubmissionsPastTheQueueCapacity() throws InterruptedException {
+        executor = new BoundedVirtualThreadExecutor("test", 2, 3);
+        List<CountDownLatch> finished = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            finished.add(latch);
+            executor.execute(() -> {
+                awaitRelease();
+                latch.countDown();
+            });
+        }
+
+        // TaskRejectedException, so callers catching the JDK type see it too
+        assertThatThrownBy(() -> executor.execute(() -> {}))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("test");
+
+        // Finished tasks give their slot back
+        release.countDown();
+        for (CountDownLatch latch : finished) {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        CountDownLatch accepted = new CountDownLatch(1);
+        awaitCondition(() -> tryExecute(accepted::countDown));
+        assertThat(accepted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void aFailingTaskReleasesItsSlot() throws InterruptedException {
+        executor = new BoundedVirtualThreadExecutor("test", 1, 0);
+
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        CountDownLatch accepted = new CountDownLatch(1);
+        awaitCondition(() -> tryExecute(accepted::countDown));
+        assertThat(accepted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void destroyWaitsForRunningTasks() throws InterruptedException {
+        executor = new BoundedVirtualThreadExecutor("test", 2, 10);
+        AtomicInteger completed = new AtomicInteger();
+
+        for (int i = 0; i < 6; i++) {
+            executor.execute(() -> {
+                sleep(20);
+                completed.incrementAndGet();
+            });
+        }
+        executor.destroy();
+
+        assertThat(completed.get()).isEqualTo(6);
+    }
+
+    // A slot is returned just after the task body ends, so retry until it is
+    private boolean tryExecute(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 5s").isLessThan(deadline);
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
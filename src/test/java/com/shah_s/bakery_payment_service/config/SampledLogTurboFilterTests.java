@@ -0,0 +1,70 @@
+package com.shah_s.bakery_payment_service.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SampledLogTurboFilterTests {
+
+    private final LoggerContext context = new LoggerContext();
+
+    private final SampledLogTurboFilter filter = new SampledLogTurboFilter();
+
+    @BeforeEach
+    void setUp() {
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+        filter.setContext(context);
+        filter.addLoggerPrefix("com.example.hot, com.example.other");
+        filter.setPermitsPerInterval(3);
+        filter.setIntervalMillis(60_000);
+        filter.setSampleRate(10);
+        filter.start();
+    }
+
+    @Test
+    void passesPermitsThenOneInSampleRate() {
+        Logger logger = context.getLogger("com.example.hot.PaymentService");
+
+        int passed = 0;
+        for (int i = 0; i < 103; i++) {
+            passed += decide(logger, Level.INFO) == FilterReply.NEUTRAL ? 1 : 0;
+        }
+
+        assertThat(passed).isEqualTo(3 + 10);
+        assertThat(filter.getSuppressedCount()).isEqualTo(90);
+    }
+
+    @Test
+    void neverSamplesWarningsErrorsOrOtherLoggers() {
+        Logger hot = context.getLogger("com.example.hot.PaymentService");
+        Logger unrelated = context.getLogger("com.example.hotter.Other");
+        for (int i = 0; i < 100; i++) {
+            decide(hot, Level.INFO);
+        }
+
+        assertThat(decide(hot, Level.ERROR)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(hot, Level.WARN)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(unrelated, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void levelChecksAndDisabledLevelsUseNoPermits() {
+        Logger logger = context.getLogger("com.example.other.RefundService");
+        for (int i = 0; i < 100; i++) {
+            filter.decide(null, logger, Level.INFO, null, null, null);
+            decide(logger, Level.DEBUG);
+        }
+
+        assertThat(decide(logger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.getSuppressedCount()).isZero();
+    }
+
+    private FilterReply decide(Logger logger, Level level) {
+        return filter.decide(null, logger, level, "Processing payment {}", new Object[] {"PAY-1"}, null);
+    }
+}
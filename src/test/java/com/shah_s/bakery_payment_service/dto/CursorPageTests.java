@@ -0,0 +1,74 @@
+package com.shah_s.bakery_payment_service.dto;
+
+import com.shah_s.bakery_payment_service.exception.PaymentServiceException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorPageTests {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 123_456_000);
+
+    @Test
+    void cursorRoundTripsThroughToken() {
+        PageCursor cursor = new PageCursor(BASE, UUID.randomUUID());
+
+        PageCursor decoded = PageCursor.decode(cursor.encode(), PageCursor.descendingStart());
+
+        assertThat(decoded).isEqualTo(cursor);
+    }
+
+    @Test
+    void missingTokenStartsAtTheGivenEnd() {
+        assertThat(PageCursor.decode(null, PageCursor.descendingStart())).isEqualTo(PageCursor.descendingStart());
+        assertThat(PageCursor.decode(" ", PageCursor.ascendingStart())).isEqualTo(PageCursor.ascendingStart());
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        assertThatThrownBy(() -> PageCursor.decode("not-a-cursor", PageCursor.descendingStart()))
+                .isInstanceOf(PaymentServiceException.class);
+        assertThatThrownBy(() -> PageCursor.decode("djJ8eHx5", PageCursor.descendingStart()))
+                .isInstanceOf(PaymentServiceException.class);
+    }
+
+    @Test
+    void nextCursorPointsAtLastItemWhenMoreRowsExist() {
+        List<PageCursor> rows = rows(6);
+
+        CursorPage<PageCursor> page = CursorPage.of(rows, 5, Function.identity(), Function.identity());
+
+        assertThat(page.getItems()).hasSize(5);
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(PageCursor.decode(page.getNextCursor(), PageCursor.descendingStart())).isEqualTo(rows.get(4));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<PageCursor> page = CursorPage.of(rows(3), 5, Function.identity(), Function.identity());
+
+        assertThat(page.getItems()).hasSize(3);
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        assertThat(CursorPage.pageSize(0)).isEqualTo(1);
+        assertThat(CursorPage.pageSize(10_000)).isEqualTo(CursorPage.MAX_LIMIT);
+        assertThat(CursorPage.probe(20).getPageSize()).isEqualTo(21);
+    }
+
+    private List<PageCursor> rows(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new PageCursor(BASE.minusMinutes(i), UUID.randomUUID()))
+                .toList();
+    }
+}
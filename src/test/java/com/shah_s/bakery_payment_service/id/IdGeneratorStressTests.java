@@ -0,0 +1,134 @@
+package com.shah_s.bakery_payment_service.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdGeneratorStressTests {
+
+    private static final int THREADS = 8;
+
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    void referencesAreUniqueAcrossThreadsAbove100kPerSecond() throws Exception {
+        ReferenceGenerator generator = new ReferenceGenerator(7);
+
+        Result<String> result = generateConcurrently(() -> generator.next("PAY"));
+
+        assertThat(result.ids()).hasSize(THREADS * IDS_PER_THREAD);
+        assertThat(result.idsPerSecond()).isGreaterThan(100_000);
+    }
+
+    @Test
+    void referencesFromDifferentNodesNeverCollide() throws Exception {
+        ReferenceGenerator first = new ReferenceGenerator(1);
+        ReferenceGenerator second = new ReferenceGenerator(2);
+
+        Result<String> result = generateConcurrently(() -> first.next("REF") + "|" + second.next("REF"));
+
+        Set<String> combined = ConcurrentHashMap.newKeySet();
+        result.ids().forEach(pair -> {
+            String[] parts = pair.split("\\|");
+            combined.add(parts[0]);
+            combined.add(parts[1]);
+        });
+        assertThat(combined).hasSize(2 * THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void referencesIncreaseWithinAThread() {
+        ReferenceGenerator generator = new ReferenceGenerator(35);
+
+        String previous = generator.next("PAY");
+        for (int i = 0; i < 10_000; i++) {
+            String next = generator.next("PAY");
+            assertThat(next).isGreaterThan(previous).hasSizeLessThanOrEqualTo(50);
+            previous = next;
+        }
+    }
+
+    @Test
+    void resumedGeneratorNeverGoesBackOverAStoredReference() {
+        // Left by a previous run an hour ahead of the clock, e.g. before the clock was stepped back
+        String stored = "PAY-" + DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC)
+                .format(Instant.now().plusSeconds(3600)) + "-" + ReferenceGenerator.nodeCode(9) + "00ZZ";
+        ReferenceGenerator restarted = new ReferenceGenerator(9);
+
+        restarted.resumeAfter(stored);
+
+        String next = restarted.next("PAY");
+        assertThat(next).isGreaterThan(stored).startsWith(stored.substring(0, stored.length() - 4));
+        assertThat(next).endsWith("0100");
+    }
+
+    @Test
+    void uuidsAreUniqueVersion7AndTimeOrdered() throws Exception {
+        Result<UUID> result = generateConcurrently(UuidV7::next);
+
+        assertThat(result.ids()).hasSize(THREADS * IDS_PER_THREAD);
+        assertThat(result.idsPerSecond()).isGreaterThan(100_000);
+        assertThat(result.ids()).allSatisfy(uuid -> {
+            assertThat(uuid.version()).isEqualTo(7);
+            assertThat(uuid.variant()).isEqualTo(2);
+        });
+
+        UUID previous = UuidV7.next();
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = UuidV7.next();
+            assertThat(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()))
+                    .isPositive();
+            previous = next;
+        }
+        assertThat(UuidV7.timestampOf(previous)).isCloseTo(System.currentTimeMillis(),
+                org.assertj.core.data.Offset.offset(5_000L));
+    }
+
+    private <T> Result<T> generateConcurrently(Supplier<T> generator) throws Exception {
+        Set<T> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<T>>> batches = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                batches.add(executor.submit(() -> {
+                    List<T> batch = new ArrayList<>(IDS_PER_THREAD);
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        batch.add(generator.get());
+                    }
+                    return batch;
+                }));
+            }
+
+            long started = System.nanoTime();
+            start.countDown();
+            List<List<T>> generated = new ArrayList<>();
+            for (Future<List<T>> batch : batches) {
+                generated.add(batch.get());
+            }
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+            generated.forEach(ids::addAll);
+            return new Result<>(ids, THREADS * IDS_PER_THREAD / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Result<T>(Set<T> ids, double idsPerSecond) {}
+}
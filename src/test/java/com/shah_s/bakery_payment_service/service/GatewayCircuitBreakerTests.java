@@ -0,0 +1,71 @@
+package com.shah_s.bakery_payment_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayCircuitBreakerTests {
+
+    private final GatewayCircuitBreaker breaker =
+            new GatewayCircuitBreaker("TEST", 10, 4, 50, Duration.ofMillis(50), 2);
+
+    @Test
+    void opensOnceFailureRateReachesThreshold() {
+        call(false);
+        call(true);
+        call(false);
+        assertThat(breaker.getState()).isEqualTo(GatewayCircuitBreaker.State.CLOSED);
+
+        call(true);
+
+        assertThat(breaker.getState()).isEqualTo(GatewayCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(GatewayCircuitBreaker.NOT_PERMITTED);
+    }
+
+    @Test
+    void closesAfterSuccessfulProbes() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(60);
+
+        long firstProbe = breaker.tryAcquirePermission();
+        long secondProbe = breaker.tryAcquirePermission();
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(GatewayCircuitBreaker.NOT_PERMITTED);
+
+        breaker.onResult(firstProbe, false);
+        breaker.onResult(secondProbe, false);
+
+        assertThat(breaker.getState()).isEqualTo(GatewayCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void reopensWhenAProbeFails() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(60);
+
+        breaker.onResult(breaker.tryAcquirePermission(), true);
+
+        assertThat(breaker.tryAcquirePermission()).isEqualTo(GatewayCircuitBreaker.NOT_PERMITTED);
+    }
+
+    @Test
+    void ignoresResultsOfCallsStartedBeforeATransition() {
+        long stalePermit = breaker.tryAcquirePermission();
+        tripOpen();
+
+        breaker.onResult(stalePermit, false);
+
+        assertThat(breaker.getState()).isEqualTo(GatewayCircuitBreaker.State.OPEN);
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+    }
+
+    private void call(boolean failure) {
+        breaker.onResult(breaker.tryAcquirePermission(), failure);
+    }
+}
@@ -0,0 +1,80 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import com.shah_s.bakery_payment_service.entity.Refund;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final PaymentMetrics metrics = new PaymentMetrics(registry);
+
+    @Test
+    void freeTextFailureCodesShareOneSeries() {
+        for (int i = 0; i < 100; i++) {
+            metrics.paymentFailure("gateway said no #" + i);
+        }
+        metrics.paymentFailure(PaymentGatewayService.GATEWAY_TIMEOUT);
+        metrics.refundOutcome(Refund.RefundStatus.FAILED, "something else");
+
+        assertThat(registry.find("payment.failures").counters()).hasSize(3);
+        assertThat(registry.get("payment.failures").tags("type", "payment", "code", "OTHER").counter().count())
+                .isEqualTo(100);
+        assertThat(registry.get("payment.refund.outcomes").tag("result", "failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void transitionsCountOnlyOnceCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            metrics.transition(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.CANCELLED, 5);
+            assertThat(registry.get("payment.status.transitions").counter().count()).isZero();
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(registry.get("payment.status.transitions").tags("from", "pending", "to", "cancelled")
+                .counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void gatewayCallsAreTimedPerGatewayMethodAndOperation() {
+        PaymentGatewayService gatewayService = new PaymentGatewayService(registry, 4, 0, Duration.ZERO,
+                20, 20, 101, Duration.ofSeconds(30), 3);
+        Payment payment = new Payment(UUID.randomUUID(), UUID.randomUUID(), Payment.PaymentMethod.CARD,
+                new BigDecimal("12.00"), "Metrics test");
+
+        gatewayService.processPayment(payment);
+        gatewayService.voidPayment(payment);
+
+        assertThat(registry.find("payment.gateway.call")
+                .tags("gateway", "mock", "method", "card", "operation", "sale").timers())
+                .singleElement()
+                .satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+        assertThat(registry.find("payment.gateway.call").tag("operation", "void").timers()).hasSize(1);
+        assertThat(registry.find("payment.gateway.call").timers())
+                .extracting(timer -> timer.getId().getTag("result"))
+                .allSatisfy(result -> assertThat(result).isIn("success", "failure", "pending", "rejected", "error"));
+    }
+
+    @Test
+    void everyCreatePhaseIsRegisteredUpFront() {
+        assertThat(registry.find("payment.create.phase").timers()).hasSize(PaymentMetrics.Phase.values().length);
+
+        metrics.recordPhase(PaymentMetrics.Phase.INSERT, Timer.start());
+        assertThat(registry.get("payment.create.phase").tag("phase", "insert").timer().count()).isEqualTo(1);
+    }
+}
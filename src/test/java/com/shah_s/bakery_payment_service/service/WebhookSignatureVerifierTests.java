@@ -0,0 +1,41 @@
+package com.shah_s.bakery_payment_service.service;
+
+import com.shah_s.bakery_payment_service.entity.Payment;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebhookSignatureVerifierTests {
+
+    @Test
+    void onlyEnabledGatewaysWithASecretTakeWebhooks() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("payment.gateways.stripe.enabled", "true")
+                .withProperty("payment.gateways.stripe.webhook-secret", "whsec_live_1")
+                .withProperty("payment.gateways.paypal.enabled", "false")
+                .withProperty("payment.gateways.paypal.webhook-secret", "whsec_live_2")
+                .withProperty("payment.gateways.square.enabled", "true")
+                .withProperty("payment.gateways.square.webhook-secret", "");
+
+        WebhookSignatureVerifier verifier = new WebhookSignatureVerifier(environment, Duration.ofMinutes(5));
+
+        assertThat(verifier.accepts(Payment.PaymentGateway.STRIPE)).isTrue();
+        assertThat(verifier.accepts(Payment.PaymentGateway.PAYPAL)).isFalse();
+        assertThat(verifier.accepts(Payment.PaymentGateway.SQUARE)).isFalse();
+        assertThat(verifier.accepts(Payment.PaymentGateway.MOCK)).isFalse();
+    }
+
+    @Test
+    void placeholderSecretsFailStartup() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("payment.gateways.paypal.webhook-secret", "whsec_xxxx");
+
+        assertThatThrownBy(() -> new WebhookSignatureVerifier(environment, Duration.ofMinutes(5)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("payment.gateways.paypal.webhook-secret");
+    }
+}